@@ -0,0 +1,53 @@
+/*-------------------------------------------------------------------------
+*
+* Copyright (c) 2015, PostgreSQL Global Development Group
+*
+*
+*-------------------------------------------------------------------------
+*/
+package org.postgresql;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.concurrent.Future;
+
+/**
+ * The pending result of a query sent by {@link PGConnection#executeAsync}.
+ * <p>
+ * The results of asynchronous queries are read in the order the queries were
+ * sent, by the first of: waiting for any of them, calling
+ * {@link PGConnection#processAsyncResults}, or using the connection in any
+ * other way. {@link #get()} returns the ResultSet of the query, or
+ * <code>null</code> if it returned an update count; a failure is reported as an
+ * {@link java.util.concurrent.ExecutionException} caused by the SQLException.
+ * <p>
+ * A query that has been sent cannot be withdrawn, so {@link #cancel} always
+ * returns <code>false</code>.
+ */
+public interface PGAsyncResult extends Future<ResultSet>
+{
+    /**
+     * Waits for the query to complete.
+     *
+     * @return the ResultSet returned by the query, or <code>null</code> if it returned an update count
+     * @throws SQLException if the query failed
+     */
+    public ResultSet getResultSet() throws SQLException;
+
+    /**
+     * Waits for the query to complete.
+     *
+     * @return the update count of the query, or -1 if it returned a ResultSet
+     * @throws SQLException if the query failed
+     */
+    public int getUpdateCount() throws SQLException;
+
+    /**
+     * Registers a listener that is run once the query has completed, on the
+     * thread that reads its results. The listener is run immediately if the
+     * query has already completed.
+     *
+     * @param listener the listener to run
+     */
+    public void addListener(Runnable listener);
+}
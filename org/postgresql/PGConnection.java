@@ -116,5 +116,29 @@ public interface PGConnection
      * @return PID of backend server process. 
      */
     public int getBackendPID();
+
+    /**
+     * Sends a query to the server without waiting for its results, so that
+     * several queries can be in flight on one connection. The query is sent
+     * as a separate PreparedStatement, so an error only fails that query,
+     * unless it aborts the current transaction.
+     *
+     * @param sql the query, with '?' placeholders for the parameters
+     * @param params the parameter values, as passed to
+     *    {@link PreparedStatement#setObject(int, Object)}; may be null
+     * @return the pending result of the query
+     * @throws SQLException if the query could not be sent
+     * @see PGAsyncResult
+     */
+    public PGAsyncResult executeAsync(String sql, Object[] params) throws SQLException;
+
+    /**
+     * Completes the asynchronous queries whose results have arrived in
+     * full, without waiting for the server.
+     *
+     * @return the number of queries completed
+     * @throws SQLException if reading the results fails
+     */
+    public int processAsyncResults() throws SQLException;
 }
 
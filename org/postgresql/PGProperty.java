@@ -166,6 +166,12 @@ public enum PGProperty
      */
     TCP_KEEP_ALIVE("tcpKeepAlive", "false", "Enable or disable TCP keep-alive. The default is {@code false}."),
 
+    /**
+     * Use a non-blocking socket channel whose reads are awaited by a selector thread shared by all
+     * connections. Ignored for SSL connections. The default is {@code false}.
+     */
+    NIO_TRANSPORT("nioTransport", "false", "Use a non-blocking socket channel served by a shared selector thread. Ignored for SSL connections"),
+
     /**
      * Specify how long to wait for establishment of a database connection.
      * The timeout is specified in seconds.
@@ -268,7 +274,20 @@ public enum PGProperty
 
     LOAD_BALANCE_HOSTS("loadBalanceHosts", "false", "If disabled hosts are connected in the given order. If enabled hosts are chosen randomly from the set of suitable candidates"),
 
-    HOST_RECHECK_SECONDS("hostRecheckSeconds", "10", "Specifies period (seconds) after host statuses are checked again in case they have changed");
+    /**
+     * Specifies how {@code loadBalanceHosts} orders the suitable candidates. {@code random} is the default,
+     * {@code leastLatency}, {@code leastConnections} and {@code powerOfTwo} use the latencies and
+     * connection counts observed by the driver.
+     */
+    LOAD_BALANCE_STRATEGY("loadBalanceStrategy", "random", "Specifies how load balanced hosts are chosen from the suitable candidates", false, "random", "leastLatency", "leastConnections", "powerOfTwo"),
+
+    HOST_RECHECK_SECONDS("hostRecheckSeconds", "10", "Specifies period (seconds) after host statuses are checked again in case they have changed"),
+
+    /**
+     * Specifies period (seconds) between background checks of the status of all hosts of a multi host url.
+     * A value of {@code 0}, which is the default, disables the background checks.
+     */
+    HOST_PROBE_SECONDS("hostProbeSeconds", "0", "Specifies period (seconds) between background checks of the status of all hosts. 0 disables the checks");
 
     private String _name;
     private String _defaultValue;
@@ -0,0 +1,413 @@
+/*-------------------------------------------------------------------------
+*
+* Copyright (c) 2015, PostgreSQL Global Development Group
+*
+*
+*-------------------------------------------------------------------------
+*/
+package org.postgresql.copy;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.Reader;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.postgresql.PGConnection;
+import org.postgresql.core.BaseConnection;
+import org.postgresql.util.GT;
+import org.postgresql.util.PSQLException;
+import org.postgresql.util.PSQLState;
+
+/**
+ * Loads data with COPY FROM STDIN over several connections in parallel.
+ * <p>
+ * The input is split into chunks on row boundaries, that is after a newline
+ * outside of a quoted CSV value and not escaped by a backslash in text format.
+ * Every connection runs its own COPY in its own thread and copies the chunks
+ * it takes, so the rows may be loaded in any order. Binary format and CSV
+ * input with a HEADER line cannot be split and are rejected.
+ * <p>
+ * When one connection fails the COPY on every other connection is cancelled.
+ * Connections in autocommit mode commit their part of the data on their own
+ * though, so for all or nothing loading turn autocommit off and commit or roll
+ * back all connections after the load.
+ */
+public class CopyLoader {
+    /**
+     * Default size of the chunks handed to the connections.
+     */
+    final static int DEFAULT_CHUNK_SIZE = 4 * CopyManager.DEFAULT_BUFFER_SIZE;
+
+    private final PGConnection[] connections;
+    private int chunkSize = DEFAULT_CHUNK_SIZE;
+
+    /**
+     * @param connections distinct connections to load with (protocol version 3 required)
+     * @throws SQLException if no connections or a connection more than once are given
+     */
+    public CopyLoader(PGConnection[] connections) throws SQLException {
+        if (connections.length == 0)
+            throw new PSQLException(GT.tr("At least one connection is required."), PSQLState.INVALID_PARAMETER_VALUE);
+        for (int i = 0; i < connections.length; i++) {
+            for (int j = 0; j < i; j++) {
+                if (connections[i] == connections[j])
+                    throw new PSQLException(GT.tr("A connection can be used only once by the loader."), PSQLState.INVALID_PARAMETER_VALUE);
+            }
+        }
+        this.connections = (PGConnection[]) connections.clone();
+    }
+
+    /**
+     * @param chunkSize number of bytes handed to a connection at once; a chunk
+     *  grows if a single row is larger
+     */
+    public void setChunkSize(int chunkSize) {
+        if (chunkSize <= 0)
+            throw new IllegalArgumentException("chunkSize must be positive");
+        this.chunkSize = chunkSize;
+    }
+
+    public int getChunkSize() {
+        return chunkSize;
+    }
+
+    /**
+     * Load text or CSV data from a Reader. The characters are encoded in the
+     * loading thread straight into the chunk buffers.
+     * @param sql COPY FROM STDIN statement, run on every connection
+     * @param from a CSV file or such
+     * @return total number of rows loaded for server 8.2 or newer; -1 for older
+     * @throws SQLException on database usage issues
+     * @throws IOException upon reader or database connection failure
+     */
+    public long copyIn(final String sql, Reader from) throws SQLException, IOException {
+        BaseConnection connection = (BaseConnection) connections[0];
+        return copyIn(sql, new EncodingInputStream(from, connection.getEncoding(), chunkSize));
+    }
+
+    /**
+     * Load text or CSV data from an InputStream.
+     * @param sql COPY FROM STDIN statement, run on every connection
+     * @param from a CSV file or such
+     * @return total number of rows loaded for server 8.2 or newer; -1 for older
+     * @throws SQLException on database usage issues
+     * @throws IOException upon input stream or database connection failure
+     */
+    public long copyIn(final String sql, InputStream from) throws SQLException, IOException {
+        RowScanner scanner = RowScanner.forStatement(sql);
+
+        List<CopyIn> copies = new ArrayList<CopyIn>();
+        try {
+            for (int i = 0; i < connections.length; i++)
+                copies.add(connections[i].getCopyAPI().copyIn(sql));
+        } catch (SQLException se) {
+            for (CopyIn cp : copies)
+                cancel(cp);
+            throw se;
+        }
+
+        return new Load(copies).run(from, scanner);
+    }
+
+    private static void cancel(CopyIn cp) {
+        try {
+            if (cp.isActive())
+                cp.cancelCopy();
+        } catch (SQLException se) {
+            // the copy has already failed
+        }
+    }
+
+    /**
+     * A buffer holding whole rows, passed between the reading thread and the
+     * copying threads and reused.
+     */
+    private static class Chunk {
+        byte[] buf;
+        int len;
+
+        Chunk(byte[] buf) {
+            this.buf = buf;
+        }
+    }
+
+    /**
+     * The state of a single load.
+     */
+    private class Load {
+        private final List<CopyIn> copies;
+        private final BlockingQueue<Chunk> free;
+        private final BlockingQueue<Chunk> full;
+        private final Chunk end = new Chunk(null);
+        private final long[] rows;
+        private final List<Throwable> failures = new ArrayList<Throwable>();
+        private volatile boolean failed = false;
+
+        Load(List<CopyIn> copies) {
+            this.copies = copies;
+            int buffers = 2 * copies.size();
+            free = new ArrayBlockingQueue<Chunk>(buffers);
+            for (int i = 0; i < buffers; i++)
+                free.add(new Chunk(new byte[chunkSize]));
+            // room for every chunk and an end marker for each thread, so adding never blocks
+            full = new ArrayBlockingQueue<Chunk>(buffers + copies.size());
+            rows = new long[copies.size()];
+        }
+
+        long run(InputStream from, RowScanner scanner) throws SQLException, IOException {
+            Thread[] threads = new Thread[copies.size()];
+            for (int i = 0; i < threads.length; i++) {
+                final int index = i;
+                threads[i] = new Thread(new Runnable() {
+                    public void run() {
+                        copy(index);
+                    }
+                }, "PostgreSQL-JDBC-CopyLoader-" + i);
+                threads[i].setDaemon(true);
+                threads[i].start();
+            }
+
+            try {
+                split(from, scanner);
+            } catch (IOException ioe) {
+                fail(ioe);
+            } catch (RuntimeException re) {
+                fail(re);
+            } finally {
+                for (int i = 0; i < threads.length; i++)
+                    full.add(end);
+            }
+
+            boolean interrupted = false;
+            for (int i = 0; i < threads.length; i++) {
+                while (true) {
+                    try {
+                        threads[i].join();
+                        break;
+                    } catch (InterruptedException ie) {
+                        // the threads end soon after the end markers, wait for them anyway
+                        interrupted = true;
+                    }
+                }
+            }
+            if (interrupted)
+                Thread.currentThread().interrupt();
+
+            if (failed)
+                throw failure();
+
+            long total = 0;
+            for (int i = 0; i < rows.length; i++) {
+                if (rows[i] < 0)
+                    return -1;
+                total += rows[i];
+            }
+            return total;
+        }
+
+        /**
+         * Reads the input into chunks ending on row boundaries and queues them.
+         */
+        private void split(InputStream from, RowScanner scanner) throws IOException {
+            Chunk current = takeFree();
+            int len = 0;
+            while (current != null) {
+                boolean eof = false;
+                while (len < current.buf.length) {
+                    int n = from.read(current.buf, len, current.buf.length - len);
+                    if (n < 0) {
+                        eof = true;
+                        break;
+                    }
+                    if (n == 0)
+                        break;
+                    len += n;
+                }
+
+                if (eof) {
+                    if (len > 0) {
+                        current.len = len;
+                        full.add(current);
+                    }
+                    return;
+                }
+
+                int boundary = scanner.scan(current.buf, len);
+                if (boundary <= 0) {
+                    // a single row fills the whole buffer
+                    byte[] larger = new byte[current.buf.length * 2];
+                    System.arraycopy(current.buf, 0, larger, 0, len);
+                    current.buf = larger;
+                    continue;
+                }
+
+                Chunk next = takeFree();
+                if (next == null)
+                    return;
+                int rest = len - boundary;
+                if (next.buf.length < rest)
+                    next.buf = new byte[current.buf.length];
+                System.arraycopy(current.buf, boundary, next.buf, 0, rest);
+                scanner.shift(boundary);
+                current.len = boundary;
+                full.add(current);
+
+                current = next;
+                len = rest;
+            }
+        }
+
+        /**
+         * @return a free chunk, or null if the load has failed
+         */
+        private Chunk takeFree() throws IOException {
+            try {
+                while (!failed) {
+                    Chunk chunk = free.poll(100, TimeUnit.MILLISECONDS);
+                    if (chunk != null)
+                        return chunk;
+                }
+                return null;
+            } catch (InterruptedException ie) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException(GT.tr("Interrupted while loading data."));
+            }
+        }
+
+        /**
+         * Copies the queued chunks on one connection until the end marker.
+         */
+        private void copy(int index) {
+            CopyIn cp = copies.get(index);
+            try {
+                while (true) {
+                    Chunk chunk = full.take();
+                    if (chunk == end)
+                        break;
+                    try {
+                        if (!failed)
+                            cp.writeToCopy(chunk.buf, 0, chunk.len);
+                    } finally {
+                        free.add(chunk);
+                    }
+                }
+                if (!failed)
+                    rows[index] = cp.endCopy();
+            } catch (SQLException se) {
+                fail(se);
+            } catch (RuntimeException re) {
+                fail(re);
+            } catch (InterruptedException ie) {
+                fail(new InterruptedIOException(GT.tr("Interrupted while loading data.")));
+            } finally {
+                cancel(cp);
+            }
+        }
+
+        private void fail(Throwable t) {
+            synchronized (failures) {
+                failures.add(t);
+            }
+            failed = true;
+        }
+
+        /**
+         * @return the first failure, with the other SQLExceptions chained
+         */
+        private SQLException failure() throws IOException {
+            Throwable first;
+            synchronized (failures) {
+                first = failures.get(0);
+                if (first instanceof SQLException) {
+                    for (int i = 1; i < failures.size(); i++) {
+                        if (failures.get(i) instanceof SQLException)
+                            ((SQLException) first).setNextException((SQLException) failures.get(i));
+                    }
+                }
+            }
+            if (first instanceof IOException)
+                throw (IOException) first;
+            if (first instanceof RuntimeException)
+                throw (RuntimeException) first;
+            return (SQLException) first;
+        }
+    }
+
+    /**
+     * Finds row boundaries in COPY text or CSV data.
+     */
+    static class RowScanner {
+        private final boolean csv;
+        private final byte quote;
+        private final byte escape;
+
+        private int scanned = 0;
+        private int boundary = 0;
+        private boolean quoted = false;
+        private boolean escaped = false;
+
+        RowScanner(boolean csv, byte quote, byte escape) {
+            this.csv = csv;
+            this.quote = quote;
+            this.escape = escape;
+        }
+
+        /**
+         * Checks the options of a COPY statement.
+         */
+        static RowScanner forStatement(String sql) throws SQLException {
+            CopyOptions options = CopyOptions.parse(sql);
+            if (options.binary)
+                throw new PSQLException(GT.tr("Binary COPY data cannot be split into rows by the loader."), PSQLState.NOT_IMPLEMENTED);
+            if (options.header)
+                throw new PSQLException(GT.tr("COPY data with a header line cannot be split by the loader."), PSQLState.NOT_IMPLEMENTED);
+            return new RowScanner(options.csv, options.quote, options.escape);
+        }
+
+        /**
+         * Scans the data added since the last call.
+         *
+         * @return the offset after the last row boundary in <code>buf</code>,
+         *  0 if there is none
+         */
+        int scan(byte[] buf, int len) {
+            for (int i = scanned; i < len; i++) {
+                byte b = buf[i];
+                if (escaped) {
+                    escaped = false;
+                } else if (csv) {
+                    if (quoted) {
+                        if (b == escape && escape != quote)
+                            escaped = true;
+                        else if (b == quote)
+                            quoted = false;
+                    } else if (b == quote) {
+                        quoted = true;
+                    } else if (b == '\n') {
+                        boundary = i + 1;
+                    }
+                } else if (b == '\\') {
+                    escaped = true;
+                } else if (b == '\n') {
+                    boundary = i + 1;
+                }
+            }
+            scanned = len;
+            return boundary;
+        }
+
+        /**
+         * The data before <code>offset</code> has been removed from the buffer.
+         */
+        void shift(int offset) {
+            scanned -= offset;
+            boundary = 0;
+        }
+    }
+}
@@ -16,6 +16,7 @@ import java.io.OutputStream;
 import java.io.InputStream;
 import java.io.Reader;
 import java.io.Writer;
+import java.nio.channels.WritableByteChannel;
 import java.sql.SQLException;
 
 import org.postgresql.core.Encoding;
@@ -76,29 +77,15 @@ public class CopyManager {
      * @throws SQLException on database usage errors
      * @throws IOException upon writer or database connection failure
      */
-    public long copyOut(final String sql, Writer to) throws SQLException, IOException {
-        byte[] buf;
-        CopyOut cp = copyOut(sql);
-        try {
-            while ( (buf = cp.readFromCopy()) != null ) {
-                to.write(encoding.decode(buf));
-            }
-            return cp.getHandledRowCount();
-        }
-        catch ( IOException ioEX) {
-            // if not handled this way the close call will hang, at least in 8.2
-            if(cp.isActive())
-                cp.cancelCopy();
-            try {  // read until excausted or operation cancelled SQLException
-                while( (buf = cp.readFromCopy()) != null ) {}
+    public long copyOut(final String sql, final Writer to) throws SQLException, IOException {
+        return copyOut(sql, new CopySink() {
+            public void transfer(CopyOut cp) throws SQLException, IOException {
+                byte[] buf;
+                while ( (buf = cp.readFromCopy()) != null ) {
+                    to.write(encoding.decode(buf));
+                }
             }
-            catch ( SQLException sqlEx ) {} // typically after several kB
-            throw ioEX;
-        }
-        finally { // see to it that we do not leave the connection locked
-            if(cp.isActive())
-                cp.cancelCopy();
-        }
+        });
     }
 
     /**
@@ -109,24 +96,52 @@ public class CopyManager {
      * @throws SQLException on database usage errors
      * @throws IOException upon output stream or database connection failure
      */
-    public long copyOut(final String sql, OutputStream to) throws SQLException, IOException {
-        byte[] buf;
+    public long copyOut(final String sql, final OutputStream to) throws SQLException, IOException {
+        return copyOut(sql, new CopySink() {
+            public void transfer(CopyOut cp) throws SQLException, IOException {
+                cp.transferTo(to);
+            }
+        });
+    }
+
+    /**
+     * Pass results of a COPY TO STDOUT query from database into a blocking channel.
+     * @param sql COPY TO STDOUT statement
+     * @param to the channel to write the results to
+     * @return number of rows updated for server 8.2 or newer; -1 for older
+     * @throws SQLException on database usage errors
+     * @throws IOException upon channel or database connection failure
+     */
+    public long copyOut(final String sql, final WritableByteChannel to) throws SQLException, IOException {
+        return copyOut(sql, new CopySink() {
+            public void transfer(CopyOut cp) throws SQLException, IOException {
+                cp.transferTo(to);
+            }
+        });
+    }
+
+    /**
+     * Writes the data of a CopyOut operation to its destination.
+     */
+    private interface CopySink {
+        void transfer(CopyOut cp) throws SQLException, IOException;
+    }
+
+    private long copyOut(String sql, CopySink sink) throws SQLException, IOException {
         CopyOut cp = copyOut(sql);
         try {
-            while( (buf = cp.readFromCopy()) != null ) {
-                to.write(buf);
-            }
+            sink.transfer(cp);
             return cp.getHandledRowCount();
-        } 
+        }
         catch ( IOException ioEX) {
             // if not handled this way the close call will hang, at least in 8.2
             if(cp.isActive())
                 cp.cancelCopy();
             try {  // read until excausted or operation cancelled SQLException
-                while( (buf = cp.readFromCopy()) != null ) {}
-            } 
-            catch ( SQLException sqlEx ) {} // typically after several kB 
-            throw ioEX ;  
+                while( cp.readFromCopy() != null ) {}
+            }
+            catch ( SQLException sqlEx ) {} // typically after several kB
+            throw ioEX;
         }
         finally { // see to it that we do not leave the connection locked
             if(cp.isActive())
@@ -156,19 +171,7 @@ public class CopyManager {
      * @throws IOException upon reader or database connection failure
      */
     public long copyIn(final String sql, Reader from, int bufferSize) throws SQLException, IOException {
-        char[] cbuf = new char[bufferSize];
-        int len;
-        CopyIn cp = copyIn(sql);
-        try {
-            while ( (len = from.read(cbuf)) > 0) {
-                byte[] buf = encoding.encode(new String(cbuf, 0, len));
-                cp.writeToCopy(buf, 0, buf.length);
-            }
-            return cp.endCopy();
-        } finally { // see to it that we do not leave the connection locked
-            if(cp.isActive())
-                cp.cancelCopy();
-        }
+        return copyIn(sql, new EncodingInputStream(from, encoding, bufferSize), bufferSize);
     }
 
     /**
@@ -0,0 +1,159 @@
+/*-------------------------------------------------------------------------
+*
+* Copyright (c) 2015, PostgreSQL Global Development Group
+*
+*
+*-------------------------------------------------------------------------
+*/
+package org.postgresql.copy;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+import org.postgresql.util.GT;
+import org.postgresql.util.PSQLException;
+import org.postgresql.util.PSQLState;
+
+/**
+ * The data format options of a COPY statement, in the old and in the
+ * parenthesized syntax, as far as they matter for splitting and parsing rows.
+ */
+class CopyOptions {
+    boolean binary = false;
+    boolean csv = false;
+    boolean header = false;
+    byte delimiter;
+    byte quote = '"';
+    byte escape;
+    String nullString;
+
+    /**
+     * Reads the options after STDIN or STDOUT of a COPY statement.
+     */
+    static CopyOptions parse(String sql) throws SQLException {
+        List<String> tokens = tokenize(sql);
+        int start = Math.max(tokens.lastIndexOf("STDIN"), tokens.lastIndexOf("STDOUT"));
+        if (start < 0)
+            throw new PSQLException(GT.tr("A COPY FROM STDIN or COPY TO STDOUT statement is required."), PSQLState.INVALID_PARAMETER_VALUE);
+
+        CopyOptions options = new CopyOptions();
+        String delimiter = null, quote = null, escape = null;
+        for (int i = start + 1; i < tokens.size(); i++) {
+            String token = tokens.get(i);
+            String next = i + 1 < tokens.size() ? tokens.get(i + 1) : "";
+            if (next.equals("AS") && i + 2 < tokens.size())
+                next = tokens.get(i + 2);
+            String value = isLiteral(next) ? literalValue(next) : next;
+
+            if (token.equals("BINARY") || token.equals("FORMAT") && value.equalsIgnoreCase("BINARY"))
+                options.binary = true;
+            else if (token.equals("CSV") || token.equals("FORMAT") && value.equalsIgnoreCase("CSV"))
+                options.csv = true;
+            else if (token.equals("HEADER"))
+                options.header = !value.equalsIgnoreCase("FALSE") && !value.equalsIgnoreCase("OFF") && !value.equals("0");
+            else if (token.equals("DELIMITER") && isLiteral(next))
+                delimiter = value;
+            else if (token.equals("QUOTE") && isLiteral(next))
+                quote = value;
+            else if (token.equals("ESCAPE") && isLiteral(next))
+                escape = value;
+            else if (token.equals("NULL") && isLiteral(next))
+                options.nullString = value;
+        }
+
+        options.delimiter = delimiter != null ? asciiByte(delimiter) : options.csv ? (byte) ',' : (byte) '\t';
+        if (quote != null)
+            options.quote = asciiByte(quote);
+        options.escape = escape != null ? asciiByte(escape) : options.quote;
+        if (options.nullString == null)
+            options.nullString = options.csv ? "" : "\\N";
+        return options;
+    }
+
+    /**
+     * Splits into upper case words and string literals, which keep their
+     * quotes and case.
+     */
+    private static List<String> tokenize(String sql) {
+        List<String> tokens = new ArrayList<String>();
+        int i = 0;
+        while (i < sql.length()) {
+            char c = sql.charAt(i);
+            if (c == '\'' || c == '"') {
+                boolean escapeString = c == '\'' && !tokens.isEmpty() && tokens.get(tokens.size() - 1).equals("E'");
+                StringBuilder sb = new StringBuilder();
+                sb.append(c);
+                int j = i + 1;
+                while (j < sql.length()) {
+                    char d = sql.charAt(j++);
+                    if (d == '\\' && escapeString && j < sql.length()) {
+                        sb.append(d).append(sql.charAt(j++));
+                        continue;
+                    }
+                    if (d == c) {
+                        if (j < sql.length() && sql.charAt(j) == c) {
+                            j++;
+                        } else {
+                            break;
+                        }
+                    }
+                    sb.append(d);
+                }
+                sb.append(c);
+                // identifiers in double quotes are not options
+                if (c == '"')
+                    tokens.add("");
+                else if (escapeString)
+                    tokens.set(tokens.size() - 1, "E" + sb);
+                else
+                    tokens.add(sb.toString());
+                i = j;
+            } else if (Character.isLetterOrDigit(c) || c == '_') {
+                int j = i;
+                while (j < sql.length() && (Character.isLetterOrDigit(sql.charAt(j)) || sql.charAt(j) == '_'))
+                    j++;
+                String word = sql.substring(i, j).toUpperCase(Locale.ENGLISH);
+                // marks an E'...' escape string constant following
+                if (word.equals("E") && j < sql.length() && sql.charAt(j) == '\'')
+                    word = "E'";
+                tokens.add(word);
+                i = j;
+            } else {
+                i++;
+            }
+        }
+        return tokens;
+    }
+
+    private static boolean isLiteral(String token) {
+        return token.startsWith("'") || token.startsWith("E'");
+    }
+
+    private static String literalValue(String literal) {
+        if (literal.charAt(0) == '\'')
+            return literal.substring(1, literal.length() - 1);
+
+        // E'...' constant, only simple backslash escapes are expected here
+        StringBuilder value = new StringBuilder();
+        for (int i = 2; i < literal.length() - 1; i++) {
+            char c = literal.charAt(i);
+            if (c == '\\' && i + 1 < literal.length() - 1) {
+                c = literal.charAt(++i);
+                if (c == 't')
+                    c = '\t';
+                else if (c == 'n')
+                    c = '\n';
+            }
+            value.append(c);
+        }
+        return value.toString();
+    }
+
+    private static byte asciiByte(String value) throws SQLException {
+        if (value.length() != 1 || value.charAt(0) > 127)
+            throw new PSQLException(GT.tr("Only single ASCII delimiter, quote and escape characters are supported."), PSQLState.NOT_IMPLEMENTED);
+        return (byte) value.charAt(0);
+    }
+}
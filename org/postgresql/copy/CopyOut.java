@@ -7,8 +7,45 @@
 */
 package org.postgresql.copy;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.WritableByteChannel;
 import java.sql.SQLException;
 
 public interface CopyOut extends CopyOperation {
     byte[] readFromCopy() throws SQLException;
+
+    /**
+     * Reads the next part of the data into an existing array instead of a new
+     * array for every message.
+     * @param buf array to read into
+     * @param off offset of the first byte to read
+     * @param len maximum number of bytes to read
+     * @return number of bytes read, at most the rest of a single message received
+     *  from the server; -1 when the copy has finished
+     * @throws SQLException if the operation fails
+     */
+    int readFromCopy(byte[] buf, int off, int len) throws SQLException;
+
+    /**
+     * Writes the rest of the data to a stream, straight from the buffer the
+     * connection receives it into.
+     * @param to the stream to write to
+     * @return number of bytes written
+     * @throws SQLException if the operation fails
+     * @throws IOException if writing to the stream fails; the copy is still
+     *  active then and has to be cancelled
+     */
+    long transferTo(OutputStream to) throws SQLException, IOException;
+
+    /**
+     * Writes the rest of the data to a blocking channel, straight from the
+     * buffer the connection receives it into.
+     * @param to the channel to write to
+     * @return number of bytes written
+     * @throws SQLException if the operation fails
+     * @throws IOException if writing to the channel fails; the copy is still
+     *  active then and has to be cancelled
+     */
+    long transferTo(WritableByteChannel to) throws SQLException, IOException;
 }
@@ -0,0 +1,480 @@
+/*-------------------------------------------------------------------------
+*
+* Copyright (c) 2015, PostgreSQL Global Development Group
+*
+*
+*-------------------------------------------------------------------------
+*/
+package org.postgresql.copy;
+
+import java.io.IOException;
+import java.sql.SQLException;
+
+import org.postgresql.PGConnection;
+import org.postgresql.core.BaseConnection;
+import org.postgresql.core.Encoding;
+import org.postgresql.util.GT;
+import org.postgresql.util.PSQLException;
+import org.postgresql.util.PSQLState;
+
+/**
+ * Reads the rows of a COPY TO STDOUT operation in text or CSV format one at
+ * a time, parsing them in place.
+ * <p>
+ * The data is read into a single buffer, which is reused for every row. The
+ * fields of the current row are only located when the row is read; they are
+ * unescaped and decoded when they are accessed, and numbers are parsed
+ * straight from the buffer. A header line is skipped. Field indexes start at
+ * 1 as in ResultSet.
+ * <p>
+ * The format options are taken from the COPY statement.
+ */
+public class CopyRowReader {
+    private static final int FLAG_NULL = 1;
+    private static final int FLAG_ESCAPED = 2;
+
+    private final CopyOut op;
+    private final Encoding encoding;
+    private final boolean csv;
+    private final byte delimiter;
+    private final byte quote;
+    private final byte escape;
+    private final byte[] nullBytes;
+    private boolean skipHeader;
+
+    private byte[] buf = new byte[8192];
+    private int start = 0; // start of the current row
+    private int end = 0; // end of the data read
+    private int next = 0; // start of the next row
+    private boolean endOfData = false;
+
+    private int fieldCount = 0;
+    private int[] fieldStart = new int[16];
+    private int[] fieldEnd = new int[16];
+    private int[] fieldFlags = new int[16];
+
+    private byte[] unescaped = new byte[256];
+
+    /**
+     * Uses given connection for specified COPY TO STDOUT operation
+     * @param connection database connection to use for copying (protocol version 3 required)
+     * @param sql COPY TO STDOUT statement, in text or CSV format
+     * @throws SQLException if initializing the operation fails
+     */
+    public CopyRowReader(PGConnection connection, String sql) throws SQLException {
+        CopyOptions options = CopyOptions.parse(sql);
+        if (options.binary)
+            throw new PSQLException(GT.tr("Binary COPY data cannot be read by rows."), PSQLState.NOT_IMPLEMENTED);
+
+        this.encoding = ((BaseConnection) connection).getEncoding();
+        this.csv = options.csv;
+        this.delimiter = options.delimiter;
+        this.quote = options.quote;
+        this.escape = options.escape;
+        this.skipHeader = options.header;
+        try {
+            this.nullBytes = encoding.encode(options.nullString);
+        } catch (IOException ioe) {
+            throw new PSQLException(GT.tr("Unable to translate data into the desired encoding."), PSQLState.DATA_ERROR, ioe);
+        }
+        this.op = connection.getCopyAPI().copyOut(sql);
+    }
+
+    /**
+     * Moves to the next row.
+     * @return false when all rows have been read
+     * @throws SQLException if reading from the database fails
+     */
+    public boolean next() throws SQLException {
+        do {
+            if (!nextRow())
+                return false;
+        } while (skipHeaderRow());
+        return true;
+    }
+
+    private boolean skipHeaderRow() {
+        boolean skip = skipHeader;
+        skipHeader = false;
+        return skip;
+    }
+
+    private boolean nextRow() throws SQLException {
+        start = next;
+        fieldCount = 0;
+        int rowEnd;
+        while ((rowEnd = findRowEnd()) < 0) {
+            if (endOfData) {
+                if (start == end)
+                    return false;
+                // last row without a newline
+                rowEnd = end;
+                break;
+            }
+            readMore();
+        }
+
+        next = rowEnd < end ? rowEnd + 1 : rowEnd;
+        if (rowEnd > start && buf[rowEnd - 1] == '\r' && !csv)
+            rowEnd--;
+        splitFields(rowEnd);
+        return true;
+    }
+
+    /**
+     * @return the position of the newline ending the current row, or -1 if
+     *  it has not been read yet
+     */
+    private int findRowEnd() {
+        if (!csv) {
+            // newlines in values are always escaped as \n
+            for (int i = start; i < end; i++) {
+                if (buf[i] == '\n')
+                    return i;
+            }
+            return -1;
+        }
+
+        boolean quoted = false;
+        for (int i = start; i < end; i++) {
+            byte b = buf[i];
+            if (quoted) {
+                if (b == escape && escape != quote && i + 1 < end && (buf[i + 1] == quote || buf[i + 1] == escape))
+                    i++;
+                else if (b == quote)
+                    quoted = false;
+            } else if (b == quote) {
+                quoted = true;
+            } else if (b == '\n') {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Reads more data after the current row, keeping the row in the buffer.
+     */
+    private void readMore() throws SQLException {
+        if (start > 0) {
+            System.arraycopy(buf, start, buf, 0, end - start);
+            end -= start;
+            next -= start;
+            start = 0;
+        }
+        if (end == buf.length) {
+            byte[] larger = new byte[buf.length * 2];
+            System.arraycopy(buf, 0, larger, 0, end);
+            buf = larger;
+        }
+        int n = op.readFromCopy(buf, end, buf.length - end);
+        if (n < 0)
+            endOfData = true;
+        else
+            end += n;
+    }
+
+    private void splitFields(int rowEnd) {
+        int i = start;
+        while (true) {
+            int fieldBegin = i;
+            int flags = 0;
+            boolean quoted = false;
+            for (; i < rowEnd; i++) {
+                byte b = buf[i];
+                if (csv) {
+                    if (quoted) {
+                        if (b == escape && escape != quote && i + 1 < rowEnd && (buf[i + 1] == quote || buf[i + 1] == escape))
+                            i++;
+                        else if (b == quote)
+                            quoted = false;
+                        continue;
+                    } else if (b == quote) {
+                        quoted = true;
+                        flags |= FLAG_ESCAPED;
+                        continue;
+                    }
+                } else if (b == '\\') {
+                    flags |= FLAG_ESCAPED;
+                    i++;
+                    continue;
+                }
+                if (b == delimiter)
+                    break;
+            }
+            int fieldFinish = Math.min(i, rowEnd);
+
+            // a null is never quoted or escaped
+            if ((!csv || (flags & FLAG_ESCAPED) == 0) && equalsNull(fieldBegin, fieldFinish))
+                flags = FLAG_NULL;
+            addField(fieldBegin, fieldFinish, flags);
+
+            if (i >= rowEnd)
+                return;
+            i++; // skip the delimiter
+        }
+    }
+
+    private boolean equalsNull(int from, int to) {
+        if (to - from != nullBytes.length)
+            return false;
+        for (int i = 0; i < nullBytes.length; i++) {
+            if (buf[from + i] != nullBytes[i])
+                return false;
+        }
+        return true;
+    }
+
+    private void addField(int from, int to, int flags) {
+        if (fieldCount == fieldStart.length) {
+            fieldStart = grow(fieldStart);
+            fieldEnd = grow(fieldEnd);
+            fieldFlags = grow(fieldFlags);
+        }
+        fieldStart[fieldCount] = from;
+        fieldEnd[fieldCount] = to;
+        fieldFlags[fieldCount] = flags;
+        fieldCount++;
+    }
+
+    private static int[] grow(int[] array) {
+        int[] larger = new int[array.length * 2];
+        System.arraycopy(array, 0, larger, 0, array.length);
+        return larger;
+    }
+
+    /**
+     * @return the number of fields of the current row
+     */
+    public int getFieldCount() {
+        return fieldCount;
+    }
+
+    /**
+     * @param field the first field is 1
+     * @return true if the field is SQL NULL
+     */
+    public boolean isNull(int field) throws SQLException {
+        return (fieldFlags[checkField(field)] & FLAG_NULL) != 0;
+    }
+
+    /**
+     * Returns the buffer holding the current row. The bytes of a field are
+     * still quoted or escaped as in the COPY data unless
+     * {@link #isEscaped(int)} returns false. The buffer is overwritten by the
+     * following rows.
+     */
+    public byte[] getBuffer() {
+        return buf;
+    }
+
+    /**
+     * @param field the first field is 1
+     * @return the position of the field in {@link #getBuffer()}
+     */
+    public int getFieldOffset(int field) throws SQLException {
+        return fieldStart[checkField(field)];
+    }
+
+    /**
+     * @param field the first field is 1
+     * @return the length of the field in {@link #getBuffer()}
+     */
+    public int getFieldLength(int field) throws SQLException {
+        int index = checkField(field);
+        return fieldEnd[index] - fieldStart[index];
+    }
+
+    /**
+     * @param field the first field is 1
+     * @return true if the field is quoted or contains escapes in the buffer
+     */
+    public boolean isEscaped(int field) throws SQLException {
+        return (fieldFlags[checkField(field)] & FLAG_ESCAPED) != 0;
+    }
+
+    /**
+     * @param field the first field is 1
+     * @return the value of the field, or null if it is SQL NULL
+     */
+    public String getString(int field) throws SQLException {
+        int index = checkField(field);
+        int flags = fieldFlags[index];
+        if ((flags & FLAG_NULL) != 0)
+            return null;
+        try {
+            if ((flags & FLAG_ESCAPED) == 0)
+                return encoding.decode(buf, fieldStart[index], fieldEnd[index] - fieldStart[index]);
+            int len = unescape(index);
+            return encoding.decode(unescaped, 0, len);
+        } catch (IOException ioe) {
+            throw new PSQLException(GT.tr("Invalid character data was found.  This is most likely caused by stored data containing characters that are invalid for the character set the database was created in.  The most common example of this is storing 8bit data in a SQL_ASCII database."), PSQLState.DATA_ERROR, ioe);
+        }
+    }
+
+    /**
+     * Parses an integer field straight from the buffer.
+     * @param field the first field is 1
+     * @return the value of the field, or 0 if it is SQL NULL
+     */
+    public long getLong(int field) throws SQLException {
+        int index = checkField(field);
+        int flags = fieldFlags[index];
+        if ((flags & FLAG_NULL) != 0)
+            return 0;
+
+        int i = fieldStart[index];
+        int to = fieldEnd[index];
+        if ((flags & FLAG_ESCAPED) == 0 && i < to) {
+            boolean negative = buf[i] == '-';
+            if (negative || buf[i] == '+')
+                i++;
+            // up to 18 digits cannot overflow
+            if (i < to && to - i <= 18) {
+                long value = 0;
+                for (; i < to; i++) {
+                    int digit = buf[i] - '0';
+                    if (digit < 0 || digit > 9)
+                        break;
+                    value = value * 10 + digit;
+                }
+                if (i == to)
+                    return negative ? -value : value;
+            }
+        }
+
+        String s = getString(field);
+        try {
+            return Long.parseLong(s.trim());
+        } catch (NumberFormatException nfe) {
+            throw new PSQLException(GT.tr("Bad value for type {0} : {1}", new Object[]{"long", s}), PSQLState.NUMERIC_VALUE_OUT_OF_RANGE);
+        }
+    }
+
+    /**
+     * @param field the first field is 1
+     * @return the value of the field, or 0 if it is SQL NULL
+     */
+    public int getInt(int field) throws SQLException {
+        long value = getLong(field);
+        if (value < Integer.MIN_VALUE || value > Integer.MAX_VALUE)
+            throw new PSQLException(GT.tr("Bad value for type {0} : {1}", new Object[]{"int", new Long(value)}), PSQLState.NUMERIC_VALUE_OUT_OF_RANGE);
+        return (int) value;
+    }
+
+    /**
+     * @param field the first field is 1
+     * @return the value of the field, or 0 if it is SQL NULL
+     */
+    public double getDouble(int field) throws SQLException {
+        String s = getString(field);
+        if (s == null)
+            return 0;
+        try {
+            return Double.parseDouble(s.trim());
+        } catch (NumberFormatException nfe) {
+            throw new PSQLException(GT.tr("Bad value for type {0} : {1}", new Object[]{"double", s}), PSQLState.NUMERIC_VALUE_OUT_OF_RANGE);
+        }
+    }
+
+    /**
+     * Unescapes a field into the unescaped buffer.
+     * @return the length of the value
+     */
+    private int unescape(int index) {
+        int from = fieldStart[index];
+        int to = fieldEnd[index];
+        if (unescaped.length < to - from)
+            unescaped = new byte[Math.max(to - from, unescaped.length * 2)];
+
+        int len = 0;
+        if (csv) {
+            boolean quoted = false;
+            for (int i = from; i < to; i++) {
+                byte b = buf[i];
+                if (quoted) {
+                    if (b == escape && i + 1 < to && (buf[i + 1] == quote || buf[i + 1] == escape) && (escape != quote || buf[i + 1] == quote)) {
+                        unescaped[len++] = buf[++i];
+                        continue;
+                    }
+                    if (b == quote) {
+                        quoted = false;
+                        continue;
+                    }
+                } else if (b == quote) {
+                    quoted = true;
+                    continue;
+                }
+                unescaped[len++] = b;
+            }
+            return len;
+        }
+
+        for (int i = from; i < to; i++) {
+            byte b = buf[i];
+            if (b != '\\' || i + 1 >= to) {
+                unescaped[len++] = b;
+                continue;
+            }
+            b = buf[++i];
+            switch (b) {
+            case 'b': unescaped[len++] = '\b'; break;
+            case 'f': unescaped[len++] = '\f'; break;
+            case 'n': unescaped[len++] = '\n'; break;
+            case 'r': unescaped[len++] = '\r'; break;
+            case 't': unescaped[len++] = '\t'; break;
+            case 'v': unescaped[len++] = 11; break;
+            case 'x':
+            {
+                int value = 0, digits = 0;
+                while (digits < 2 && i + 1 < to && Character.digit((char) buf[i + 1], 16) >= 0) {
+                    value = value * 16 + Character.digit((char) buf[++i], 16);
+                    digits++;
+                }
+                unescaped[len++] = digits == 0 ? (byte) 'x' : (byte) value;
+                break;
+            }
+            default:
+                if (b >= '0' && b <= '7') {
+                    int value = b - '0';
+                    for (int digits = 1; digits < 3 && i + 1 < to && buf[i + 1] >= '0' && buf[i + 1] <= '7'; digits++)
+                        value = value * 8 + buf[++i] - '0';
+                    unescaped[len++] = (byte) value;
+                } else {
+                    unescaped[len++] = b;
+                }
+            }
+        }
+        return len;
+    }
+
+    private int checkField(int field) throws SQLException {
+        if (field < 1 || field > fieldCount)
+            throw new PSQLException(GT.tr("The column index is out of range: {0}, number of columns: {1}.", new Object[]{new Integer(field), new Integer(fieldCount)}), PSQLState.INVALID_PARAMETER_VALUE);
+        return field - 1;
+    }
+
+    /**
+     * @return number of rows copied for server 8.2 or newer, once all rows have been read
+     */
+    public long getHandledRowCount() {
+        return op.getHandledRowCount();
+    }
+
+    /**
+     * Cancels the copy unless all rows have been read.
+     * @throws SQLException if cancelling fails
+     */
+    public void close() throws SQLException {
+        if (!op.isActive())
+            return;
+        op.cancelCopy();
+        // the connection stays locked until the rest of the data is read
+        try {
+            while (op.isActive() && op.readFromCopy(buf, 0, buf.length) >= 0) {}
+        } catch (SQLException se) {} // error response to the cancel request
+        start = next = end = 0;
+        fieldCount = 0;
+        endOfData = true;
+    }
+}
@@ -0,0 +1,116 @@
+/*-------------------------------------------------------------------------
+*
+* Copyright (c) 2015, PostgreSQL Global Development Group
+*
+*
+*-------------------------------------------------------------------------
+*/
+package org.postgresql.copy;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CodingErrorAction;
+
+import org.postgresql.core.Encoding;
+
+/**
+ * InputStream encoding the characters of a Reader straight into the arrays
+ * passed to read, through a single CharsetEncoder and character buffer, instead
+ * of a new String and byte array for every block of characters.
+ */
+class EncodingInputStream extends InputStream {
+    private final Reader reader;
+    private final CharsetEncoder encoder;
+    private final CharBuffer chars;
+    private final ByteBuffer pending;
+    private final byte[] singleByteBuffer = new byte[1];
+    private boolean endOfInput = false;
+    private boolean flushed = false;
+
+    /**
+     * @param reader the characters to encode
+     * @param encoding the encoding of the connection
+     * @param bufferSize number of characters to read at once
+     */
+    EncodingInputStream(Reader reader, Encoding encoding, int bufferSize) {
+        this.reader = reader;
+        Charset charset = encoding.name() == null ? Charset.defaultCharset() : Charset.forName(encoding.name());
+        this.encoder = charset.newEncoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        this.chars = CharBuffer.allocate(Math.max(bufferSize, 2));
+        // the buffers are kept ready for encoding and reading
+        this.chars.flip();
+        this.pending = ByteBuffer.allocate((int) Math.ceil(encoder.maxBytesPerChar()) * 2);
+        this.pending.flip();
+    }
+
+    public int read() throws IOException {
+        int n = read(singleByteBuffer, 0, 1);
+        return n < 0 ? -1 : singleByteBuffer[0] & 0xFF;
+    }
+
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (len == 0)
+            return 0;
+        while (true) {
+            if (pending.hasRemaining()) {
+                int n = Math.min(len, pending.remaining());
+                pending.get(b, off, n);
+                return n;
+            }
+
+            int n = encode(ByteBuffer.wrap(b, off, len));
+            if (n != 0)
+                return n;
+
+            // the next character does not fit, encode it on the side
+            pending.clear();
+            n = encode(pending);
+            pending.flip();
+            if (n < 0)
+                return -1;
+        }
+    }
+
+    /**
+     * Encodes as many characters as fit into the buffer.
+     *
+     * @return the number of bytes added, 0 if the next character does not fit,
+     *  or -1 at the end of the input
+     */
+    private int encode(ByteBuffer out) throws IOException {
+        int start = out.position();
+        while (true) {
+            if (flushed)
+                return out.position() > start ? out.position() - start : -1;
+
+            if (chars.hasRemaining() || endOfInput) {
+                if (encoder.encode(chars, out, endOfInput).isOverflow() || out.position() > start && !endOfInput)
+                    return out.position() - start;
+                if (endOfInput) {
+                    if (encoder.flush(out).isOverflow())
+                        return out.position() - start;
+                    flushed = true;
+                    continue;
+                }
+            }
+
+            // keep a character left over from an incomplete surrogate pair
+            chars.compact();
+            int n = reader.read(chars);
+            chars.flip();
+            if (n < 0)
+                endOfInput = true;
+        }
+    }
+
+    public void close() throws IOException {
+        reader.close();
+    }
+}
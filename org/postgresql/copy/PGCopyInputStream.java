@@ -9,6 +9,9 @@ package org.postgresql.copy;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
 import java.sql.SQLException;
 
 import org.postgresql.PGConnection;
@@ -75,21 +78,39 @@ public class PGCopyInputStream extends InputStream implements CopyOut {
     
     public int read() throws IOException {
         checkClosed();
-        return gotBuf() ? buf[at++] : -1;
+        return gotBuf() ? buf[at++] & 0xFF : -1;
     }
 
     public int read(byte[] buf) throws IOException {
         return read(buf, 0, buf.length); 
     }
     
+    /**
+     * Reads straight from the connection into the given array, after any data
+     * left from {@link #readFromCopy()}.
+     */
     public int read(byte[] buf, int off, int siz) throws IOException {
         checkClosed();
         int got = 0;
-        boolean didReadSomething = false;
-        while( got < siz && (didReadSomething = gotBuf()) ) {
-            buf[off+got++] = this.buf[at++];
+        if (this.buf != null && at < len) {
+            got = Math.min(siz, len - at);
+            System.arraycopy(this.buf, at, buf, off, got);
+            at += got;
+        }
+        try {
+            while (got < siz && at >= 0) {
+                int n = op.readFromCopy(buf, off + got, siz - got);
+                if (n < 0) {
+                    this.buf = null;
+                    at = -1;
+                } else {
+                    got += n;
+                }
+            }
+        } catch(SQLException sqle) {
+            throw new IOException(GT.tr("Copying from database failed: {0}", sqle));
         }
-        return got == 0 && !didReadSomething ? -1 : got;
+        return got == 0 && at < 0 && siz > 0 ? -1 : got;
     }
 
     public byte[] readFromCopy() throws SQLException {
@@ -110,6 +131,57 @@ public class PGCopyInputStream extends InputStream implements CopyOut {
         return result;
     }
 
+    public int readFromCopy(byte[] buf, int off, int siz) throws SQLException {
+        if (this.buf != null && at < len) {
+            int n = Math.min(siz, len - at);
+            System.arraycopy(this.buf, at, buf, off, n);
+            at += n;
+            return n;
+        }
+        if (at < 0)
+            return -1;
+        int n = op.readFromCopy(buf, off, siz);
+        if (n < 0) {
+            this.buf = null;
+            at = -1;
+        }
+        return n;
+    }
+
+    public long transferTo(OutputStream to) throws SQLException, IOException {
+        checkClosed();
+        long total = 0;
+        if (buf != null && at < len) {
+            to.write(buf, at, len - at);
+            total += len - at;
+            at = len;
+        }
+        if (at >= 0) {
+            total += op.transferTo(to);
+            buf = null;
+            at = -1;
+        }
+        return total;
+    }
+
+    public long transferTo(WritableByteChannel to) throws SQLException, IOException {
+        checkClosed();
+        long total = 0;
+        if (buf != null && at < len) {
+            ByteBuffer rest = ByteBuffer.wrap(buf, at, len - at);
+            while (rest.hasRemaining())
+                to.write(rest);
+            total += len - at;
+            at = len;
+        }
+        if (at >= 0) {
+            total += op.transferTo(to);
+            buf = null;
+            at = -1;
+        }
+        return total;
+    }
+
     public void close() throws IOException {
         // Don't complain about a double close.
         if (op == null)
@@ -123,6 +195,11 @@ public class PGCopyInputStream extends InputStream implements CopyOut {
 	            ioe.initCause(se);
 	            throw ioe;
 	        }
+	        // the connection stays locked until the rest of the data is read
+	        try {
+	            byte[] discard = new byte[8192];
+	            while (op.isActive() && op.readFromCopy(discard, 0, discard.length) >= 0) {}
+	        } catch(SQLException se) {} // error response to the cancel request
         }
         op = null;
     }
@@ -171,6 +171,22 @@ public interface BaseConnection extends PGConnection, Connection
     // Ew. Quick hack to give access to the connection-specific utils implementation.
     public TimestampUtils getTimestampUtils();
 
+    /**
+     * Get the IntervalStyle the server formats intervals with in text.
+     *
+     * @return the style as reported by the server, or null if it is not
+     *   reported, in which case the server uses "postgres"
+     */
+    public String getIntervalStyle();
+
+    /**
+     * Get the TimeZone the server shows timestamps with time zone in.
+     *
+     * @return the time zone as reported by the server, or null if it is not
+     *   reported
+     */
+    public String getServerTimeZone();
+
     // Get the per-connection logger.
     public Logger getLogger();
 
@@ -192,6 +208,15 @@ public interface BaseConnection extends PGConnection, Connection
      * @return True for binary transfer, false for text transfer.
      */
     public boolean binaryTransferSend(int oid);
+
+    /**
+     * Starts to send and receive a type in the binary format, for types
+     * whose oid is only known once it is used, such as hstore. Does nothing
+     * if binary transfer is disabled for the connection or the type.
+     *
+     * @param oid The oid of the type.
+     */
+    public void enableBinaryTransfer(int oid);
     
     /**
      *  Return whether to disable column name sanitization. 
@@ -0,0 +1,171 @@
+/*-------------------------------------------------------------------------
+*
+* Copyright (c) 2015, PostgreSQL Global Development Group
+*
+*
+*-------------------------------------------------------------------------
+*/
+package org.postgresql.core;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.SocketException;
+import java.net.SocketTimeoutException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Selector shared by all connections using the NIO transport. A thread that
+ * has to wait for a channel to become readable or writable registers here and
+ * the single selector thread wakes it up, which gives every wait its own
+ * deadline instead of a per socket SO_TIMEOUT.
+ *
+ * <p>Only the socket is non-blocking: a waiting thread stays parked in
+ * {@link #await} until it is woken up, and no readiness callbacks are
+ * dispatched.
+ */
+class ChannelSelector implements Runnable {
+    /**
+     * Upper bound of a single wait, so that a waiter notices when its channel
+     * has been closed by another thread (closed channels are never selected),
+     * and of a single select.
+     */
+    private static final long MAX_WAIT_SLICE_MILLIS = 1000;
+
+    private static ChannelSelector instance;
+
+    private final Selector selector;
+    private final List<Waiter> pendingWaiters = new ArrayList<Waiter>();
+    private final Thread thread;
+
+    static synchronized ChannelSelector getInstance() throws IOException {
+        if (instance == null) {
+            instance = new ChannelSelector();
+        }
+        return instance;
+    }
+
+    private ChannelSelector() throws IOException {
+        selector = Selector.open();
+        thread = new Thread(this, "PostgreSQL-JDBC-ChannelSelector");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Block the calling thread until the channel is ready for the operations.
+     *
+     * @param channel a non-blocking channel
+     * @param ops {@link SelectionKey#OP_READ} or {@link SelectionKey#OP_WRITE}
+     * @param timeoutMillis maximum time to wait, or 0 to wait forever
+     * @throws SocketTimeoutException if the channel did not become ready in time
+     * @throws IOException if the channel is closed or the wait was interrupted
+     */
+    void await(SocketChannel channel, int ops, int timeoutMillis) throws IOException {
+        if (Thread.currentThread() == thread) {
+            throw new IOException("Cannot wait for a channel on the selector thread");
+        }
+
+        Waiter waiter = new Waiter(channel, ops);
+        synchronized (pendingWaiters) {
+            pendingWaiters.add(waiter);
+        }
+        selector.wakeup();
+
+        long deadline = timeoutMillis > 0 ? System.currentTimeMillis() + timeoutMillis : Long.MAX_VALUE;
+        synchronized (waiter) {
+            while (!waiter.ready) {
+                if (!channel.isOpen())
+                    throw new SocketException("Socket closed");
+                long remaining = deadline - System.currentTimeMillis();
+                if (remaining <= 0)
+                    throw new SocketTimeoutException(ops == SelectionKey.OP_READ ? "Read timed out" : "Write timed out");
+                try {
+                    waiter.wait(Math.min(remaining, MAX_WAIT_SLICE_MILLIS));
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException("Interrupted while waiting for the server");
+                }
+            }
+        }
+    }
+
+    /**
+     * Let the selector release the resources of a closed channel.
+     */
+    void wakeup() {
+        selector.wakeup();
+    }
+
+    public void run() {
+        while (true) {
+            try {
+                registerPendingWaiters();
+                // wake up regularly to release channels closed without wakeup()
+                selector.select(MAX_WAIT_SLICE_MILLIS);
+                Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                while (keys.hasNext()) {
+                    SelectionKey key = keys.next();
+                    keys.remove();
+                    if (key.isValid()) {
+                        key.interestOps(0);
+                    }
+                    Waiter waiter = (Waiter) key.attachment();
+                    if (waiter != null) {
+                        key.attach(null);
+                        waiter.signal();
+                    }
+                }
+            } catch (IOException ioe) {
+                // waiters time out or notice their closed channel by themselves
+            } catch (RuntimeException re) {
+                // e.g. a key cancelled concurrently; keep serving the other channels
+            }
+        }
+    }
+
+    private void registerPendingWaiters() {
+        List<Waiter> waiters;
+        synchronized (pendingWaiters) {
+            if (pendingWaiters.isEmpty())
+                return;
+            waiters = new ArrayList<Waiter>(pendingWaiters);
+            pendingWaiters.clear();
+        }
+        for (Waiter waiter : waiters) {
+            try {
+                SelectionKey key = waiter.channel.keyFor(selector);
+                if (key == null) {
+                    waiter.channel.register(selector, waiter.ops, waiter);
+                } else {
+                    key.interestOps(waiter.ops);
+                    key.attach(waiter);
+                }
+            } catch (IOException ioe) {
+                // closed channel, the waiter notices it by itself
+            } catch (RuntimeException re) {
+                // cancelled key of a closed channel
+            }
+        }
+    }
+
+    private static class Waiter {
+        final SocketChannel channel;
+        final int ops;
+        boolean ready;
+
+        Waiter(SocketChannel channel, int ops) {
+            this.channel = channel;
+            this.ops = ops;
+        }
+
+        synchronized void signal() {
+            ready = true;
+            notifyAll();
+        }
+    }
+}
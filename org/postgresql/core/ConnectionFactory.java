@@ -13,6 +13,8 @@ import java.io.IOException;
 import java.sql.SQLException;
 
 import org.postgresql.PGProperty;
+import org.postgresql.hostchooser.HostStatusProber;
+import org.postgresql.hostchooser.LoadBalanceStrategy;
 import org.postgresql.util.HostSpec;
 import org.postgresql.util.PSQLException;
 import org.postgresql.util.GT;
@@ -56,6 +58,24 @@ public abstract class ConnectionFactory {
     public static ProtocolConnection openConnection(HostSpec[] hostSpecs, String user, String database, Properties info, Logger logger) throws SQLException {
         String protoName = PGProperty.PROTOCOL_VERSION.get(info);
 
+        if (hostSpecs.length > 1)
+        {
+            String loadBalanceStrategy = PGProperty.LOAD_BALANCE_STRATEGY.get(info);
+            try
+            {
+                LoadBalanceStrategy.valueOf(loadBalanceStrategy);
+            }
+            catch (IllegalArgumentException ex)
+            {
+                throw new PSQLException(GT.tr("Invalid loadBalanceStrategy value: {0}", loadBalanceStrategy),
+                                        PSQLState.CONNECTION_UNABLE_TO_CONNECT);
+            }
+
+            int hostProbeSeconds = PGProperty.HOST_PROBE_SECONDS.getInt(info);
+            if (hostProbeSeconds > 0)
+                HostStatusProber.register(hostSpecs, user, database, info, hostProbeSeconds, logger);
+        }
+
         for (int i = 0; i < versions.length; ++i)
         {
             String versionProtoName = (String) versions[i][0];
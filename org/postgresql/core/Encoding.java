@@ -191,6 +191,20 @@ public class Encoding
         return new String(encodedString, offset, length, encoding);
     }
 
+    /**
+     * Check that a range of bytes can be decoded, without creating a string.
+     * The JVM decoders replace malformed input instead of failing, so this
+     * only does something for encodings with a stricter decoder.
+     *
+     * @param encodedString a bytearray containing the encoded string
+     * @param offset the offset in <code>encodedString</code> of the first byte of the encoded representation
+     * @param length the length, in bytes, of the encoded representation
+     * @throws IOException if the bytes cannot be decoded
+     */
+    public void validate(byte[] encodedString, int offset, int length) throws IOException
+    {
+    }
+
     /**
      * Decode an array of bytes into a string.
      *
@@ -16,6 +16,9 @@ import java.io.EOFException;
 import java.io.Writer;
 import java.net.InetSocketAddress;
 import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
 import java.sql.SQLException;
 
 import org.postgresql.util.GT;
@@ -38,6 +41,8 @@ public class PGStream
     private final byte[] _int2buf;
 
     private Socket connection;
+    private SocketChannelInputStream channelInput;
+    private SocketChannelOutputStream channelOutput;
     private VisibleBufferedInputStream pg_input;
     private OutputStream pg_output;
     private byte[] streamBuffer;
@@ -45,6 +50,15 @@ public class PGStream
     private Encoding encoding;
     private Writer encodingWriter;
 
+    /**
+     * The bytes countReceivedMessages reads at most, and how long it waits
+     * for more to arrive, in milliseconds.
+     */
+    private static final int POLL_READ_LIMIT = 1024 * 1024;
+    private static final int POLL_READ_TIMEOUT = 1;
+
+    private int soTimeout;
+
     /**
      * Constructor:  Connect to the PostgreSQL back end and return
      * a stream connection.
@@ -54,12 +68,50 @@ public class PGStream
      * @exception IOException if an IOException occurs below it.
      */
     public PGStream(HostSpec hostSpec, int timeout) throws IOException
+    {
+        this(hostSpec, timeout, false);
+    }
+
+    /**
+     * Constructor:  Connect to the PostgreSQL back end and return
+     * a stream connection.
+     *<p>
+     * With the NIO transport the socket is switched to non-blocking mode after
+     * connecting and waits for data are done by a selector thread shared by
+     * all such connections. Such a stream cannot be switched to SSL with
+     * {@link #changeSocket(Socket)}.
+     *
+     * @param hostSpec the host and port to connect to
+     * @param timeout timeout in milliseconds, or 0 if no timeout set
+     * @param nio true to use a non-blocking socket channel
+     * @exception IOException if an IOException occurs below it.
+     */
+    public PGStream(HostSpec hostSpec, int timeout, boolean nio) throws IOException
     {
         this.hostSpec = hostSpec;
 
-        Socket socket = new Socket();
-        socket.connect(new InetSocketAddress(hostSpec.getHost(), hostSpec.getPort()), timeout);
-        changeSocket(socket);
+        InetSocketAddress address = new InetSocketAddress(hostSpec.getHost(), hostSpec.getPort());
+        if (nio)
+        {
+            SocketChannel channel = SocketChannel.open();
+            try
+            {
+                channel.socket().connect(address, timeout);
+                channel.configureBlocking(false);
+                changeChannel(channel);
+            }
+            catch (IOException ioe)
+            {
+                channel.close();
+                throw ioe;
+            }
+        }
+        else
+        {
+            Socket socket = new Socket();
+            socket.connect(address, timeout);
+            changeSocket(socket);
+        }
         setEncoding(Encoding.getJVMEncoding("US-ASCII"));
 
         _int2buf = new byte[2];
@@ -96,9 +148,106 @@ public class PGStream
      * @return true if there is a pending backend message
      */
     public boolean hasMessagePending() throws IOException {
+        if (channelInput != null)
+            return pg_input.available() > 0;
         return pg_input.available() > 0 || connection.getInputStream().available() > 0;
     }
 
+    /**
+     * Counts the complete messages of a type among the messages already
+     * received, first reading what has arrived since. Reading stops after
+     * POLL_READ_LIMIT bytes, or when no more data arrives within
+     * POLL_READ_TIMEOUT; the stream's available() is not used as it does
+     * not report data buffered by SSL. The messages are left unread, so they
+     * are kept in memory until they are.
+     *
+     * @param type the message type
+     * @param max the count to stop at
+     * @return the number of complete messages of that type, at most max
+     * @throws IOException if reading from the server fails
+     */
+    public int countReceivedMessages(int type, int max) throws IOException {
+        // offset from the read position of the first message not counted yet
+        int scanned = 0;
+        int count = 0;
+        int read = 0;
+        boolean timeoutSet = false;
+        try
+        {
+            while (true)
+            {
+                byte[] buffer = pg_input.getBuffer();
+                int start = pg_input.getIndex();
+                int end = start + pg_input.buffered();
+                int pos = start + scanned;
+                while (count < max && end - pos >= 5)
+                {
+                    int length = (buffer[pos + 1] & 0xFF) << 24 | (buffer[pos + 2] & 0xFF) << 16 |
+                                 (buffer[pos + 3] & 0xFF) << 8 | buffer[pos + 4] & 0xFF;
+                    if (length < 4 || end - pos - 1 < length)
+                        break;
+                    if (buffer[pos] == type)
+                        ++count;
+                    pos += 1 + length;
+                }
+                scanned = pos - start;
+                if (count >= max || read >= POLL_READ_LIMIT)
+                    return count;
+
+                if (!timeoutSet)
+                {
+                    applySoTimeout(POLL_READ_TIMEOUT);
+                    timeoutSet = true;
+                }
+                int n = pg_input.readMore();
+                if (n < 0)
+                    throw new EOFException();
+                read += n;
+            }
+        }
+        catch (SocketTimeoutException ste)
+        {
+            // nothing more has arrived
+            return count;
+        }
+        finally
+        {
+            if (timeoutSet)
+                applySoTimeout(soTimeout);
+        }
+    }
+
+    /**
+     * Returns the receive buffer to its initial size if it has grown, for
+     * example while the results of asynchronous queries were counted.
+     */
+    public void shrinkReceiveBuffer() {
+        pg_input.shrink();
+    }
+
+    /**
+     * Set the maximum time a read waits for data from the server. On a
+     * non-blocking stream, a write waits at most as long for the server to
+     * accept more data.
+     *
+     * @param timeout timeout in milliseconds, or 0 to wait forever
+     * @throws IOException if something goes wrong
+     */
+    public void setSoTimeout(int timeout) throws IOException {
+        applySoTimeout(timeout);
+        soTimeout = timeout;
+    }
+
+    private void applySoTimeout(int timeout) throws IOException {
+        if (channelInput != null)
+        {
+            channelInput.setTimeout(timeout);
+            channelOutput.setTimeout(timeout);
+        }
+        else
+            connection.setSoTimeout(timeout);
+    }
+
     /**
      * Switch this stream to using a new socket. Any existing socket
      * is <em>not</em> closed; it's assumed that we are changing to
@@ -108,6 +257,8 @@ public class PGStream
      * @throws IOException if something goes wrong
      */
     public void changeSocket(Socket socket) throws IOException {
+        if (channelInput != null)
+            throw new IOException("Cannot change the socket of a non-blocking stream");
         this.connection = socket;
 
         // Submitted by Jason Venner <jason@idiom.com>. Disable Nagle
@@ -123,6 +274,17 @@ public class PGStream
             setEncoding(encoding);
     }
 
+    private void changeChannel(SocketChannel channel) throws IOException {
+        this.connection = channel.socket();
+        connection.setTcpNoDelay(true);
+
+        ChannelSelector selector = ChannelSelector.getInstance();
+        channelInput = new SocketChannelInputStream(channel, selector, 8192);
+        pg_input = new VisibleBufferedInputStream(channelInput, 8192);
+        channelOutput = new SocketChannelOutputStream(channel, selector, 8192);
+        pg_output = channelOutput;
+    }
+
     public Encoding getEncoding() {
         return encoding;
     }
@@ -472,6 +634,61 @@ public class PGStream
         }
     }
 
+    /**
+     * Reads in a given number of bytes from the backend into a ByteBuffer,
+     * without an intermediate array.
+     *
+     * @param buf buffer to store result, at its position
+     * @param siz number of bytes to read
+     * @throws IOException if a data I/O error occurs
+     */
+    public void Receive(ByteBuffer buf, int siz) throws IOException
+    {
+        while (siz > 0)
+        {
+            int w = pg_input.read(buf, siz);
+            if (w < 0)
+                throw new EOFException();
+            siz -= w;
+        }
+    }
+
+    /**
+     * Makes up to siz of the next bytes from the backend, at least one,
+     * available in place in the receive buffer without consuming them. Use
+     * {@link #getReceiveBuffer} and {@link #getReceiveIndex} to access them and
+     * {@link #Skip} to consume them.
+     *
+     * @param siz maximum number of bytes wanted
+     * @return number of bytes available
+     * @throws IOException if a data I/O error occurs
+     */
+    public int Peek(int siz) throws IOException
+    {
+        int n = pg_input.peek(siz);
+        if (n < 0)
+            throw new EOFException();
+        return n;
+    }
+
+    /**
+     * @return the receive buffer, valid until the next receive call
+     * @see #Peek(int)
+     */
+    public byte[] getReceiveBuffer()
+    {
+        return pg_input.getBuffer();
+    }
+
+    /**
+     * @return the position of the next byte in the receive buffer
+     * @see #Peek(int)
+     */
+    public int getReceiveIndex()
+    {
+        return pg_input.getIndex();
+    }
+
     public void Skip(int size) throws IOException {
         long s = 0;
         while (s < size) {
@@ -10,6 +10,7 @@ package org.postgresql.core;
 
 import java.sql.SQLException;
 import java.io.InputStream;
+import java.util.Map;
 
 /**
  * Abstraction of a list of parameters to be substituted into a Query.
@@ -67,6 +68,46 @@ public interface ParameterList {
      */
     void setIntParameter(int index, int value) throws SQLException;
 
+    /**
+     * Binds an integer value to a parameter without converting it to a
+     * string or bytes first. In binary format the value is sent with the
+     * width of the type.
+     *
+     * @param index the 1-based parameter index to bind.
+     * @param value the integer value to use.
+     * @param oid the type OID of the parameter, <code>Oid.INT2</code>,
+     *   <code>Oid.INT4</code> or <code>Oid.INT8</code>.
+     * @param binary true to send the value in binary format, false as text.
+     * @throws SQLException on error or if <code>index</code> is out of range
+     */
+    void setLongParameter(int index, long value, int oid, boolean binary) throws SQLException;
+
+    /**
+     * Binds a float value to a parameter without converting it to a string
+     * or bytes first. In binary format it is sent as a float4, in text format
+     * as {@link Float#toString(float)} formats it.
+     *
+     * @param index the 1-based parameter index to bind.
+     * @param value the float value to use.
+     * @param oid the type OID of the parameter.
+     * @param binary true to send the value in binary format, false as text.
+     * @throws SQLException on error or if <code>index</code> is out of range
+     */
+    void setFloatParameter(int index, float value, int oid, boolean binary) throws SQLException;
+
+    /**
+     * Binds a double value to a parameter without converting it to a string
+     * or bytes first. In binary format it is sent as a float8, in text format
+     * as {@link Double#toString(double)} formats it.
+     *
+     * @param index the 1-based parameter index to bind.
+     * @param value the double value to use.
+     * @param oid the type OID of the parameter.
+     * @param binary true to send the value in binary format, false as text.
+     * @throws SQLException on error or if <code>index</code> is out of range
+     */
+    void setDoubleParameter(int index, double value, int oid, boolean binary) throws SQLException;
+
     /**
      * Binds a String value that is an unquoted literal to the
      * server's query parser (for example, a bare integer) to a parameter.
@@ -142,6 +183,18 @@ public interface ParameterList {
      */
     void setBinaryParameter(int index, byte[] value, int oid) throws SQLException;
 
+    /**
+     * Binds a Map to an hstore parameter in the binary format. The keys and
+     * values are converted to strings when they are bound, but only encoded
+     * when the parameter is sent.
+     *
+     * @param index the 1-based parameter index to bind.
+     * @param value the entries to send; keys must not be null.
+     * @param oid the type OID of hstore.
+     * @throws SQLException on error or if <code>index</code> is out of range
+     */
+    void setHStoreParameter(int index, Map value, int oid) throws SQLException;
+
     /**
      * Binds a SQL NULL value to a parameter.
      * Associated with the parameter is a typename for the parameter that
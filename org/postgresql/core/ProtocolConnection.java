@@ -107,6 +107,29 @@ public interface ProtocolConnection {
      */
     int getTransactionState();
 
+    /**
+     * Returns the last value the server reported for a run-time parameter,
+     * such as client_encoding or, from PostgreSQL 14 on,
+     * default_transaction_read_only.
+     *
+     * @param name the name of the parameter
+     * @return the reported value, or null if the server did not report the
+     *  parameter
+     */
+    String getParameterStatus(String name);
+
+    /**
+     * Returns a number that changes whenever a command may have changed a
+     * session setting that the server does not report: SET, RESET, DISCARD,
+     * an explicit BEGIN or START TRANSACTION, and the end of a transaction
+     * that ran one of them. A value derived from such a setting stays valid
+     * while this number is unchanged. Changes made by functions such as
+     * set_config() are not noticed.
+     *
+     * @return the number of such changes so far
+     */
+    int getSessionChangeCount();
+
     /**
      * Retrieve and clear the set of asynchronous notifications pending on this
      * connection.
@@ -8,6 +8,7 @@
 */
 package org.postgresql.core;
 
+import java.nio.ByteBuffer;
 import java.sql.SQLException;
 
 import org.postgresql.copy.CopyOperation;
@@ -165,6 +166,53 @@ public interface QueryExecutor {
      */
     void fetch(ResultCursor cursor, ResultHandler handler, int fetchSize) throws SQLException;
 
+    /**
+     * Send a Query without waiting for its results. Several queries may be
+     * in flight at once; their results are read in the order the queries were
+     * sent, either by {@link #processAsyncResults} or by the next call of any
+     * other method of this QueryExecutor.
+     *<p>
+     * The handler is fed the results and then {@link ResultHandler#handleCompletion}
+     * is called, possibly on another thread than the one that sent the query.
+     * An exception thrown by handleCompletion is not propagated, so the handler
+     * must keep any error it was passed.
+     *
+     * @param query the query to execute, as for {@link #execute(Query, ParameterList, ResultHandler, int, int, int)}
+     * @param parameters the parameters for the query
+     * @param handler a ResultHandler responsible for handling results generated
+     *  by this query
+     * @param maxRows the maximum number of rows to retrieve
+     * @param flags a combination of QUERY_* flags indicating how to handle the query.
+     *  QUERY_FORWARD_CURSOR is ignored.
+     *
+     * @throws SQLException if the query could not be sent
+     */
+    void executeAsync(Query query,
+                      ParameterList parameters,
+                      ResultHandler handler,
+                      int maxRows,
+                      int flags)
+    throws SQLException;
+
+    /**
+     * Read the results of queries sent by {@link #executeAsync}.
+     *
+     * @param handler the handler of the query to wait for; all queries sent
+     *  before it are completed too. If <code>null</code>, only the queries whose
+     *  results have already arrived in full are completed, without blocking.
+     * @return the number of queries completed
+     * @throws SQLException if reading the results fails
+     */
+    int processAsyncResults(ResultHandler handler) throws SQLException;
+
+    /**
+     * Read the results of all queries sent by {@link #executeAsync}, waiting
+     * for them as needed.
+     *
+     * @throws SQLException if reading the results fails
+     */
+    void waitForAsyncQueries() throws SQLException;
+
     /**
      * Create an unparameterized Query object suitable for execution by
      * this QueryExecutor. The provided query string is not parsed for
@@ -199,6 +247,19 @@ public interface QueryExecutor {
      */
     void processNotifies() throws SQLException;
 
+    /**
+     * Queues a command that changes a session setting, such as SET SESSION
+     * CHARACTERISTICS, to be sent in the same flush as the next query rather
+     * than in a round trip of its own. The command is run before that query
+     * and committed separately from it. An error it raises is reported to
+     * the query it was sent with.
+     *
+     * @param sql the command, which must not return rows
+     * @return false if this executor cannot queue commands, in which case
+     *  the caller has to run the command itself
+     */
+    boolean queueSessionCommand(String sql);
+
     //
     // Fastpath interface.
     //
@@ -225,6 +286,40 @@ public interface QueryExecutor {
      */
     byte[] fastpathCall(int fnid, ParameterList params, boolean suppressBegin) throws SQLException;
 
+    /**
+     * Invoke several backend functions via the fastpath interface, sending all
+     * calls before reading any result so that they cost a single round trip.
+     * Large batches are sent in parts as large as the results of small calls
+     * can be buffered without blocking the backend. The calls are executed in order; a failed call does not stop the
+     * following calls from being executed, but all errors are thrown once all
+     * results have been read.
+     *
+     * @param fnids the OIDs of the backend functions to invoke
+     * @param params ParameterLists returned from {@link #createFastpathParameters},
+     *  one for each function
+     *
+     * @return the binary-format results of the fastpath calls, an element is
+     *  <code>null</code> if a void result was returned
+     * @throws SQLException if an error occurs while executing any fastpath call
+     */
+    byte[][] fastpathCall(int[] fnids, ParameterList[] params, boolean suppressBegin) throws SQLException;
+
+    /**
+     * Invoke several backend functions via the fastpath interface as
+     * {@link #fastpathCall(int[], ParameterList[], boolean)} does, but receive
+     * the results one after another into a buffer instead of new arrays.
+     *
+     * @param fnids the OIDs of the backend functions to invoke
+     * @param params ParameterLists returned from {@link #createFastpathParameters},
+     *  one for each function
+     * @param results the buffer receiving the results from its position on;
+     *  a result that does not fit is an error
+     *
+     * @return the lengths of the results, an element is -1 if a void result was returned
+     * @throws SQLException if an error occurs while executing any fastpath call
+     */
+    int[] fastpathCall(int[] fnids, ParameterList[] params, boolean suppressBegin, ByteBuffer results) throws SQLException;
+
     /**
      * Issues a COPY FROM STDIN / COPY TO STDOUT statement and returns
      * handler for associated operation.  Until the copy operation completes,
@@ -0,0 +1,98 @@
+/*-------------------------------------------------------------------------
+*
+* Copyright (c) 2015, PostgreSQL Global Development Group
+*
+*
+*-------------------------------------------------------------------------
+*/
+package org.postgresql.core;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+
+/**
+ * InputStream reading from a non-blocking SocketChannel through a direct buffer.
+ * When no data is available the reading thread waits in the shared
+ * {@link ChannelSelector}, limited by the read timeout.
+ */
+class SocketChannelInputStream extends InputStream {
+    private final SocketChannel channel;
+    private final ChannelSelector selector;
+    private final ByteBuffer buffer;
+    private int timeout;
+
+    SocketChannelInputStream(SocketChannel channel, ChannelSelector selector, int bufferSize) {
+        this.channel = channel;
+        this.selector = selector;
+        this.buffer = ByteBuffer.allocateDirect(bufferSize);
+        // the buffer is kept ready for reading
+        this.buffer.flip();
+    }
+
+    /**
+     * @param timeout maximum time in milliseconds a single read waits for data, or 0 to wait forever
+     */
+    void setTimeout(int timeout) {
+        this.timeout = timeout;
+    }
+
+    int getTimeout() {
+        return timeout;
+    }
+
+    public int read() throws IOException {
+        if (!fill(true))
+            return -1;
+        return buffer.get() & 0xFF;
+    }
+
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (len == 0)
+            return 0;
+        if (!fill(true))
+            return -1;
+        int count = Math.min(len, buffer.remaining());
+        buffer.get(b, off, count);
+        return count;
+    }
+
+    /**
+     * Reports the buffered bytes, reading whatever already arrived without waiting.
+     */
+    public int available() throws IOException {
+        fill(false);
+        return buffer.remaining();
+    }
+
+    /**
+     * Make sure that the buffer has data.
+     *
+     * @param wait if true, wait until data arrives
+     * @return false on end of stream
+     */
+    private boolean fill(boolean wait) throws IOException {
+        if (buffer.hasRemaining())
+            return true;
+        buffer.clear();
+        try {
+            while (true) {
+                int read = channel.read(buffer);
+                if (read < 0)
+                    return false;
+                if (read > 0 || !wait)
+                    return true;
+                selector.await(channel, SelectionKey.OP_READ, timeout);
+            }
+        } finally {
+            buffer.flip();
+        }
+    }
+
+    public void close() throws IOException {
+        channel.close();
+        selector.wakeup();
+    }
+}
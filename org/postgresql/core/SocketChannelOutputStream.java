@@ -0,0 +1,82 @@
+/*-------------------------------------------------------------------------
+*
+* Copyright (c) 2015, PostgreSQL Global Development Group
+*
+*
+*-------------------------------------------------------------------------
+*/
+package org.postgresql.core;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+
+/**
+ * Buffered OutputStream writing to a non-blocking SocketChannel through a
+ * direct buffer. When the socket send buffer is full the writing thread waits
+ * in the shared {@link ChannelSelector}, limited by the write timeout.
+ */
+class SocketChannelOutputStream extends OutputStream {
+    private final SocketChannel channel;
+    private final ChannelSelector selector;
+    private final ByteBuffer buffer;
+    private int timeout;
+
+    SocketChannelOutputStream(SocketChannel channel, ChannelSelector selector, int bufferSize) {
+        this.channel = channel;
+        this.selector = selector;
+        this.buffer = ByteBuffer.allocateDirect(bufferSize);
+    }
+
+    /**
+     * @param timeout maximum time in milliseconds a write waits for the server
+     *  to accept more data, or 0 to wait forever
+     */
+    void setTimeout(int timeout) {
+        this.timeout = timeout;
+    }
+
+    public void write(int b) throws IOException {
+        if (!buffer.hasRemaining())
+            flushBuffer();
+        buffer.put((byte) b);
+    }
+
+    public void write(byte[] b, int off, int len) throws IOException {
+        while (len > 0) {
+            if (!buffer.hasRemaining())
+                flushBuffer();
+            int count = Math.min(len, buffer.remaining());
+            buffer.put(b, off, count);
+            off += count;
+            len -= count;
+        }
+    }
+
+    public void flush() throws IOException {
+        flushBuffer();
+    }
+
+    private void flushBuffer() throws IOException {
+        buffer.flip();
+        try {
+            while (buffer.hasRemaining()) {
+                if (channel.write(buffer) == 0)
+                    selector.await(channel, SelectionKey.OP_WRITE, timeout);
+            }
+        } finally {
+            buffer.compact();
+        }
+    }
+
+    public void close() throws IOException {
+        try {
+            flush();
+        } finally {
+            channel.close();
+            selector.wakeup();
+        }
+    }
+}
@@ -62,6 +62,68 @@ class UTF8Encoding extends Encoding {
                                     new Object[] { new Integer(actualLen), new Integer(expectedLen), new Integer(ch) }));
     }
 
+    /**
+     * Applies the checks of {@link #decode(byte[], int, int)} without
+     * building the string.
+     */
+    public void validate(byte[] data, int offset, int length) throws IOException {
+        int in = offset;
+        int end = length + offset;
+
+        try
+        {
+            while (in < end)
+            {
+                int ch = data[in++] & 0xff;
+
+                if (ch < 0x80) {
+                    continue;
+                } else if (ch < 0xc0) {
+                    throw new IOException(GT.tr("Illegal UTF-8 sequence: initial byte is {0}: {1}",
+                                                new Object[] { "10xxxxxx", new Integer(ch) }));
+                } else if (ch < 0xe0) {
+                    ch = ((ch & 0x1f) << 6);
+                    checkByte(data[in], 2, 2);
+                    ch = ch | (data[in++] & 0x3f);
+                    checkMinimal(ch, MIN_2_BYTES);
+                } else if (ch < 0xf0) {
+                    ch = ((ch & 0x0f) << 12);
+                    checkByte(data[in], 2, 3);
+                    ch = ch | ((data[in++] & 0x3f) << 6);
+                    checkByte(data[in], 3, 3);
+                    ch = ch | (data[in++] & 0x3f);
+                    checkMinimal(ch, MIN_3_BYTES);
+                } else if (ch < 0xf8) {
+                    ch = ((ch & 0x07) << 18);
+                    checkByte(data[in], 2, 4);
+                    ch = ch | ((data[in++] & 0x3f) << 12);
+                    checkByte(data[in], 3, 4);
+                    ch = ch | ((data[in++] & 0x3f) << 6);
+                    checkByte(data[in], 4, 4);
+                    ch = ch | (data[in++] & 0x3f);
+                    checkMinimal(ch, MIN_4_BYTES);
+                } else {
+                    throw new IOException(GT.tr("Illegal UTF-8 sequence: initial byte is {0}: {1}",
+                                                new Object[] { "11111xxx", new Integer(ch) }));
+                }
+
+                if (ch > MAX_CODE_POINT)
+                    throw new IOException(GT.tr("Illegal UTF-8 sequence: final value is out of range: {0}",
+                                                new Integer(ch)));
+                if (ch >= 0xd800 && ch < 0xe000)
+                    throw new IOException(GT.tr("Illegal UTF-8 sequence: final value is a surrogate value: {0}",
+                                                new Integer(ch)));
+            }
+        }
+        catch (ArrayIndexOutOfBoundsException a)
+        {
+            throw new IOException("Illegal UTF-8 sequence: multibyte sequence was truncated");
+        }
+
+        if (in > end)
+            throw new IOException("Illegal UTF-8 sequence: multibyte sequence was truncated");
+    }
+
     /**
      * Custom byte[] -> String conversion routine for UTF-8 only.
      * This is about twice as fast as using the String(byte[],int,int,String)
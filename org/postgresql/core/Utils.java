@@ -68,6 +68,16 @@ public class Utils {
         return b;
     }
 
+    /**
+     * Decode an array encoded by {@link #encodeUTF8(String)}.
+     *
+     * @param data the UTF-8 encoded string
+     * @return the decoded string
+     */
+    public static String decodeUTF8(byte[] data) {
+        return utf8Charset.decode(ByteBuffer.wrap(data)).toString();
+    }
+
     /**
      * Escape the given literal <tt>value</tt> and append it to the string buffer
      * <tt>sbuf</tt>. If <tt>sbuf</tt> is <tt>null</tt>, a new StringBuffer will be
@@ -340,4 +350,18 @@ public class Utils {
 
         return vers;
     }
+
+    /**
+     * Tells whether a command with the given completion tag may have changed
+     * a session setting the server does not report, such as the transaction
+     * isolation level or the search_path.
+     *
+     * @param status the command status tag
+     * @return true for SET, RESET, DISCARD, BEGIN and START TRANSACTION
+     */
+    public static boolean changesSession(String status) {
+        return status.equals("SET") || status.startsWith("SET ")
+            || status.equals("RESET") || status.startsWith("DISCARD")
+            || status.equals("BEGIN") || status.equals("START TRANSACTION");
+    }
 }
@@ -10,6 +10,7 @@ package org.postgresql.core;
 import java.io.EOFException;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
 
 /**
  * A faster version of BufferedInputStream. Does no synchronisation and
@@ -42,6 +43,11 @@ public class VisibleBufferedInputStream extends InputStream {
      */
     private byte[] buffer;
 
+    /**
+     * The size the buffer was created with.
+     */
+    private final int initialSize;
+
     /**
      * Current read position in the buffer.
      */
@@ -60,8 +66,8 @@ public class VisibleBufferedInputStream extends InputStream {
      */
     public VisibleBufferedInputStream(InputStream in, int bufferSize) {
         wrapped = in;
-        buffer = new byte[bufferSize < MINIMUM_READ ?
-                          MINIMUM_READ : bufferSize];
+        initialSize = bufferSize < MINIMUM_READ ? MINIMUM_READ : bufferSize;
+        buffer = new byte[initialSize];
     }
 
     /**
@@ -226,6 +232,78 @@ public class VisibleBufferedInputStream extends InputStream {
         return read;
     }
 
+    /**
+     * Reads up to len bytes into a ByteBuffer, copying them from the internal
+     * buffer, which is refilled only if it is empty.
+     *
+     * @param to The buffer to read into.
+     * @param len The maximum number of bytes to read.
+     * @return The number of bytes read, or -1 at the end of the stream.
+     * @throws IOException If reading of the wrapped stream failed.
+     */
+    public int read(ByteBuffer to, int len) throws IOException {
+        if (index == endIndex && !readMore(1)) {
+            return -1;
+        }
+        int n = Math.min(len, endIndex - index);
+        to.put(buffer, index, n);
+        index += n;
+        return n;
+    }
+
+    /**
+     * Makes the next bytes available in the buffer without consuming them,
+     * reading more only if the buffer is empty. The bytes can then be used in
+     * place at {@link #getIndex} of {@link #getBuffer} and consumed with
+     * {@link #skip}.
+     *
+     * @param len The maximum number of bytes wanted.
+     * @return The number of bytes available, at most len, or -1 at the end of the stream.
+     * @throws IOException If reading of the wrapped stream failed.
+     */
+    public int peek(int len) throws IOException {
+        if (index == endIndex && !readMore(1)) {
+            return -1;
+        }
+        return Math.min(len, endIndex - index);
+    }
+
+    /**
+     * Reads more bytes into the buffer without consuming them, waiting for
+     * at least one to arrive. The buffer grows if it is full.
+     *
+     * @return The number of bytes read, or -1 at the end of the stream.
+     * @throws IOException If reading of the wrapped stream failed.
+     */
+    public int readMore() throws IOException {
+        int before = endIndex - index;
+        if (!readMore(MINIMUM_READ)) {
+            return -1;
+        }
+        return endIndex - index - before;
+    }
+
+    /**
+     * Returns the number of unread bytes in the buffer.
+     *
+     * @return The number of unread bytes in the buffer.
+     */
+    public int buffered() {
+        return endIndex - index;
+    }
+
+    /**
+     * Returns the buffer to its initial size if it has grown and the unread
+     * bytes fit into that.
+     */
+    public void shrink() {
+        if (buffer.length > initialSize && endIndex - index <= initialSize) {
+            byte[] buf = new byte[initialSize];
+            moveBufferTo(buf);
+            buffer = buf;
+        }
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -99,7 +99,9 @@ public class ConnectionFactoryImpl extends ConnectionFactory {
         PGStream newStream = null;
         try
         {
-            newStream = new PGStream(hostSpec, connectTimeout);
+            long connectStart = System.currentTimeMillis();
+            // SSL wraps a blocking socket, so the NIO transport is only used without it.
+            newStream = new PGStream(hostSpec, connectTimeout, !trySSL && PGProperty.NIO_TRANSPORT.getBoolean(info));
 
             // Construct and send an ssl startup packet if requested.
             if (trySSL)
@@ -109,7 +111,7 @@ public class ConnectionFactoryImpl extends ConnectionFactory {
             // Set the socket timeout if the "socketTimeout" property has been set.
             int socketTimeout = PGProperty.SOCKET_TIMEOUT.getInt(info);
             if (socketTimeout > 0) {
-                newStream.getSocket().setSoTimeout(socketTimeout*1000);
+                newStream.setSoTimeout(socketTimeout*1000);
             }
 
             // Enable TCP keep-alive probe if required.
@@ -124,6 +126,7 @@ public class ConnectionFactoryImpl extends ConnectionFactory {
             // Do final startup.
             ProtocolConnectionImpl protoConnection = new ProtocolConnectionImpl(newStream, user, database, logger, connectTimeout);
             readStartupMessages(newStream, protoConnection, logger);
+            long connectMillis = System.currentTimeMillis() - connectStart;
 
             // Check Master or Slave
             HostStatus hostStatus = HostStatus.ConnectOK;
@@ -131,6 +134,7 @@ public class ConnectionFactoryImpl extends ConnectionFactory {
                 hostStatus = isMaster(protoConnection, logger) ? HostStatus.Master : HostStatus.Slave;
             }
             GlobalHostStatusTracker.reportHostStatus(hostSpec, hostStatus);
+            GlobalHostStatusTracker.reportConnectLatency(hostSpec, connectMillis);
             if (!targetServerType.allowConnectingTo(hostStatus)) {
                 protoConnection.close();
                 if (hostIter.hasNext()) {
@@ -143,6 +147,8 @@ public class ConnectionFactoryImpl extends ConnectionFactory {
             // Run some initial queries
             runInitialQueries(protoConnection, info, logger);
 
+            protoConnection.setHostLoad(GlobalHostStatusTracker.getHostLoad(hostSpec));
+
             // And we're done.
             return protoConnection;
         }
@@ -14,10 +14,12 @@ import java.io.InputStream;
 import java.io.IOException;
 import java.sql.SQLException;
 import java.util.Arrays;
+import java.util.Map;
 import org.postgresql.util.PSQLException;
 import org.postgresql.util.PSQLState;
 import org.postgresql.util.StreamWrapper;
 import org.postgresql.util.GT;
+import org.postgresql.util.ByteConverter;
 
 /**
  * Implementation of fastpath parameter lists for the V2 protocol.
@@ -63,11 +65,57 @@ class FastpathParameterList implements ParameterList {
         paramValues[index - 1] = data;
     }
 
+    public void setLongParameter(int index, long value, int oid, boolean binary) throws SQLException {
+        byte[] data;
+        if (oid == Oid.INT8)
+        {
+            data = new byte[8];
+            ByteConverter.int8(data, 0, value);
+        }
+        else if (oid == Oid.INT2)
+        {
+            data = new byte[2];
+            ByteConverter.int2(data, 0, (int)value);
+        }
+        else
+        {
+            data = new byte[4];
+            ByteConverter.int4(data, 0, (int)value);
+        }
+        setBinary(index, data, binary);
+    }
+
+    public void setFloatParameter(int index, float value, int oid, boolean binary) throws SQLException {
+        byte[] data = new byte[4];
+        ByteConverter.float4(data, 0, value);
+        setBinary(index, data, binary);
+    }
+
+    public void setDoubleParameter(int index, double value, int oid, boolean binary) throws SQLException {
+        byte[] data = new byte[8];
+        ByteConverter.float8(data, 0, value);
+        setBinary(index, data, binary);
+    }
+
+    private void setBinary(int index, byte[] data, boolean binary) throws SQLException {
+        // Not enough type info here for the V2 path (which requires binary reprs)
+        if (!binary)
+            throw new IllegalArgumentException("can't set a text parameter on a fastpath parameter");
+        if (index < 1 || index > paramValues.length)
+            throw new PSQLException(GT.tr("The column index is out of range: {0}, number of columns: {1}.", new Object[]{new Integer(index), new Integer(paramValues.length)}), PSQLState.INVALID_PARAMETER_VALUE );
+
+        paramValues[index - 1] = data;
+    }
+
     public void setLiteralParameter(int index, String value, int oid) throws SQLException {
         // Not enough type info here for the V2 path (which requires binary reprs)
         throw new IllegalArgumentException("can't setLiteralParameter() on a fastpath parameter");
     }
 
+    public void setHStoreParameter(int index, Map value, int oid) throws SQLException {
+        throw new IllegalArgumentException("can't setHStoreParameter() on a fastpath parameter");
+    }
+
     public void setStringParameter(int index, String value, int oid) throws SQLException {
         paramValues[index - 1] = value;
     }
@@ -16,6 +16,7 @@ import java.util.Set;
 
 import org.postgresql.PGNotification;
 import org.postgresql.core.*;
+import org.postgresql.hostchooser.HostLoad;
 import org.postgresql.util.HostSpec;
 
 /**
@@ -65,6 +66,17 @@ class ProtocolConnectionImpl implements ProtocolConnection {
         return transactionState;
     }
 
+    public String getParameterStatus(String name)
+    {
+        // the V2 protocol does not report parameters
+        return null;
+    }
+
+    public synchronized int getSessionChangeCount()
+    {
+        return sessionChangeCount;
+    }
+
     public synchronized PGNotification[] getNotifications() throws SQLException {
         PGNotification[] array = (PGNotification[])notifications.toArray(new PGNotification[notifications.size()]);
         notifications.clear();
@@ -146,6 +158,8 @@ class ProtocolConnectionImpl implements ProtocolConnection {
                 logger.debug("Discarding IOException on close:", ioe);
         }
 
+        if (hostLoad != null)
+            hostLoad.connectionClosed();
         closed = true;
     }
 
@@ -202,6 +216,34 @@ class ProtocolConnectionImpl implements ProtocolConnection {
     synchronized void setTransactionState(int state)
     {
         transactionState = state;
+        // committing or rolling back may have changed the settings again
+        if (state == TRANSACTION_IDLE && sessionChangedInTransaction)
+        {
+            ++sessionChangeCount;
+            sessionChangedInTransaction = false;
+        }
+    }
+
+    /**
+     * Notes the completion of a command, to find out when session settings
+     * may have changed. The driver's own BEGIN counts as well.
+     *
+     * @param status the command status tag
+     */
+    synchronized void noteCommandStatus(String status)
+    {
+        if (Utils.changesSession(status))
+        {
+            ++sessionChangeCount;
+            sessionChangedInTransaction = true;
+        }
+        else if (status.equals("ROLLBACK") && sessionChangedInTransaction &&
+                 transactionState != TRANSACTION_IDLE)
+        {
+            // a rollback to a savepoint may have undone the settings while
+            // the transaction goes on
+            ++sessionChangeCount;
+        }
     }
     
     public int getProtocolVersion()
@@ -232,9 +274,25 @@ class ProtocolConnectionImpl implements ProtocolConnection {
         {
             // ignore
         }
+        if (!closed && hostLoad != null)
+            hostLoad.connectionClosed();
         closed = true;
     }
 
+    /**
+     * Counts this connection in the load of its host until it is closed.
+     *
+     * @param hostLoad the load of the host this connection is connected to
+     */
+    void setHostLoad(HostLoad hostLoad) {
+        this.hostLoad = hostLoad;
+        hostLoad.connectionOpened();
+    }
+
+    HostLoad getHostLoad() {
+        return hostLoad;
+    }
+
     private String serverVersion;
     private int serverVersionNum = 0;
     private int cancelPid;
@@ -244,7 +302,11 @@ class ProtocolConnectionImpl implements ProtocolConnection {
     private int transactionState;
     private SQLWarning warnings;
 
+    private int sessionChangeCount;
+    private boolean sessionChangedInTransaction;
+
     private boolean closed = false;
+    private HostLoad hostLoad;
 
     private final ArrayList notifications = new ArrayList();
 
@@ -12,6 +12,7 @@ import java.util.ArrayList;
 import java.util.List;
 import java.io.IOException;
 import java.io.Writer;
+import java.nio.ByteBuffer;
 import java.sql.*;
 
 import org.postgresql.core.*;
@@ -42,6 +43,12 @@ public class QueryExecutorImpl implements QueryExecutor {
         return new V2Query(sql, true, protoConnection);
     }
 
+    public boolean queueSessionCommand(String sql) {
+        // Queries are sent as a single Query message, there is no way to
+        // keep the transaction of a queued command apart from the next one.
+        return false;
+    }
+
     //
     // Fastpath
     //
@@ -130,6 +137,51 @@ public class QueryExecutorImpl implements QueryExecutor {
         }
     }
 
+    // The calls are simply made one at a time.
+    public synchronized byte[][]
+    fastpathCall(int[] fnids, ParameterList[] parameters, boolean suppressBegin) throws SQLException {
+        byte[][] results = new byte[fnids.length][];
+        SQLException error = null;
+        for (int i = 0; i < fnids.length; ++i)
+        {
+            try
+            {
+                results[i] = fastpathCall(fnids[i], parameters[i], suppressBegin);
+            }
+            catch (SQLException sqle)
+            {
+                if (error == null)
+                    error = sqle;
+                else
+                    error.setNextException(sqle);
+            }
+        }
+
+        if (error != null)
+            throw error;
+
+        return results;
+    }
+
+    public synchronized int[]
+    fastpathCall(int[] fnids, ParameterList[] parameters, boolean suppressBegin, ByteBuffer results) throws SQLException {
+        byte[][] values = fastpathCall(fnids, parameters, suppressBegin);
+        int[] lengths = new int[values.length];
+        for (int i = 0; i < values.length; ++i)
+        {
+            if (values[i] == null)
+            {
+                lengths[i] = -1;
+                continue;
+            }
+            if (values[i].length > results.remaining())
+                throw new PSQLException(GT.tr("The function result of {0} bytes does not fit into the buffer.", new Integer(values[i].length)), PSQLState.INVALID_PARAMETER_VALUE);
+            results.put(values[i]);
+            lengths[i] = values[i].length;
+        }
+        return lengths;
+    }
+
     private void sendFastpathCall(int fnid, FastpathParameterList params) throws IOException {
         // Send call.
         int count = params.getParameterCount();
@@ -297,6 +349,33 @@ public class QueryExecutorImpl implements QueryExecutor {
         throw org.postgresql.Driver.notImplemented(this.getClass(), "fetch(ResultCursor,ResultHandler,int)");
     }
 
+    // The V2 protocol cannot tell the results of pipelined queries apart,
+    // so the query is run to completion before returning.
+    public synchronized void executeAsync(Query query,
+                                          ParameterList parameters,
+                                          ResultHandler handler,
+                                          int maxRows, int flags)
+    throws SQLException
+    {
+        try
+        {
+            execute((V2Query)query, (SimpleParameterList)parameters, handler, maxRows, flags);
+        }
+        catch (SQLException sqle)
+        {
+            // Kept by the handler.
+            if (logger.logDebug())
+                logger.debug("Ignoring exception on completion of asynchronous query:", sqle);
+        }
+    }
+
+    public int processAsyncResults(ResultHandler handler) {
+        return 0;
+    }
+
+    public void waitForAsyncQueries() {
+    }
+
     private void execute(V2Query query,
                          SimpleParameterList parameters,
                          ResultHandler handler,
@@ -579,6 +658,7 @@ public class QueryExecutorImpl implements QueryExecutor {
         int update_count = 0;
         long insert_oid = 0;
 
+        protoConnection.noteCommandStatus(status);
         if (status.equals("BEGIN"))
             protoConnection.setTransactionState(ProtocolConnection.TRANSACTION_OPEN);
         else if (status.equals("COMMIT") || status.equals("ROLLBACK"))
@@ -15,6 +15,7 @@ import java.io.Writer;
 import java.io.IOException;
 import java.sql.SQLException;
 import java.util.Arrays;
+import java.util.Map;
 import org.postgresql.util.PSQLException;
 import org.postgresql.util.PSQLState;
 import org.postgresql.util.StreamWrapper;
@@ -52,6 +53,18 @@ class SimpleParameterList implements ParameterList {
         setLiteralParameter(index, "" + value, Oid.INT4);
     }
 
+    public void setLongParameter(int index, long value, int oid, boolean binary) throws SQLException {
+        setLiteralParameter(index, Long.toString(value), oid);
+    }
+
+    public void setFloatParameter(int index, float value, int oid, boolean binary) throws SQLException {
+        setLiteralParameter(index, Float.toString(value), oid);
+    }
+
+    public void setDoubleParameter(int index, double value, int oid, boolean binary) throws SQLException {
+        setLiteralParameter(index, Double.toString(value), oid);
+    }
+
     public void setLiteralParameter(int index, String value, int oid) throws SQLException {
         if (index < 1 || index > paramValues.length)
             throw new PSQLException(GT.tr("The column index is out of range: {0}, number of columns: {1}.", new Object[]{new Integer(index), new Integer(paramValues.length)}), PSQLState.INVALID_PARAMETER_VALUE );
@@ -178,6 +191,10 @@ class SimpleParameterList implements ParameterList {
         throw new UnsupportedOperationException();
     }
 
+    public void setHStoreParameter(int index, Map value, int oid) {
+        throw new UnsupportedOperationException();
+    }
+
     private final Object[] paramValues;
     
     private final boolean useEStringSyntax;
@@ -15,6 +15,7 @@ import org.postgresql.util.GT;
 
 import java.sql.SQLException;
 import java.io.InputStream;
+import java.util.Map;
 
 /**
  * Parameter list for V3 query strings that contain multiple statements.
@@ -72,6 +73,21 @@ class CompositeParameterList implements V3ParameterList {
         subparams[sub].setIntParameter(index - offsets[sub], value);
     }
 
+    public void setLongParameter(int index, long value, int oid, boolean binary) throws SQLException {
+        int sub = findSubParam(index);
+        subparams[sub].setLongParameter(index - offsets[sub], value, oid, binary);
+    }
+
+    public void setFloatParameter(int index, float value, int oid, boolean binary) throws SQLException {
+        int sub = findSubParam(index);
+        subparams[sub].setFloatParameter(index - offsets[sub], value, oid, binary);
+    }
+
+    public void setDoubleParameter(int index, double value, int oid, boolean binary) throws SQLException {
+        int sub = findSubParam(index);
+        subparams[sub].setDoubleParameter(index - offsets[sub], value, oid, binary);
+    }
+
     public void setLiteralParameter(int index, String value, int oid) throws SQLException {
         int sub = findSubParam(index);
         subparams[sub].setStringParameter(index - offsets[sub], value, oid);
@@ -87,6 +103,11 @@ class CompositeParameterList implements V3ParameterList {
         subparams[sub].setBinaryParameter(index - offsets[sub], value, oid);
     }
 
+    public void setHStoreParameter(int index, Map value, int oid) throws SQLException {
+        int sub = findSubParam(index);
+        subparams[sub].setHStoreParameter(index - offsets[sub], value, oid);
+    }
+
     public void setBytea(int index, byte[] data, int offset, int length) throws SQLException {
         int sub = findSubParam(index);
         subparams[sub].setBytea(index - offsets[sub], data, offset, length);
@@ -9,8 +9,10 @@
 package org.postgresql.core.v3;
 
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.Properties;
 import java.util.TimeZone;
 import java.sql.SQLException;
@@ -51,6 +53,13 @@ public class ConnectionFactoryImpl extends ConnectionFactory {
     private static final int AUTH_REQ_GSS_CONTINUE = 8;
     private static final int AUTH_REQ_SSPI = 9;
 
+    /**
+     * Server version of each host seen by earlier connections. Connections to a host
+     * known to be 9.0+ send all settings in the StartupMessage instead of running
+     * setup queries after authentication.
+     */
+    private static final Map<HostSpec, Integer> knownServerVersions = new HashMap<HostSpec, Integer>();
+
     /** Marker exception; thrown when we want to fall back to using V2. */
     private static class UnsupportedProtocolException extends IOException {
     }
@@ -116,9 +125,12 @@ public class ConnectionFactoryImpl extends ConnectionFactory {
         //
 
         PGStream newStream = null;
+        boolean knownVersion9 = getKnownServerVersion(hostSpec) >= 90000;
         try
         {
-            newStream = new PGStream(hostSpec, connectTimeout);
+            long connectStart = System.currentTimeMillis();
+            // SSL wraps a blocking socket, so the NIO transport is only used without it.
+            newStream = new PGStream(hostSpec, connectTimeout, !trySSL && PGProperty.NIO_TRANSPORT.getBoolean(info));
 
             // Construct and send an ssl startup packet if requested.
             if (trySSL)
@@ -127,7 +139,7 @@ public class ConnectionFactoryImpl extends ConnectionFactory {
             // Set the socket timeout if the "socketTimeout" property has been set.
             int socketTimeout = PGProperty.SOCKET_TIMEOUT.getInt(info); 
             if (socketTimeout > 0) {
-                newStream.getSocket().setSoTimeout(socketTimeout*1000);
+                newStream.setSoTimeout(socketTimeout*1000);
             }
 
             // Enable TCP keep-alive probe if required.
@@ -169,8 +181,9 @@ public class ConnectionFactoryImpl extends ConnectionFactory {
             paramList.add(new String[] {"DateStyle", "ISO"});
             paramList.add(new String[] {"TimeZone",  createPostgresTimeZone()});
             String assumeMinServerVersion = PGProperty.ASSUME_MIN_SERVER_VERSION.get(info);
-            if( Utils.parseServerVersionStr(assumeMinServerVersion) >= 90000 ) {
-                // User is explicitly telling us this is a 9.0+ server so set properties here:
+            boolean startupParamsComplete = knownVersion9 || Utils.parseServerVersionStr(assumeMinServerVersion) >= 90000;
+            if( startupParamsComplete ) {
+                // User is explicitly telling us this is a 9.0+ server or an earlier connection found out, so set properties here:
                 paramList.add(new String[] {"extra_float_digits", "3"});
                 String appName = PGProperty.APPLICATION_NAME.get(info);
                 if( appName != null ) {
@@ -197,6 +210,8 @@ public class ConnectionFactoryImpl extends ConnectionFactory {
             // Do final startup.
             ProtocolConnectionImpl protoConnection = new ProtocolConnectionImpl(newStream, user, database, info, logger, connectTimeout);
             readStartupMessages(newStream, protoConnection, logger);
+            long connectMillis = System.currentTimeMillis() - connectStart;
+            rememberServerVersion(hostSpec, protoConnection.getServerVersionNum());
 
             // Check Master or Slave
             HostStatus hostStatus = HostStatus.ConnectOK;
@@ -204,6 +219,7 @@ public class ConnectionFactoryImpl extends ConnectionFactory {
                 hostStatus = isMaster(protoConnection, logger) ? HostStatus.Master : HostStatus.Slave;
             }
             GlobalHostStatusTracker.reportHostStatus(hostSpec, hostStatus);
+            GlobalHostStatusTracker.reportConnectLatency(hostSpec, connectMillis);
             if (!targetServerType.allowConnectingTo(hostStatus)) {
                 protoConnection.close();
                 if (hostIter.hasNext()) {
@@ -213,7 +229,10 @@ public class ConnectionFactoryImpl extends ConnectionFactory {
                 throw new PSQLException (GT.tr("Could not find a server with specified targetServerType: {0}", targetServerType) , PSQLState.CONNECTION_UNABLE_TO_CONNECT);
             }
 
-            runInitialQueries(protoConnection, info, logger);
+            if (!startupParamsComplete)
+                runInitialQueries(protoConnection, info, logger);
+
+            protoConnection.setHostLoad(GlobalHostStatusTracker.getHostLoad(hostSpec));
 
             // And we're done.
             return protoConnection;
@@ -251,6 +270,20 @@ public class ConnectionFactoryImpl extends ConnectionFactory {
         catch (SQLException se)
         {
             closeStream(newStream);
+            if (knownVersion9 && isRejectedStartupParameter(se))
+            {
+                // The server was replaced by an older version since the version was remembered.
+                // Forget it and try the host once more with the plain StartupMessage.
+                forgetServerVersion(hostSpec);
+                try
+                {
+                    return openConnectionImpl(new HostSpec[] { hostSpec }, user, database, info, logger);
+                }
+                catch (SQLException retryException)
+                {
+                    se = retryException;
+                }
+            }
             if (hostIter.hasNext()) {
                 // still more addresses to try
                 continue;
@@ -703,6 +736,7 @@ public class ConnectionFactoryImpl extends ConnectionFactory {
                 if (logger.logDebug())
                     logger.debug(" <=BE ParameterStatus(" + name + " = " + value + ")");
 
+                protoConnection.setParameterStatus(name, value);
                 if (name.equals("server_version_num"))
                     protoConnection.setServerVersionNum(Integer.parseInt(value));
                 if (name.equals("server_version"))
@@ -744,12 +778,6 @@ public class ConnectionFactoryImpl extends ConnectionFactory {
 
     private void runInitialQueries(ProtocolConnection protoConnection, Properties info, Logger logger) throws SQLException
     {
-        String assumeMinServerVersion = PGProperty.ASSUME_MIN_SERVER_VERSION.get(info);
-        if( Utils.parseServerVersionStr(assumeMinServerVersion) >= 90000 ) {
-            // We already sent the parameter values in the StartupMessage so skip this
-            return;
-        }
-
         final int dbVersion = protoConnection.getServerVersionNum();
 
         if (dbVersion >= 90000) {
@@ -767,6 +795,34 @@ public class ConnectionFactoryImpl extends ConnectionFactory {
 
     }
 
+    private static int getKnownServerVersion(HostSpec hostSpec) {
+        synchronized (knownServerVersions) {
+            Integer version = knownServerVersions.get(hostSpec);
+            return version == null ? 0 : version.intValue();
+        }
+    }
+
+    private static void rememberServerVersion(HostSpec hostSpec, int version) {
+        synchronized (knownServerVersions) {
+            knownServerVersions.put(hostSpec, version);
+        }
+    }
+
+    private static void forgetServerVersion(HostSpec hostSpec) {
+        synchronized (knownServerVersions) {
+            knownServerVersions.remove(hostSpec);
+        }
+    }
+
+    /**
+     * Tells if the server refused a setting of the StartupMessage, as servers
+     * older than 9.0 do for application_name and extra_float_digits = 3.
+     */
+    private static boolean isRejectedStartupParameter(SQLException se) {
+        return PSQLState.UNDEFINED_OBJECT.getState().equals(se.getSQLState())
+            || PSQLState.INVALID_PARAMETER_VALUE.getState().equals(se.getSQLState());
+    }
+
     private boolean isMaster(ProtocolConnectionImpl protoConnection, Logger logger) throws SQLException, IOException {
         byte[][] results = SetupQueryRunner.run(protoConnection, "show transaction_read_only", true);
         String value = protoConnection.getEncoding().decode(results[0]);
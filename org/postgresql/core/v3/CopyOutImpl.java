@@ -7,6 +7,10 @@
 */
 package org.postgresql.core.v3;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
 import java.sql.SQLException;
 
 import org.postgresql.copy.CopyOut;
@@ -33,6 +37,8 @@ import org.postgresql.copy.CopyOut;
  *           ->processCopyResults()
  *               - on copydata row from server
  *                   ->CopyOutImpl.handleCopydata() stores reference to byte array
+ *                     or, when reading into a given array or transferring to a stream,
+ *                     the data is left in the receive buffer and read from there
  *               -  on CopyDone, CommandComplete, ReadyForQuery
  *                   ->unlock() connection for use by other operations
  * <-returned: byte array of data received from server or null at end.
@@ -40,12 +46,45 @@ import org.postgresql.copy.CopyOut;
 public class CopyOutImpl extends CopyOperationImpl implements CopyOut {
     private byte[] currentDataRow;
 
+    /**
+     * Set while CopyData messages are to be left in the receive buffer
+     */
+    boolean receiveInPlace;
+
+    /**
+     * Bytes of the current CopyData message left in the receive buffer
+     */
+    int remaining;
+
+    /**
+     * View of the receive buffer reused for writing to channels
+     */
+    ByteBuffer receiveView;
+
     public byte[] readFromCopy() throws SQLException {
+        if (remaining > 0) {
+            // the rest of a message partly read in place
+            byte[] rest = new byte[remaining];
+            queryExecutor.readFromCopy(this, rest, 0, rest.length);
+            return rest;
+        }
         currentDataRow = null;
         queryExecutor.readFromCopy(this);
         return currentDataRow;
     }
 
+    public int readFromCopy(byte[] buf, int off, int len) throws SQLException {
+        return queryExecutor.readFromCopy(this, buf, off, len);
+    }
+
+    public long transferTo(OutputStream to) throws SQLException, IOException {
+        return queryExecutor.transferFromCopy(this, to);
+    }
+
+    public long transferTo(WritableByteChannel to) throws SQLException, IOException {
+        return queryExecutor.transferFromCopy(this, to);
+    }
+
     void handleCopydata(byte[] data) {
         currentDataRow = data;
     }
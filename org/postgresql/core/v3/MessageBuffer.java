@@ -0,0 +1,202 @@
+/*-------------------------------------------------------------------------
+*
+* Copyright (c) 2015, PostgreSQL Global Development Group
+*
+*
+*-------------------------------------------------------------------------
+*/
+package org.postgresql.core.v3;
+
+import java.io.IOException;
+
+import org.postgresql.core.PGStream;
+
+/**
+ * A growable buffer a protocol message is assembled in, so that it is sent
+ * with a single write. A connection keeps one buffer for all its messages;
+ * a buffer grown over {@link #MAX_RETAINED_SIZE} is dropped once sent.
+ */
+class MessageBuffer
+{
+    /**
+     * Largest buffer kept for the next message.
+     */
+    static final int MAX_RETAINED_SIZE = 64 * 1024;
+
+    private static final int INITIAL_SIZE = 1024;
+
+    private byte[] buf = new byte[INITIAL_SIZE];
+    private int pos = 0;
+
+    /**
+     * Drops the content of a message that was not sent.
+     */
+    void reset()
+    {
+        pos = 0;
+        if (buf.length > MAX_RETAINED_SIZE)
+            buf = new byte[INITIAL_SIZE];
+    }
+
+    /**
+     * @return the number of bytes in the buffer
+     */
+    int position()
+    {
+        return pos;
+    }
+
+    void writeByte(int val)
+    {
+        ensureCapacity(1);
+        buf[pos++] = (byte)val;
+    }
+
+    void writeInteger2(int val)
+    {
+        ensureCapacity(2);
+        buf[pos++] = (byte)(val >>> 8);
+        buf[pos++] = (byte)val;
+    }
+
+    void writeInteger4(int val)
+    {
+        ensureCapacity(4);
+        setInteger4(pos, val);
+        pos += 4;
+    }
+
+    void writeInteger8(long val)
+    {
+        writeInteger4((int)(val >>> 32));
+        writeInteger4((int)val);
+    }
+
+    /**
+     * Writes the decimal digits of a number as ASCII, as
+     * {@link Long#toString(long)} formats it.
+     *
+     * @return the number of bytes written
+     */
+    int writeDecimal(long val)
+    {
+        ensureCapacity(20);
+        int start = pos;
+        // digits are produced from a negative value so Long.MIN_VALUE works
+        if (val < 0)
+            buf[pos++] = '-';
+        else
+            val = -val;
+        int digitsStart = pos;
+        do
+        {
+            buf[pos++] = (byte)('0' - (int)(val % 10));
+            val /= 10;
+        }
+        while (val != 0);
+        for (int i = digitsStart, j = pos - 1; i < j; ++i, --j)
+        {
+            byte b = buf[i];
+            buf[i] = buf[j];
+            buf[j] = b;
+        }
+        return pos - start;
+    }
+
+    /**
+     * Overwrites four bytes already written, such as a length written before
+     * the data it describes was known.
+     */
+    void setInteger4(int at, int val)
+    {
+        buf[at] = (byte)(val >>> 24);
+        buf[at + 1] = (byte)(val >>> 16);
+        buf[at + 2] = (byte)(val >>> 8);
+        buf[at + 3] = (byte)val;
+    }
+
+    void write(byte[] data)
+    {
+        write(data, 0, data.length);
+    }
+
+    void write(byte[] data, int off, int len)
+    {
+        ensureCapacity(len);
+        System.arraycopy(data, off, buf, pos, len);
+        pos += len;
+    }
+
+    /**
+     * Encodes a string as UTF-8 straight into the buffer. An unpaired
+     * surrogate is replaced by '?', as the UTF-8 Charset does.
+     *
+     * @return the number of bytes written
+     */
+    int writeUTF8(String str)
+    {
+        int len = str.length();
+        // no char takes more than three bytes, a surrogate pair takes four
+        ensureCapacity(len * 3);
+        byte[] buf = this.buf;
+        int p = pos;
+        for (int i = 0; i < len; ++i)
+        {
+            char c = str.charAt(i);
+            if (c < 0x80)
+            {
+                buf[p++] = (byte)c;
+            }
+            else if (c < 0x800)
+            {
+                buf[p++] = (byte)(0xC0 | c >> 6);
+                buf[p++] = (byte)(0x80 | c & 0x3F);
+            }
+            else if (c < Character.MIN_SURROGATE || c > Character.MAX_SURROGATE)
+            {
+                buf[p++] = (byte)(0xE0 | c >> 12);
+                buf[p++] = (byte)(0x80 | c >> 6 & 0x3F);
+                buf[p++] = (byte)(0x80 | c & 0x3F);
+            }
+            else if (Character.isHighSurrogate(c) && i + 1 < len && Character.isLowSurrogate(str.charAt(i + 1)))
+            {
+                int cp = Character.toCodePoint(c, str.charAt(++i));
+                buf[p++] = (byte)(0xF0 | cp >> 18);
+                buf[p++] = (byte)(0x80 | cp >> 12 & 0x3F);
+                buf[p++] = (byte)(0x80 | cp >> 6 & 0x3F);
+                buf[p++] = (byte)(0x80 | cp & 0x3F);
+            }
+            else
+            {
+                buf[p++] = (byte)'?';
+            }
+        }
+        int written = p - pos;
+        pos = p;
+        return written;
+    }
+
+    /**
+     * Sends the message and empties the buffer.
+     */
+    void sendTo(PGStream pgStream) throws IOException
+    {
+        try
+        {
+            pgStream.Send(buf, 0, pos);
+        }
+        finally
+        {
+            reset();
+        }
+    }
+
+    private void ensureCapacity(int len)
+    {
+        if (buf.length - pos >= len)
+            return;
+        byte[] larger = new byte[Math.max(buf.length * 2, pos + len)];
+        System.arraycopy(buf, 0, larger, 0, pos);
+        buf = larger;
+    }
+}
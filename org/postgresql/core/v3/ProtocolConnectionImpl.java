@@ -10,12 +10,15 @@ package org.postgresql.core.v3;
 
 import org.postgresql.PGNotification;
 import org.postgresql.core.*;
+import org.postgresql.hostchooser.HostLoad;
 import org.postgresql.util.HostSpec;
 
 import java.sql.SQLException;
 import java.sql.SQLWarning;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.Set;
 import java.util.HashSet;
 import java.util.Properties;
@@ -70,6 +73,16 @@ class ProtocolConnectionImpl implements ProtocolConnection {
         return transactionState;
     }
 
+    public synchronized String getParameterStatus(String name)
+    {
+        return parameterStatuses.get(name);
+    }
+
+    public synchronized int getSessionChangeCount()
+    {
+        return sessionChangeCount;
+    }
+
     public synchronized PGNotification[] getNotifications() throws SQLException {
         PGNotification[] array = (PGNotification[])notifications.toArray(new PGNotification[notifications.size()]);
         notifications.clear();
@@ -150,6 +163,8 @@ class ProtocolConnectionImpl implements ProtocolConnection {
                 logger.debug("Discarding IOException on close:", ioe);
         }
 
+        if (hostLoad != null)
+            hostLoad.connectionClosed();
         closed = true;
     }
 
@@ -198,6 +213,48 @@ class ProtocolConnectionImpl implements ProtocolConnection {
     synchronized void setTransactionState(int state)
     {
         transactionState = state;
+        // committing or rolling back may have changed the settings again
+        if (state == TRANSACTION_IDLE && sessionChangedInTransaction)
+        {
+            ++sessionChangeCount;
+            sessionChangedInTransaction = false;
+        }
+    }
+
+    synchronized void setParameterStatus(String name, String value)
+    {
+        parameterStatuses.put(name, value);
+    }
+
+    /**
+     * Notes the completion of a command the application sent, to find out
+     * when session settings the server does not report may have changed.
+     *
+     * @param status the command status tag
+     */
+    synchronized void noteCommandStatus(String status)
+    {
+        if (Utils.changesSession(status))
+        {
+            ++sessionChangeCount;
+            sessionChangedInTransaction = true;
+        }
+        else if (status.equals("ROLLBACK") && sessionChangedInTransaction &&
+                 transactionState != TRANSACTION_IDLE)
+        {
+            // a rollback to a savepoint may have undone the settings while
+            // the transaction goes on
+            ++sessionChangeCount;
+        }
+    }
+
+    /**
+     * Notes that session settings may differ from what the driver assumes,
+     * such as after a failed session command.
+     */
+    synchronized void noteSessionChange()
+    {
+        ++sessionChangeCount;
     }
 
     synchronized void setStandardConformingStrings(boolean value)
@@ -220,8 +277,8 @@ class ProtocolConnectionImpl implements ProtocolConnection {
     }
 
     public void setBinaryReceiveOids(Set oids) {
-        useBinaryForOids.clear();
-        useBinaryForOids.addAll(oids);
+        // replaced instead of changed, as oids are added while queries run
+        useBinaryForOids = new HashSet<Integer>(oids);
     }
 
     public void setIntegerDateTimes(boolean state) {
@@ -241,9 +298,25 @@ class ProtocolConnectionImpl implements ProtocolConnection {
         {
             // ignore
         }
+        if (!closed && hostLoad != null)
+            hostLoad.connectionClosed();
         closed = true;
     }
 
+    /**
+     * Counts this connection in the load of its host until it is closed.
+     *
+     * @param hostLoad the load of the host this connection is connected to
+     */
+    void setHostLoad(HostLoad hostLoad) {
+        this.hostLoad = hostLoad;
+        hostLoad.connectionOpened();
+    }
+
+    HostLoad getHostLoad() {
+        return hostLoad;
+    }
+
    /**
      * True if server uses integers for date and time fields. False if
      * server uses double.
@@ -254,7 +327,7 @@ class ProtocolConnectionImpl implements ProtocolConnection {
     * Bit set that has a bit set for each oid which should be received
     * using binary format.
     */
-    private final Set<Integer> useBinaryForOids = new HashSet<Integer>();
+    private volatile Set<Integer> useBinaryForOids = new HashSet<Integer>();
     private String serverVersion;
     private int serverVersionNum = 0;
     private int cancelPid;
@@ -264,7 +337,12 @@ class ProtocolConnectionImpl implements ProtocolConnection {
     private int transactionState;
     private SQLWarning warnings;
 
+    private final Map<String,String> parameterStatuses = new HashMap<String,String>();
+    private int sessionChangeCount;
+    private boolean sessionChangedInTransaction;
+
     private boolean closed = false;
+    private HostLoad hostLoad;
 
     private final ArrayList notifications = new ArrayList();
 
@@ -17,6 +17,9 @@ import java.util.HashMap;
 import java.util.Properties;
 import java.lang.ref.*;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
 import java.sql.*;
 
 import org.postgresql.util.PSQLException;
@@ -25,6 +28,7 @@ import org.postgresql.util.PSQLState;
 import org.postgresql.util.ServerErrorMessage;
 import org.postgresql.util.GT;
 import org.postgresql.copy.CopyOperation;
+import org.postgresql.hostchooser.HostLoad;
 
 /**
  * QueryExecutor implementation for the V3 protocol.
@@ -38,6 +42,16 @@ public class QueryExecutorImpl implements QueryExecutor {
         this.allowEncodingChanges = PGProperty.ALLOW_ENCODING_CHANGES.getBoolean(info);
     }
 
+    /**
+     * Adds the duration of a query to the load statistics of the connected host.
+     * Nothing is recorded for queries run while the connection is being set up.
+     */
+    private void reportQueryLatency(long queryStart) {
+        HostLoad hostLoad = protoConnection.getHostLoad();
+        if (hostLoad != null)
+            hostLoad.reportQueryLatency(System.currentTimeMillis() - queryStart);
+    }
+
     /**
      * Supplement to synchronization of public methods on current QueryExecutor.
      * 
@@ -227,6 +241,7 @@ public class QueryExecutorImpl implements QueryExecutor {
     throws SQLException
     {
         waitOnLock();
+        waitForAsyncQueries();
         if (logger.logDebug())
         {
             logger.debug("simple execute, handler=" + handler +
@@ -248,12 +263,14 @@ public class QueryExecutorImpl implements QueryExecutor {
         {
             try
             {
+                long queryStart = System.currentTimeMillis();
                 handler = sendQueryPreamble(handler, flags);
                 ErrorTrackingResultHandler trackingHandler = new ErrorTrackingResultHandler(handler);
                 sendQuery((V3Query)query, (V3ParameterList)parameters, maxRows, fetchSize, flags, trackingHandler);
                 sendSync();
                 processResults(handler, flags);
                 estimatedReceiveBufferBytes = 0;
+                reportQueryLatency(queryStart);
             }
             catch (PGBindException se)
             {
@@ -380,6 +397,7 @@ public class QueryExecutorImpl implements QueryExecutor {
     throws SQLException
     {
         waitOnLock();
+        waitForAsyncQueries();
         if (logger.logDebug())
         {
             logger.debug("batch execute " + queries.length + " queries, handler=" + handler +
@@ -432,7 +450,9 @@ public class QueryExecutorImpl implements QueryExecutor {
     }
 
     private ResultHandler sendQueryPreamble(final ResultHandler delegateHandler, int flags) throws IOException {
-        // First, send CloseStatements for finalized SimpleQueries that had statement names assigned.
+        sendSessionCommands();
+
+        // Send CloseStatements for finalized SimpleQueries that had statement names assigned.
         processDeadParsedQueries();
         processDeadPortals();
 
@@ -484,6 +504,278 @@ public class QueryExecutorImpl implements QueryExecutor {
                };
     }
 
+    //
+    // Asynchronous execution
+    //
+    // Each query sent by executeAsync is followed by its own Sync, so its
+    // results end with a ReadyForQuery and an error only affects that query.
+    // The messages it expects are moved out of the pending queues once it is
+    // sent and moved back when its results are read, as processResults only
+    // knows about the messages up to the next ReadyForQuery.
+    //
+
+    private class AsyncQuery {
+        private final ResultHandler resultHandler;
+        private final int flags;
+        private final int estimatedResponseBytes;
+        private final long queryStart = System.currentTimeMillis();
+        private ResultHandler handler;
+        private PGBindException bindException;
+        // The replies to session commands sent before the query end with a
+        // ReadyForQuery of their own.
+        private int readyForQueryCount = 1;
+
+        private final ArrayList parseQueue = new ArrayList();
+        private final ArrayList bindQueue = new ArrayList();
+        private final ArrayList executeQueue = new ArrayList();
+        private final ArrayList describeStatementQueue = new ArrayList();
+        private final ArrayList describePortalQueue = new ArrayList();
+
+        AsyncQuery(ResultHandler resultHandler, int flags, int estimatedResponseBytes) {
+            this.resultHandler = resultHandler;
+            this.handler = resultHandler;
+            this.flags = flags;
+            this.estimatedResponseBytes = estimatedResponseBytes;
+        }
+
+        void takePendingQueues() {
+            move(pendingParseQueue, parseQueue);
+            move(pendingBindQueue, bindQueue);
+            move(pendingExecuteQueue, executeQueue);
+            move(pendingDescribeStatementQueue, describeStatementQueue);
+            move(pendingDescribePortalQueue, describePortalQueue);
+        }
+
+        void restorePendingQueues() {
+            move(parseQueue, pendingParseQueue);
+            move(bindQueue, pendingBindQueue);
+            move(executeQueue, pendingExecuteQueue);
+            move(describeStatementQueue, pendingDescribeStatementQueue);
+            move(describePortalQueue, pendingDescribePortalQueue);
+        }
+
+        private void move(ArrayList from, ArrayList to) {
+            to.addAll(from);
+            from.clear();
+        }
+    }
+
+    public synchronized void executeAsync(Query query,
+                                          ParameterList parameters,
+                                          ResultHandler handler,
+                                          int maxRows,
+                                          int flags)
+    throws SQLException
+    {
+        waitOnLock();
+        if (logger.logDebug())
+        {
+            logger.debug("async execute, handler=" + handler +
+                         ", maxRows=" + maxRows + ", flags=" + flags);
+        }
+
+        if (parameters == null)
+            parameters = SimpleQuery.NO_PARAMETERS;
+
+        // There is no way to fetch more rows once later queries have been sent.
+        flags &= ~QUERY_FORWARD_CURSOR;
+
+        boolean describeOnly = (QUERY_DESCRIBE_ONLY & flags) != 0;
+
+        ((V3ParameterList)parameters).convertFunctionOutParameters();
+
+        // Check parameters are all set..
+        if (!describeOnly)
+            ((V3ParameterList)parameters).checkAllParametersSet();
+
+        // The replies to session commands are read with the next results,
+        // which have to be those of this query.
+        if (!sessionCommands.isEmpty())
+            waitForAsyncQueries();
+
+        // The transaction state is only known after the earlier queries have
+        // completed, but one of them already sent a BEGIN if it was needed.
+        for (int i = 0; i < pendingAsyncQueries.size(); ++i)
+        {
+            if ((((AsyncQuery)pendingAsyncQueries.get(i)).flags & QUERY_SUPPRESS_BEGIN) == 0)
+                flags |= QUERY_SUPPRESS_BEGIN;
+        }
+
+        // Read the earlier results first if the server might block on writing
+        // them, see MAX_BUFFERED_RECV_BYTES.
+        int estimatedResponseBytes = estimateResponseSize((V3Query)query);
+        if (estimatedResponseBytes < 0 ||
+                asyncEstimatedReceiveBufferBytes + estimatedResponseBytes >= MAX_BUFFERED_RECV_BYTES)
+            waitForAsyncQueries();
+
+        AsyncQuery asyncQuery = new AsyncQuery(handler, flags, Math.max(estimatedResponseBytes, 0));
+        try
+        {
+            asyncQuery.handler = sendQueryPreamble(handler, flags);
+            if (sessionResultsPending && pendingAsyncQueries.isEmpty())
+                asyncQuery.readyForQueryCount = 2;
+            try
+            {
+                sendAsyncQuery((V3Query)query, (V3ParameterList)parameters, maxRows, flags);
+            }
+            catch (PGBindException se)
+            {
+                // As in execute, the query is not executed and the error is
+                // reported with its results.
+                asyncQuery.bindException = se;
+            }
+            sendSync();
+        }
+        catch (IOException e)
+        {
+            protoConnection.close();
+            asyncQuery.handler.handleError(new PSQLException(GT.tr("An I/O error occurred while sending to the backend."), PSQLState.CONNECTION_FAILURE, e));
+            completeAsyncQuery(asyncQuery.handler);
+            return;
+        }
+
+        asyncQuery.takePendingQueues();
+        pendingAsyncQueries.add(asyncQuery);
+        asyncEstimatedReceiveBufferBytes += asyncQuery.estimatedResponseBytes;
+    }
+
+    public synchronized int processAsyncResults(ResultHandler handler) throws SQLException {
+        if (handler != null)
+        {
+            for (int i = 0; i < pendingAsyncQueries.size(); ++i)
+            {
+                if (((AsyncQuery)pendingAsyncQueries.get(i)).resultHandler == handler)
+                    return completeAsyncQueries(i + 1);
+            }
+            return 0;
+        }
+
+        // Only the queries whose results have arrived in full are completed,
+        // so that polling never waits for the server.
+        int completed = 0;
+        try
+        {
+            while (!pendingAsyncQueries.isEmpty())
+            {
+                int count = ((AsyncQuery)pendingAsyncQueries.get(0)).readyForQueryCount;
+                if (pgStream.countReceivedMessages('Z', count) < count)
+                    break;
+                completed += completeAsyncQueries(1);
+            }
+            if (completed > 0)
+                pgStream.shrinkReceiveBuffer();
+        }
+        catch (IOException ioe)
+        {
+            protoConnection.close();
+            throw new PSQLException(GT.tr("An I/O error occurred while sending to the backend."), PSQLState.CONNECTION_FAILURE, ioe);
+        }
+        return completed;
+    }
+
+    /**
+     * Complete all asynchronous queries, as their results precede the results
+     * of anything sent later.
+     */
+    public synchronized void waitForAsyncQueries() {
+        completeAsyncQueries(pendingAsyncQueries.size());
+    }
+
+    private int completeAsyncQueries(int count) {
+        if (count == 0)
+            return 0;
+
+        // A listener run on completion may execute another statement, which
+        // completes the remaining queries itself or adds new ones, so stop
+        // once the last query of this call is no longer pending.
+        AsyncQuery last = (AsyncQuery)pendingAsyncQueries.get(count - 1);
+        int completed = 0;
+        while (pendingAsyncQueries.indexOf(last) >= 0)
+        {
+            AsyncQuery asyncQuery = (AsyncQuery)pendingAsyncQueries.remove(0);
+            asyncEstimatedReceiveBufferBytes -= asyncQuery.estimatedResponseBytes;
+            asyncQuery.restorePendingQueues();
+            try
+            {
+                processResults(asyncQuery.handler, asyncQuery.flags);
+                if (asyncQuery.bindException != null)
+                    asyncQuery.handler.handleError(new PSQLException(GT.tr("Unable to bind parameter values for statement."), PSQLState.INVALID_PARAMETER_VALUE, asyncQuery.bindException.getIOException()));
+                reportQueryLatency(asyncQuery.queryStart);
+            }
+            catch (IOException e)
+            {
+                // The following queries fail the same way on the closed stream.
+                protoConnection.close();
+                asyncQuery.handler.handleError(new PSQLException(GT.tr("An I/O error occurred while sending to the backend."), PSQLState.CONNECTION_FAILURE, e));
+            }
+            completed++;
+            completeAsyncQuery(asyncQuery.handler);
+        }
+        if (pendingAsyncQueries.isEmpty())
+            asyncEstimatedReceiveBufferBytes = 0;
+        return completed;
+    }
+
+    private void completeAsyncQuery(ResultHandler handler) {
+        try
+        {
+            handler.handleCompletion();
+        }
+        catch (SQLException sqle)
+        {
+            // The handler keeps the errors it was given.
+            if (logger.logDebug())
+                logger.debug("Ignoring exception on completion of asynchronous query:", sqle);
+        }
+    }
+
+    /*
+     * Send a query without reading any results, unlike sendQuery.
+     */
+    private void sendAsyncQuery(V3Query query, V3ParameterList parameters, int maxRows, int flags) throws IOException {
+        SimpleQuery[] subqueries = query.getSubqueries();
+        SimpleParameterList[] subparams = parameters.getSubparams();
+
+        if (subqueries == null)
+        {
+            sendOneQuery((SimpleQuery)query, (SimpleParameterList)parameters, maxRows, 0, flags);
+            return;
+        }
+
+        for (int i = 0; i < subqueries.length; ++i)
+        {
+            SimpleParameterList subparam = SimpleQuery.NO_PARAMETERS;
+            if (subparams != null)
+                subparam = subparams[i];
+            sendOneQuery(subqueries[i], subparam, maxRows, 0, flags);
+        }
+    }
+
+    /**
+     * Estimate the size of the response to a query as flushIfDeadlockRisk does.
+     *
+     * @return the estimated size in bytes, or -1 if the results are unbounded
+     */
+    private int estimateResponseSize(V3Query query) {
+        SimpleQuery[] subqueries = query.getSubqueries();
+        if (subqueries == null)
+            subqueries = new SimpleQuery[] { (SimpleQuery)query };
+
+        int estimate = 0;
+        for (int i = 0; i < subqueries.length; ++i)
+        {
+            estimate += NODATA_QUERY_RESPONSE_SIZE_BYTES;
+            if (subqueries[i].isStatementDescribed())
+            {
+                int maxResultRowSize = subqueries[i].getMaxResultRowSize();
+                if (maxResultRowSize < 0)
+                    return -1;
+                estimate += maxResultRowSize;
+            }
+        }
+        return estimate;
+    }
+
     //
     // Fastpath
     //
@@ -491,13 +783,19 @@ public class QueryExecutorImpl implements QueryExecutor {
     public synchronized byte[]
     fastpathCall(int fnid, ParameterList parameters, boolean suppressBegin) throws SQLException {
         waitOnLock();
+        waitForAsyncQueries();
         if (!suppressBegin)
         {
             doSubprotocolBegin();
         }
+        else
+        {
+            flushSessionCommands();
+        }
         try
         {
             sendFastpathCall(fnid, (SimpleParameterList)parameters);
+            pgStream.flush();
             return receiveFastpathResult();
         }
         catch (IOException ioe)
@@ -507,6 +805,124 @@ public class QueryExecutorImpl implements QueryExecutor {
         }
     }
 
+    public synchronized byte[][]
+    fastpathCall(int[] fnids, ParameterList[] parameters, boolean suppressBegin) throws SQLException {
+        waitOnLock();
+        waitForAsyncQueries();
+        if (!suppressBegin)
+        {
+            doSubprotocolBegin();
+        }
+        else
+        {
+            flushSessionCommands();
+        }
+        try
+        {
+            byte[][] results = new byte[fnids.length][];
+            SQLException error = null;
+            int sent = 0;
+            for (int i = 0; i < fnids.length; ++i)
+            {
+                if (i == sent)
+                    sent = sendFastpathCalls(fnids, parameters, i);
+                try
+                {
+                    results[i] = receiveFastpathResult();
+                }
+                catch (SQLException sqle)
+                {
+                    if (error == null)
+                        error = sqle;
+                    else
+                        error.setNextException(sqle);
+                }
+            }
+
+            if (error != null)
+                throw error;
+
+            return results;
+        }
+        catch (IOException ioe)
+        {
+            protoConnection.close();
+            throw new PSQLException(GT.tr("An I/O error occurred while sending to the backend."), PSQLState.CONNECTION_FAILURE, ioe);
+        }
+    }
+
+    public synchronized int[]
+    fastpathCall(int[] fnids, ParameterList[] parameters, boolean suppressBegin, ByteBuffer results) throws SQLException {
+        waitOnLock();
+        waitForAsyncQueries();
+        if (!suppressBegin)
+        {
+            doSubprotocolBegin();
+        }
+        else
+        {
+            flushSessionCommands();
+        }
+        try
+        {
+            int[] lengths = new int[fnids.length];
+            SQLException error = null;
+            int sent = 0;
+            for (int i = 0; i < fnids.length; ++i)
+            {
+                if (i == sent)
+                    sent = sendFastpathCalls(fnids, parameters, i);
+                try
+                {
+                    lengths[i] = -1;
+                    receiveFastpathResult(results, lengths, i);
+                }
+                catch (SQLException sqle)
+                {
+                    if (error == null)
+                        error = sqle;
+                    else
+                        error.setNextException(sqle);
+                }
+            }
+
+            if (error != null)
+                throw error;
+
+            return lengths;
+        }
+        catch (IOException ioe)
+        {
+            protoConnection.close();
+            throw new PSQLException(GT.tr("An I/O error occurred while sending to the backend."), PSQLState.CONNECTION_FAILURE, ioe);
+        }
+    }
+
+    /**
+     * Sends the calls of a batch from the given index on and flushes them.
+     * Each FunctionCall is answered up to its own ReadyForQuery, and the
+     * answers are only read after sending, so the backend may block on
+     * writing them meanwhile. As many calls are sent at once as can be
+     * answered without filling the buffers, see MAX_BUFFERED_RECV_BYTES,
+     * assuming small results: callers must keep the number of calls with
+     * large results in a batch small.
+     *
+     * @return the index after the last call sent
+     */
+    private int sendFastpathCalls(int[] fnids, ParameterList[] parameters, int from) throws SQLException, IOException {
+        int estimatedResponseBytes = 0;
+        int i = from;
+        do
+        {
+            sendFastpathCall(fnids[i], (SimpleParameterList)parameters[i]);
+            estimatedResponseBytes += NODATA_QUERY_RESPONSE_SIZE_BYTES;
+            ++i;
+        }
+        while (i < fnids.length && estimatedResponseBytes < MAX_BUFFERED_RECV_BYTES);
+        pgStream.flush();
+        return i;
+    }
+
     public void doSubprotocolBegin() throws SQLException {
         if (protoConnection.getTransactionState() == ProtocolConnection.TRANSACTION_IDLE)
         {
@@ -563,6 +979,7 @@ public class QueryExecutorImpl implements QueryExecutor {
 
             try
             {
+                sendSessionCommands();
                 sendOneQuery(beginTransactionQuery, SimpleQuery.NO_PARAMETERS, 0, 0, QueryExecutor.QUERY_NO_METADATA);
                 sendSync();
                 processResults(handler, 0);
@@ -573,7 +990,10 @@ public class QueryExecutorImpl implements QueryExecutor {
                 throw new PSQLException(GT.tr("An I/O error occurred while sending to the backend."), PSQLState.CONNECTION_FAILURE, ioe);
             }
         }
-
+        else
+        {
+            flushSessionCommands();
+        }
     }
 
     public ParameterList createFastpathParameters(int count) {
@@ -622,11 +1042,15 @@ public class QueryExecutorImpl implements QueryExecutor {
             }
         }
         pgStream.SendInteger2(1); // Binary result format
-        pgStream.flush();
     }
 
     public synchronized void processNotifies() throws SQLException {
         waitOnLock();
+        // Notifications arriving meanwhile are read with the results.
+        processAsyncResults(null);
+        if (!pendingAsyncQueries.isEmpty())
+            return;
+
         // Asynchronous notifies only arrive when we are not in a transaction
         if (protoConnection.getTransactionState() != ProtocolConnection.TRANSACTION_IDLE)
             return;
@@ -654,7 +1078,171 @@ public class QueryExecutorImpl implements QueryExecutor {
         }
     }
     
+    //
+    // Session commands
+    //
+
+    public synchronized boolean queueSessionCommand(String sql) {
+        sessionCommands.add(sql);
+        return true;
+    }
+
+    /**
+     * Sends the queued session commands, if any, each as an unnamed
+     * statement. They are followed by a Sync of their own, so they are
+     * committed whatever happens to what is sent after them. Their replies
+     * are read by the next {@link #processResults} or by
+     * {@link #flushSessionCommands}; nothing is flushed here.
+     */
+    private void sendSessionCommands() throws IOException {
+        if (sessionCommands.isEmpty())
+            return;
+
+        for (int i = 0; i < sessionCommands.size(); ++i)
+        {
+            String sql = (String)sessionCommands.get(i);
+            byte[] encodedSql = Utils.encodeUTF8(sql);
+            if (logger.logDebug())
+            {
+                logger.debug(" FE=> Parse(stmt=null,query=\"" + sql + "\",oids={})");
+                logger.debug(" FE=> Bind(stmt=null,portal=null)");
+                logger.debug(" FE=> Execute(portal=null,limit=0)");
+            }
+
+            pgStream.SendChar('P'); // Parse
+            pgStream.SendInteger4(4 + 1 + encodedSql.length + 1 + 2);
+            pgStream.SendChar(0);   // unnamed statement
+            pgStream.Send(encodedSql);
+            pgStream.SendChar(0);   // end of query string
+            pgStream.SendInteger2(0); // no parameter types
+
+            pgStream.SendChar('B'); // Bind
+            pgStream.SendInteger4(4 + 1 + 1 + 2 + 2 + 2);
+            pgStream.SendChar(0);   // unnamed portal
+            pgStream.SendChar(0);   // unnamed statement
+            pgStream.SendInteger2(0); // no parameter formats
+            pgStream.SendInteger2(0); // no parameters
+            pgStream.SendInteger2(0); // no result formats
+
+            pgStream.SendChar('E'); // Execute
+            pgStream.SendInteger4(4 + 1 + 4);
+            pgStream.SendChar(0);   // unnamed portal
+            pgStream.SendInteger4(0); // no row limit
+        }
+
+        if (logger.logDebug())
+            logger.debug(" FE=> Sync");
+        pgStream.SendChar('S');
+        pgStream.SendInteger4(4);
+
+        sessionCommands.clear();
+        sessionResultsPending = true;
+    }
+
+    /**
+     * Receives the replies to the session commands sent, up to their
+     * ReadyForQuery. A command that failed leaves the session settings
+     * unknown.
+     *
+     * @return the errors the commands raised, or null
+     */
+    private SQLException receiveSessionResults() throws IOException {
+        sessionResultsPending = false;
+        SQLException errors = null;
+        while (true)
+        {
+            SQLException error = null;
+            int c = pgStream.ReceiveChar();
+            switch (c)
+            {
+            case '1':    // Parse Complete
+                pgStream.ReceiveInteger4(); // len, discarded
+                if (logger.logDebug())
+                    logger.debug(" <=BE ParseComplete [null]");
+                break;
+
+            case '2':    // Bind Complete
+                pgStream.ReceiveInteger4(); // len, discarded
+                if (logger.logDebug())
+                    logger.debug(" <=BE BindComplete [null]");
+                break;
+
+            case 'C':    // Command Status
+                receiveCommandStatus();
+                break;
+
+            case 'A':    // Asynchronous Notify
+                receiveAsyncNotify();
+                break;
+
+            case 'N':    // Notice Response
+                protoConnection.addWarning(receiveNoticeResponse());
+                break;
+
+            case 'S':    // Parameter Status
+                error = receiveParameterStatus();
+                break;
+
+            case 'E':    // Error Response
+                error = receiveErrorResponse();
+                protoConnection.noteSessionChange();
+                break;
+
+            case 'Z':    // Ready For Query
+                receiveRFQ();
+                return errors;
+
+            default:
+                throw new IOException("Unexpected packet type: " + c);
+            }
+
+            if (error != null)
+            {
+                if (errors == null)
+                    errors = error;
+                else
+                    errors.setNextException(error);
+            }
+        }
+    }
+
+    /**
+     * Sends the queued session commands, if any, and waits for their
+     * replies, for when there is no query to send them with.
+     */
+    private void flushSessionCommands() throws SQLException {
+        if (sessionCommands.isEmpty())
+            return;
+
+        try
+        {
+            sendSessionCommands();
+            pgStream.flush();
+            SQLException error = receiveSessionResults();
+            if (error != null)
+                throw error;
+        }
+        catch (IOException ioe)
+        {
+            protoConnection.close();
+            throw new PSQLException(GT.tr("An I/O error occurred while sending to the backend."), PSQLState.CONNECTION_FAILURE, ioe);
+        }
+    }
+
     private byte[] receiveFastpathResult() throws IOException, SQLException {
+        return receiveFastpathResult(null, null, 0);
+    }
+
+    /**
+     * Receive the response to a FunctionCall.
+     *
+     * @param into if not null, the buffer receiving the result from its
+     *  position on instead of a new array
+     * @param lengths receives the length of the result at <code>index</code>
+     *  when receiving into a buffer
+     * @return the result when not receiving into a buffer
+     */
+    private byte[] receiveFastpathResult(ByteBuffer into, int[] lengths, int index) throws IOException, SQLException {
         boolean endQuery = false;
         SQLException error = null;
         byte[] returnValue = null;
@@ -694,7 +1282,22 @@ public class QueryExecutorImpl implements QueryExecutor {
                 if (logger.logDebug())
                     logger.debug(" <=BE FunctionCallResponse(" + valueLen + " bytes)");
 
-                if (valueLen != -1)
+                if (valueLen != -1 && into != null)
+                {
+                    int fits = Math.min(valueLen, into.remaining());
+                    pgStream.Receive(into, fits);
+                    lengths[index] = fits;
+                    if (fits < valueLen)
+                    {
+                        pgStream.Skip(valueLen - fits);
+                        SQLException tooLong = new PSQLException(GT.tr("The function result of {0} bytes does not fit into the buffer.", new Integer(valueLen)), PSQLState.INVALID_PARAMETER_VALUE);
+                        if (error == null)
+                            error = tooLong;
+                        else
+                            error.setNextException(tooLong);
+                    }
+                }
+                else if (valueLen != -1)
                 {
                     byte buf[] = new byte[valueLen];
                     pgStream.Receive(buf, 0, valueLen);
@@ -728,8 +1331,11 @@ public class QueryExecutorImpl implements QueryExecutor {
      */
     public synchronized CopyOperation startCopy(String sql, boolean suppressBegin) throws SQLException {
         waitOnLock();
+        waitForAsyncQueries();
         if (!suppressBegin) {
             doSubprotocolBegin();
+        } else {
+            flushSessionCommands();
         }
         byte buf[] = Utils.encodeUTF8(sql);
 
@@ -906,6 +1512,111 @@ public class QueryExecutorImpl implements QueryExecutor {
         }
     }
 
+    /**
+     * Reads the data of the current CopyData message, or of the next one, into an array
+     * @param op the copy operation presumably currently holding lock on this connection
+     * @return number of bytes read, at most up to the end of the message, or -1 at end of copy
+     * @throws SQLException on any failure
+     */
+    synchronized int readFromCopy(CopyOutImpl op, byte[] buf, int off, int len) throws SQLException {
+        if (!nextCopyData(op))
+            return -1;
+
+        int n = Math.min(len, op.remaining);
+        try {
+            pgStream.Receive(buf, off, n);
+        } catch(IOException ioe) {
+            throw new PSQLException(GT.tr("Database connection failed when reading from copy"), PSQLState.CONNECTION_FAILURE, ioe);
+        }
+        op.remaining -= n;
+        return n;
+    }
+
+    /**
+     * Writes the rest of the copy data to a stream straight from the receive buffer
+     * @param op the copy operation presumably currently holding lock on this connection
+     * @return number of bytes written
+     * @throws SQLException on any failure of the connection
+     * @throws IOException if writing to the stream fails
+     */
+    synchronized long transferFromCopy(CopyOutImpl op, OutputStream to) throws SQLException, IOException {
+        long total = 0;
+        while (nextCopyData(op)) {
+            int n = peekCopyData(op);
+            to.write(pgStream.getReceiveBuffer(), pgStream.getReceiveIndex(), n);
+            consumeCopyData(op, n);
+            total += n;
+        }
+        return total;
+    }
+
+    /**
+     * Writes the rest of the copy data to a blocking channel straight from the receive buffer
+     * @param op the copy operation presumably currently holding lock on this connection
+     * @return number of bytes written
+     * @throws SQLException on any failure of the connection
+     * @throws IOException if writing to the channel fails
+     */
+    synchronized long transferFromCopy(CopyOutImpl op, WritableByteChannel to) throws SQLException, IOException {
+        long total = 0;
+        while (nextCopyData(op)) {
+            int n = peekCopyData(op);
+            byte[] buf = pgStream.getReceiveBuffer();
+            int index = pgStream.getReceiveIndex();
+            // reuse a view of the receive buffer, which only changes when it grows
+            if (op.receiveView == null || op.receiveView.array() != buf)
+                op.receiveView = ByteBuffer.wrap(buf);
+            op.receiveView.clear();
+            op.receiveView.limit(index + n);
+            op.receiveView.position(index);
+            while (op.receiveView.hasRemaining())
+                to.write(op.receiveView);
+            consumeCopyData(op, n);
+            total += n;
+        }
+        return total;
+    }
+
+    /**
+     * Receives messages until a CopyData message with data to read in place
+     * arrives, unless data of the current message is left.
+     * @return false at end of copy
+     */
+    private boolean nextCopyData(CopyOutImpl op) throws SQLException {
+        if (op.remaining > 0)
+            return true;
+        if(!hasLock(op))
+            throw new PSQLException(GT.tr("Tried to read from inactive copy"), PSQLState.OBJECT_NOT_IN_STATE);
+
+        op.receiveInPlace = true;
+        try {
+            while (op.remaining == 0 && hasLock(op))
+                processCopyResults(op, true);
+        } catch(IOException ioe) {
+            throw new PSQLException(GT.tr("Database connection failed when reading from copy"), PSQLState.CONNECTION_FAILURE, ioe);
+        } finally {
+            op.receiveInPlace = false;
+        }
+        return op.remaining > 0;
+    }
+
+    private int peekCopyData(CopyOutImpl op) throws SQLException {
+        try {
+            return pgStream.Peek(op.remaining);
+        } catch(IOException ioe) {
+            throw new PSQLException(GT.tr("Database connection failed when reading from copy"), PSQLState.CONNECTION_FAILURE, ioe);
+        }
+    }
+
+    private void consumeCopyData(CopyOutImpl op, int n) throws SQLException {
+        try {
+            pgStream.Skip(n);
+        } catch(IOException ioe) {
+            throw new PSQLException(GT.tr("Database connection failed when reading from copy"), PSQLState.CONNECTION_FAILURE, ioe);
+        }
+        op.remaining -= n;
+    }
+
     /**
      * Handles copy sub protocol responses from server.
      * Unlocks at end of sub protocol,
@@ -1020,6 +1731,12 @@ public class QueryExecutorImpl implements QueryExecutor {
                     logger.debug(" <=BE CopyData");
 
                 len = pgStream.ReceiveInteger4() - 4;
+                if (op instanceof CopyOutImpl && ((CopyOutImpl)op).receiveInPlace) {
+                    // the caller consumes the data from the receive buffer
+                    ((CopyOutImpl)op).remaining = len;
+                    endReceiving = true;
+                    break;
+                }
                 byte[] buf = pgStream.Receive(len);
                 if(op == null) {
                     error = new PSQLException(GT.tr("Got CopyData without an active copy operation"), PSQLState.OBJECT_NOT_IN_STATE);
@@ -1054,6 +1771,7 @@ public class QueryExecutorImpl implements QueryExecutor {
                 String value = pgStream.ReceiveString();
                 if (logger.logDebug())
                     logger.debug(" <=BE ParameterStatus(" + name + " = " + value + ")");
+                protoConnection.setParameterStatus(name, value);
 
                 if (name.equals("client_encoding") && !value.equalsIgnoreCase("UTF8") && !allowEncodingChanges)
                 {
@@ -1366,20 +2084,6 @@ public class QueryExecutorImpl implements QueryExecutor {
             logger.debug(sbuf.toString());
         }
 
-        // Total size = 4 (size field) + N + 1 (destination portal)
-        //            + N + 1 (statement name)
-        //            + 2 (param format code count) + N * 2 (format codes)
-        //            + 2 (param value count) + N (encoded param value size)
-        //            + 2 (result format code count, 0)
-        long encodedSize = 0;
-        for (int i = 1; i <= params.getParameterCount(); ++i)
-        {
-            if (params.isNull(i))
-                encodedSize += 4;
-            else
-                encodedSize += (long)4 + params.getV3Length(i);
-        }
-
         // This is not the number of binary fields, but the total number
         // of fields if any of them are binary or zero if all of them
         // are text.
@@ -1395,6 +2099,39 @@ public class QueryExecutorImpl implements QueryExecutor {
             }
         }
 
+        // Small messages are assembled in the message buffer, encoding the
+        // parameters straight into it, and sent with a single write.
+        long maxValuesSize = params.getMaxV3Size();
+        if (maxValuesSize >= 0)
+        {
+            long maxSize = 1 + 4
+                           + (encodedPortalName == null ? 0 : encodedPortalName.length) + 1
+                           + (encodedStatementName == null ? 0 : encodedStatementName.length) + 1
+                           + 2 + params.getParameterCount() * 2
+                           + 2 + maxValuesSize
+                           + 2 + numBinaryFields * 2;
+            if (maxSize <= MessageBuffer.MAX_RETAINED_SIZE)
+            {
+                sendBufferedBind(encodedStatementName, encodedPortalName, params, fields, numBinaryFields);
+                pendingBindQueue.add(portal);
+                return;
+            }
+        }
+
+        // Total size = 4 (size field) + N + 1 (destination portal)
+        //            + N + 1 (statement name)
+        //            + 2 (param format code count) + N * 2 (format codes)
+        //            + 2 (param value count) + N (encoded param value size)
+        //            + 2 (result format code count, 0)
+        long encodedSize = 0;
+        for (int i = 1; i <= params.getParameterCount(); ++i)
+        {
+            if (params.isNull(i))
+                encodedSize += 4;
+            else
+                encodedSize += (long)4 + params.getV3Length(i);
+        }
+
         encodedSize = 4
                       + (encodedPortalName == null ? 0 : encodedPortalName.length) + 1
                       + (encodedStatementName == null ? 0 : encodedStatementName.length) + 1
@@ -1468,6 +2205,39 @@ public class QueryExecutorImpl implements QueryExecutor {
         }
     }
 
+    /**
+     * Sends a Bind message without parameters read from streams, assembled in
+     * the message buffer.
+     */
+    private void sendBufferedBind(byte[] encodedStatementName, byte[] encodedPortalName,
+                                  SimpleParameterList params, Field[] fields, int numBinaryFields) throws IOException {
+        MessageBuffer buf = messageBuffer;
+        buf.reset();
+        buf.writeByte('B');                      // Bind
+        buf.writeInteger4(0);                    // Message size, set below
+        if (encodedPortalName != null)
+            buf.write(encodedPortalName);        // Destination portal name.
+        buf.writeByte(0);                        // End of portal name.
+        if (encodedStatementName != null)
+            buf.write(encodedStatementName);     // Source statement name.
+        buf.writeByte(0);                        // End of statement name.
+
+        buf.writeInteger2(params.getParameterCount());      // # of parameter format codes
+        for (int i = 1; i <= params.getParameterCount(); ++i)
+            buf.writeInteger2(params.isBinary(i) ? 1 : 0);  // Parameter format code
+
+        buf.writeInteger2(params.getParameterCount());      // # of parameter values
+        for (int i = 1; i <= params.getParameterCount(); ++i)
+            params.writeV3Value(i, buf);                     // Parameter size and value
+
+        buf.writeInteger2(numBinaryFields);      // # of result format codes
+        for (int i = 0; i < numBinaryFields; ++i)
+            buf.writeInteger2(fields[i].getFormat());
+
+        buf.setInteger4(1, buf.position() - 1);
+        buf.sendTo(pgStream);
+    }
+
     /**
      * Returns true if the specified field should be retrieved using binary
      * encoding.
@@ -1776,6 +2546,14 @@ public class QueryExecutorImpl implements QueryExecutor {
     }
 
     protected void processResults(ResultHandler handler, int flags) throws IOException {
+        // The session commands sent with the query are answered first.
+        if (sessionResultsPending)
+        {
+            SQLException error = receiveSessionResults();
+            if (error != null)
+                handler.handleError(error);
+        }
+
         boolean noResults = (flags & QueryExecutor.QUERY_NO_RESULTS) != 0;
         boolean bothRowsAndStatus = (flags & QueryExecutor.QUERY_BOTH_ROWS_AND_STATUS) != 0;
 
@@ -1929,6 +2707,9 @@ public class QueryExecutorImpl implements QueryExecutor {
                     SimpleQuery currentQuery = (SimpleQuery)executeData[0];
                     Portal currentPortal = (Portal)executeData[1];
 
+                    if (currentQuery != beginTransactionQuery)
+                        protoConnection.noteCommandStatus(status);
+
                     Field[] fields = currentQuery.getFields();
                     if (fields != null && !noResults && tuples == null)
                         tuples = new ArrayList();
@@ -2025,39 +2806,12 @@ public class QueryExecutorImpl implements QueryExecutor {
 
             case 'S':    // Parameter Status
                 {
-                    int l_len = pgStream.ReceiveInteger4();
-                    String name = pgStream.ReceiveString();
-                    String value = pgStream.ReceiveString();
-                    if (logger.logDebug())
-                        logger.debug(" <=BE ParameterStatus(" + name + " = " + value + ")");
-
-                    if (name.equals("client_encoding") && !value.equalsIgnoreCase("UTF8") && !allowEncodingChanges)
+                    SQLException statusError = receiveParameterStatus();
+                    if (statusError != null)
                     {
-                        protoConnection.close(); // we're screwed now; we can't trust any subsequent string.
-                        handler.handleError(new PSQLException(GT.tr("The server''s client_encoding parameter was changed to {0}. The JDBC driver requires client_encoding to be UTF8 for correct operation.", value), PSQLState.CONNECTION_FAILURE));
+                        handler.handleError(statusError);
                         endQuery = true;
                     }
-
-                    if (name.equals("DateStyle") && !value.startsWith("ISO,"))
-                    {
-                        protoConnection.close(); // we're screwed now; we can't trust any subsequent date.
-                        handler.handleError(new PSQLException(GT.tr("The server''s DateStyle parameter was changed to {0}. The JDBC driver requires DateStyle to begin with ISO for correct operation.", value), PSQLState.CONNECTION_FAILURE));
-                        endQuery = true;
-                    }
-                    
-                    if (name.equals("standard_conforming_strings"))
-                    {
-                        if (value.equals("on"))
-                            protoConnection.setStandardConformingStrings(true);
-                        else if (value.equals("off"))
-                            protoConnection.setStandardConformingStrings(false);
-                        else
-                        {
-                            protoConnection.close(); // we're screwed now; we don't know how to escape string literals
-                            handler.handleError(new PSQLException(GT.tr("The server''s standard_conforming_strings parameter was reported as {0}. The JDBC driver expected on or off.", value), PSQLState.CONNECTION_FAILURE));
-                            endQuery = true;
-                        }
-                    }
                 }
                 break;
 
@@ -2161,6 +2915,7 @@ public class QueryExecutorImpl implements QueryExecutor {
     public synchronized void fetch(ResultCursor cursor, ResultHandler handler, int fetchSize)
     throws SQLException {
         waitOnLock();
+        waitForAsyncQueries();
         final Portal portal = (Portal)cursor;
 
         // Insert a ResultHandler that turns bare command statuses into empty datasets
@@ -2324,6 +3079,48 @@ public class QueryExecutorImpl implements QueryExecutor {
         handler.handleCommandStatus(status, update_count, insert_oid);
     }
 
+    /**
+     * Receives a ParameterStatus message and checks that the driver can
+     * still work with the new value.
+     *
+     * @return the error to report if it cannot, the connection is closed then
+     */
+    private SQLException receiveParameterStatus() throws IOException {
+        int l_len = pgStream.ReceiveInteger4();
+        String name = pgStream.ReceiveString();
+        String value = pgStream.ReceiveString();
+        if (logger.logDebug())
+            logger.debug(" <=BE ParameterStatus(" + name + " = " + value + ")");
+        protoConnection.setParameterStatus(name, value);
+
+        if (name.equals("client_encoding") && !value.equalsIgnoreCase("UTF8") && !allowEncodingChanges)
+        {
+            protoConnection.close(); // we're screwed now; we can't trust any subsequent string.
+            return new PSQLException(GT.tr("The server''s client_encoding parameter was changed to {0}. The JDBC driver requires client_encoding to be UTF8 for correct operation.", value), PSQLState.CONNECTION_FAILURE);
+        }
+
+        if (name.equals("DateStyle") && !value.startsWith("ISO,"))
+        {
+            protoConnection.close(); // we're screwed now; we can't trust any subsequent date.
+            return new PSQLException(GT.tr("The server''s DateStyle parameter was changed to {0}. The JDBC driver requires DateStyle to begin with ISO for correct operation.", value), PSQLState.CONNECTION_FAILURE);
+        }
+
+        if (name.equals("standard_conforming_strings"))
+        {
+            if (value.equals("on"))
+                protoConnection.setStandardConformingStrings(true);
+            else if (value.equals("off"))
+                protoConnection.setStandardConformingStrings(false);
+            else
+            {
+                protoConnection.close(); // we're screwed now; we don't know how to escape string literals
+                return new PSQLException(GT.tr("The server''s standard_conforming_strings parameter was reported as {0}. The JDBC driver expected on or off.", value), PSQLState.CONNECTION_FAILURE);
+            }
+        }
+
+        return null;
+    }
+
     private void receiveRFQ() throws IOException {
         if (pgStream.ReceiveInteger4() != 5)
             throw new IOException("unexpected length of ReadyForQuery message");
@@ -2359,6 +3156,7 @@ public class QueryExecutorImpl implements QueryExecutor {
     private final ProtocolConnectionImpl protoConnection;
     private final PGStream pgStream;
     private final Logger logger;
+    private final MessageBuffer messageBuffer = new MessageBuffer(); // reused for Bind messages
     private final boolean allowEncodingChanges;
 
     /**
@@ -2371,6 +3169,20 @@ public class QueryExecutorImpl implements QueryExecutor {
      */
     private int estimatedReceiveBufferBytes = 0;
 
+    /**
+     * The queries sent by executeAsync whose results have not been read yet,
+     * in the order they were sent.
+     */
+    private final ArrayList pendingAsyncQueries = new ArrayList(); // list of AsyncQuery instances
+
+    /**
+     * The estimated server response size of the queries in pendingAsyncQueries, in bytes.
+     */
+    private int asyncEstimatedReceiveBufferBytes = 0;
+
+    private final ArrayList sessionCommands = new ArrayList(); // list of String, see queueSessionCommand
+    private boolean sessionResultsPending = false;
+
     private final SimpleQuery beginTransactionQuery = new SimpleQuery(new String[] { "BEGIN" }, null);
 
     private final SimpleQuery EMPTY_QUERY = new SimpleQuery(new String[] { "" }, null);
@@ -12,6 +12,8 @@ import java.io.InputStream;
 import java.io.IOException;
 import java.sql.SQLException;
 import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map;
 
 import org.postgresql.core.*;
 import org.postgresql.util.PSQLException;
@@ -38,16 +40,28 @@ class SimpleParameterList implements V3ParameterList {
     SimpleParameterList(int paramCount, ProtocolConnectionImpl protoConnection) {
         this.paramValues = new Object[paramCount];
         this.paramTypes = new int[paramCount];
-        this.encoded = new byte[paramCount][];
         this.flags = new int[paramCount];
         this.protoConnection = protoConnection;
     }        
+
+    /**
+     * A copy sharing the types and flags of other copies.
+     */
+    private SimpleParameterList(Object[] paramValues, int[] paramTypes, int[] flags, long[] primitiveValues, ProtocolConnectionImpl protoConnection) {
+        this.paramValues = paramValues;
+        this.paramTypes = paramTypes;
+        this.flags = flags;
+        this.shapeShared = true;
+        this.primitiveValues = primitiveValues;
+        this.protoConnection = protoConnection;
+    }
     
     public void registerOutParameter( int index, int sqlType ) throws SQLException
     {
         if (index < 1 || index > paramValues.length)
             throw new PSQLException(GT.tr("The column index is out of range: {0}, number of columns: {1}.", new Object[]{new Integer(index), new Integer(paramValues.length)}), PSQLState.INVALID_PARAMETER_VALUE);
 
+        unshareShape();
         flags[index-1] |= OUT;
     }
 
@@ -57,7 +71,9 @@ class SimpleParameterList implements V3ParameterList {
 
         --index;
 
-        encoded[index] = null;
+        unshareShape();
+        if (encoded != null)
+            encoded[index] = null;
         paramValues[index] = value ;
         flags[index] = direction(index) | IN | binary;
         
@@ -105,9 +121,22 @@ class SimpleParameterList implements V3ParameterList {
     }
 
     public void setIntParameter(int index, int value) throws SQLException {
-        byte[] data = new byte[4];
-        ByteConverter.int4(data,0,value);
-        bind(index, data, Oid.INT4, BINARY);
+        setLongParameter(index, value, Oid.INT4, true);
+    }
+
+    public void setLongParameter(int index, long value, int oid, boolean binary) throws SQLException {
+        bind(index, LONG_VALUE, oid, binary ? BINARY : TEXT);
+        primitiveValues()[index - 1] = value;
+    }
+
+    public void setFloatParameter(int index, float value, int oid, boolean binary) throws SQLException {
+        bind(index, FLOAT_VALUE, oid, binary ? BINARY : TEXT);
+        primitiveValues()[index - 1] = Double.doubleToRawLongBits(value);
+    }
+
+    public void setDoubleParameter(int index, double value, int oid, boolean binary) throws SQLException {
+        bind(index, DOUBLE_VALUE, oid, binary ? BINARY : TEXT);
+        primitiveValues()[index - 1] = Double.doubleToRawLongBits(value);
     }
 
     public void setLiteralParameter(int index, String value, int oid) throws SQLException {
@@ -122,6 +151,19 @@ class SimpleParameterList implements V3ParameterList {
         bind(index, value, oid, BINARY);
     }
 
+    public void setHStoreParameter(int index, Map value, int oid) throws SQLException {
+        // keys and values alternate, kept as strings until sent
+        String[] entries = new String[value.size() * 2];
+        int n = 0;
+        for (Iterator i = value.entrySet().iterator(); i.hasNext(); )
+        {
+            Map.Entry e = (Map.Entry) i.next();
+            entries[n++] = e.getKey().toString();
+            entries[n++] = e.getValue() == null ? null : e.getValue().toString();
+        }
+        bind(index, entries, oid, BINARY);
+    }
+
     public void setBytea(int index, byte[] data, int offset, int length) throws SQLException {
         bind(index, new StreamWrapper(data, offset, length), Oid.BYTEA, BINARY);
     }
@@ -153,6 +195,9 @@ class SimpleParameterList implements V3ParameterList {
         else if (paramValues[index] == NULL_OBJECT)
             return "NULL";
 
+        else if (isPrimitive(index) && (flags[index] & BINARY) == BINARY)
+            return primitiveText(index);
+
         else if ( (flags[index]& BINARY) == BINARY )
         {
             // handle some of the numeric types
@@ -183,7 +228,13 @@ class SimpleParameterList implements V3ParameterList {
         }
         else
         {
-            String param = paramValues[index].toString();
+            String param;
+            if (isPrimitive(index))
+                param = primitiveText(index);
+            else if (paramValues[index] instanceof byte[])
+                param = Utils.decodeUTF8((byte[]) paramValues[index]); // text copied for a batch
+            else
+                param = paramValues[index].toString();
             boolean hasBackslash = param.indexOf('\\') != -1;
 
             // add room for quotes + potential escaping.
@@ -231,6 +282,7 @@ class SimpleParameterList implements V3ParameterList {
 
     public void convertFunctionOutParameters()
     {
+        unshareShape();
         for (int i=0; i<paramTypes.length; ++i)
         {
             if (direction(i) == OUT)
@@ -279,6 +331,7 @@ class SimpleParameterList implements V3ParameterList {
     void setResolvedType(int index, int oid) {
         // only allow overwriting an unknown value
         if (paramTypes[index-1] == Oid.UNSPECIFIED) {
+            unshareShape();
             paramTypes[index-1] = oid;
         } else if (paramTypes[index-1] != oid) {
             throw new IllegalArgumentException("Can't change resolved type for param: " + index + " from " + paramTypes[index-1] + " to " + oid);
@@ -312,14 +365,8 @@ class SimpleParameterList implements V3ParameterList {
         if (paramValues[index] instanceof StreamWrapper)
             return ((StreamWrapper) paramValues[index]).getLength();
 
-        // Already encoded?
-        if (encoded[index] == null)
-        {
-            // Encode value and compute actual length using UTF-8.
-            encoded[index] = Utils.encodeUTF8(paramValues[index].toString());
-        }
-
-        return encoded[index].length;
+        // Encode value and compute actual length using UTF-8.
+        return encoded(index).length;
     }
 
     void writeV3Value(int index, PGStream pgStream) throws IOException {
@@ -343,36 +390,315 @@ class SimpleParameterList implements V3ParameterList {
             return ;
         }
 
-        // Encoded string.
+        // Encoded string or primitive value.
+        pgStream.Send(encoded(index));
+    }
+
+    /**
+     * @return the encoded value of a string or primitive parameter, kept
+     *  until the parameter is bound again
+     */
+    private byte[] encoded(int index) {
+        if (encoded == null)
+            encoded = new byte[paramValues.length][];
         if (encoded[index] == null)
-            encoded[index] = Utils.encodeUTF8((String) paramValues[index]);
-        pgStream.Send(encoded[index]);
+            encoded[index] = encodeValue(index);
+        return encoded[index];
+    }
+
+    private byte[] encodeValue(int index) {
+        if (paramValues[index] instanceof String[])
+            return encodeHStore((String[]) paramValues[index]);
+        if (!isPrimitive(index))
+            return Utils.encodeUTF8(paramValues[index].toString());
+        if ((flags[index] & BINARY) == 0)
+            return Utils.encodeUTF8(primitiveText(index));
+
+        byte[] data = new byte[binaryPrimitiveLength(index)];
+        long value = primitiveValues[index];
+        if (paramValues[index] == FLOAT_VALUE)
+            ByteConverter.float4(data, 0, (float) Double.longBitsToDouble(value));
+        else if (paramValues[index] == DOUBLE_VALUE)
+            ByteConverter.float8(data, 0, Double.longBitsToDouble(value));
+        else if (data.length == 2)
+            ByteConverter.int2(data, 0, (int) value);
+        else if (data.length == 4)
+            ByteConverter.int4(data, 0, (int) value);
+        else
+            ByteConverter.int8(data, 0, value);
+        return data;
+    }
+
+    //
+    // hstore values, stored as alternating keys and values in a String[].
+    //
+
+    private static byte[] encodeHStore(String[] entries) {
+        byte[][] encoded = new byte[entries.length][];
+        int length = 4;
+        for (int i = 0; i < entries.length; ++i)
+        {
+            if (entries[i] != null)
+            {
+                encoded[i] = Utils.encodeUTF8(entries[i]);
+                length += encoded[i].length;
+            }
+            length += 4;
+        }
+
+        byte[] data = new byte[length];
+        ByteConverter.int4(data, 0, entries.length / 2);
+        int pos = 4;
+        for (int i = 0; i < encoded.length; ++i)
+        {
+            if (encoded[i] == null)
+            {
+                ByteConverter.int4(data, pos, -1);
+                pos += 4;
+                continue;
+            }
+            ByteConverter.int4(data, pos, encoded[i].length);
+            System.arraycopy(encoded[i], 0, data, pos + 4, encoded[i].length);
+            pos += 4 + encoded[i].length;
+        }
+        return data;
+    }
+
+    private static void writeHStore(String[] entries, MessageBuffer buf) {
+        int start = buf.position();
+        buf.writeInteger4(0);
+        buf.writeInteger4(entries.length / 2);
+        for (int i = 0; i < entries.length; ++i)
+        {
+            if (entries[i] == null)
+            {
+                buf.writeInteger4(-1);
+                continue;
+            }
+            int at = buf.position();
+            buf.writeInteger4(0);
+            buf.setInteger4(at, buf.writeUTF8(entries[i]));
+        }
+        buf.setInteger4(start, buf.position() - start - 4);
+    }
+
+    private static long maxHStoreSize(String[] entries) {
+        long size = 4;
+        for (int i = 0; i < entries.length; ++i)
+        {
+            size += 4;
+            if (entries[i] != null)
+                size += (long) entries[i].length() * 3;
+        }
+        return size;
+    }
+
+    //
+    // Primitive values, stored in primitiveValues and marked by the kind of
+    // value in paramValues.
+    //
+
+    private boolean isPrimitive(int index) {
+        Object value = paramValues[index];
+        return value == LONG_VALUE || value == FLOAT_VALUE || value == DOUBLE_VALUE;
+    }
+
+    private String primitiveText(int index) {
+        long value = primitiveValues[index];
+        if (paramValues[index] == FLOAT_VALUE)
+            return Float.toString((float) Double.longBitsToDouble(value));
+        if (paramValues[index] == DOUBLE_VALUE)
+            return Double.toString(Double.longBitsToDouble(value));
+        return Long.toString(value);
+    }
+
+    private int binaryPrimitiveLength(int index) {
+        if (paramValues[index] == FLOAT_VALUE)
+            return 4;
+        if (paramValues[index] == DOUBLE_VALUE)
+            return 8;
+        switch (paramTypes[index])
+        {
+        case Oid.INT2:
+            return 2;
+        case Oid.INT8:
+            return 8;
+        default:
+            return 4;
+        }
+    }
+
+
+    /**
+     * @return an upper bound of the size of the lengths and values of all
+     *  parameters in a Bind message, or -1 if a value is read from a stream
+     */
+    long getMaxV3Size() {
+        long size = 0;
+        for (int i = 0; i < paramValues.length; ++i)
+        {
+            size += 4;
+            Object value = paramValues[i];
+            if (value == NULL_OBJECT)
+                continue;
+
+            if (isPrimitive(i))
+                size += MAX_PRIMITIVE_TEXT_LENGTH;
+            else if (value instanceof byte[])
+                size += ((byte[]) value).length;
+            else if (value instanceof StreamWrapper)
+            {
+                StreamWrapper wrapper = (StreamWrapper) value;
+                if (wrapper.getBytes() == null)
+                    return -1;
+                size += wrapper.getLength();
+            }
+            else if (encoded != null && encoded[i] != null)
+                size += encoded[i].length;
+            else if (value instanceof String[])
+                size += maxHStoreSize((String[]) value);
+            else
+                size += (long) value.toString().length() * 3;
+        }
+        return size;
+    }
+
+    /**
+     * Writes the length and the value of a parameter to a Bind message being
+     * assembled, encoding a string straight into the buffer. Parameters read
+     * from a stream have to be written with {@link #writeV3Value(int, PGStream)}.
+     */
+    void writeV3Value(int index, MessageBuffer buf) {
+        --index;
+
+        Object value = paramValues[index];
+        if (value == NULL_OBJECT)
+        {
+            buf.writeInteger4(-1); // Magic size of -1 means NULL
+        }
+        else if (isPrimitive(index))
+        {
+            writePrimitive(index, buf);
+        }
+        else if (value instanceof byte[])
+        {
+            buf.writeInteger4(((byte[]) value).length);
+            buf.write((byte[]) value);
+        }
+        else if (value instanceof StreamWrapper)
+        {
+            StreamWrapper wrapper = (StreamWrapper) value;
+            buf.writeInteger4(wrapper.getLength());
+            buf.write(wrapper.getBytes(), wrapper.getOffset(), wrapper.getLength());
+        }
+        else if (encoded != null && encoded[index] != null)
+        {
+            buf.writeInteger4(encoded[index].length);
+            buf.write(encoded[index]);
+        }
+        else if (value instanceof String[])
+        {
+            writeHStore((String[]) value, buf);
+        }
+        else
+        {
+            int at = buf.position();
+            buf.writeInteger4(0);
+            buf.setInteger4(at, buf.writeUTF8(value.toString()));
+        }
+    }
+    private void writePrimitive(int index, MessageBuffer buf) {
+        long value = primitiveValues[index];
+        if ((flags[index] & BINARY) != 0)
+        {
+            int length = binaryPrimitiveLength(index);
+            buf.writeInteger4(length);
+            if (paramValues[index] == FLOAT_VALUE)
+                buf.writeInteger4(Float.floatToRawIntBits((float) Double.longBitsToDouble(value)));
+            else if (paramValues[index] == DOUBLE_VALUE || length == 8)
+                buf.writeInteger8(value);
+            else if (length == 4)
+                buf.writeInteger4((int) value);
+            else
+                buf.writeInteger2((int) value);
+            return;
+        }
+
+        int at = buf.position();
+        buf.writeInteger4(0);
+        if (paramValues[index] == LONG_VALUE)
+            buf.setInteger4(at, buf.writeDecimal(value));
+        else
+            buf.setInteger4(at, buf.writeUTF8(primitiveText(index)));
     }
 
     
     
+    /**
+     * Copies the values for a batch. Copies share their types and flags with
+     * the previous copy as long as they do not change, and strings are kept
+     * encoded instead of as Strings, so that a batch holds little more than
+     * the values of each row.
+     */
     public ParameterList copy() {
-        SimpleParameterList newCopy = new SimpleParameterList(paramValues.length, protoConnection);
-        System.arraycopy(paramValues, 0, newCopy.paramValues, 0, paramValues.length);
-        System.arraycopy(paramTypes, 0, newCopy.paramTypes, 0, paramTypes.length);
-        System.arraycopy(flags, 0, newCopy.flags, 0, flags.length);
-        return newCopy;
+        if (copiedTypes == null || !Arrays.equals(paramTypes, copiedTypes) || !Arrays.equals(flags, copiedFlags))
+        {
+            copiedTypes = (int[]) paramTypes.clone();
+            copiedFlags = (int[]) flags.clone();
+        }
+
+        Object[] values = new Object[paramValues.length];
+        boolean hasPrimitives = false;
+        for (int i = 0; i < values.length; ++i)
+        {
+            Object value = paramValues[i];
+            if (value instanceof String)
+                value = encoded(i);
+            else if (isPrimitive(i))
+                hasPrimitives = true;
+            values[i] = value;
+        }
+        long[] primitives = hasPrimitives ? (long[]) primitiveValues.clone() : null;
+        return new SimpleParameterList(values, copiedTypes, copiedFlags, primitives, protoConnection);
     }
 
     public void clear() {
+        unshareShape();
         Arrays.fill(paramValues, null);
         Arrays.fill(paramTypes, 0);
-        Arrays.fill(encoded, null);
+        if (encoded != null)
+            Arrays.fill(encoded, null);
         Arrays.fill(flags, 0);
     }
     public SimpleParameterList[] getSubparams() {
         return null;
     }
 
+    private long[] primitiveValues() {
+        if (primitiveValues == null)
+            primitiveValues = new long[paramValues.length];
+        return primitiveValues;
+    }
+
+    /**
+     * Gives a copy its own types and flags before they are changed.
+     */
+    private void unshareShape() {
+        if (!shapeShared)
+            return;
+        paramTypes = (int[]) paramTypes.clone();
+        flags = (int[]) flags.clone();
+        shapeShared = false;
+    }
+
     private final Object[] paramValues;
-    private final int[] paramTypes;
-    private final int[] flags;
-    private final byte[][] encoded;
+    private int[] paramTypes;
+    private int[] flags;
+    private boolean shapeShared = false;
+    private byte[][] encoded; // allocated on first use
+    private long[] primitiveValues; // allocated on first use
+    private int[] copiedTypes; // types and flags of the last copy
+    private int[] copiedFlags;
     private final ProtocolConnectionImpl protoConnection;
     
     /**
@@ -380,5 +706,17 @@ class SimpleParameterList implements V3ParameterList {
      * "parameter never set" from "parameter set to null".
      */
     private final static Object NULL_OBJECT = new Object();
+
+    /**
+     * Markers of a value kept in primitiveValues, a double as its bits.
+     */
+    private final static Object LONG_VALUE = new Object();
+    private final static Object FLOAT_VALUE = new Object();
+    private final static Object DOUBLE_VALUE = new Object();
+
+    /**
+     * Longest text of a long, float or double value, see getMaxV3Size().
+     */
+    private final static int MAX_PRIMITIVE_TEXT_LENGTH = 32;
 }
 
@@ -619,6 +619,22 @@ public abstract class BaseDataSource implements Referenceable
         return PGProperty.LOAD_BALANCE_HOSTS.isPresent(properties);
     }
 
+    /**
+     * @see PGProperty#LOAD_BALANCE_STRATEGY
+     */
+    public void setLoadBalanceStrategy(String loadBalanceStrategy)
+    {
+        PGProperty.LOAD_BALANCE_STRATEGY.set(properties, loadBalanceStrategy);
+    }
+
+    /**
+     * @see PGProperty#LOAD_BALANCE_STRATEGY
+     */
+    public String getLoadBalanceStrategy()
+    {
+        return PGProperty.LOAD_BALANCE_STRATEGY.get(properties);
+    }
+
     /**
      * @see PGProperty#HOST_RECHECK_SECONDS
      */
@@ -635,6 +651,22 @@ public abstract class BaseDataSource implements Referenceable
         return PGProperty.HOST_RECHECK_SECONDS.getIntNoCheck(properties);
     }
 
+    /**
+     * @see PGProperty#HOST_PROBE_SECONDS
+     */
+    public void setHostProbeSeconds(int hostProbeSeconds)
+    {
+        PGProperty.HOST_PROBE_SECONDS.set(properties, hostProbeSeconds);
+    }
+
+    /**
+     * @see PGProperty#HOST_PROBE_SECONDS
+     */
+    public int getHostProbeSeconds()
+    {
+        return PGProperty.HOST_PROBE_SECONDS.getIntNoCheck(properties);
+    }
+
     /**
      * @see PGProperty#TCP_KEEP_ALIVE
      */
@@ -651,6 +683,22 @@ public abstract class BaseDataSource implements Referenceable
         return PGProperty.TCP_KEEP_ALIVE.getBoolean(properties);
     }
 
+    /**
+     * @see PGProperty#NIO_TRANSPORT
+     */
+    public void setNioTransport(boolean enabled)
+    {
+        PGProperty.NIO_TRANSPORT.set(properties, enabled);
+    }
+
+    /**
+     * @see PGProperty#NIO_TRANSPORT
+     */
+    public boolean getNioTransport()
+    {
+        return PGProperty.NIO_TRANSPORT.getBoolean(properties);
+    }
+
     /**
      * @see PGProperty#BINARY_TRANSFER
      */
@@ -0,0 +1,712 @@
+/*-------------------------------------------------------------------------
+*
+* Copyright (c) 2015, PostgreSQL Global Development Group
+*
+*
+*-------------------------------------------------------------------------
+*/
+package org.postgresql.ds.jdbc23;
+
+import java.sql.*;
+import java.util.Map;
+
+import org.postgresql.PGAsyncResult;
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+import org.postgresql.copy.CopyManager;
+import org.postgresql.fastpath.Fastpath;
+import org.postgresql.largeobject.LargeObjectManager;
+import org.postgresql.util.GT;
+import org.postgresql.util.PSQLException;
+import org.postgresql.util.PSQLState;
+
+/**
+ * The connection a pooled connection hands out to a client. Closing it
+ * returns the physical connection to the pool instead of closing it, and
+ * fatal errors are reported to the listeners of the pooled connection.
+ *
+ * <p>Calls are delegated to the physical connection directly rather than
+ * through a dynamic proxy, so a pooled connection costs no more to use than
+ * a physical one. The subclass for each JDBC version adds the methods of
+ * that version and creates the statement handles.
+ *
+ * @see AbstractJdbc23StatementHandle
+ */
+public abstract class AbstractJdbc23ConnectionHandle
+{
+    private final AbstractJdbc23PooledConnection pooled;
+    private Connection con;
+    private boolean automatic = false;
+
+    protected AbstractJdbc23ConnectionHandle(AbstractJdbc23PooledConnection pooled, Connection con)
+    {
+        this.pooled = pooled;
+        this.con = con;
+    }
+
+    protected abstract Statement createStatementHandle(Statement st);
+
+    protected abstract PreparedStatement createPreparedStatementHandle(PreparedStatement st);
+
+    protected abstract CallableStatement createCallableStatementHandle(CallableStatement st);
+
+    /**
+     * @return the physical connection
+     * @throws SQLException if this handle has been closed
+     */
+    protected final Connection checkClosed() throws SQLException
+    {
+        if (con == null || con.isClosed())
+        {
+            throw new PSQLException(automatic ? GT.tr("Connection has been closed automatically because a new connection was opened for the same PooledConnection or the PooledConnection has been closed.") : GT.tr("Connection has been closed."),
+                    PSQLState.CONNECTION_DOES_NOT_EXIST);
+        }
+        return con;
+    }
+
+    /**
+     * Tells the listeners of the pooled connection about an error thrown by
+     * the physical connection or one of its statements, if it is fatal.
+     *
+     * @return the error, to be rethrown
+     */
+    protected final SQLException fireConnectionError(SQLException e)
+    {
+        pooled.fireConnectionError(e);
+        return e;
+    }
+
+    /**
+     * @return the physical connection, for the methods that cannot throw
+     *  SQLException
+     */
+    private PGConnection pgConnection()
+    {
+        if (con == null)
+            throw new IllegalStateException(GT.tr("Connection has been closed."));
+        return (PGConnection) con;
+    }
+
+    final AbstractJdbc23PooledConnection getPooledConnection()
+    {
+        return pooled;
+    }
+
+    /**
+     * @return this handle, or null once it is closed
+     */
+    final Connection getHandle()
+    {
+        return con == null ? null : (Connection) this;
+    }
+
+    /**
+     * Closes this handle because the pooled connection handed out a new one
+     * or was closed. No close event is fired here: see JDBC 2.0 Optional
+     * Package spec section 6.3.
+     */
+    final void invalidate()
+    {
+        if (con != null)
+        {
+            automatic = true;
+        }
+        con = null;
+    }
+
+    public String toString()
+    {
+        return "Pooled connection wrapping physical connection " + con;
+    }
+
+    public boolean isClosed() throws SQLException
+    {
+        return con == null || con.isClosed();
+    }
+
+    public void close() throws SQLException
+    {
+        // we are already closed and a double close
+        // is not an error.
+        if (con == null)
+            return;
+
+        SQLException ex = null;
+        if (!con.isClosed())
+        {
+            if (!pooled.isXA() && !con.getAutoCommit())
+            {
+                try
+                {
+                    con.rollback();
+                }
+                catch (SQLException e)
+                {
+                    ex = e;
+                }
+            }
+            con.clearWarnings();
+        }
+        con = null;
+        pooled.handleClosed();
+        if (ex != null)
+        {
+            throw ex;
+        }
+    }
+
+    public Statement createStatement() throws SQLException
+    {
+        Connection physical = checkClosed();
+        try
+        {
+            return createStatementHandle(physical.createStatement());
+        }
+        catch (SQLException e)
+        {
+            throw fireConnectionError(e);
+        }
+    }
+
+    public PreparedStatement prepareStatement(String sql) throws SQLException
+    {
+        Connection physical = checkClosed();
+        try
+        {
+            return createPreparedStatementHandle(physical.prepareStatement(sql));
+        }
+        catch (SQLException e)
+        {
+            throw fireConnectionError(e);
+        }
+    }
+
+    public CallableStatement prepareCall(String sql) throws SQLException
+    {
+        Connection physical = checkClosed();
+        try
+        {
+            return createCallableStatementHandle(physical.prepareCall(sql));
+        }
+        catch (SQLException e)
+        {
+            throw fireConnectionError(e);
+        }
+    }
+
+    public String nativeSQL(String sql) throws SQLException
+    {
+        Connection physical = checkClosed();
+        try
+        {
+            return physical.nativeSQL(sql);
+        }
+        catch (SQLException e)
+        {
+            throw fireConnectionError(e);
+        }
+    }
+
+    public void setAutoCommit(boolean autoCommit) throws SQLException
+    {
+        Connection physical = checkClosed();
+        try
+        {
+            physical.setAutoCommit(autoCommit);
+        }
+        catch (SQLException e)
+        {
+            throw fireConnectionError(e);
+        }
+    }
+
+    public boolean getAutoCommit() throws SQLException
+    {
+        Connection physical = checkClosed();
+        try
+        {
+            return physical.getAutoCommit();
+        }
+        catch (SQLException e)
+        {
+            throw fireConnectionError(e);
+        }
+    }
+
+    public void commit() throws SQLException
+    {
+        Connection physical = checkClosed();
+        try
+        {
+            physical.commit();
+        }
+        catch (SQLException e)
+        {
+            throw fireConnectionError(e);
+        }
+    }
+
+    public void rollback() throws SQLException
+    {
+        Connection physical = checkClosed();
+        try
+        {
+            physical.rollback();
+        }
+        catch (SQLException e)
+        {
+            throw fireConnectionError(e);
+        }
+    }
+
+    public DatabaseMetaData getMetaData() throws SQLException
+    {
+        Connection physical = checkClosed();
+        try
+        {
+            return physical.getMetaData();
+        }
+        catch (SQLException e)
+        {
+            throw fireConnectionError(e);
+        }
+    }
+
+    public void setReadOnly(boolean readOnly) throws SQLException
+    {
+        Connection physical = checkClosed();
+        try
+        {
+            physical.setReadOnly(readOnly);
+        }
+        catch (SQLException e)
+        {
+            throw fireConnectionError(e);
+        }
+    }
+
+    public boolean isReadOnly() throws SQLException
+    {
+        Connection physical = checkClosed();
+        try
+        {
+            return physical.isReadOnly();
+        }
+        catch (SQLException e)
+        {
+            throw fireConnectionError(e);
+        }
+    }
+
+    public void setCatalog(String catalog) throws SQLException
+    {
+        Connection physical = checkClosed();
+        try
+        {
+            physical.setCatalog(catalog);
+        }
+        catch (SQLException e)
+        {
+            throw fireConnectionError(e);
+        }
+    }
+
+    public String getCatalog() throws SQLException
+    {
+        Connection physical = checkClosed();
+        try
+        {
+            return physical.getCatalog();
+        }
+        catch (SQLException e)
+        {
+            throw fireConnectionError(e);
+        }
+    }
+
+    public void setTransactionIsolation(int level) throws SQLException
+    {
+        Connection physical = checkClosed();
+        try
+        {
+            physical.setTransactionIsolation(level);
+        }
+        catch (SQLException e)
+        {
+            throw fireConnectionError(e);
+        }
+    }
+
+    public int getTransactionIsolation() throws SQLException
+    {
+        Connection physical = checkClosed();
+        try
+        {
+            return physical.getTransactionIsolation();
+        }
+        catch (SQLException e)
+        {
+            throw fireConnectionError(e);
+        }
+    }
+
+    public SQLWarning getWarnings() throws SQLException
+    {
+        Connection physical = checkClosed();
+        try
+        {
+            return physical.getWarnings();
+        }
+        catch (SQLException e)
+        {
+            throw fireConnectionError(e);
+        }
+    }
+
+    public void clearWarnings() throws SQLException
+    {
+        Connection physical = checkClosed();
+        try
+        {
+            physical.clearWarnings();
+        }
+        catch (SQLException e)
+        {
+            throw fireConnectionError(e);
+        }
+    }
+
+    public Statement createStatement(int resultSetType, int resultSetConcurrency) throws SQLException
+    {
+        Connection physical = checkClosed();
+        try
+        {
+            return createStatementHandle(physical.createStatement(resultSetType, resultSetConcurrency));
+        }
+        catch (SQLException e)
+        {
+            throw fireConnectionError(e);
+        }
+    }
+
+    public PreparedStatement prepareStatement(String sql, int resultSetType, int resultSetConcurrency) throws SQLException
+    {
+        Connection physical = checkClosed();
+        try
+        {
+            return createPreparedStatementHandle(physical.prepareStatement(sql, resultSetType, resultSetConcurrency));
+        }
+        catch (SQLException e)
+        {
+            throw fireConnectionError(e);
+        }
+    }
+
+    public CallableStatement prepareCall(String sql, int resultSetType, int resultSetConcurrency) throws SQLException
+    {
+        Connection physical = checkClosed();
+        try
+        {
+            return createCallableStatementHandle(physical.prepareCall(sql, resultSetType, resultSetConcurrency));
+        }
+        catch (SQLException e)
+        {
+            throw fireConnectionError(e);
+        }
+    }
+
+    public Map<String, Class<?>> getTypeMap() throws SQLException
+    {
+        Connection physical = checkClosed();
+        try
+        {
+            return physical.getTypeMap();
+        }
+        catch (SQLException e)
+        {
+            throw fireConnectionError(e);
+        }
+    }
+
+    public void setTypeMap(Map<String, Class<?>> map) throws SQLException
+    {
+        Connection physical = checkClosed();
+        try
+        {
+            physical.setTypeMap(map);
+        }
+        catch (SQLException e)
+        {
+            throw fireConnectionError(e);
+        }
+    }
+
+    public void setHoldability(int holdability) throws SQLException
+    {
+        Connection physical = checkClosed();
+        try
+        {
+            physical.setHoldability(holdability);
+        }
+        catch (SQLException e)
+        {
+            throw fireConnectionError(e);
+        }
+    }
+
+    public int getHoldability() throws SQLException
+    {
+        Connection physical = checkClosed();
+        try
+        {
+            return physical.getHoldability();
+        }
+        catch (SQLException e)
+        {
+            throw fireConnectionError(e);
+        }
+    }
+
+    public Savepoint setSavepoint() throws SQLException
+    {
+        Connection physical = checkClosed();
+        try
+        {
+            return physical.setSavepoint();
+        }
+        catch (SQLException e)
+        {
+            throw fireConnectionError(e);
+        }
+    }
+
+    public Savepoint setSavepoint(String name) throws SQLException
+    {
+        Connection physical = checkClosed();
+        try
+        {
+            return physical.setSavepoint(name);
+        }
+        catch (SQLException e)
+        {
+            throw fireConnectionError(e);
+        }
+    }
+
+    public void rollback(Savepoint savepoint) throws SQLException
+    {
+        Connection physical = checkClosed();
+        try
+        {
+            physical.rollback(savepoint);
+        }
+        catch (SQLException e)
+        {
+            throw fireConnectionError(e);
+        }
+    }
+
+    public void releaseSavepoint(Savepoint savepoint) throws SQLException
+    {
+        Connection physical = checkClosed();
+        try
+        {
+            physical.releaseSavepoint(savepoint);
+        }
+        catch (SQLException e)
+        {
+            throw fireConnectionError(e);
+        }
+    }
+
+    public Statement createStatement(int resultSetType, int resultSetConcurrency, int resultSetHoldability) throws SQLException
+    {
+        Connection physical = checkClosed();
+        try
+        {
+            return createStatementHandle(physical.createStatement(resultSetType, resultSetConcurrency, resultSetHoldability));
+        }
+        catch (SQLException e)
+        {
+            throw fireConnectionError(e);
+        }
+    }
+
+    public PreparedStatement prepareStatement(String sql, int resultSetType, int resultSetConcurrency, int resultSetHoldability) throws SQLException
+    {
+        Connection physical = checkClosed();
+        try
+        {
+            return createPreparedStatementHandle(physical.prepareStatement(sql, resultSetType, resultSetConcurrency, resultSetHoldability));
+        }
+        catch (SQLException e)
+        {
+            throw fireConnectionError(e);
+        }
+    }
+
+    public CallableStatement prepareCall(String sql, int resultSetType, int resultSetConcurrency, int resultSetHoldability) throws SQLException
+    {
+        Connection physical = checkClosed();
+        try
+        {
+            return createCallableStatementHandle(physical.prepareCall(sql, resultSetType, resultSetConcurrency, resultSetHoldability));
+        }
+        catch (SQLException e)
+        {
+            throw fireConnectionError(e);
+        }
+    }
+
+    public PreparedStatement prepareStatement(String sql, int autoGeneratedKeys) throws SQLException
+    {
+        Connection physical = checkClosed();
+        try
+        {
+            return createPreparedStatementHandle(physical.prepareStatement(sql, autoGeneratedKeys));
+        }
+        catch (SQLException e)
+        {
+            throw fireConnectionError(e);
+        }
+    }
+
+    public PreparedStatement prepareStatement(String sql, int[] columnIndexes) throws SQLException
+    {
+        Connection physical = checkClosed();
+        try
+        {
+            return createPreparedStatementHandle(physical.prepareStatement(sql, columnIndexes));
+        }
+        catch (SQLException e)
+        {
+            throw fireConnectionError(e);
+        }
+    }
+
+    public PreparedStatement prepareStatement(String sql, String[] columnNames) throws SQLException
+    {
+        Connection physical = checkClosed();
+        try
+        {
+            return createPreparedStatementHandle(physical.prepareStatement(sql, columnNames));
+        }
+        catch (SQLException e)
+        {
+            throw fireConnectionError(e);
+        }
+    }
+
+    // PGConnection
+
+    public PGNotification[] getNotifications() throws SQLException
+    {
+        PGConnection physical = (PGConnection) checkClosed();
+        try
+        {
+            return physical.getNotifications();
+        }
+        catch (SQLException e)
+        {
+            throw fireConnectionError(e);
+        }
+    }
+
+    public CopyManager getCopyAPI() throws SQLException
+    {
+        PGConnection physical = (PGConnection) checkClosed();
+        try
+        {
+            return physical.getCopyAPI();
+        }
+        catch (SQLException e)
+        {
+            throw fireConnectionError(e);
+        }
+    }
+
+    public LargeObjectManager getLargeObjectAPI() throws SQLException
+    {
+        PGConnection physical = (PGConnection) checkClosed();
+        try
+        {
+            return physical.getLargeObjectAPI();
+        }
+        catch (SQLException e)
+        {
+            throw fireConnectionError(e);
+        }
+    }
+
+    public Fastpath getFastpathAPI() throws SQLException
+    {
+        PGConnection physical = (PGConnection) checkClosed();
+        try
+        {
+            return physical.getFastpathAPI();
+        }
+        catch (SQLException e)
+        {
+            throw fireConnectionError(e);
+        }
+    }
+
+    public void addDataType(String type, String name)
+    {
+        pgConnection().addDataType(type, name);
+    }
+
+    public void addDataType(String type, Class klass) throws SQLException
+    {
+        PGConnection physical = (PGConnection) checkClosed();
+        try
+        {
+            physical.addDataType(type, klass);
+        }
+        catch (SQLException e)
+        {
+            throw fireConnectionError(e);
+        }
+    }
+
+    public void setPrepareThreshold(int threshold)
+    {
+        pgConnection().setPrepareThreshold(threshold);
+    }
+
+    public int getPrepareThreshold()
+    {
+        return pgConnection().getPrepareThreshold();
+    }
+
+    public int getBackendPID()
+    {
+        return pgConnection().getBackendPID();
+    }
+
+    public PGAsyncResult executeAsync(String sql, Object[] params) throws SQLException
+    {
+        PGConnection physical = (PGConnection) checkClosed();
+        try
+        {
+            return physical.executeAsync(sql, params);
+        }
+        catch (SQLException e)
+        {
+            throw fireConnectionError(e);
+        }
+    }
+
+    public int processAsyncResults() throws SQLException
+    {
+        PGConnection physical = (PGConnection) checkClosed();
+        try
+        {
+            return physical.processAsyncResults();
+        }
+        catch (SQLException e)
+        {
+            throw fireConnectionError(e);
+        }
+    }
+}
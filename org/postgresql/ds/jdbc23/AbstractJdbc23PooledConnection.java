@@ -10,8 +10,6 @@ package org.postgresql.ds.jdbc23;
 import javax.sql.*;
 import java.sql.*;
 import java.util.*;
-import java.lang.reflect.*;
-import org.postgresql.PGConnection;
 import org.postgresql.util.GT;
 import org.postgresql.util.PSQLException;
 import org.postgresql.util.PSQLState;
@@ -29,7 +27,7 @@ public abstract class AbstractJdbc23PooledConnection
 {
     private final List<ConnectionEventListener> listeners = new LinkedList<ConnectionEventListener>();
     private Connection con;
-    private ConnectionHandler last;
+    private AbstractJdbc23ConnectionHandle last;
     private final boolean autoCommit;
     private final boolean isXA;
 
@@ -71,7 +69,7 @@ public abstract class AbstractJdbc23PooledConnection
     {
         if (last != null)
         {
-            last.close();
+            last.invalidate();
             if (!con.isClosed())
             {
                 if (!con.getAutoCommit())
@@ -125,7 +123,7 @@ public abstract class AbstractJdbc23PooledConnection
             // Only one connection can be open at a time from this PooledConnection.  See JDBC 2.0 Optional Package spec section 6.2.3
             if (last != null)
             {
-                last.close();
+                last.invalidate();
                 if (!con.getAutoCommit())
                 {
                     try
@@ -151,12 +149,29 @@ public abstract class AbstractJdbc23PooledConnection
             fireConnectionFatalError(sqlException);
             throw (SQLException)sqlException.fillInStackTrace();
         }
-        ConnectionHandler handler = new ConnectionHandler(con);
-        last = handler;
+        last = createConnectionHandle(con);
+        return (Connection) last;
+    }
+
+    /**
+     * Creates the handle a client uses for the physical connection, which
+     * implements Connection and PGConnection for the JDBC version the driver
+     * was built for.
+     */
+    protected abstract AbstractJdbc23ConnectionHandle createConnectionHandle(Connection con);
 
-        Connection proxyCon = (Connection)Proxy.newProxyInstance(getClass().getClassLoader(), new Class[]{Connection.class, PGConnection.class}, handler);
-        last.setProxy(proxyCon);
-        return proxyCon;
+    boolean isXA()
+    {
+        return isXA;
+    }
+
+    /**
+     * Called when the client closes the current handle.
+     */
+    void handleClosed()
+    {
+        last = null;
+        fireConnectionClosed();
     }
 
     /**
@@ -229,234 +244,11 @@ public abstract class AbstractJdbc23PooledConnection
      *
      * @param e the SQLException to consider
      */    
-    private void fireConnectionError(SQLException e) 
+    void fireConnectionError(SQLException e)
     {
         if (!isFatalState(e.getSQLState()))
             return;
 
         fireConnectionFatalError(e);
     }
-
-    /**
-     * Instead of declaring a class implementing Connection, which would have
-     * to be updated for every JDK rev, use a dynamic proxy to handle all
-     * calls through the Connection interface. This is the part that
-     * requires JDK 1.3 or higher, though JDK 1.2 could be supported with a
-     * 3rd-party proxy package.
-     */
-    private class ConnectionHandler implements InvocationHandler
-    {
-        private Connection con;
-        private Connection proxy; // the Connection the client is currently using, which is a proxy
-        private boolean automatic = false;
-
-        public ConnectionHandler(Connection con)
-        {
-            this.con = con;
-        }
-
-        public Object invoke(Object proxy, Method method, Object[] args)
-        throws Throwable
-        {
-            final String methodName = method.getName();
-            // From Object
-            if (method.getDeclaringClass().getName().equals("java.lang.Object"))
-            {
-                if (methodName.equals("toString"))
-                {
-                    return "Pooled connection wrapping physical connection " + con;
-                }
-                if (methodName.equals("equals"))
-                {
-                    return proxy == args[0];
-                }
-                if (methodName.equals("hashCode"))
-                {
-                    return System.identityHashCode(proxy);
-                }
-                try
-                {
-                    return method.invoke(con, args);
-                }
-                catch (InvocationTargetException e)
-                {
-                    throw e.getTargetException();
-                }
-            }
-
-            // All the rest is from the Connection or PGConnection interface
-            if (methodName.equals("isClosed"))
-            {
-                return con == null || con.isClosed();
-            }
-            if (methodName.equals("close"))
-            {
-                // we are already closed and a double close
-                // is not an error.
-                if (con == null)
-                    return null;
-
-                SQLException ex = null;
-                if (!con.isClosed())
-                {
-                    if (!isXA && !con.getAutoCommit())
-                    {
-                        try
-                        {
-                            con.rollback();
-                        }
-                        catch (SQLException e)
-                        {
-                            ex = e;
-                        }
-                    }
-                    con.clearWarnings();
-                }
-                con = null;
-                this.proxy = null;
-                last = null;
-                fireConnectionClosed();
-                if (ex != null)
-                {
-                    throw ex;
-                }
-                return null;
-            }
-            if (con == null || con.isClosed())
-            {
-                throw new PSQLException(automatic ? GT.tr("Connection has been closed automatically because a new connection was opened for the same PooledConnection or the PooledConnection has been closed.") : GT.tr("Connection has been closed."),
-                        PSQLState.CONNECTION_DOES_NOT_EXIST);
-            }
-
-            // From here on in, we invoke via reflection, catch exceptions,
-            // and check if they're fatal before rethrowing.
-            try {
-                if (methodName.equals("createStatement"))
-                {
-                    Statement st = (Statement)method.invoke(con, args);
-                    return Proxy.newProxyInstance(getClass().getClassLoader(), new Class[]{Statement.class, org.postgresql.PGStatement.class}, new StatementHandler(this, st));
-                }
-                else if (methodName.equals("prepareCall"))
-                {
-                    Statement st = (Statement)method.invoke(con, args);
-                    return Proxy.newProxyInstance(getClass().getClassLoader(), new Class[]{CallableStatement.class, org.postgresql.PGStatement.class}, new StatementHandler(this, st));
-                }
-                else if (methodName.equals("prepareStatement"))
-                {
-                    Statement st = (Statement)method.invoke(con, args);
-                    return Proxy.newProxyInstance(getClass().getClassLoader(), new Class[]{PreparedStatement.class, org.postgresql.PGStatement.class}, new StatementHandler(this, st));
-                }
-                else
-                {
-                    return method.invoke(con, args);
-                }
-            } catch (final InvocationTargetException ite) {
-                final Throwable te = ite.getTargetException();
-                if (te instanceof SQLException)
-                    fireConnectionError((SQLException) te); // Tell listeners about exception if it's fatal
-                throw te;
-            }
-        }
-
-        Connection getProxy() {
-            return proxy;
-        }
-
-        void setProxy(Connection proxy) {
-            this.proxy = proxy;
-        }
-
-        public void close()
-        {
-            if (con != null)
-            {
-                automatic = true;
-            }
-            con = null;
-            proxy = null;
-            // No close event fired here: see JDBC 2.0 Optional Package spec section 6.3
-        }
-
-        public boolean isClosed() {
-            return con == null;
-        }
-    }
-
-    /**
-     * Instead of declaring classes implementing Statement, PreparedStatement,
-     * and CallableStatement, which would have to be updated for every JDK rev,
-     * use a dynamic proxy to handle all calls through the Statement
-     * interfaces. This is the part that requires JDK 1.3 or higher, though
-     * JDK 1.2 could be supported with a 3rd-party proxy package.
-     *
-     * The StatementHandler is required in order to return the proper
-     * Connection proxy for the getConnection method.
-     */
-    private class StatementHandler implements InvocationHandler {
-        private ConnectionHandler con;
-        private Statement st;
-
-        public StatementHandler(ConnectionHandler con, Statement st) {
-            this.con = con;
-            this.st = st;
-        }
-        public Object invoke(Object proxy, Method method, Object[] args)
-        throws Throwable
-        {
-            final String methodName = method.getName();
-            // From Object
-            if (method.getDeclaringClass().getName().equals("java.lang.Object"))
-            {
-                if (methodName.equals("toString"))
-                {
-                    return "Pooled statement wrapping physical statement " + st;
-                }
-                if (methodName.equals("hashCode"))
-                {
-                    return System.identityHashCode(proxy);
-                }
-                if (methodName.equals("equals"))
-                {
-                    return proxy == args[0];
-                }
-                return method.invoke(st, args);
-            }
-
-            // All the rest is from the Statement interface
-            if (methodName.equals("isClosed"))
-            {
-                return st == null || st.isClosed();
-            }
-            if (methodName.equals("close"))
-            {
-                if (st == null || st.isClosed())
-                    return null;
-                con = null;
-                final Statement oldSt = st;
-                st = null;
-                oldSt.close();
-                return null;
-            }
-            if (st == null || st.isClosed())
-            {
-                throw new PSQLException(GT.tr("Statement has been closed."),
-                        PSQLState.OBJECT_NOT_IN_STATE);
-            }
-            if (methodName.equals("getConnection"))
-            {
-                return con.getProxy(); // the proxied connection, not a physical connection
-            }
-
-            // Delegate the call to the proxied Statement.
-            try
-            {
-                return method.invoke(st, args);
-            } catch (final InvocationTargetException ite) {
-                final Throwable te = ite.getTargetException();
-                if (te instanceof SQLException)
-                    fireConnectionError((SQLException) te); // Tell listeners about exception if it's fatal
-                throw te;
-            }
-        }
-    }
 }
@@ -0,0 +1,2135 @@
+/*-------------------------------------------------------------------------
+*
+* Copyright (c) 2015, PostgreSQL Global Development Group
+*
+*
+*-------------------------------------------------------------------------
+*/
+package org.postgresql.ds.jdbc23;
+
+import java.io.InputStream;
+import java.io.Reader;
+import java.math.BigDecimal;
+import java.net.URL;
+import java.sql.*;
+import java.util.Calendar;
+import java.util.Map;
+
+import org.postgresql.PGStatement;
+import org.postgresql.util.GT;
+import org.postgresql.util.PSQLException;
+import org.postgresql.util.PSQLState;
+
+/**
+ * The statement, prepared statement or callable statement handed out by a
+ * pooled connection handle. It returns the handle rather than the physical
+ * connection from getConnection, and reports fatal errors to the listeners
+ * of the pooled connection. The concrete classes implement the interface of
+ * their kind of statement.
+ *
+ * @see AbstractJdbc23ConnectionHandle
+ */
+public abstract class AbstractJdbc23StatementHandle
+{
+    private final AbstractJdbc23PooledConnection pooled;
+    private AbstractJdbc23ConnectionHandle con;
+    private Statement st;
+
+    protected AbstractJdbc23StatementHandle(AbstractJdbc23ConnectionHandle con, Statement st)
+    {
+        this.pooled = con.getPooledConnection();
+        this.con = con;
+        this.st = st;
+    }
+
+    /**
+     * @return the physical statement
+     * @throws SQLException if the statement has been closed
+     */
+    protected final Statement checkClosed() throws SQLException
+    {
+        if (st == null || st.isClosed())
+        {
+            throw new PSQLException(GT.tr("Statement has been closed."),
+                    PSQLState.OBJECT_NOT_IN_STATE);
+        }
+        return st;
+    }
+
+    protected final PreparedStatement prepared() throws SQLException
+    {
+        return (PreparedStatement) checkClosed();
+    }
+
+    protected final CallableStatement callable() throws SQLException
+    {
+        return (CallableStatement) checkClosed();
+    }
+
+    /**
+     * Tells the listeners of the pooled connection about an error thrown by
+     * the physical statement, if it is fatal.
+     *
+     * @return the error, to be rethrown
+     */
+    protected final SQLException fireConnectionError(SQLException e)
+    {
+        pooled.fireConnectionError(e);
+        return e;
+    }
+
+    /**
+     * @return the physical statement, for the methods that cannot throw
+     *  SQLException
+     */
+    private PGStatement pgStatement()
+    {
+        if (st == null)
+            throw new IllegalStateException(GT.tr("Statement has been closed."));
+        return (PGStatement) st;
+    }
+
+    public String toString()
+    {
+        return "Pooled statement wrapping physical statement " + st;
+    }
+
+    public boolean isClosed() throws SQLException
+    {
+        return st == null || st.isClosed();
+    }
+
+    public void close() throws SQLException
+    {
+        if (st == null || st.isClosed())
+            return;
+        con = null;
+        final Statement oldSt = st;
+        st = null;
+        oldSt.close();
+    }
+
+    public Connection getConnection() throws SQLException
+    {
+        checkClosed();
+        return con.getHandle(); // the connection handle, not the physical connection
+    }
+
+    public ResultSet executeQuery(String sql) throws SQLException
+    {
+        Statement physical = checkClosed();
+        try
+        {
+            return physical.executeQuery(sql);
+        }
+        catch (SQLException e)
+        {
+            throw fireConnectionError(e);
+        }
+    }
+
+    public int executeUpdate(String sql) throws SQLException
+    {
+        Statement physical = checkClosed();
+        try
+        {
+            return physical.executeUpdate(sql);
+        }
+        catch (SQLException e)
+        {
+            throw fireConnectionError(e);
+        }
+    }
+
+    public int getMaxFieldSize() throws SQLException
+    {
+        Statement physical = checkClosed();
+        try
+        {
+            return physical.getMaxFieldSize();
+        }
+        catch (SQLException e)
+        {
+            throw fireConnectionError(e);
+        }
+    }
+
+    public void setMaxFieldSize(int max) throws SQLException
+    {
+        Statement physical = checkClosed();
+        try
+        {
+            physical.setMaxFieldSize(max);
+        }
+        catch (SQLException e)
+        {
+            throw fireConnectionError(e);
+        }
+    }
+
+    public int getMaxRows() throws SQLException
+    {
+        Statement physical = checkClosed();
+        try
+        {
+            return physical.getMaxRows();
+        }
+        catch (SQLException e)
+        {
+            throw fireConnectionError(e);
+        }
+    }
+
+    public void setMaxRows(int max) throws SQLException
+    {
+        Statement physical = checkClosed();
+        try
+        {
+            physical.setMaxRows(max);
+        }
+        catch (SQLException e)
+        {
+            throw fireConnectionError(e);
+        }
+    }
+
+    public void setEscapeProcessing(boolean enable) throws SQLException
+    {
+        Statement physical = checkClosed();
+        try
+        {
+            physical.setEscapeProcessing(enable);
+        }
+        catch (SQLException e)
+        {
+            throw fireConnectionError(e);
+        }
+    }
+
+    public int getQueryTimeout() throws SQLException
+    {
+        Statement physical = checkClosed();
+        try
+        {
+            return physical.getQueryTimeout();
+        }
+        catch (SQLException e)
+        {
+            throw fireConnectionError(e);
+        }
+    }
+
+    public void setQueryTimeout(int seconds) throws SQLException
+    {
+        Statement physical = checkClosed();
+        try
+        {
+            physical.setQueryTimeout(seconds);
+        }
+        catch (SQLException e)
+        {
+            throw fireConnectionError(e);
+        }
+    }
+
+    public void cancel() throws SQLException
+    {
+        Statement physical = checkClosed();
+        try
+        {
+            physical.cancel();
+        }
+        catch (SQLException e)
+        {
+            throw fireConnectionError(e);
+        }
+    }
+
+    public SQLWarning getWarnings() throws SQLException
+    {
+        Statement physical = checkClosed();
+        try
+        {
+            return physical.getWarnings();
+        }
+        catch (SQLException e)
+        {
+            throw fireConnectionError(e);
+        }
+    }
+
+    public void clearWarnings() throws SQLException
+    {
+        Statement physical = checkClosed();
+        try
+        {
+            physical.clearWarnings();
+        }
+        catch (SQLException e)
+        {
+            throw fireConnectionError(e);
+        }
+    }
+
+    public void setCursorName(String name) throws SQLException
+    {
+        Statement physical = checkClosed();
+        try
+        {
+            physical.setCursorName(name);
+        }
+        catch (SQLException e)
+        {
+            throw fireConnectionError(e);
+        }
+    }
+
+    public boolean execute(String sql) throws SQLException
+    {
+        Statement physical = checkClosed();
+        try
+        {
+            return physical.execute(sql);
+        }
+        catch (SQLException e)
+        {
+            throw fireConnectionError(e);
+        }
+    }
+
+    public ResultSet getResultSet() throws SQLException
+    {
+        Statement physical = checkClosed();
+        try
+        {
+            return physical.getResultSet();
+        }
+        catch (SQLException e)
+        {
+            throw fireConnectionError(e);
+        }
+    }
+
+    public int getUpdateCount() throws SQLException
+    {
+        Statement physical = checkClosed();
+        try
+        {
+            return physical.getUpdateCount();
+        }
+        catch (SQLException e)
+        {
+            throw fireConnectionError(e);
+        }
+    }
+
+    public boolean getMoreResults() throws SQLException
+    {
+        Statement physical = checkClosed();
+        try
+        {
+            return physical.getMoreResults();
+        }
+        catch (SQLException e)
+        {
+            throw fireConnectionError(e);
+        }
+    }
+
+    public void setFetchDirection(int direction) throws SQLException
+    {
+        Statement physical = checkClosed();
+        try
+        {
+            physical.setFetchDirection(direction);
+        }
+        catch (SQLException e)
+        {
+            throw fireConnectionError(e);
+        }
+    }
+
+    public int getFetchDirection() throws SQLException
+    {
+        Statement physical = checkClosed();
+        try
+        {
+            return physical.getFetchDirection();
+        }
+        catch (SQLException e)
+        {
+            throw fireConnectionError(e);
+        }
+    }
+
+    public void setFetchSize(int rows) throws SQLException
+    {
+        Statement physical = checkClosed();
+        try
+        {
+            physical.setFetchSize(rows);
+        }
+        catch (SQLException e)
+        {
+            throw fireConnectionError(e);
+        }
+    }
+
+    public int getFetchSize() throws SQLException
+    {
+        Statement physical = checkClosed();
+        try
+        {
+            return physical.getFetchSize();
+        }
+        catch (SQLException e)
+        {
+            throw fireConnectionError(e);
+        }
+    }
+
+    public int getResultSetConcurrency() throws SQLException
+    {
+        Statement physical = checkClosed();
+        try
+        {
+            return physical.getResultSetConcurrency();
+        }
+        catch (SQLException e)
+        {
+            throw fireConnectionError(e);
+        }
+    }
+
+    public int getResultSetType() throws SQLException
+    {
+        Statement physical = checkClosed();
+        try
+        {
+            return physical.getResultSetType();
+        }
+        catch (SQLException e)
+        {
+            throw fireConnectionError(e);
+        }
+    }
+
+    public void addBatch(String sql) throws SQLException
+    {
+        Statement physical = checkClosed();
+        try
+        {
+            physical.addBatch(sql);
+        }
+        catch (SQLException e)
+        {
+            throw fireConnectionError(e);
+        }
+    }
+
+    public void clearBatch() throws SQLException
+    {
+        Statement physical = checkClosed();
+        try
+        {
+            physical.clearBatch();
+        }
+        catch (SQLException e)
+        {
+            throw fireConnectionError(e);
+        }
+    }
+
+    public int[] executeBatch() throws SQLException
+    {
+        Statement physical = checkClosed();
+        try
+        {
+            return physical.executeBatch();
+        }
+        catch (SQLException e)
+        {
+            throw fireConnectionError(e);
+        }
+    }
+
+    public boolean getMoreResults(int current) throws SQLException
+    {
+        Statement physical = checkClosed();
+        try
+        {
+            return physical.getMoreResults(current);
+        }
+        catch (SQLException e)
+        {
+            throw fireConnectionError(e);
+        }
+    }
+
+    public ResultSet getGeneratedKeys() throws SQLException
+    {
+        Statement physical = checkClosed();
+        try
+        {
+            return physical.getGeneratedKeys();
+        }
+        catch (SQLException e)
+        {
+            throw fireConnectionError(e);
+        }
+    }
+
+    public int executeUpdate(String sql, int autoGeneratedKeys) throws SQLException
+    {
+        Statement physical = checkClosed();
+        try
+        {
+            return physical.executeUpdate(sql, autoGeneratedKeys);
+        }
+        catch (SQLException e)
+        {
+            throw fireConnectionError(e);
+        }
+    }
+
+    public int executeUpdate(String sql, int[] columnIndexes) throws SQLException
+    {
+        Statement physical = checkClosed();
+        try
+        {
+            return physical.executeUpdate(sql, columnIndexes);
+        }
+        catch (SQLException e)
+        {
+            throw fireConnectionError(e);
+        }
+    }
+
+    public int executeUpdate(String sql, String[] columnNames) throws SQLException
+    {
+        Statement physical = checkClosed();
+        try
+        {
+            return physical.executeUpdate(sql, columnNames);
+        }
+        catch (SQLException e)
+        {
+            throw fireConnectionError(e);
+        }
+    }
+
+    public boolean execute(String sql, int autoGeneratedKeys) throws SQLException
+    {
+        Statement physical = checkClosed();
+        try
+        {
+            return physical.execute(sql, autoGeneratedKeys);
+        }
+        catch (SQLException e)
+        {
+            throw fireConnectionError(e);
+        }
+    }
+
+    public boolean execute(String sql, int[] columnIndexes) throws SQLException
+    {
+        Statement physical = checkClosed();
+        try
+        {
+            return physical.execute(sql, columnIndexes);
+        }
+        catch (SQLException e)
+        {
+            throw fireConnectionError(e);
+        }
+    }
+
+    public boolean execute(String sql, String[] columnNames) throws SQLException
+    {
+        Statement physical = checkClosed();
+        try
+        {
+            return physical.execute(sql, columnNames);
+        }
+        catch (SQLException e)
+        {
+            throw fireConnectionError(e);
+        }
+    }
+
+    public int getResultSetHoldability() throws SQLException
+    {
+        Statement physical = checkClosed();
+        try
+        {
+            return physical.getResultSetHoldability();
+        }
+        catch (SQLException e)
+        {
+            throw fireConnectionError(e);
+        }
+    }
+
+    // PreparedStatement
+
+    public ResultSet executeQuery() throws SQLException
+    {
+        PreparedStatement physical = prepared();
+        try
+        {
+            return physical.executeQuery();
+        }
+        catch (SQLException e)
+        {
+            throw fireConnectionError(e);
+        }
+    }
+
+    public int executeUpdate() throws SQLException
+    {
+        PreparedStatement physical = prepared();
+        try
+        {
+            return physical.executeUpdate();
+        }
+        catch (SQLException e)
+        {
+            throw fireConnectionError(e);
+        }
+    }
+
+    public void setNull(int parameterIndex, int sqlType) throws SQLException
+    {
+        PreparedStatement physical = prepared();
+        try
+        {
+            physical.setNull(parameterIndex, sqlType);
+        }
+        catch (SQLException e)
+        {
+            throw fireConnectionError(e);
+        }
+    }
+
+    public void setBoolean(int parameterIndex, boolean x) throws SQLException
+    {
+        PreparedStatement physical = prepared();
+        try
+        {
+            physical.setBoolean(parameterIndex, x);
+        }
+        catch (SQLException e)
+        {
+            throw fireConnectionError(e);
+        }
+    }
+
+    public void setByte(int parameterIndex, byte x) throws SQLException
+    {
+        PreparedStatement physical = prepared();
+        try
+        {
+            physical.setByte(parameterIndex, x);
+        }
+        catch (SQLException e)
+        {
+            throw fireConnectionError(e);
+        }
+    }
+
+    public void setShort(int parameterIndex, short x) throws SQLException
+    {
+        PreparedStatement physical = prepared();
+        try
+        {
+            physical.setShort(parameterIndex, x);
+        }
+        catch (SQLException e)
+        {
+            throw fireConnectionError(e);
+        }
+    }
+
+    public void setInt(int parameterIndex, int x) throws SQLException
+    {
+        PreparedStatement physical = prepared();
+        try
+        {
+            physical.setInt(parameterIndex, x);
+        }
+        catch (SQLException e)
+        {
+            throw fireConnectionError(e);
+        }
+    }
+
+    public void setLong(int parameterIndex, long x) throws SQLException
+    {
+        PreparedStatement physical = prepared();
+        try
+        {
+            physical.setLong(parameterIndex, x);
+        }
+        catch (SQLException e)
+        {
+            throw fireConnectionError(e);
+        }
+    }
+
+    public void setFloat(int parameterIndex, float x) throws SQLException
+    {
+        PreparedStatement physical = prepared();
+        try
+        {
+            physical.setFloat(parameterIndex, x);
+        }
+        catch (SQLException e)
+        {
+            throw fireConnectionError(e);
+        }
+    }
+
+    public void setDouble(int parameterIndex, double x) throws SQLException
+    {
+        PreparedStatement physical = prepared();
+        try
+        {
+            physical.setDouble(parameterIndex, x);
+        }
+        catch (SQLException e)
+        {
+            throw fireConnectionError(e);
+        }
+    }
+
+    public void setBigDecimal(int parameterIndex, BigDecimal x) throws SQLException
+    {
+        PreparedStatement physical = prepared();
+        try
+        {
+            physical.setBigDecimal(parameterIndex, x);
+        }
+        catch (SQLException e)
+        {
+            throw fireConnectionError(e);
+        }
+    }
+
+    public void setString(int parameterIndex, String x) throws SQLException
+    {
+        PreparedStatement physical = prepared();
+        try
+        {
+            physical.setString(parameterIndex, x);
+        }
+        catch (SQLException e)
+        {
+            throw fireConnectionError(e);
+        }
+    }
+
+    public void setBytes(int parameterIndex, byte[] x) throws SQLException
+    {
+        PreparedStatement physical = prepared();
+        try
+        {
+            physical.setBytes(parameterIndex, x);
+        }
+        catch (SQLException e)
+        {
+            throw fireConnectionError(e);
+        }
+    }
+
+    public void setDate(int parameterIndex, Date x) throws SQLException
+    {
+        PreparedStatement physical = prepared();
+        try
+        {
+            physical.setDate(parameterIndex, x);
+        }
+        catch (SQLException e)
+        {
+            throw fireConnectionError(e);
+        }
+    }
+
+    public void setTime(int parameterIndex, Time x) throws SQLException
+    {
+        PreparedStatement physical = prepared();
+        try
+        {
+            physical.setTime(parameterIndex, x);
+        }
+        catch (SQLException e)
+        {
+            throw fireConnectionError(e);
+        }
+    }
+
+    public void setTimestamp(int parameterIndex, Timestamp x) throws SQLException
+    {
+        PreparedStatement physical = prepared();
+        try
+        {
+            physical.setTimestamp(parameterIndex, x);
+        }
+        catch (SQLException e)
+        {
+            throw fireConnectionError(e);
+        }
+    }
+
+    public void setAsciiStream(int parameterIndex, InputStream x, int length) throws SQLException
+    {
+        PreparedStatement physical = prepared();
+        try
+        {
+            physical.setAsciiStream(parameterIndex, x, length);
+        }
+        catch (SQLException e)
+        {
+            throw fireConnectionError(e);
+        }
+    }
+
+    public void setUnicodeStream(int parameterIndex, InputStream x, int length) throws SQLException
+    {
+        PreparedStatement physical = prepared();
+        try
+        {
+            physical.setUnicodeStream(parameterIndex, x, length);
+        }
+        catch (SQLException e)
+        {
+            throw fireConnectionError(e);
+        }
+    }
+
+    public void setBinaryStream(int parameterIndex, InputStream x, int length) throws SQLException
+    {
+        PreparedStatement physical = prepared();
+        try
+        {
+            physical.setBinaryStream(parameterIndex, x, length);
+        }
+        catch (SQLException e)
+        {
+            throw fireConnectionError(e);
+        }
+    }
+
+    public void clearParameters() throws SQLException
+    {
+        PreparedStatement physical = prepared();
+        try
+        {
+            physical.clearParameters();
+        }
+        catch (SQLException e)
+        {
+            throw fireConnectionError(e);
+        }
+    }
+
+    public void setObject(int parameterIndex, Object x, int targetSqlType) throws SQLException
+    {
+        PreparedStatement physical = prepared();
+        try
+        {
+            physical.setObject(parameterIndex, x, targetSqlType);
+        }
+        catch (SQLException e)
+        {
+            throw fireConnectionError(e);
+        }
+    }
+
+    public void setObject(int parameterIndex, Object x) throws SQLException
+    {
+        PreparedStatement physical = prepared();
+        try
+        {
+            physical.setObject(parameterIndex, x);
+        }
+        catch (SQLException e)
+        {
+            throw fireConnectionError(e);
+        }
+    }
+
+    public boolean execute() throws SQLException
+    {
+        PreparedStatement physical = prepared();
+        try
+        {
+            return physical.execute();
+        }
+        catch (SQLException e)
+        {
+            throw fireConnectionError(e);
+        }
+    }
+
+    public void addBatch() throws SQLException
+    {
+        PreparedStatement physical = prepared();
+        try
+        {
+            physical.addBatch();
+        }
+        catch (SQLException e)
+        {
+            throw fireConnectionError(e);
+        }
+    }
+
+    public void setCharacterStream(int parameterIndex, Reader reader, int length) throws SQLException
+    {
+        PreparedStatement physical = prepared();
+        try
+        {
+            physical.setCharacterStream(parameterIndex, reader, length);
+        }
+        catch (SQLException e)
+        {
+            throw fireConnectionError(e);
+        }
+    }
+
+    public void setRef(int parameterIndex, Ref x) throws SQLException
+    {
+        PreparedStatement physical = prepared();
+        try
+        {
+            physical.setRef(parameterIndex, x);
+        }
+        catch (SQLException e)
+        {
+            throw fireConnectionError(e);
+        }
+    }
+
+    public void setBlob(int parameterIndex, Blob x) throws SQLException
+    {
+        PreparedStatement physical = prepared();
+        try
+        {
+            physical.setBlob(parameterIndex, x);
+        }
+        catch (SQLException e)
+        {
+            throw fireConnectionError(e);
+        }
+    }
+
+    public void setClob(int parameterIndex, Clob x) throws SQLException
+    {
+        PreparedStatement physical = prepared();
+        try
+        {
+            physical.setClob(parameterIndex, x);
+        }
+        catch (SQLException e)
+        {
+            throw fireConnectionError(e);
+        }
+    }
+
+    public void setArray(int parameterIndex, Array x) throws SQLException
+    {
+        PreparedStatement physical = prepared();
+        try
+        {
+            physical.setArray(parameterIndex, x);
+        }
+        catch (SQLException e)
+        {
+            throw fireConnectionError(e);
+        }
+    }
+
+    public ResultSetMetaData getMetaData() throws SQLException
+    {
+        PreparedStatement physical = prepared();
+        try
+        {
+            return physical.getMetaData();
+        }
+        catch (SQLException e)
+        {
+            throw fireConnectionError(e);
+        }
+    }
+
+    public void setDate(int parameterIndex, Date x, Calendar cal) throws SQLException
+    {
+        PreparedStatement physical = prepared();
+        try
+        {
+            physical.setDate(parameterIndex, x, cal);
+        }
+        catch (SQLException e)
+        {
+            throw fireConnectionError(e);
+        }
+    }
+
+    public void setTime(int parameterIndex, Time x, Calendar cal) throws SQLException
+    {
+        PreparedStatement physical = prepared();
+        try
+        {
+            physical.setTime(parameterIndex, x, cal);
+        }
+        catch (SQLException e)
+        {
+            throw fireConnectionError(e);
+        }
+    }
+
+    public void setTimestamp(int parameterIndex, Timestamp x, Calendar cal) throws SQLException
+    {
+        PreparedStatement physical = prepared();
+        try
+        {
+            physical.setTimestamp(parameterIndex, x, cal);
+        }
+        catch (SQLException e)
+        {
+            throw fireConnectionError(e);
+        }
+    }
+
+    public void setNull(int parameterIndex, int sqlType, String typeName) throws SQLException
+    {
+        PreparedStatement physical = prepared();
+        try
+        {
+            physical.setNull(parameterIndex, sqlType, typeName);
+        }
+        catch (SQLException e)
+        {
+            throw fireConnectionError(e);
+        }
+    }
+
+    public void setURL(int parameterIndex, URL x) throws SQLException
+    {
+        PreparedStatement physical = prepared();
+        try
+        {
+            physical.setURL(parameterIndex, x);
+        }
+        catch (SQLException e)
+        {
+            throw fireConnectionError(e);
+        }
+    }
+
+    public ParameterMetaData getParameterMetaData() throws SQLException
+    {
+        PreparedStatement physical = prepared();
+        try
+        {
+            return physical.getParameterMetaData();
+        }
+        catch (SQLException e)
+        {
+            throw fireConnectionError(e);
+        }
+    }
+
+    public void setObject(int parameterIndex, Object x, int targetSqlType, int scaleOrLength) throws SQLException
+    {
+        PreparedStatement physical = prepared();
+        try
+        {
+            physical.setObject(parameterIndex, x, targetSqlType, scaleOrLength);
+        }
+        catch (SQLException e)
+        {
+            throw fireConnectionError(e);
+        }
+    }
+
+    // CallableStatement
+
+    public void registerOutParameter(int parameterIndex, int sqlType) throws SQLException
+    {
+        CallableStatement physical = callable();
+        try
+        {
+            physical.registerOutParameter(parameterIndex, sqlType);
+        }
+        catch (SQLException e)
+        {
+            throw fireConnectionError(e);
+        }
+    }
+
+    public void registerOutParameter(int parameterIndex, int sqlType, int scale) throws SQLException
+    {
+        CallableStatement physical = callable();
+        try
+        {
+            physical.registerOutParameter(parameterIndex, sqlType, scale);
+        }
+        catch (SQLException e)
+        {
+            throw fireConnectionError(e);
+        }
+    }
+
+    public boolean wasNull() throws SQLException
+    {
+        CallableStatement physical = callable();
+        try
+        {
+            return physical.wasNull();
+        }
+        catch (SQLException e)
+        {
+            throw fireConnectionError(e);
+        }
+    }
+
+    public String getString(int parameterIndex) throws SQLException
+    {
+        CallableStatement physical = callable();
+        try
+        {
+            return physical.getString(parameterIndex);
+        }
+        catch (SQLException e)
+        {
+            throw fireConnectionError(e);
+        }
+    }
+
+    public boolean getBoolean(int parameterIndex) throws SQLException
+    {
+        CallableStatement physical = callable();
+        try
+        {
+            return physical.getBoolean(parameterIndex);
+        }
+        catch (SQLException e)
+        {
+            throw fireConnectionError(e);
+        }
+    }
+
+    public byte getByte(int parameterIndex) throws SQLException
+    {
+        CallableStatement physical = callable();
+        try
+        {
+            return physical.getByte(parameterIndex);
+        }
+        catch (SQLException e)
+        {
+            throw fireConnectionError(e);
+        }
+    }
+
+    public short getShort(int parameterIndex) throws SQLException
+    {
+        CallableStatement physical = callable();
+        try
+        {
+            return physical.getShort(parameterIndex);
+        }
+        catch (SQLException e)
+        {
+            throw fireConnectionError(e);
+        }
+    }
+
+    public int getInt(int parameterIndex) throws SQLException
+    {
+        CallableStatement physical = callable();
+        try
+        {
+            return physical.getInt(parameterIndex);
+        }
+        catch (SQLException e)
+        {
+            throw fireConnectionError(e);
+        }
+    }
+
+    public long getLong(int parameterIndex) throws SQLException
+    {
+        CallableStatement physical = callable();
+        try
+        {
+            return physical.getLong(parameterIndex);
+        }
+        catch (SQLException e)
+        {
+            throw fireConnectionError(e);
+        }
+    }
+
+    public float getFloat(int parameterIndex) throws SQLException
+    {
+        CallableStatement physical = callable();
+        try
+        {
+            return physical.getFloat(parameterIndex);
+        }
+        catch (SQLException e)
+        {
+            throw fireConnectionError(e);
+        }
+    }
+
+    public double getDouble(int parameterIndex) throws SQLException
+    {
+        CallableStatement physical = callable();
+        try
+        {
+            return physical.getDouble(parameterIndex);
+        }
+        catch (SQLException e)
+        {
+            throw fireConnectionError(e);
+        }
+    }
+
+    public BigDecimal getBigDecimal(int parameterIndex, int scale) throws SQLException
+    {
+        CallableStatement physical = callable();
+        try
+        {
+            return physical.getBigDecimal(parameterIndex, scale);
+        }
+        catch (SQLException e)
+        {
+            throw fireConnectionError(e);
+        }
+    }
+
+    public byte[] getBytes(int parameterIndex) throws SQLException
+    {
+        CallableStatement physical = callable();
+        try
+        {
+            return physical.getBytes(parameterIndex);
+        }
+        catch (SQLException e)
+        {
+            throw fireConnectionError(e);
+        }
+    }
+
+    public Date getDate(int parameterIndex) throws SQLException
+    {
+        CallableStatement physical = callable();
+        try
+        {
+            return physical.getDate(parameterIndex);
+        }
+        catch (SQLException e)
+        {
+            throw fireConnectionError(e);
+        }
+    }
+
+    public Time getTime(int parameterIndex) throws SQLException
+    {
+        CallableStatement physical = callable();
+        try
+        {
+            return physical.getTime(parameterIndex);
+        }
+        catch (SQLException e)
+        {
+            throw fireConnectionError(e);
+        }
+    }
+
+    public Timestamp getTimestamp(int parameterIndex) throws SQLException
+    {
+        CallableStatement physical = callable();
+        try
+        {
+            return physical.getTimestamp(parameterIndex);
+        }
+        catch (SQLException e)
+        {
+            throw fireConnectionError(e);
+        }
+    }
+
+    public Object getObject(int parameterIndex) throws SQLException
+    {
+        CallableStatement physical = callable();
+        try
+        {
+            return physical.getObject(parameterIndex);
+        }
+        catch (SQLException e)
+        {
+            throw fireConnectionError(e);
+        }
+    }
+
+    public BigDecimal getBigDecimal(int parameterIndex) throws SQLException
+    {
+        CallableStatement physical = callable();
+        try
+        {
+            return physical.getBigDecimal(parameterIndex);
+        }
+        catch (SQLException e)
+        {
+            throw fireConnectionError(e);
+        }
+    }
+
+    public Object getObject(int parameterIndex, Map<String, Class<?>> map) throws SQLException
+    {
+        CallableStatement physical = callable();
+        try
+        {
+            return physical.getObject(parameterIndex, map);
+        }
+        catch (SQLException e)
+        {
+            throw fireConnectionError(e);
+        }
+    }
+
+    public Ref getRef(int parameterIndex) throws SQLException
+    {
+        CallableStatement physical = callable();
+        try
+        {
+            return physical.getRef(parameterIndex);
+        }
+        catch (SQLException e)
+        {
+            throw fireConnectionError(e);
+        }
+    }
+
+    public Blob getBlob(int parameterIndex) throws SQLException
+    {
+        CallableStatement physical = callable();
+        try
+        {
+            return physical.getBlob(parameterIndex);
+        }
+        catch (SQLException e)
+        {
+            throw fireConnectionError(e);
+        }
+    }
+
+    public Clob getClob(int parameterIndex) throws SQLException
+    {
+        CallableStatement physical = callable();
+        try
+        {
+            return physical.getClob(parameterIndex);
+        }
+        catch (SQLException e)
+        {
+            throw fireConnectionError(e);
+        }
+    }
+
+    public Array getArray(int parameterIndex) throws SQLException
+    {
+        CallableStatement physical = callable();
+        try
+        {
+            return physical.getArray(parameterIndex);
+        }
+        catch (SQLException e)
+        {
+            throw fireConnectionError(e);
+        }
+    }
+
+    public Date getDate(int parameterIndex, Calendar cal) throws SQLException
+    {
+        CallableStatement physical = callable();
+        try
+        {
+            return physical.getDate(parameterIndex, cal);
+        }
+        catch (SQLException e)
+        {
+            throw fireConnectionError(e);
+        }
+    }
+
+    public Time getTime(int parameterIndex, Calendar cal) throws SQLException
+    {
+        CallableStatement physical = callable();
+        try
+        {
+            return physical.getTime(parameterIndex, cal);
+        }
+        catch (SQLException e)
+        {
+            throw fireConnectionError(e);
+        }
+    }
+
+    public Timestamp getTimestamp(int parameterIndex, Calendar cal) throws SQLException
+    {
+        CallableStatement physical = callable();
+        try
+        {
+            return physical.getTimestamp(parameterIndex, cal);
+        }
+        catch (SQLException e)
+        {
+            throw fireConnectionError(e);
+        }
+    }
+
+    public void registerOutParameter(int parameterIndex, int sqlType, String typeName) throws SQLException
+    {
+        CallableStatement physical = callable();
+        try
+        {
+            physical.registerOutParameter(parameterIndex, sqlType, typeName);
+        }
+        catch (SQLException e)
+        {
+            throw fireConnectionError(e);
+        }
+    }
+
+    public void registerOutParameter(String parameterName, int sqlType) throws SQLException
+    {
+        CallableStatement physical = callable();
+        try
+        {
+            physical.registerOutParameter(parameterName, sqlType);
+        }
+        catch (SQLException e)
+        {
+            throw fireConnectionError(e);
+        }
+    }
+
+    public void registerOutParameter(String parameterName, int sqlType, int scale) throws SQLException
+    {
+        CallableStatement physical = callable();
+        try
+        {
+            physical.registerOutParameter(parameterName, sqlType, scale);
+        }
+        catch (SQLException e)
+        {
+            throw fireConnectionError(e);
+        }
+    }
+
+    public void registerOutParameter(String parameterName, int sqlType, String typeName) throws SQLException
+    {
+        CallableStatement physical = callable();
+        try
+        {
+            physical.registerOutParameter(parameterName, sqlType, typeName);
+        }
+        catch (SQLException e)
+        {
+            throw fireConnectionError(e);
+        }
+    }
+
+    public URL getURL(int parameterIndex) throws SQLException
+    {
+        CallableStatement physical = callable();
+        try
+        {
+            return physical.getURL(parameterIndex);
+        }
+        catch (SQLException e)
+        {
+            throw fireConnectionError(e);
+        }
+    }
+
+    public void setURL(String parameterName, URL val) throws SQLException
+    {
+        CallableStatement physical = callable();
+        try
+        {
+            physical.setURL(parameterName, val);
+        }
+        catch (SQLException e)
+        {
+            throw fireConnectionError(e);
+        }
+    }
+
+    public void setNull(String parameterName, int sqlType) throws SQLException
+    {
+        CallableStatement physical = callable();
+        try
+        {
+            physical.setNull(parameterName, sqlType);
+        }
+        catch (SQLException e)
+        {
+            throw fireConnectionError(e);
+        }
+    }
+
+    public void setBoolean(String parameterName, boolean x) throws SQLException
+    {
+        CallableStatement physical = callable();
+        try
+        {
+            physical.setBoolean(parameterName, x);
+        }
+        catch (SQLException e)
+        {
+            throw fireConnectionError(e);
+        }
+    }
+
+    public void setByte(String parameterName, byte x) throws SQLException
+    {
+        CallableStatement physical = callable();
+        try
+        {
+            physical.setByte(parameterName, x);
+        }
+        catch (SQLException e)
+        {
+            throw fireConnectionError(e);
+        }
+    }
+
+    public void setShort(String parameterName, short x) throws SQLException
+    {
+        CallableStatement physical = callable();
+        try
+        {
+            physical.setShort(parameterName, x);
+        }
+        catch (SQLException e)
+        {
+            throw fireConnectionError(e);
+        }
+    }
+
+    public void setInt(String parameterName, int x) throws SQLException
+    {
+        CallableStatement physical = callable();
+        try
+        {
+            physical.setInt(parameterName, x);
+        }
+        catch (SQLException e)
+        {
+            throw fireConnectionError(e);
+        }
+    }
+
+    public void setLong(String parameterName, long x) throws SQLException
+    {
+        CallableStatement physical = callable();
+        try
+        {
+            physical.setLong(parameterName, x);
+        }
+        catch (SQLException e)
+        {
+            throw fireConnectionError(e);
+        }
+    }
+
+    public void setFloat(String parameterName, float x) throws SQLException
+    {
+        CallableStatement physical = callable();
+        try
+        {
+            physical.setFloat(parameterName, x);
+        }
+        catch (SQLException e)
+        {
+            throw fireConnectionError(e);
+        }
+    }
+
+    public void setDouble(String parameterName, double x) throws SQLException
+    {
+        CallableStatement physical = callable();
+        try
+        {
+            physical.setDouble(parameterName, x);
+        }
+        catch (SQLException e)
+        {
+            throw fireConnectionError(e);
+        }
+    }
+
+    public void setBigDecimal(String parameterName, BigDecimal x) throws SQLException
+    {
+        CallableStatement physical = callable();
+        try
+        {
+            physical.setBigDecimal(parameterName, x);
+        }
+        catch (SQLException e)
+        {
+            throw fireConnectionError(e);
+        }
+    }
+
+    public void setString(String parameterName, String x) throws SQLException
+    {
+        CallableStatement physical = callable();
+        try
+        {
+            physical.setString(parameterName, x);
+        }
+        catch (SQLException e)
+        {
+            throw fireConnectionError(e);
+        }
+    }
+
+    public void setBytes(String parameterName, byte[] x) throws SQLException
+    {
+        CallableStatement physical = callable();
+        try
+        {
+            physical.setBytes(parameterName, x);
+        }
+        catch (SQLException e)
+        {
+            throw fireConnectionError(e);
+        }
+    }
+
+    public void setDate(String parameterName, Date x) throws SQLException
+    {
+        CallableStatement physical = callable();
+        try
+        {
+            physical.setDate(parameterName, x);
+        }
+        catch (SQLException e)
+        {
+            throw fireConnectionError(e);
+        }
+    }
+
+    public void setTime(String parameterName, Time x) throws SQLException
+    {
+        CallableStatement physical = callable();
+        try
+        {
+            physical.setTime(parameterName, x);
+        }
+        catch (SQLException e)
+        {
+            throw fireConnectionError(e);
+        }
+    }
+
+    public void setTimestamp(String parameterName, Timestamp x) throws SQLException
+    {
+        CallableStatement physical = callable();
+        try
+        {
+            physical.setTimestamp(parameterName, x);
+        }
+        catch (SQLException e)
+        {
+            throw fireConnectionError(e);
+        }
+    }
+
+    public void setAsciiStream(String parameterName, InputStream x, int length) throws SQLException
+    {
+        CallableStatement physical = callable();
+        try
+        {
+            physical.setAsciiStream(parameterName, x, length);
+        }
+        catch (SQLException e)
+        {
+            throw fireConnectionError(e);
+        }
+    }
+
+    public void setBinaryStream(String parameterName, InputStream x, int length) throws SQLException
+    {
+        CallableStatement physical = callable();
+        try
+        {
+            physical.setBinaryStream(parameterName, x, length);
+        }
+        catch (SQLException e)
+        {
+            throw fireConnectionError(e);
+        }
+    }
+
+    public void setObject(String parameterName, Object x, int targetSqlType, int scale) throws SQLException
+    {
+        CallableStatement physical = callable();
+        try
+        {
+            physical.setObject(parameterName, x, targetSqlType, scale);
+        }
+        catch (SQLException e)
+        {
+            throw fireConnectionError(e);
+        }
+    }
+
+    public void setObject(String parameterName, Object x, int targetSqlType) throws SQLException
+    {
+        CallableStatement physical = callable();
+        try
+        {
+            physical.setObject(parameterName, x, targetSqlType);
+        }
+        catch (SQLException e)
+        {
+            throw fireConnectionError(e);
+        }
+    }
+
+    public void setObject(String parameterName, Object x) throws SQLException
+    {
+        CallableStatement physical = callable();
+        try
+        {
+            physical.setObject(parameterName, x);
+        }
+        catch (SQLException e)
+        {
+            throw fireConnectionError(e);
+        }
+    }
+
+    public void setCharacterStream(String parameterName, Reader reader, int length) throws SQLException
+    {
+        CallableStatement physical = callable();
+        try
+        {
+            physical.setCharacterStream(parameterName, reader, length);
+        }
+        catch (SQLException e)
+        {
+            throw fireConnectionError(e);
+        }
+    }
+
+    public void setDate(String parameterName, Date x, Calendar cal) throws SQLException
+    {
+        CallableStatement physical = callable();
+        try
+        {
+            physical.setDate(parameterName, x, cal);
+        }
+        catch (SQLException e)
+        {
+            throw fireConnectionError(e);
+        }
+    }
+
+    public void setTime(String parameterName, Time x, Calendar cal) throws SQLException
+    {
+        CallableStatement physical = callable();
+        try
+        {
+            physical.setTime(parameterName, x, cal);
+        }
+        catch (SQLException e)
+        {
+            throw fireConnectionError(e);
+        }
+    }
+
+    public void setTimestamp(String parameterName, Timestamp x, Calendar cal) throws SQLException
+    {
+        CallableStatement physical = callable();
+        try
+        {
+            physical.setTimestamp(parameterName, x, cal);
+        }
+        catch (SQLException e)
+        {
+            throw fireConnectionError(e);
+        }
+    }
+
+    public void setNull(String parameterName, int sqlType, String typeName) throws SQLException
+    {
+        CallableStatement physical = callable();
+        try
+        {
+            physical.setNull(parameterName, sqlType, typeName);
+        }
+        catch (SQLException e)
+        {
+            throw fireConnectionError(e);
+        }
+    }
+
+    public String getString(String parameterName) throws SQLException
+    {
+        CallableStatement physical = callable();
+        try
+        {
+            return physical.getString(parameterName);
+        }
+        catch (SQLException e)
+        {
+            throw fireConnectionError(e);
+        }
+    }
+
+    public boolean getBoolean(String parameterName) throws SQLException
+    {
+        CallableStatement physical = callable();
+        try
+        {
+            return physical.getBoolean(parameterName);
+        }
+        catch (SQLException e)
+        {
+            throw fireConnectionError(e);
+        }
+    }
+
+    public byte getByte(String parameterName) throws SQLException
+    {
+        CallableStatement physical = callable();
+        try
+        {
+            return physical.getByte(parameterName);
+        }
+        catch (SQLException e)
+        {
+            throw fireConnectionError(e);
+        }
+    }
+
+    public short getShort(String parameterName) throws SQLException
+    {
+        CallableStatement physical = callable();
+        try
+        {
+            return physical.getShort(parameterName);
+        }
+        catch (SQLException e)
+        {
+            throw fireConnectionError(e);
+        }
+    }
+
+    public int getInt(String parameterName) throws SQLException
+    {
+        CallableStatement physical = callable();
+        try
+        {
+            return physical.getInt(parameterName);
+        }
+        catch (SQLException e)
+        {
+            throw fireConnectionError(e);
+        }
+    }
+
+    public long getLong(String parameterName) throws SQLException
+    {
+        CallableStatement physical = callable();
+        try
+        {
+            return physical.getLong(parameterName);
+        }
+        catch (SQLException e)
+        {
+            throw fireConnectionError(e);
+        }
+    }
+
+    public float getFloat(String parameterName) throws SQLException
+    {
+        CallableStatement physical = callable();
+        try
+        {
+            return physical.getFloat(parameterName);
+        }
+        catch (SQLException e)
+        {
+            throw fireConnectionError(e);
+        }
+    }
+
+    public double getDouble(String parameterName) throws SQLException
+    {
+        CallableStatement physical = callable();
+        try
+        {
+            return physical.getDouble(parameterName);
+        }
+        catch (SQLException e)
+        {
+            throw fireConnectionError(e);
+        }
+    }
+
+    public byte[] getBytes(String parameterName) throws SQLException
+    {
+        CallableStatement physical = callable();
+        try
+        {
+            return physical.getBytes(parameterName);
+        }
+        catch (SQLException e)
+        {
+            throw fireConnectionError(e);
+        }
+    }
+
+    public Date getDate(String parameterName) throws SQLException
+    {
+        CallableStatement physical = callable();
+        try
+        {
+            return physical.getDate(parameterName);
+        }
+        catch (SQLException e)
+        {
+            throw fireConnectionError(e);
+        }
+    }
+
+    public Time getTime(String parameterName) throws SQLException
+    {
+        CallableStatement physical = callable();
+        try
+        {
+            return physical.getTime(parameterName);
+        }
+        catch (SQLException e)
+        {
+            throw fireConnectionError(e);
+        }
+    }
+
+    public Timestamp getTimestamp(String parameterName) throws SQLException
+    {
+        CallableStatement physical = callable();
+        try
+        {
+            return physical.getTimestamp(parameterName);
+        }
+        catch (SQLException e)
+        {
+            throw fireConnectionError(e);
+        }
+    }
+
+    public Object getObject(String parameterName) throws SQLException
+    {
+        CallableStatement physical = callable();
+        try
+        {
+            return physical.getObject(parameterName);
+        }
+        catch (SQLException e)
+        {
+            throw fireConnectionError(e);
+        }
+    }
+
+    public BigDecimal getBigDecimal(String parameterName) throws SQLException
+    {
+        CallableStatement physical = callable();
+        try
+        {
+            return physical.getBigDecimal(parameterName);
+        }
+        catch (SQLException e)
+        {
+            throw fireConnectionError(e);
+        }
+    }
+
+    public Object getObject(String parameterName, Map<String, Class<?>> map) throws SQLException
+    {
+        CallableStatement physical = callable();
+        try
+        {
+            return physical.getObject(parameterName, map);
+        }
+        catch (SQLException e)
+        {
+            throw fireConnectionError(e);
+        }
+    }
+
+    public Ref getRef(String parameterName) throws SQLException
+    {
+        CallableStatement physical = callable();
+        try
+        {
+            return physical.getRef(parameterName);
+        }
+        catch (SQLException e)
+        {
+            throw fireConnectionError(e);
+        }
+    }
+
+    public Blob getBlob(String parameterName) throws SQLException
+    {
+        CallableStatement physical = callable();
+        try
+        {
+            return physical.getBlob(parameterName);
+        }
+        catch (SQLException e)
+        {
+            throw fireConnectionError(e);
+        }
+    }
+
+    public Clob getClob(String parameterName) throws SQLException
+    {
+        CallableStatement physical = callable();
+        try
+        {
+            return physical.getClob(parameterName);
+        }
+        catch (SQLException e)
+        {
+            throw fireConnectionError(e);
+        }
+    }
+
+    public Array getArray(String parameterName) throws SQLException
+    {
+        CallableStatement physical = callable();
+        try
+        {
+            return physical.getArray(parameterName);
+        }
+        catch (SQLException e)
+        {
+            throw fireConnectionError(e);
+        }
+    }
+
+    public Date getDate(String parameterName, Calendar cal) throws SQLException
+    {
+        CallableStatement physical = callable();
+        try
+        {
+            return physical.getDate(parameterName, cal);
+        }
+        catch (SQLException e)
+        {
+            throw fireConnectionError(e);
+        }
+    }
+
+    public Time getTime(String parameterName, Calendar cal) throws SQLException
+    {
+        CallableStatement physical = callable();
+        try
+        {
+            return physical.getTime(parameterName, cal);
+        }
+        catch (SQLException e)
+        {
+            throw fireConnectionError(e);
+        }
+    }
+
+    public Timestamp getTimestamp(String parameterName, Calendar cal) throws SQLException
+    {
+        CallableStatement physical = callable();
+        try
+        {
+            return physical.getTimestamp(parameterName, cal);
+        }
+        catch (SQLException e)
+        {
+            throw fireConnectionError(e);
+        }
+    }
+
+    public URL getURL(String parameterName) throws SQLException
+    {
+        CallableStatement physical = callable();
+        try
+        {
+            return physical.getURL(parameterName);
+        }
+        catch (SQLException e)
+        {
+            throw fireConnectionError(e);
+        }
+    }
+
+    // PGStatement
+
+    public long getLastOID() throws SQLException
+    {
+        PGStatement physical = (PGStatement) checkClosed();
+        try
+        {
+            return physical.getLastOID();
+        }
+        catch (SQLException e)
+        {
+            throw fireConnectionError(e);
+        }
+    }
+
+    public void setUseServerPrepare(boolean flag) throws SQLException
+    {
+        PGStatement physical = (PGStatement) checkClosed();
+        try
+        {
+            physical.setUseServerPrepare(flag);
+        }
+        catch (SQLException e)
+        {
+            throw fireConnectionError(e);
+        }
+    }
+
+    public boolean isUseServerPrepare()
+    {
+        return pgStatement().isUseServerPrepare();
+    }
+
+    public void setPrepareThreshold(int threshold) throws SQLException
+    {
+        PGStatement physical = (PGStatement) checkClosed();
+        try
+        {
+            physical.setPrepareThreshold(threshold);
+        }
+        catch (SQLException e)
+        {
+            throw fireConnectionError(e);
+        }
+    }
+
+    public int getPrepareThreshold()
+    {
+        return pgStatement().getPrepareThreshold();
+    }
+}
@@ -0,0 +1,40 @@
+/*-------------------------------------------------------------------------
+*
+* Copyright (c) 2015, PostgreSQL Global Development Group
+*
+*
+*-------------------------------------------------------------------------
+*/
+package org.postgresql.ds.jdbc3;
+
+import java.sql.*;
+
+import org.postgresql.PGConnection;
+import org.postgresql.ds.jdbc23.AbstractJdbc23ConnectionHandle;
+import org.postgresql.ds.jdbc23.AbstractJdbc23PooledConnection;
+
+/**
+ * The JDBC 3 connection handed out by a pooled connection.
+ */
+public class Jdbc3ConnectionHandle extends AbstractJdbc23ConnectionHandle implements Connection, PGConnection
+{
+    public Jdbc3ConnectionHandle(AbstractJdbc23PooledConnection pooled, Connection con)
+    {
+        super(pooled, con);
+    }
+
+    protected Statement createStatementHandle(Statement st)
+    {
+        return new Jdbc3StatementHandle(this, st);
+    }
+
+    protected PreparedStatement createPreparedStatementHandle(PreparedStatement st)
+    {
+        return new Jdbc3PreparedStatementHandle(this, st);
+    }
+
+    protected CallableStatement createCallableStatementHandle(CallableStatement st)
+    {
+        return new Jdbc3CallableStatementHandle(this, st);
+    }
+}
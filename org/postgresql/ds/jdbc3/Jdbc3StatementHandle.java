@@ -0,0 +1,22 @@
+/*-------------------------------------------------------------------------
+*
+* Copyright (c) 2015, PostgreSQL Global Development Group
+*
+*
+*-------------------------------------------------------------------------
+*/
+package org.postgresql.ds.jdbc3;
+
+import java.sql.*;
+
+import org.postgresql.PGStatement;
+import org.postgresql.ds.jdbc23.AbstractJdbc23ConnectionHandle;
+import org.postgresql.ds.jdbc23.AbstractJdbc23StatementHandle;
+
+class Jdbc3StatementHandle extends AbstractJdbc23StatementHandle implements Statement, PGStatement
+{
+    Jdbc3StatementHandle(AbstractJdbc23ConnectionHandle con, Statement st)
+    {
+        super(con, st);
+    }
+}
@@ -0,0 +1,223 @@
+/*-------------------------------------------------------------------------
+*
+* Copyright (c) 2015, PostgreSQL Global Development Group
+*
+*
+*-------------------------------------------------------------------------
+*/
+package org.postgresql.ds.jdbc4;
+
+import java.sql.*;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Properties;
+
+import org.postgresql.ds.jdbc23.AbstractJdbc23ConnectionHandle;
+import org.postgresql.ds.jdbc23.AbstractJdbc23PooledConnection;
+
+/**
+ * Adds the JDBC 4 methods to the connection handed out by a pooled
+ * connection.
+ */
+public abstract class AbstractJdbc4ConnectionHandle extends AbstractJdbc23ConnectionHandle
+{
+    protected AbstractJdbc4ConnectionHandle(AbstractJdbc23PooledConnection pooled, Connection con)
+    {
+        super(pooled, con);
+    }
+
+    public Clob createClob() throws SQLException
+    {
+        Connection physical = checkClosed();
+        try
+        {
+            return physical.createClob();
+        }
+        catch (SQLException e)
+        {
+            throw fireConnectionError(e);
+        }
+    }
+
+    public Blob createBlob() throws SQLException
+    {
+        Connection physical = checkClosed();
+        try
+        {
+            return physical.createBlob();
+        }
+        catch (SQLException e)
+        {
+            throw fireConnectionError(e);
+        }
+    }
+
+    public NClob createNClob() throws SQLException
+    {
+        Connection physical = checkClosed();
+        try
+        {
+            return physical.createNClob();
+        }
+        catch (SQLException e)
+        {
+            throw fireConnectionError(e);
+        }
+    }
+
+    public SQLXML createSQLXML() throws SQLException
+    {
+        Connection physical = checkClosed();
+        try
+        {
+            return physical.createSQLXML();
+        }
+        catch (SQLException e)
+        {
+            throw fireConnectionError(e);
+        }
+    }
+
+    public boolean isValid(int timeout) throws SQLException
+    {
+        Connection physical = checkClosed();
+        try
+        {
+            return physical.isValid(timeout);
+        }
+        catch (SQLException e)
+        {
+            throw fireConnectionError(e);
+        }
+    }
+
+    public String getClientInfo(String name) throws SQLException
+    {
+        Connection physical = checkClosed();
+        try
+        {
+            return physical.getClientInfo(name);
+        }
+        catch (SQLException e)
+        {
+            throw fireConnectionError(e);
+        }
+    }
+
+    public Properties getClientInfo() throws SQLException
+    {
+        Connection physical = checkClosed();
+        try
+        {
+            return physical.getClientInfo();
+        }
+        catch (SQLException e)
+        {
+            throw fireConnectionError(e);
+        }
+    }
+
+    public Array createArrayOf(String typeName, Object[] elements) throws SQLException
+    {
+        Connection physical = checkClosed();
+        try
+        {
+            return physical.createArrayOf(typeName, elements);
+        }
+        catch (SQLException e)
+        {
+            throw fireConnectionError(e);
+        }
+    }
+
+    public Struct createStruct(String typeName, Object[] attributes) throws SQLException
+    {
+        Connection physical = checkClosed();
+        try
+        {
+            return physical.createStruct(typeName, attributes);
+        }
+        catch (SQLException e)
+        {
+            throw fireConnectionError(e);
+        }
+    }
+
+    public void setClientInfo(String name, String value) throws SQLClientInfoException
+    {
+        Connection physical;
+        try
+        {
+            physical = checkClosed();
+        }
+        catch (final SQLException cause)
+        {
+            Map<String, ClientInfoStatus> failures = new HashMap<String, ClientInfoStatus>();
+            failures.put(name, ClientInfoStatus.REASON_UNKNOWN);
+            throw new SQLClientInfoException(cause.getMessage(), failures, cause);
+        }
+        try
+        {
+            physical.setClientInfo(name, value);
+        }
+        catch (SQLClientInfoException e)
+        {
+            fireConnectionError(e);
+            throw e;
+        }
+    }
+
+    public void setClientInfo(Properties properties) throws SQLClientInfoException
+    {
+        Connection physical;
+        try
+        {
+            physical = checkClosed();
+        }
+        catch (final SQLException cause)
+        {
+            Map<String, ClientInfoStatus> failures = new HashMap<String, ClientInfoStatus>();
+            for (Entry<Object, Object> e : properties.entrySet())
+            {
+                failures.put((String) e.getKey(), ClientInfoStatus.REASON_UNKNOWN);
+            }
+            throw new SQLClientInfoException(cause.getMessage(), failures, cause);
+        }
+        try
+        {
+            physical.setClientInfo(properties);
+        }
+        catch (SQLClientInfoException e)
+        {
+            fireConnectionError(e);
+            throw e;
+        }
+    }
+
+    public <T> T unwrap(Class<T> iface) throws SQLException
+    {
+        Connection physical = checkClosed();
+        try
+        {
+            return physical.unwrap(iface);
+        }
+        catch (SQLException e)
+        {
+            throw fireConnectionError(e);
+        }
+    }
+
+    public boolean isWrapperFor(Class<?> iface) throws SQLException
+    {
+        Connection physical = checkClosed();
+        try
+        {
+            return physical.isWrapperFor(iface);
+        }
+        catch (SQLException e)
+        {
+            throw fireConnectionError(e);
+        }
+    }
+}
@@ -0,0 +1,733 @@
+/*-------------------------------------------------------------------------
+*
+* Copyright (c) 2015, PostgreSQL Global Development Group
+*
+*
+*-------------------------------------------------------------------------
+*/
+package org.postgresql.ds.jdbc4;
+
+import java.io.InputStream;
+import java.io.Reader;
+import java.sql.*;
+
+import org.postgresql.ds.jdbc23.AbstractJdbc23ConnectionHandle;
+import org.postgresql.ds.jdbc23.AbstractJdbc23StatementHandle;
+
+/**
+ * Adds the JDBC 4 methods to the statements handed out by a pooled
+ * connection.
+ */
+public abstract class AbstractJdbc4StatementHandle extends AbstractJdbc23StatementHandle
+{
+    protected AbstractJdbc4StatementHandle(AbstractJdbc23ConnectionHandle con, Statement st)
+    {
+        super(con, st);
+    }
+
+    public void setPoolable(boolean poolable) throws SQLException
+    {
+        Statement physical = checkClosed();
+        try
+        {
+            physical.setPoolable(poolable);
+        }
+        catch (SQLException e)
+        {
+            throw fireConnectionError(e);
+        }
+    }
+
+    public boolean isPoolable() throws SQLException
+    {
+        Statement physical = checkClosed();
+        try
+        {
+            return physical.isPoolable();
+        }
+        catch (SQLException e)
+        {
+            throw fireConnectionError(e);
+        }
+    }
+
+    public <T> T unwrap(Class<T> iface) throws SQLException
+    {
+        Statement physical = checkClosed();
+        try
+        {
+            return physical.unwrap(iface);
+        }
+        catch (SQLException e)
+        {
+            throw fireConnectionError(e);
+        }
+    }
+
+    public boolean isWrapperFor(Class<?> iface) throws SQLException
+    {
+        Statement physical = checkClosed();
+        try
+        {
+            return physical.isWrapperFor(iface);
+        }
+        catch (SQLException e)
+        {
+            throw fireConnectionError(e);
+        }
+    }
+
+    // PreparedStatement
+
+    public void setRowId(int parameterIndex, RowId x) throws SQLException
+    {
+        PreparedStatement physical = prepared();
+        try
+        {
+            physical.setRowId(parameterIndex, x);
+        }
+        catch (SQLException e)
+        {
+            throw fireConnectionError(e);
+        }
+    }
+
+    public void setNString(int parameterIndex, String value) throws SQLException
+    {
+        PreparedStatement physical = prepared();
+        try
+        {
+            physical.setNString(parameterIndex, value);
+        }
+        catch (SQLException e)
+        {
+            throw fireConnectionError(e);
+        }
+    }
+
+    public void setNCharacterStream(int parameterIndex, Reader value, long length) throws SQLException
+    {
+        PreparedStatement physical = prepared();
+        try
+        {
+            physical.setNCharacterStream(parameterIndex, value, length);
+        }
+        catch (SQLException e)
+        {
+            throw fireConnectionError(e);
+        }
+    }
+
+    public void setNClob(int parameterIndex, NClob value) throws SQLException
+    {
+        PreparedStatement physical = prepared();
+        try
+        {
+            physical.setNClob(parameterIndex, value);
+        }
+        catch (SQLException e)
+        {
+            throw fireConnectionError(e);
+        }
+    }
+
+    public void setClob(int parameterIndex, Reader reader, long length) throws SQLException
+    {
+        PreparedStatement physical = prepared();
+        try
+        {
+            physical.setClob(parameterIndex, reader, length);
+        }
+        catch (SQLException e)
+        {
+            throw fireConnectionError(e);
+        }
+    }
+
+    public void setBlob(int parameterIndex, InputStream inputStream, long length) throws SQLException
+    {
+        PreparedStatement physical = prepared();
+        try
+        {
+            physical.setBlob(parameterIndex, inputStream, length);
+        }
+        catch (SQLException e)
+        {
+            throw fireConnectionError(e);
+        }
+    }
+
+    public void setNClob(int parameterIndex, Reader reader, long length) throws SQLException
+    {
+        PreparedStatement physical = prepared();
+        try
+        {
+            physical.setNClob(parameterIndex, reader, length);
+        }
+        catch (SQLException e)
+        {
+            throw fireConnectionError(e);
+        }
+    }
+
+    public void setSQLXML(int parameterIndex, SQLXML xmlObject) throws SQLException
+    {
+        PreparedStatement physical = prepared();
+        try
+        {
+            physical.setSQLXML(parameterIndex, xmlObject);
+        }
+        catch (SQLException e)
+        {
+            throw fireConnectionError(e);
+        }
+    }
+
+    public void setAsciiStream(int parameterIndex, InputStream x, long length) throws SQLException
+    {
+        PreparedStatement physical = prepared();
+        try
+        {
+            physical.setAsciiStream(parameterIndex, x, length);
+        }
+        catch (SQLException e)
+        {
+            throw fireConnectionError(e);
+        }
+    }
+
+    public void setBinaryStream(int parameterIndex, InputStream x, long length) throws SQLException
+    {
+        PreparedStatement physical = prepared();
+        try
+        {
+            physical.setBinaryStream(parameterIndex, x, length);
+        }
+        catch (SQLException e)
+        {
+            throw fireConnectionError(e);
+        }
+    }
+
+    public void setCharacterStream(int parameterIndex, Reader reader, long length) throws SQLException
+    {
+        PreparedStatement physical = prepared();
+        try
+        {
+            physical.setCharacterStream(parameterIndex, reader, length);
+        }
+        catch (SQLException e)
+        {
+            throw fireConnectionError(e);
+        }
+    }
+
+    public void setAsciiStream(int parameterIndex, InputStream x) throws SQLException
+    {
+        PreparedStatement physical = prepared();
+        try
+        {
+            physical.setAsciiStream(parameterIndex, x);
+        }
+        catch (SQLException e)
+        {
+            throw fireConnectionError(e);
+        }
+    }
+
+    public void setBinaryStream(int parameterIndex, InputStream x) throws SQLException
+    {
+        PreparedStatement physical = prepared();
+        try
+        {
+            physical.setBinaryStream(parameterIndex, x);
+        }
+        catch (SQLException e)
+        {
+            throw fireConnectionError(e);
+        }
+    }
+
+    public void setCharacterStream(int parameterIndex, Reader reader) throws SQLException
+    {
+        PreparedStatement physical = prepared();
+        try
+        {
+            physical.setCharacterStream(parameterIndex, reader);
+        }
+        catch (SQLException e)
+        {
+            throw fireConnectionError(e);
+        }
+    }
+
+    public void setNCharacterStream(int parameterIndex, Reader value) throws SQLException
+    {
+        PreparedStatement physical = prepared();
+        try
+        {
+            physical.setNCharacterStream(parameterIndex, value);
+        }
+        catch (SQLException e)
+        {
+            throw fireConnectionError(e);
+        }
+    }
+
+    public void setClob(int parameterIndex, Reader reader) throws SQLException
+    {
+        PreparedStatement physical = prepared();
+        try
+        {
+            physical.setClob(parameterIndex, reader);
+        }
+        catch (SQLException e)
+        {
+            throw fireConnectionError(e);
+        }
+    }
+
+    public void setBlob(int parameterIndex, InputStream inputStream) throws SQLException
+    {
+        PreparedStatement physical = prepared();
+        try
+        {
+            physical.setBlob(parameterIndex, inputStream);
+        }
+        catch (SQLException e)
+        {
+            throw fireConnectionError(e);
+        }
+    }
+
+    public void setNClob(int parameterIndex, Reader reader) throws SQLException
+    {
+        PreparedStatement physical = prepared();
+        try
+        {
+            physical.setNClob(parameterIndex, reader);
+        }
+        catch (SQLException e)
+        {
+            throw fireConnectionError(e);
+        }
+    }
+
+    // CallableStatement
+
+    public RowId getRowId(int parameterIndex) throws SQLException
+    {
+        CallableStatement physical = callable();
+        try
+        {
+            return physical.getRowId(parameterIndex);
+        }
+        catch (SQLException e)
+        {
+            throw fireConnectionError(e);
+        }
+    }
+
+    public RowId getRowId(String parameterName) throws SQLException
+    {
+        CallableStatement physical = callable();
+        try
+        {
+            return physical.getRowId(parameterName);
+        }
+        catch (SQLException e)
+        {
+            throw fireConnectionError(e);
+        }
+    }
+
+    public void setRowId(String parameterName, RowId x) throws SQLException
+    {
+        CallableStatement physical = callable();
+        try
+        {
+            physical.setRowId(parameterName, x);
+        }
+        catch (SQLException e)
+        {
+            throw fireConnectionError(e);
+        }
+    }
+
+    public void setNString(String parameterName, String value) throws SQLException
+    {
+        CallableStatement physical = callable();
+        try
+        {
+            physical.setNString(parameterName, value);
+        }
+        catch (SQLException e)
+        {
+            throw fireConnectionError(e);
+        }
+    }
+
+    public void setNCharacterStream(String parameterName, Reader value, long length) throws SQLException
+    {
+        CallableStatement physical = callable();
+        try
+        {
+            physical.setNCharacterStream(parameterName, value, length);
+        }
+        catch (SQLException e)
+        {
+            throw fireConnectionError(e);
+        }
+    }
+
+    public void setNClob(String parameterName, NClob value) throws SQLException
+    {
+        CallableStatement physical = callable();
+        try
+        {
+            physical.setNClob(parameterName, value);
+        }
+        catch (SQLException e)
+        {
+            throw fireConnectionError(e);
+        }
+    }
+
+    public void setClob(String parameterName, Reader reader, long length) throws SQLException
+    {
+        CallableStatement physical = callable();
+        try
+        {
+            physical.setClob(parameterName, reader, length);
+        }
+        catch (SQLException e)
+        {
+            throw fireConnectionError(e);
+        }
+    }
+
+    public void setBlob(String parameterName, InputStream inputStream, long length) throws SQLException
+    {
+        CallableStatement physical = callable();
+        try
+        {
+            physical.setBlob(parameterName, inputStream, length);
+        }
+        catch (SQLException e)
+        {
+            throw fireConnectionError(e);
+        }
+    }
+
+    public void setNClob(String parameterName, Reader reader, long length) throws SQLException
+    {
+        CallableStatement physical = callable();
+        try
+        {
+            physical.setNClob(parameterName, reader, length);
+        }
+        catch (SQLException e)
+        {
+            throw fireConnectionError(e);
+        }
+    }
+
+    public NClob getNClob(int parameterIndex) throws SQLException
+    {
+        CallableStatement physical = callable();
+        try
+        {
+            return physical.getNClob(parameterIndex);
+        }
+        catch (SQLException e)
+        {
+            throw fireConnectionError(e);
+        }
+    }
+
+    public NClob getNClob(String parameterName) throws SQLException
+    {
+        CallableStatement physical = callable();
+        try
+        {
+            return physical.getNClob(parameterName);
+        }
+        catch (SQLException e)
+        {
+            throw fireConnectionError(e);
+        }
+    }
+
+    public void setSQLXML(String parameterName, SQLXML xmlObject) throws SQLException
+    {
+        CallableStatement physical = callable();
+        try
+        {
+            physical.setSQLXML(parameterName, xmlObject);
+        }
+        catch (SQLException e)
+        {
+            throw fireConnectionError(e);
+        }
+    }
+
+    public SQLXML getSQLXML(int parameterIndex) throws SQLException
+    {
+        CallableStatement physical = callable();
+        try
+        {
+            return physical.getSQLXML(parameterIndex);
+        }
+        catch (SQLException e)
+        {
+            throw fireConnectionError(e);
+        }
+    }
+
+    public SQLXML getSQLXML(String parameterName) throws SQLException
+    {
+        CallableStatement physical = callable();
+        try
+        {
+            return physical.getSQLXML(parameterName);
+        }
+        catch (SQLException e)
+        {
+            throw fireConnectionError(e);
+        }
+    }
+
+    public String getNString(int parameterIndex) throws SQLException
+    {
+        CallableStatement physical = callable();
+        try
+        {
+            return physical.getNString(parameterIndex);
+        }
+        catch (SQLException e)
+        {
+            throw fireConnectionError(e);
+        }
+    }
+
+    public String getNString(String parameterName) throws SQLException
+    {
+        CallableStatement physical = callable();
+        try
+        {
+            return physical.getNString(parameterName);
+        }
+        catch (SQLException e)
+        {
+            throw fireConnectionError(e);
+        }
+    }
+
+    public Reader getNCharacterStream(int parameterIndex) throws SQLException
+    {
+        CallableStatement physical = callable();
+        try
+        {
+            return physical.getNCharacterStream(parameterIndex);
+        }
+        catch (SQLException e)
+        {
+            throw fireConnectionError(e);
+        }
+    }
+
+    public Reader getNCharacterStream(String parameterName) throws SQLException
+    {
+        CallableStatement physical = callable();
+        try
+        {
+            return physical.getNCharacterStream(parameterName);
+        }
+        catch (SQLException e)
+        {
+            throw fireConnectionError(e);
+        }
+    }
+
+    public Reader getCharacterStream(int parameterIndex) throws SQLException
+    {
+        CallableStatement physical = callable();
+        try
+        {
+            return physical.getCharacterStream(parameterIndex);
+        }
+        catch (SQLException e)
+        {
+            throw fireConnectionError(e);
+        }
+    }
+
+    public Reader getCharacterStream(String parameterName) throws SQLException
+    {
+        CallableStatement physical = callable();
+        try
+        {
+            return physical.getCharacterStream(parameterName);
+        }
+        catch (SQLException e)
+        {
+            throw fireConnectionError(e);
+        }
+    }
+
+    public void setBlob(String parameterName, Blob x) throws SQLException
+    {
+        CallableStatement physical = callable();
+        try
+        {
+            physical.setBlob(parameterName, x);
+        }
+        catch (SQLException e)
+        {
+            throw fireConnectionError(e);
+        }
+    }
+
+    public void setClob(String parameterName, Clob x) throws SQLException
+    {
+        CallableStatement physical = callable();
+        try
+        {
+            physical.setClob(parameterName, x);
+        }
+        catch (SQLException e)
+        {
+            throw fireConnectionError(e);
+        }
+    }
+
+    public void setAsciiStream(String parameterName, InputStream x, long length) throws SQLException
+    {
+        CallableStatement physical = callable();
+        try
+        {
+            physical.setAsciiStream(parameterName, x, length);
+        }
+        catch (SQLException e)
+        {
+            throw fireConnectionError(e);
+        }
+    }
+
+    public void setBinaryStream(String parameterName, InputStream x, long length) throws SQLException
+    {
+        CallableStatement physical = callable();
+        try
+        {
+            physical.setBinaryStream(parameterName, x, length);
+        }
+        catch (SQLException e)
+        {
+            throw fireConnectionError(e);
+        }
+    }
+
+    public void setCharacterStream(String parameterName, Reader reader, long length) throws SQLException
+    {
+        CallableStatement physical = callable();
+        try
+        {
+            physical.setCharacterStream(parameterName, reader, length);
+        }
+        catch (SQLException e)
+        {
+            throw fireConnectionError(e);
+        }
+    }
+
+    public void setAsciiStream(String parameterName, InputStream x) throws SQLException
+    {
+        CallableStatement physical = callable();
+        try
+        {
+            physical.setAsciiStream(parameterName, x);
+        }
+        catch (SQLException e)
+        {
+            throw fireConnectionError(e);
+        }
+    }
+
+    public void setBinaryStream(String parameterName, InputStream x) throws SQLException
+    {
+        CallableStatement physical = callable();
+        try
+        {
+            physical.setBinaryStream(parameterName, x);
+        }
+        catch (SQLException e)
+        {
+            throw fireConnectionError(e);
+        }
+    }
+
+    public void setCharacterStream(String parameterName, Reader reader) throws SQLException
+    {
+        CallableStatement physical = callable();
+        try
+        {
+            physical.setCharacterStream(parameterName, reader);
+        }
+        catch (SQLException e)
+        {
+            throw fireConnectionError(e);
+        }
+    }
+
+    public void setNCharacterStream(String parameterName, Reader value) throws SQLException
+    {
+        CallableStatement physical = callable();
+        try
+        {
+            physical.setNCharacterStream(parameterName, value);
+        }
+        catch (SQLException e)
+        {
+            throw fireConnectionError(e);
+        }
+    }
+
+    public void setClob(String parameterName, Reader reader) throws SQLException
+    {
+        CallableStatement physical = callable();
+        try
+        {
+            physical.setClob(parameterName, reader);
+        }
+        catch (SQLException e)
+        {
+            throw fireConnectionError(e);
+        }
+    }
+
+    public void setBlob(String parameterName, InputStream inputStream) throws SQLException
+    {
+        CallableStatement physical = callable();
+        try
+        {
+            physical.setBlob(parameterName, inputStream);
+        }
+        catch (SQLException e)
+        {
+            throw fireConnectionError(e);
+        }
+    }
+
+    public void setNClob(String parameterName, Reader reader) throws SQLException
+    {
+        CallableStatement physical = callable();
+        try
+        {
+            physical.setNClob(parameterName, reader);
+        }
+        catch (SQLException e)
+        {
+            throw fireConnectionError(e);
+        }
+    }
+}
@@ -0,0 +1,21 @@
+/*-------------------------------------------------------------------------
+*
+* Copyright (c) 2015, PostgreSQL Global Development Group
+*
+*
+*-------------------------------------------------------------------------
+*/
+package org.postgresql.ds.jdbc4;
+
+import java.sql.*;
+
+import org.postgresql.PGStatement;
+import org.postgresql.ds.jdbc23.AbstractJdbc23ConnectionHandle;
+
+class Jdbc4CallableStatementHandle extends AbstractJdbc4StatementHandle implements CallableStatement, PGStatement
+{
+    Jdbc4CallableStatementHandle(AbstractJdbc23ConnectionHandle con, CallableStatement st)
+    {
+        super(con, st);
+    }
+}
@@ -0,0 +1,39 @@
+/*-------------------------------------------------------------------------
+*
+* Copyright (c) 2015, PostgreSQL Global Development Group
+*
+*
+*-------------------------------------------------------------------------
+*/
+package org.postgresql.ds.jdbc4;
+
+import java.sql.*;
+
+import org.postgresql.PGConnection;
+import org.postgresql.ds.jdbc23.AbstractJdbc23PooledConnection;
+
+/**
+ * The JDBC 4 connection handed out by a pooled connection.
+ */
+public class Jdbc4ConnectionHandle extends AbstractJdbc4ConnectionHandle implements Connection, PGConnection
+{
+    public Jdbc4ConnectionHandle(AbstractJdbc23PooledConnection pooled, Connection con)
+    {
+        super(pooled, con);
+    }
+
+    protected Statement createStatementHandle(Statement st)
+    {
+        return new Jdbc4StatementHandle(this, st);
+    }
+
+    protected PreparedStatement createPreparedStatementHandle(PreparedStatement st)
+    {
+        return new Jdbc4PreparedStatementHandle(this, st);
+    }
+
+    protected CallableStatement createCallableStatementHandle(CallableStatement st)
+    {
+        return new Jdbc4CallableStatementHandle(this, st);
+    }
+}
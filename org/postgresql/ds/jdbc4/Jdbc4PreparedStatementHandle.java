@@ -0,0 +1,21 @@
+/*-------------------------------------------------------------------------
+*
+* Copyright (c) 2015, PostgreSQL Global Development Group
+*
+*
+*-------------------------------------------------------------------------
+*/
+package org.postgresql.ds.jdbc4;
+
+import java.sql.*;
+
+import org.postgresql.PGStatement;
+import org.postgresql.ds.jdbc23.AbstractJdbc23ConnectionHandle;
+
+class Jdbc4PreparedStatementHandle extends AbstractJdbc4StatementHandle implements PreparedStatement, PGStatement
+{
+    Jdbc4PreparedStatementHandle(AbstractJdbc23ConnectionHandle con, PreparedStatement st)
+    {
+        super(con, st);
+    }
+}
@@ -0,0 +1,21 @@
+/*-------------------------------------------------------------------------
+*
+* Copyright (c) 2015, PostgreSQL Global Development Group
+*
+*
+*-------------------------------------------------------------------------
+*/
+package org.postgresql.ds.jdbc4;
+
+import java.sql.*;
+
+import org.postgresql.PGStatement;
+import org.postgresql.ds.jdbc23.AbstractJdbc23ConnectionHandle;
+
+class Jdbc4StatementHandle extends AbstractJdbc4StatementHandle implements Statement, PGStatement
+{
+    Jdbc4StatementHandle(AbstractJdbc23ConnectionHandle con, Statement st)
+    {
+        super(con, st);
+    }
+}
@@ -0,0 +1,79 @@
+/*-------------------------------------------------------------------------
+*
+* Copyright (c) 2015, PostgreSQL Global Development Group
+*
+*
+*-------------------------------------------------------------------------
+*/
+package org.postgresql.ds.jdbc41;
+
+import java.sql.*;
+
+import org.postgresql.ds.jdbc23.AbstractJdbc23ConnectionHandle;
+import org.postgresql.ds.jdbc4.AbstractJdbc4StatementHandle;
+
+/**
+ * Adds the JDBC 4.1 methods to the statements handed out by a pooled
+ * connection.
+ */
+public abstract class AbstractJdbc41StatementHandle extends AbstractJdbc4StatementHandle
+{
+    protected AbstractJdbc41StatementHandle(AbstractJdbc23ConnectionHandle con, Statement st)
+    {
+        super(con, st);
+    }
+
+    public void closeOnCompletion() throws SQLException
+    {
+        Statement physical = checkClosed();
+        try
+        {
+            physical.closeOnCompletion();
+        }
+        catch (SQLException e)
+        {
+            throw fireConnectionError(e);
+        }
+    }
+
+    public boolean isCloseOnCompletion() throws SQLException
+    {
+        Statement physical = checkClosed();
+        try
+        {
+            return physical.isCloseOnCompletion();
+        }
+        catch (SQLException e)
+        {
+            throw fireConnectionError(e);
+        }
+    }
+
+    // CallableStatement
+
+    public <T> T getObject(int parameterIndex, Class<T> type) throws SQLException
+    {
+        CallableStatement physical = callable();
+        try
+        {
+            return physical.getObject(parameterIndex, type);
+        }
+        catch (SQLException e)
+        {
+            throw fireConnectionError(e);
+        }
+    }
+
+    public <T> T getObject(String parameterName, Class<T> type) throws SQLException
+    {
+        CallableStatement physical = callable();
+        try
+        {
+            return physical.getObject(parameterName, type);
+        }
+        catch (SQLException e)
+        {
+            throw fireConnectionError(e);
+        }
+    }
+}
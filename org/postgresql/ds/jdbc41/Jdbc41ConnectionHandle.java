@@ -0,0 +1,106 @@
+/*-------------------------------------------------------------------------
+*
+* Copyright (c) 2015, PostgreSQL Global Development Group
+*
+*
+*-------------------------------------------------------------------------
+*/
+package org.postgresql.ds.jdbc41;
+
+import java.sql.*;
+import java.util.concurrent.Executor;
+
+import org.postgresql.PGConnection;
+import org.postgresql.ds.jdbc23.AbstractJdbc23PooledConnection;
+import org.postgresql.ds.jdbc4.AbstractJdbc4ConnectionHandle;
+
+/**
+ * The JDBC 4.1 connection handed out by a pooled connection.
+ */
+public class Jdbc41ConnectionHandle extends AbstractJdbc4ConnectionHandle implements Connection, PGConnection
+{
+    public Jdbc41ConnectionHandle(AbstractJdbc23PooledConnection pooled, Connection con)
+    {
+        super(pooled, con);
+    }
+
+    protected Statement createStatementHandle(Statement st)
+    {
+        return new Jdbc41StatementHandle(this, st);
+    }
+
+    protected PreparedStatement createPreparedStatementHandle(PreparedStatement st)
+    {
+        return new Jdbc41PreparedStatementHandle(this, st);
+    }
+
+    protected CallableStatement createCallableStatementHandle(CallableStatement st)
+    {
+        return new Jdbc41CallableStatementHandle(this, st);
+    }
+
+    public void setSchema(String schema) throws SQLException
+    {
+        Connection physical = checkClosed();
+        try
+        {
+            physical.setSchema(schema);
+        }
+        catch (SQLException e)
+        {
+            throw fireConnectionError(e);
+        }
+    }
+
+    public String getSchema() throws SQLException
+    {
+        Connection physical = checkClosed();
+        try
+        {
+            return physical.getSchema();
+        }
+        catch (SQLException e)
+        {
+            throw fireConnectionError(e);
+        }
+    }
+
+    public void abort(Executor executor) throws SQLException
+    {
+        Connection physical = checkClosed();
+        try
+        {
+            physical.abort(executor);
+        }
+        catch (SQLException e)
+        {
+            throw fireConnectionError(e);
+        }
+    }
+
+    public void setNetworkTimeout(Executor executor, int milliseconds) throws SQLException
+    {
+        Connection physical = checkClosed();
+        try
+        {
+            physical.setNetworkTimeout(executor, milliseconds);
+        }
+        catch (SQLException e)
+        {
+            throw fireConnectionError(e);
+        }
+    }
+
+    public int getNetworkTimeout() throws SQLException
+    {
+        Connection physical = checkClosed();
+        try
+        {
+            return physical.getNetworkTimeout();
+        }
+        catch (SQLException e)
+        {
+            throw fireConnectionError(e);
+        }
+    }
+}
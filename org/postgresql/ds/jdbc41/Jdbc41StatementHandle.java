@@ -0,0 +1,21 @@
+/*-------------------------------------------------------------------------
+*
+* Copyright (c) 2015, PostgreSQL Global Development Group
+*
+*
+*-------------------------------------------------------------------------
+*/
+package org.postgresql.ds.jdbc41;
+
+import java.sql.*;
+
+import org.postgresql.PGStatement;
+import org.postgresql.ds.jdbc23.AbstractJdbc23ConnectionHandle;
+
+class Jdbc41StatementHandle extends AbstractJdbc41StatementHandle implements Statement, PGStatement
+{
+    Jdbc41StatementHandle(AbstractJdbc23ConnectionHandle con, Statement st)
+    {
+        super(con, st);
+    }
+}
@@ -7,8 +7,10 @@
 */
 package org.postgresql.fastpath;
 
+import java.nio.ByteBuffer;
 import java.sql.SQLException;
 import java.sql.ResultSet;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -38,7 +40,7 @@ public class Fastpath
 
     // This maps the functions names to their id's (possible unique just
     // to a connection).
-    private final Map func = new HashMap();
+    private final Map<String, Integer> func = new HashMap<String, Integer>();
     private final QueryExecutor executor;
     private final BaseConnection connection;
 
@@ -111,6 +113,109 @@ public class Fastpath
         return returnValue;
     }
 
+    /**
+     * Send several calls of a function to the PostgreSQL backend at once and
+     * wait for all results, which costs a single round trip.
+     *
+     * @param fnId Function id
+     * @param args FastpathArguments to pass to fastpath, one array for each call
+     * @return the results of the calls in order, an element is null if there was no data
+     * @exception SQLException if a database-access error occurs in any call.
+     */
+    public byte[][] fastpath(int fnId, FastpathArg[][] args) throws SQLException
+    {
+        int[] fnIds = new int[args.length];
+        Arrays.fill(fnIds, fnId);
+        return fastpath(fnIds, args);
+    }
+
+    /**
+     * Send calls of several functions to the PostgreSQL backend at once and
+     * wait for all results, which costs a single round trip for a batch of
+     * calls with small results.
+     *
+     * @param fnIds Function ids, one for each call
+     * @param args FastpathArguments to pass to fastpath, one array for each call
+     * @return the results of the calls in order, an element is null if there was no data
+     * @exception SQLException if a database-access error occurs in any call.
+     * @see FastpathBatch
+     */
+    public byte[][] fastpath(int[] fnIds, FastpathArg[][] args) throws SQLException
+    {
+        if (fnIds.length != args.length)
+            throw new PSQLException(GT.tr("Fastpath call batch has {0} functions but {1} argument lists.", new Object[]{new Integer(fnIds.length), new Integer(args.length)}),
+                                    PSQLState.INVALID_PARAMETER_VALUE);
+        return executor.fastpathCall(fnIds, createParameters(args), connection.getAutoCommit());
+    }
+
+    /**
+     * Send several calls of a function to the PostgreSQL backend at once and
+     * receive their results one after another into a buffer.
+     *
+     * @param fnId Function id
+     * @param args FastpathArguments to pass to fastpath, one array for each call
+     * @param results buffer receiving the results from its position on
+     * @return the lengths of the results in order, an element is -1 if there was no data
+     * @exception SQLException if a database-access error occurs in any call,
+     * or if a result does not fit into the buffer.
+     */
+    public int[] fastpath(int fnId, FastpathArg[][] args, ByteBuffer results) throws SQLException
+    {
+        int[] fnIds = new int[args.length];
+        Arrays.fill(fnIds, fnId);
+        return executor.fastpathCall(fnIds, createParameters(args), connection.getAutoCommit(), results);
+    }
+
+    /**
+     * Send several calls of a function to the PostgreSQL backend by name at
+     * once and receive their results one after another into a buffer.
+     *
+     * @param name Function name
+     * @param args FastpathArguments to pass to fastpath, one array for each call
+     * @param results buffer receiving the results from its position on
+     * @return the lengths of the results in order, an element is -1 if there was no data
+     * @exception SQLException if name is unknown, if a database-access error
+     * occurs in any call, or if a result does not fit into the buffer.
+     * @see #fastpath(int, FastpathArg[][], ByteBuffer)
+     */
+    public int[] fastpath(String name, FastpathArg[][] args, ByteBuffer results) throws SQLException
+    {
+        if (connection.getLogger().logDebug())
+            connection.getLogger().debug("Fastpath: calling " + name + " " + args.length + " times");
+        return fastpath(getID(name), args, results);
+    }
+
+    private ParameterList[] createParameters(FastpathArg[][] args) throws SQLException
+    {
+        ParameterList[] params = new ParameterList[args.length];
+        for (int i = 0; i < args.length; ++i)
+        {
+            params[i] = executor.createFastpathParameters(args[i].length);
+            for (int j = 0; j < args[i].length; ++j)
+            {
+                args[i][j].populateParameter(params[i], j + 1);
+            }
+        }
+        return params;
+    }
+
+    /**
+     * Send several calls of a function to the PostgreSQL backend by name at once.
+     *
+     * @param name Function name
+     * @param args FastpathArguments to pass to fastpath, one array for each call
+     * @return the results of the calls in order, an element is null if there was no data
+     * @exception SQLException if name is unknown or if a database-access error
+     * occurs in any call.
+     * @see #fastpath(int, FastpathArg[][])
+     */
+    public byte[][] fastpath(String name, FastpathArg[][] args) throws SQLException
+    {
+        if (connection.getLogger().logDebug())
+            connection.getLogger().debug("Fastpath: calling " + name + " " + args.length + " times");
+        return fastpath(getID(name), args);
+    }
+
     /**
      * @param name Function name
      * @param resultType True if the result is a numeric (Integer or Long)
@@ -156,6 +261,17 @@ public class Fastpath
         return fastpath(getID(name), args);
     }
 
+    /**
+     * Creates an empty batch queueing calls to be sent with this Fastpath
+     * in a single round trip.
+     *
+     * @return a new batch
+     */
+    public FastpathBatch createBatch()
+    {
+        return new FastpathBatch(this);
+    }
+
     /**
      * This convenience method assumes that the return value is an integer
      * @param name Function name
@@ -271,8 +387,9 @@ public class Fastpath
      * the function's required are entered into this table, keeping connection
      * times as fast as possible.
      *
-     * <p>The org.postgresql.largeobject.LargeObject class performs a query upon it's startup,
-     * and passes the returned ResultSet to the addFunctions() method here.
+     * <p>The org.postgresql.largeobject.LargeObjectManager class performs such a query
+     * the first time a database is used, and passes the function ids to the
+     * addFunctions() method here for every connection to that database.
      *
      * <p>Once this has been done, the LargeObject api refers to the functions by
      * name.
@@ -294,6 +411,19 @@ public class Fastpath
         }
     }
 
+    /**
+     * This adds the functions of a map from function name to oid to the
+     * function table, for example function ids already looked up by another
+     * connection to the same database.
+     *
+     * @param functions map from function name to oid
+     * @see #addFunctions(ResultSet)
+     */
+    public void addFunctions(Map<String, Integer> functions)
+    {
+        func.putAll(functions);
+    }
+
     /**
      * This returns the function id associated by its name.
      *
@@ -306,7 +436,7 @@ public class Fastpath
      */
     public int getID(String name) throws SQLException
     {
-        Integer id = (Integer)func.get(name);
+        Integer id = func.get(name);
 
         // may be we could add a lookup to the database here, and store the result
         // in our lookup table, throwing the exception if that fails.
@@ -0,0 +1,104 @@
+/*-------------------------------------------------------------------------
+*
+* Copyright (c) 2015, PostgreSQL Global Development Group
+*
+*
+*-------------------------------------------------------------------------
+*/
+package org.postgresql.fastpath;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Queues calls of any fastpath functions and sends them to the backend at
+ * once, so that many small calls cost a single round trip instead of one
+ * each.
+ *
+ * <p>The calls are executed in order. A failed call does not stop the
+ * following calls from being executed, but inside a transaction they fail as
+ * well. The errors of all failed calls are chained.
+ *
+ * @see Fastpath#createBatch()
+ */
+public class FastpathBatch
+{
+    private final Fastpath fastpath;
+    private int[] fnIds = new int[16];
+    private final List<FastpathArg[]> args = new ArrayList<FastpathArg[]>();
+
+    FastpathBatch(Fastpath fastpath)
+    {
+        this.fastpath = fastpath;
+    }
+
+    /**
+     * Adds a call to the batch.
+     *
+     * @param fnId Function id
+     * @param args FastpathArguments to pass to the function
+     */
+    public void add(int fnId, FastpathArg[] args)
+    {
+        int index = this.args.size();
+        if (index == fnIds.length)
+        {
+            int[] larger = new int[fnIds.length * 2];
+            System.arraycopy(fnIds, 0, larger, 0, index);
+            fnIds = larger;
+        }
+        fnIds[index] = fnId;
+        this.args.add(args);
+    }
+
+    /**
+     * Adds a call to the batch by name.
+     *
+     * @param name Function name
+     * @param args FastpathArguments to pass to the function
+     * @exception SQLException if name is unknown
+     * @see Fastpath#getID(String)
+     */
+    public void add(String name, FastpathArg[] args) throws SQLException
+    {
+        add(fastpath.getID(name), args);
+    }
+
+    /**
+     * @return the number of calls queued
+     */
+    public int size()
+    {
+        return args.size();
+    }
+
+    /**
+     * Removes all calls from the batch.
+     */
+    public void clear()
+    {
+        args.clear();
+    }
+
+    /**
+     * Sends the queued calls and waits for all results. The batch is empty
+     * afterwards, even if a call failed.
+     *
+     * @return the results of the calls in the order they were added, an
+     *  element is null if there was no data
+     * @exception SQLException if a database-access error occurs in any call.
+     */
+    public byte[][] execute() throws SQLException
+    {
+        int count = args.size();
+        if (count == 0)
+            return new byte[0][];
+
+        int[] ids = new int[count];
+        System.arraycopy(fnIds, 0, ids, 0, count);
+        FastpathArg[][] calls = args.toArray(new FastpathArg[count][]);
+        clear();
+        return fastpath.fastpath(ids, calls);
+    }
+}
@@ -8,6 +8,8 @@
 package org.postgresql.geometric;
 
 import org.postgresql.util.GT;
+import org.postgresql.util.ByteConverter;
+import org.postgresql.util.PGBinaryObject;
 import org.postgresql.util.PGobject;
 import org.postgresql.util.PGtokenizer;
 import org.postgresql.util.PSQLException;
@@ -20,7 +22,7 @@ import java.sql.SQLException;
  *     This represents org.postgresql's circle datatype, consisting of a point
  *     and a radius
  */
-public class PGcircle extends PGobject implements Serializable, Cloneable
+public class PGcircle extends PGobject implements PGBinaryObject, Serializable, Cloneable
 {
     /**
      * This is the center point
@@ -92,6 +94,16 @@ public class PGcircle extends PGobject implements Serializable, Cloneable
         }
     }
 
+    /**
+     * @param b Definition of this circle in PostgreSQL's binary syntax
+     */
+    public void setByteValue(byte[] b, int offset)
+    {
+        center = new PGpoint();
+        center.setByteValue(b, offset);
+        radius = ByteConverter.float8(b, offset + 16);
+    }
+
     /**
      * @param obj Object to compare with
      * @return true if the two circles are identical
@@ -127,4 +139,19 @@ public class PGcircle extends PGobject implements Serializable, Cloneable
     {
         return "<" + center + "," + radius + ">";
     }
+
+    public int lengthInBytes()
+    {
+        return 24;
+    }
+
+    /**
+     * Populate the byte array with PGcircle in the binary syntax expected
+     * by org.postgresql
+     */
+    public void toBytes(byte[] b, int offset)
+    {
+        center.toBytes(b, offset);
+        ByteConverter.float8(b, offset + 16, radius);
+    }
 }
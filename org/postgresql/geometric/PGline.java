@@ -7,7 +7,9 @@
 */
 package org.postgresql.geometric;
 
+import org.postgresql.util.ByteConverter;
 import org.postgresql.util.GT;
+import org.postgresql.util.PGBinaryObject;
 import org.postgresql.util.PGobject;
 import org.postgresql.util.PGtokenizer;
 import org.postgresql.util.PSQLException;
@@ -19,10 +21,10 @@ import java.sql.SQLException;
 /**
  * This implements a line consisting of two points.
  *
- * Currently line is not yet implemented in the backend, but this class
- * ensures that when it's done were ready for it.
+ * The backend stores a line as the coefficients of Ax + By + C = 0, which
+ * are converted to and from two points on the line.
  */
-public class PGline extends PGobject implements Serializable, Cloneable
+public class PGline extends PGobject implements PGBinaryObject, Serializable, Cloneable
 {
     /**
      * These are the two points.
@@ -75,6 +77,23 @@ public class PGline extends PGobject implements Serializable, Cloneable
      */
     public void setValue(String s) throws SQLException
     {
+        if (s.startsWith("{"))
+        {
+            // {A,B,C} as 9.4 and later backends send it
+            PGtokenizer t = new PGtokenizer(PGtokenizer.remove(s, "{", "}"), ',');
+            if (t.getSize() != 3)
+                throw new PSQLException(GT.tr("Conversion to type {0} failed: {1}.", new Object[]{type,s}), PSQLState.DATA_TYPE_MISMATCH);
+            try
+            {
+                setCoefficients(Double.parseDouble(t.getToken(0)), Double.parseDouble(t.getToken(1)), Double.parseDouble(t.getToken(2)));
+            }
+            catch (NumberFormatException e)
+            {
+                throw new PSQLException(GT.tr("Conversion to type {0} failed: {1}.", new Object[]{type,s}), PSQLState.DATA_TYPE_MISMATCH, e);
+            }
+            return;
+        }
+
         PGtokenizer t = new PGtokenizer(PGtokenizer.removeBox(s), ',');
         if (t.getSize() != 2)
             throw new PSQLException(GT.tr("Conversion to type {0} failed: {1}.", new Object[]{type,s}), PSQLState.DATA_TYPE_MISMATCH);
@@ -83,6 +102,33 @@ public class PGline extends PGobject implements Serializable, Cloneable
         point[1] = new PGpoint(t.getToken(1));
     }
 
+    /**
+     * @param b Definition of the line in PostgreSQL's binary syntax, the
+     *  coefficients A, B and C
+     */
+    public void setByteValue(byte[] b, int offset)
+    {
+        setCoefficients(ByteConverter.float8(b, offset), ByteConverter.float8(b, offset + 8), ByteConverter.float8(b, offset + 16));
+    }
+
+    /*
+     * Picks two points on the line Ax + By + C = 0.
+     */
+    private void setCoefficients(double a, double b, double c)
+    {
+        if (b == 0)
+        {
+            // vertical
+            point[0] = new PGpoint(-c / a, 0);
+            point[1] = new PGpoint(-c / a, 1);
+        }
+        else
+        {
+            point[0] = new PGpoint(0, -c / b);
+            point[1] = new PGpoint(1, -(a + c) / b);
+        }
+    }
+
     /**
      * @param obj Object to compare with
      * @return true if the two lines are identical
@@ -122,4 +168,40 @@ public class PGline extends PGobject implements Serializable, Cloneable
     {
         return "[" + point[0] + "," + point[1] + "]";
     }
+
+    public int lengthInBytes()
+    {
+        return 24;
+    }
+
+    /**
+     * Populate the byte array with the coefficients of PGline in the binary
+     * syntax expected by org.postgresql, computed as the backend does from
+     * two points.
+     */
+    public void toBytes(byte[] bytes, int offset)
+    {
+        double a;
+        double b = -1;
+        double c;
+        if (point[0].x == point[1].x)
+        {
+            a = -1;
+            b = 0;
+            c = point[0].x;
+        }
+        else if (point[0].y == point[1].y)
+        {
+            a = 0;
+            c = point[0].y;
+        }
+        else
+        {
+            a = (point[1].y - point[0].y) / (point[1].x - point[0].x);
+            c = point[0].y - a * point[0].x;
+        }
+        ByteConverter.float8(bytes, offset, a);
+        ByteConverter.float8(bytes, offset + 8, b);
+        ByteConverter.float8(bytes, offset + 16, c);
+    }
 }
@@ -8,6 +8,7 @@
 package org.postgresql.geometric;
 
 import org.postgresql.util.GT;
+import org.postgresql.util.PGBinaryObject;
 import org.postgresql.util.PGobject;
 import org.postgresql.util.PGtokenizer;
 import org.postgresql.util.PSQLException;
@@ -19,7 +20,7 @@ import java.sql.SQLException;
 /**
  *     This implements a lseg (line segment) consisting of two points
  */
-public class PGlseg extends PGobject implements Serializable, Cloneable
+public class PGlseg extends PGobject implements PGBinaryObject, Serializable, Cloneable
 {
     /**
      * These are the two points.
@@ -80,6 +81,17 @@ public class PGlseg extends PGobject implements Serializable, Cloneable
         point[1] = new PGpoint(t.getToken(1));
     }
 
+    /**
+     * @param b Definition of this line segment in PostgreSQL's binary syntax
+     */
+    public void setByteValue(byte[] b, int offset)
+    {
+        point[0] = new PGpoint();
+        point[0].setByteValue(b, offset);
+        point[1] = new PGpoint();
+        point[1].setByteValue(b, offset + 16);
+    }
+
     /**
      * @param obj Object to compare with
      * @return true if the two line segments are identical
@@ -120,4 +132,19 @@ public class PGlseg extends PGobject implements Serializable, Cloneable
     {
         return "[" + point[0] + "," + point[1] + "]";
     }
+
+    public int lengthInBytes()
+    {
+        return 32;
+    }
+
+    /**
+     * Populate the byte array with PGlseg in the binary syntax expected
+     * by org.postgresql
+     */
+    public void toBytes(byte[] b, int offset)
+    {
+        point[0].toBytes(b, offset);
+        point[1].toBytes(b, offset + 16);
+    }
 }
@@ -8,6 +8,8 @@
 package org.postgresql.geometric;
 
 import org.postgresql.util.GT;
+import org.postgresql.util.ByteConverter;
+import org.postgresql.util.PGBinaryObject;
 import org.postgresql.util.PGobject;
 import org.postgresql.util.PGtokenizer;
 import org.postgresql.util.PSQLException;
@@ -19,7 +21,7 @@ import java.sql.SQLException;
 /**
  *     This implements a path (a multiple segmented line, which may be closed)
  */
-public class PGpath extends PGobject implements Serializable, Cloneable
+public class PGpath extends PGobject implements PGBinaryObject, Serializable, Cloneable
 {
     /**
      * True if the path is open, false if closed
@@ -87,6 +89,22 @@ public class PGpath extends PGobject implements Serializable, Cloneable
             points[p] = new PGpoint(t.getToken(p));
     }
 
+    /**
+     * @param b Definition of this path in PostgreSQL's binary syntax: a
+     *  closed flag, the number of points and the points
+     */
+    public void setByteValue(byte[] b, int offset)
+    {
+        open = b[offset] == 0;
+        int npoints = ByteConverter.int4(b, offset + 1);
+        points = new PGpoint[npoints];
+        for (int p = 0, pos = offset + 5; p < npoints; p++, pos += 16)
+        {
+            points[p] = new PGpoint();
+            points[p].setByteValue(b, pos);
+        }
+    }
+
     /**
      * @param obj Object to compare with
      * @return true if the two paths are identical
@@ -171,4 +189,21 @@ public class PGpath extends PGobject implements Serializable, Cloneable
     {
         open = true;
     }
+
+    public int lengthInBytes()
+    {
+        return 5 + 16 * points.length;
+    }
+
+    /**
+     * Populate the byte array with PGpath in the binary syntax expected
+     * by org.postgresql
+     */
+    public void toBytes(byte[] b, int offset)
+    {
+        b[offset] = (byte)(open ? 0 : 1);
+        ByteConverter.int4(b, offset + 1, points.length);
+        for (int p = 0, pos = offset + 5; p < points.length; p++, pos += 16)
+            points[p].toBytes(b, pos);
+    }
 }
@@ -7,6 +7,8 @@
 */
 package org.postgresql.geometric;
 
+import org.postgresql.util.ByteConverter;
+import org.postgresql.util.PGBinaryObject;
 import org.postgresql.util.PGobject;
 import org.postgresql.util.PGtokenizer;
 import java.io.Serializable;
@@ -15,7 +17,7 @@ import java.sql.SQLException;
 /**
  *     This implements the polygon datatype within PostgreSQL.
  */
-public class PGpolygon extends PGobject implements Serializable, Cloneable
+public class PGpolygon extends PGobject implements PGBinaryObject, Serializable, Cloneable
 {
     /**
      * The points defining the polygon
@@ -64,6 +66,21 @@ public class PGpolygon extends PGobject implements Serializable, Cloneable
             points[p] = new PGpoint(t.getToken(p));
     }
 
+    /**
+     * @param b Definition of this polygon in PostgreSQL's binary syntax: the
+     *  number of points and the points
+     */
+    public void setByteValue(byte[] b, int offset)
+    {
+        int npoints = ByteConverter.int4(b, offset);
+        points = new PGpoint[npoints];
+        for (int p = 0, pos = offset + 4; p < npoints; p++, pos += 16)
+        {
+            points[p] = new PGpoint();
+            points[p].setByteValue(b, pos);
+        }
+    }
+
     /**
      * @param obj Object to compare with
      * @return true if the two polygons are identical
@@ -125,4 +142,20 @@ public class PGpolygon extends PGobject implements Serializable, Cloneable
         b.append(")");
         return b.toString();
     }
+
+    public int lengthInBytes()
+    {
+        return 4 + 16 * points.length;
+    }
+
+    /**
+     * Populate the byte array with PGpolygon in the binary syntax expected
+     * by org.postgresql
+     */
+    public void toBytes(byte[] b, int offset)
+    {
+        ByteConverter.int4(b, offset, points.length);
+        for (int p = 0, pos = offset + 4; p < points.length; p++, pos += 16)
+            points[p].toBytes(b, pos);
+    }
 }
@@ -21,6 +21,7 @@ import org.postgresql.util.HostSpec;
  */
 public class GlobalHostStatusTracker {
     private static final Map<HostSpec, HostSpecStatus> hostStatusMap = new HashMap<HostSpec, HostSpecStatus>();
+    private static final Map<HostSpec, HostLoad> hostLoadMap = new HashMap<HostSpec, HostLoad>();
 
     /**
      * Store the actual observed host status. 
@@ -38,6 +39,33 @@ public class GlobalHostStatusTracker {
         }
     }
 
+    /**
+     * Add the time it took to establish a connection to the moving average of the host.
+     *
+     * @param hostSpec The host that was connected to.
+     * @param connectMillis Time spent connecting and authenticating, in milliseconds.
+     */
+    public static void reportConnectLatency(HostSpec hostSpec, long connectMillis) {
+        getHostLoad(hostSpec).reportConnectLatency(connectMillis);
+    }
+
+    /**
+     * Returns the observed load of the host, shared by all connections to it.
+     *
+     * @param hostSpec The host.
+     * @return load of the host.
+     */
+    public static HostLoad getHostLoad(HostSpec hostSpec) {
+        synchronized (hostLoadMap) {
+            HostLoad load = hostLoadMap.get(hostSpec);
+            if (load == null) {
+                load = new HostLoad();
+                hostLoadMap.put(hostSpec, load);
+            }
+            return load;
+        }
+    }
+
     private static boolean updateStatusFromTo(HostStatus oldStatus, HostStatus newStatus) {
         if (oldStatus == null) {
             return true;
@@ -0,0 +1,76 @@
+/*-------------------------------------------------------------------------
+ *
+ * Copyright (c) 2015, PostgreSQL Global Development Group
+ *
+ *
+ *-------------------------------------------------------------------------
+ */
+package org.postgresql.hostchooser;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Load of one host as observed by this JVM: the number of open connections and
+ * exponentially weighted moving averages of connect and query latency.
+ * Updates are not synchronized; a lost update only makes an average slightly less precise.
+ */
+public class HostLoad {
+    /**
+     * Weight of the newest sample in the moving averages.
+     */
+    private static final double ALPHA = 0.25;
+
+    private final AtomicInteger openConnections = new AtomicInteger();
+    private volatile double connectMillis = -1;
+    private volatile double queryMillis = -1;
+
+    public void connectionOpened() {
+        openConnections.incrementAndGet();
+    }
+
+    public void connectionClosed() {
+        openConnections.decrementAndGet();
+    }
+
+    /**
+     * @param millis Time spent connecting and authenticating.
+     */
+    public void reportConnectLatency(long millis) {
+        connectMillis = average(connectMillis, millis);
+    }
+
+    /**
+     * @param millis Time spent executing one query, including reading its results.
+     */
+    public void reportQueryLatency(long millis) {
+        queryMillis = average(queryMillis, millis);
+    }
+
+    private static double average(double average, long sample) {
+        if (average < 0) {
+            return sample;
+        }
+        return average + ALPHA * (sample - average);
+    }
+
+    /**
+     * @return number of connections currently open to the host.
+     */
+    public int getOpenConnections() {
+        return openConnections.get();
+    }
+
+    /**
+     * @return average connect latency in milliseconds, or -1 if not known.
+     */
+    public double getConnectMillis() {
+        return connectMillis;
+    }
+
+    /**
+     * @return average query latency in milliseconds, or -1 if not known.
+     */
+    public double getQueryMillis() {
+        return queryMillis;
+    }
+}
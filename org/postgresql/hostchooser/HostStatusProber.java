@@ -0,0 +1,204 @@
+/*-------------------------------------------------------------------------
+ *
+ * Copyright (c) 2015, PostgreSQL Global Development Group
+ *
+ *
+ *-------------------------------------------------------------------------
+ */
+package org.postgresql.hostchooser;
+
+import static java.lang.System.currentTimeMillis;
+import static java.util.Arrays.asList;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Timer;
+import java.util.TimerTask;
+
+import org.postgresql.PGProperty;
+import org.postgresql.core.ConnectionFactory;
+import org.postgresql.core.Logger;
+import org.postgresql.core.ProtocolConnection;
+import org.postgresql.util.HostSpec;
+
+/**
+ * Background daemon that periodically connects to every host of a multi host
+ * connection so that {@link GlobalHostStatusTracker} always has fresh status
+ * and latency information and user connections do not have to rediscover it.
+ */
+public class HostStatusProber {
+    /**
+     * A host set that no connection has been opened for in this long is no longer probed.
+     */
+    private static final long IDLE_PROBE_LIMIT_MILLIS = 10 * 60 * 1000;
+
+    private static final Map<ProbeKey, ProbeTask> probeTasks = new HashMap<ProbeKey, ProbeTask>();
+    private static Timer timer;
+
+    /**
+     * Starts probing the given hosts, or marks an existing probe of the same hosts as still in use.
+     *
+     * @param hostSpecs The hosts of the connection url.
+     * @param user The user to authenticate probe connections with.
+     * @param database The database to open probe connections to.
+     * @param info The connection properties, used for the probe connections.
+     * @param probeSeconds Interval between two probes of the same host.
+     * @param logger The logger of the connection requesting the probing.
+     */
+    public static void register(HostSpec[] hostSpecs, String user, String database, Properties info, int probeSeconds, Logger logger) {
+        ProbeKey key = new ProbeKey(asList(hostSpecs), user, database);
+        synchronized (probeTasks) {
+            ProbeTask task = probeTasks.get(key);
+            if (task != null) {
+                task.lastUsed = currentTimeMillis();
+                return;
+            }
+            if (timer == null) {
+                timer = new Timer("PostgreSQL-JDBC-HostStatusProber", true);
+            }
+            long probeMillis = probeSeconds * 1000L;
+            task = new ProbeTask(key, createProbeInfo(info, probeSeconds), logger.getLogLevel());
+            probeTasks.put(key, task);
+            // the connection being opened refreshes the statuses, so the first probe can wait a full period
+            timer.schedule(task, probeMillis, probeMillis);
+        }
+    }
+
+    /**
+     * Stops all probing and releases the probe thread. Waits for probes that are in progress
+     * so that no status is reported after this method returns.
+     */
+    public static void shutdown() {
+        List<ProbeTask> tasks;
+        synchronized (probeTasks) {
+            tasks = new ArrayList<ProbeTask>(probeTasks.values());
+            probeTasks.clear();
+            if (timer != null) {
+                timer.cancel();
+                timer = null;
+            }
+        }
+        for (ProbeTask task : tasks) {
+            task.stop();
+        }
+    }
+
+    private static Properties createProbeInfo(Properties info, int probeSeconds) {
+        Properties probeInfo = new Properties();
+        probeInfo.putAll(info);
+        // probe connections must not register further probes
+        PGProperty.HOST_PROBE_SECONDS.set(probeInfo, 0);
+        // preferSlave accepts every reachable host but still asks for its role
+        PGProperty.TARGET_SERVER_TYPE.set(probeInfo, HostRequirement.preferSlave.name());
+        // an unresponsive host must not stall the probe thread forever
+        if (PGProperty.CONNECT_TIMEOUT.getIntNoCheck(probeInfo) == 0) {
+            PGProperty.CONNECT_TIMEOUT.set(probeInfo, probeSeconds);
+        }
+        if (PGProperty.SOCKET_TIMEOUT.getIntNoCheck(probeInfo) == 0) {
+            PGProperty.SOCKET_TIMEOUT.set(probeInfo, probeSeconds);
+        }
+        return probeInfo;
+    }
+
+    private static void unregister(ProbeKey key) {
+        synchronized (probeTasks) {
+            probeTasks.remove(key);
+            if (probeTasks.isEmpty() && timer != null) {
+                timer.cancel();
+                timer = null;
+            }
+        }
+    }
+
+    /**
+     * Identifies one set of probed hosts.
+     */
+    static class ProbeKey {
+        final List<HostSpec> hostSpecs;
+        final String user;
+        final String database;
+
+        ProbeKey(List<HostSpec> hostSpecs, String user, String database) {
+            this.hostSpecs = hostSpecs;
+            this.user = user;
+            this.database = database;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof ProbeKey)) {
+                return false;
+            }
+            ProbeKey other = (ProbeKey) obj;
+            return hostSpecs.equals(other.hostSpecs) && user.equals(other.user) && database.equals(other.database);
+        }
+
+        @Override
+        public int hashCode() {
+            return hostSpecs.hashCode() ^ user.hashCode() ^ database.hashCode();
+        }
+    }
+
+    /**
+     * Connects to every host of one host set in turn. The connection factory reports the
+     * observed status and connect latency of each host to {@link GlobalHostStatusTracker}.
+     */
+    static class ProbeTask extends TimerTask {
+        private final ProbeKey key;
+        private final Properties probeInfo;
+        private final Logger logger;
+        volatile long lastUsed;
+        private boolean stopped;
+
+        ProbeTask(ProbeKey key, Properties probeInfo, int logLevel) {
+            this.key = key;
+            this.probeInfo = probeInfo;
+            this.logger = new Logger();
+            this.logger.setLogLevel(logLevel);
+            this.lastUsed = currentTimeMillis();
+        }
+
+        @Override
+        public void run() {
+            if (currentTimeMillis() - lastUsed > IDLE_PROBE_LIMIT_MILLIS) {
+                cancel();
+                unregister(key);
+                return;
+            }
+            synchronized (this) {
+                for (HostSpec hostSpec : key.hostSpecs) {
+                    if (stopped) {
+                        return;
+                    }
+                    probe(hostSpec);
+                }
+            }
+        }
+
+        void stop() {
+            cancel();
+            synchronized (this) {
+                stopped = true;
+            }
+        }
+
+        private void probe(HostSpec hostSpec) {
+            if (logger.logDebug()) {
+                logger.debug("Probing status of " + hostSpec);
+            }
+            try {
+                ProtocolConnection connection = ConnectionFactory.openConnection(new HostSpec[] { hostSpec }, key.user, key.database, probeInfo, logger);
+                connection.close();
+            } catch (SQLException ex) {
+                // the failure has already been reported to the status tracker
+                if (logger.logDebug()) {
+                    logger.debug("Probe of " + hostSpec + " failed", ex);
+                }
+            }
+        }
+    }
+}
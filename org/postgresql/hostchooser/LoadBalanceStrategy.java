@@ -0,0 +1,109 @@
+/*-------------------------------------------------------------------------
+ *
+ * Copyright (c) 2015, PostgreSQL Global Development Group
+ *
+ *
+ *-------------------------------------------------------------------------
+ */
+package org.postgresql.hostchooser;
+
+import static java.util.Collections.shuffle;
+import static java.util.Collections.swap;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.postgresql.hostchooser.GlobalHostStatusTracker.HostSpecStatus;
+
+/**
+ * Decides the order in which equally suitable hosts are tried when load balancing.
+ * Hosts without measurements score lowest so that they are tried and measured.
+ */
+public enum LoadBalanceStrategy {
+    /**
+     * Hosts are tried in random order.
+     */
+    random {
+        double score(HostLoad load) {
+            return 0;
+        }
+    },
+    /**
+     * Hosts with the lowest average connect and query latency are tried first.
+     */
+    leastLatency {
+        double score(HostLoad load) {
+            return Math.max(load.getConnectMillis(), 0) + Math.max(load.getQueryMillis(), 0);
+        }
+    },
+    /**
+     * Hosts with the fewest open connections are tried first.
+     */
+    leastConnections {
+        double score(HostLoad load) {
+            return load.getOpenConnections();
+        }
+    },
+    /**
+     * Two random hosts are compared by open connections weighted with latency and
+     * the less loaded one is tried first, the others follow in random order.
+     */
+    powerOfTwo {
+        double score(HostLoad load) {
+            return (load.getOpenConnections() + 1) * (1 + leastLatency.score(load));
+        }
+
+        public void order(List<HostSpecStatus> hosts) {
+            shuffle(hosts);
+            if (score(hosts.get(1)) < score(hosts.get(0))) {
+                swap(hosts, 0, 1);
+            }
+        }
+    };
+
+    /**
+     * @param load The observed load of a host.
+     * @return the load score of the host, lower is better.
+     */
+    abstract double score(HostLoad load);
+
+    double score(HostSpecStatus host) {
+        return score(GlobalHostStatusTracker.getHostLoad(host.host));
+    }
+
+    /**
+     * Orders the hosts, most preferred first.
+     *
+     * @param hosts At least two equally suitable hosts.
+     */
+    public void order(List<HostSpecStatus> hosts) {
+        // shuffle first so that hosts with equal scores are tried in random order
+        shuffle(hosts);
+        if (this == random) {
+            return;
+        }
+        // the scores change concurrently, so they are read once before sorting
+        ScoredHost[] scored = new ScoredHost[hosts.size()];
+        for (int i = 0; i < scored.length; i++) {
+            scored[i] = new ScoredHost(hosts.get(i), score(hosts.get(i)));
+        }
+        Arrays.sort(scored);
+        for (int i = 0; i < scored.length; i++) {
+            hosts.set(i, scored[i].host);
+        }
+    }
+
+    private static class ScoredHost implements Comparable<ScoredHost> {
+        final HostSpecStatus host;
+        final double score;
+
+        ScoredHost(HostSpecStatus host, double score) {
+            this.host = host;
+            this.score = score;
+        }
+
+        public int compareTo(ScoredHost o) {
+            return Double.compare(score, o.score);
+        }
+    }
+}
@@ -10,7 +10,6 @@ package org.postgresql.hostchooser;
 import static java.lang.Boolean.parseBoolean;
 import static java.lang.Integer.parseInt;
 import static java.util.Arrays.asList;
-import static java.util.Collections.shuffle;
 import static java.util.Collections.sort;
 
 import java.util.ArrayList;
@@ -30,12 +29,16 @@ public class MultiHostChooser implements HostChooser {
     private final HostRequirement targetServerType;
     private int hostRecheckTime;
     private boolean loadBalance;
+    private LoadBalanceStrategy loadBalanceStrategy;
+    private boolean probeHosts;
 
     protected MultiHostChooser(HostSpec[] hostSpecs, HostRequirement targetServerType, Properties info) {
         this.hostSpecs = hostSpecs;
         this.targetServerType = targetServerType;
         hostRecheckTime = parseInt(info.getProperty("hostRecheckSeconds", "10")) * 1000;
         loadBalance = parseBoolean(info.getProperty("loadBalanceHosts", "false"));
+        loadBalanceStrategy = LoadBalanceStrategy.valueOf(info.getProperty("loadBalanceStrategy", LoadBalanceStrategy.random.name()));
+        probeHosts = parseInt(info.getProperty("hostProbeSeconds", "0")) > 0;
     }
 
     public Iterator<HostSpec> iterator() {
@@ -53,12 +56,16 @@ public class MultiHostChooser implements HostChooser {
     }
 
     private void sortCandidates(List<HostSpecStatus> candidates) {
-        if (targetServerType == HostRequirement.any) {
+        if (!ranksHosts()) {
             return;
         }
         sort(candidates, new HostSpecByTargetServerTypeComparator());
     }
 
+    private boolean ranksHosts() {
+        return targetServerType != HostRequirement.any || probeHosts;
+    }
+
     private void shuffleGoodHosts(List<HostSpecStatus> candidates) {
         if (!loadBalance) {
             return;
@@ -74,7 +81,22 @@ public class MultiHostChooser implements HostChooser {
             return;
         }
         List<HostSpecStatus> goodHosts = candidates.subList(0, count);
-        shuffle(goodHosts);
+        if (!ranksHosts()) {
+            loadBalanceStrategy.order(goodHosts);
+            return;
+        }
+        // only reorder within each group of equally ranked hosts, so that
+        // the preferred and the probed hosts stay first
+        Comparator<HostSpecStatus> comparator = new HostSpecByTargetServerTypeComparator();
+        int start = 0;
+        for (int i = 1; i <= count; i++) {
+            if (i == count || comparator.compare(goodHosts.get(start), goodHosts.get(i)) != 0) {
+                if (i - start > 1) {
+                    loadBalanceStrategy.order(goodHosts.subList(start, i));
+                }
+                start = i;
+            }
+        }
     }
 
     private List<HostSpec> extractHostSpecs(List<HostSpecStatus> hostSpecStatuses) {
@@ -90,6 +112,11 @@ public class MultiHostChooser implements HostChooser {
         public int compare(HostSpecStatus o1, HostSpecStatus o2) {
             int r1 = rank(o1.status, targetServerType);
             int r2 = rank(o2.status, targetServerType);
+            if (r1 == r2 && probeHosts) {
+                // hosts confirmed by the background probes go before hosts of unknown status
+                r1 = o1.status == null ? 0 : 1;
+                r2 = o2.status == null ? 0 : 1;
+            }
             return r1 == r2 ? 0 : r1 > r2 ? -1 : 1;
         }
 
@@ -12,6 +12,10 @@ import org.postgresql.util.ByteConverter;
 import org.postgresql.util.PSQLException;
 import org.postgresql.util.PSQLState;
 import org.postgresql.util.GT;
+import org.postgresql.util.PGBinaryObject;
+import org.postgresql.util.PGbytea;
+import org.postgresql.util.PGInterval;
+import org.postgresql.util.PGobject;
 
 import java.io.IOException;
 import java.math.BigDecimal;
@@ -157,24 +161,14 @@ public abstract class AbstractJdbc2Array
             return readBinaryArray((int) index, count);
         }
 
-        buildArrayList();
-
-        if (count == 0)
-            count = arrayList.size();
-
-        // array index out of range
-        if ((--index) + count > arrayList.size())
-        {
-            throw new PSQLException(GT.tr("The array index is out of range: {0}, number of elements: {1}.", new Object[] { new Long(index + count), new Long(arrayList.size()) }), PSQLState.DATA_ERROR);
-        }
-
-        return buildArray(arrayList, (int) index, count);
+        return new TextArrayDecoder().decode((int) index - 1, count);
     }
 
     private Object readBinaryArray(int index, int count) throws SQLException {
         int dimensions = ByteConverter.int4(fieldBytes, 0);
         //int flags = ByteConverter.int4(fieldBytes, 4); // bit 0: 0=no-nulls, 1=has-nulls
         int elementOid = ByteConverter.int4(fieldBytes, 8);
+        Class elementClass = elementOidToClass(elementOid);
         int pos = 12;
         int[] dims = new int[dimensions];
         for (int d = 0; d < dimensions; ++d) {
@@ -182,14 +176,16 @@ public abstract class AbstractJdbc2Array
             /*int lbound = ByteConverter.int4(fieldBytes, pos);*/ pos += 4;
         }
         if (dimensions == 0) {
-            return java.lang.reflect.Array.newInstance(elementOidToClass(elementOid), 0);
+            return java.lang.reflect.Array.newInstance(elementClass, 0);
         }
+        int from = checkRange(index, count, dims[0]);
         if (count > 0) {
-            dims[0] = Math.min(count, dims[0]);
+            dims[0] = count;
         }
-        Object arr = java.lang.reflect.Array.newInstance(elementOidToClass(elementOid), dims);
+        pos = skipValues(dims, pos, from);
+        Object arr = java.lang.reflect.Array.newInstance(elementClass, dims);
         try {
-            storeValues((Object[]) arr, elementOid, dims, pos, 0, index);
+            storeValues(arr, elementOid, dims, pos, 0);
         }
         catch (IOException ioe)
         {
@@ -198,57 +194,201 @@ public abstract class AbstractJdbc2Array
         return arr;
     }
 
-    private int storeValues(final Object[] arr, int elementOid, final int[] dims, int pos, final int thisDimension, int index) throws SQLException, IOException {
-        if (thisDimension == dims.length - 1) {
-            for (int i = 1; i < index; ++i) {
-                int len = ByteConverter.int4(fieldBytes, pos); pos += 4;
-                if (len != -1) {
-                    pos += len;
-                }
-            }
+    /*
+     * Fills an array of the given dimension straight from the field's
+     * bytes, and returns the position after its last element.
+     */
+    private int storeValues(Object arr, int elementOid, final int[] dims, int pos, final int thisDimension) throws SQLException, IOException {
+        if (thisDimension < dims.length - 1) {
+            Object[] subArrays = (Object[]) arr;
             for (int i = 0; i < dims[thisDimension]; ++i) {
-                int len = ByteConverter.int4(fieldBytes, pos); pos += 4;
-                if (len == -1) {
-                    continue;
+                pos = storeValues(subArrays[i], elementOid, dims, pos, thisDimension + 1);
+            }
+            return pos;
+        }
+        for (int i = 0; i < dims[thisDimension]; ++i) {
+            int len = ByteConverter.int4(fieldBytes, pos); pos += 4;
+            if (len == -1) {
+                continue;
+            }
+            // primitive arrays are filled without boxing the elements
+            switch (useObjects ? Oid.UNSPECIFIED : elementOid) {
+                case Oid.BOOL:
+                    ((boolean[]) arr)[i] = fieldBytes[pos] != 0;
+                    break;
+                case Oid.INT2:
+                    ((int[]) arr)[i] = ByteConverter.int2(fieldBytes, pos);
+                    break;
+                case Oid.INT4:
+                    ((int[]) arr)[i] = ByteConverter.int4(fieldBytes, pos);
+                    break;
+                case Oid.INT8:
+                    ((long[]) arr)[i] = ByteConverter.int8(fieldBytes, pos);
+                    break;
+                case Oid.OID:
+                    ((long[]) arr)[i] = ByteConverter.int4(fieldBytes, pos) & 0xFFFFFFFFL;
+                    break;
+                case Oid.FLOAT4:
+                    ((float[]) arr)[i] = ByteConverter.float4(fieldBytes, pos);
+                    break;
+                case Oid.FLOAT8:
+                    ((double[]) arr)[i] = ByteConverter.float8(fieldBytes, pos);
+                    break;
+                default:
+                    ((Object[]) arr)[i] = buildElement(elementOid, pos, len);
+            }
+            pos += len;
+        }
+        return pos;
+    }
+
+    /*
+     * Decodes an element in the binary format.
+     */
+    private Object buildElement(int elementOid, int pos, int len) throws SQLException, IOException {
+        switch (elementOid) {
+            case Oid.BOOL:
+                return Boolean.valueOf(fieldBytes[pos] != 0);
+            case Oid.INT2:
+                return new Integer(ByteConverter.int2(fieldBytes, pos));
+            case Oid.INT4:
+                return new Integer(ByteConverter.int4(fieldBytes, pos));
+            case Oid.INT8:
+                return new Long(ByteConverter.int8(fieldBytes, pos));
+            case Oid.OID:
+                return new Long(ByteConverter.int4(fieldBytes, pos) & 0xFFFFFFFFL);
+            case Oid.FLOAT4:
+                return new Float(ByteConverter.float4(fieldBytes, pos));
+            case Oid.FLOAT8:
+                return new Double(ByteConverter.float8(fieldBytes, pos));
+            case Oid.NUMERIC:
+                try {
+                    return ByteConverter.numeric(fieldBytes, pos);
+                } catch (NumberFormatException e) {
+                    throw new PSQLException(GT.tr("Bad value for type {0} : {1}", new Object[]{"BigDecimal", "NaN"}),
+                                            PSQLState.NUMERIC_VALUE_OUT_OF_RANGE);
                 }
-                switch (elementOid) {
-                    case Oid.INT2:
-                        arr[i] = new Short(ByteConverter.int2(fieldBytes, pos));
-                        break;
-                    case Oid.INT4:
-                        arr[i] = new Integer(ByteConverter.int4(fieldBytes, pos));
-                        break;
-                    case Oid.INT8:
-                        arr[i] = new Long(ByteConverter.int8(fieldBytes, pos));
-                        break;
-                    case Oid.FLOAT4:
-                        arr[i] = new Float(ByteConverter.float4(fieldBytes, pos));
-                        break;
-                    case Oid.FLOAT8:
-                        arr[i] = new Double(ByteConverter.float8(fieldBytes, pos));
-                        break;
-                    case Oid.TEXT:
-                    case Oid.VARCHAR:
-                        Encoding encoding = connection.getEncoding();
-                        arr[i] = encoding.decode(fieldBytes, pos, len);
-                        break;
-                    default:
-                        ArrayAssistant arrAssistant = ArrayAssistantRegistry.getAssistant(elementOid);
-                        if (arrAssistant != null) {
-                            arr[i] = arrAssistant.buildElement(fieldBytes, pos, len);
-                        }
+            case Oid.TEXT:
+            case Oid.VARCHAR:
+            case Oid.BPCHAR:
+            case Oid.NAME:
+            case Oid.CHAR:
+            case Oid.JSON:
+                return connection.getEncoding().decode(fieldBytes, pos, len);
+            case Oid.JSONB:
+                // the text follows a version number of the format
+                return connection.getEncoding().decode(fieldBytes, pos + 1, len - 1);
+            case Oid.BYTEA:
+                byte[] bytes = new byte[len];
+                System.arraycopy(fieldBytes, pos, bytes, 0, len);
+                return bytes;
+            case Oid.DATE:
+                return connection.getTimestampUtils().toDateBin(null, fieldBytes, pos, len);
+            case Oid.TIME:
+            case Oid.TIMETZ:
+                return connection.getTimestampUtils().toTimeBin(null, fieldBytes, pos, len);
+            case Oid.TIMESTAMP:
+                return connection.getTimestampUtils().toTimestampBin(null, fieldBytes, pos, len, false);
+            case Oid.TIMESTAMPTZ:
+                return connection.getTimestampUtils().toTimestampBin(null, fieldBytes, pos, len, true);
+            default:
+                ArrayAssistant arrAssistant = ArrayAssistantRegistry.getAssistant(elementOid);
+                if (arrAssistant != null) {
+                    return arrAssistant.buildElement(fieldBytes, pos, len);
+                }
+                String type = connection.getTypeInfo().getPGType(elementOid);
+                try {
+                    PGobject obj = (PGobject) elementObjectClass(elementOid).newInstance();
+                    obj.setType(type);
+                    ((PGBinaryObject) obj).setByteValue(fieldBytes, pos);
+                    return obj;
+                } catch (SQLException sx) {
+                    throw sx;
+                } catch (Exception ex) {
+                    throw new PSQLException(GT.tr("Failed to create object for: {0}.", type), PSQLState.CONNECTION_FAILURE, ex);
                 }
+        }
+    }
+
+    /*
+     * Formats an element in the binary format as the backend does in the
+     * text format.
+     */
+    private String elementToString(int elementOid, int pos, int len) throws SQLException, IOException {
+        switch (elementOid) {
+            case Oid.BOOL:
+                return fieldBytes[pos] != 0 ? "t" : "f";
+            case Oid.FLOAT4:
+                return ServerTextFormat.float4ToString(connection, ByteConverter.float4(fieldBytes, pos));
+            case Oid.FLOAT8:
+                return ServerTextFormat.float8ToString(connection, ByteConverter.float8(fieldBytes, pos));
+            case Oid.DATE:
+            case Oid.TIME:
+            case Oid.TIMETZ:
+            case Oid.TIMESTAMP:
+            case Oid.TIMESTAMPTZ:
+                return connection.getTimestampUtils().toStringBin(elementOid, fieldBytes, pos, len, connection.getServerTimeZone());
+            case Oid.NUMERIC:
+                try {
+                    return ByteConverter.numeric(fieldBytes, pos).toPlainString();
+                } catch (NumberFormatException e) {
+                    return "NaN";
+                }
+            case Oid.BYTEA:
+                char[] hex = new char[2 + 2 * len];
+                hex[0] = '\\';
+                hex[1] = 'x';
+                for (int i = 0; i < len; ++i) {
+                    hex[2 + 2 * i] = Character.forDigit(fieldBytes[pos + i] >> 4 & 0xF, 16);
+                    hex[3 + 2 * i] = Character.forDigit(fieldBytes[pos + i] & 0xF, 16);
+                }
+                return new String(hex);
+            default:
+                if (ServerTextFormat.isGeometric(elementOid)) {
+                    return ServerTextFormat.geometricToString(connection, elementOid, fieldBytes, pos);
+                }
+                Object value = buildElement(elementOid, pos, len);
+                if (value instanceof PGInterval) {
+                    return connection.getTimestampUtils().intervalToString((PGInterval) value, connection.getIntervalStyle());
+                }
+                return value.toString();
+        }
+    }
+
+    /*
+     * Checks the range of the elements asked for and returns the index of
+     * the first of them.
+     */
+    private static int checkRange(long index, int count, int size) throws SQLException {
+        if (count == 0) {
+            count = size;
+        }
+
+        // array index out of range
+        if ((--index) + count > size)
+        {
+            throw new PSQLException(GT.tr("The array index is out of range: {0}, number of elements: {1}.", new Object[] { new Long(index + count), new Long(size) }), PSQLState.DATA_ERROR);
+        }
+        return (int) index;
+    }
+
+    /*
+     * Skips the given number of arrays of the outermost dimension, and
+     * returns the position after them.
+     */
+    private int skipValues(int[] dims, int pos, int count) {
+        for (int d = 1; d < dims.length; ++d) {
+            count *= dims[d];
+        }
+        for (int i = 0; i < count; ++i) {
+            int len = ByteConverter.int4(fieldBytes, pos); pos += 4;
+            if (len != -1) {
                 pos += len;
             }
-        } else {
-            for (int i = 0; i < dims[thisDimension]; ++i) {
-                pos = storeValues((Object[]) arr[i], elementOid, dims, pos, thisDimension + 1, 0);
-            }
         }
         return pos;
     }
 
-
     private ResultSet readBinaryResultSet(int index, int count) throws SQLException {
         int dimensions = ByteConverter.int4(fieldBytes, 0);
         //int flags = ByteConverter.int4(fieldBytes, 4); // bit 0: 0=no-nulls, 1=has-nulls
@@ -259,31 +399,38 @@ public abstract class AbstractJdbc2Array
             dims[d] = ByteConverter.int4(fieldBytes, pos); pos += 4;
             /*int lbound = ByteConverter.int4(fieldBytes, pos); */ pos += 4;
         }
-        if (count > 0 && dimensions > 0) {
-            dims[0] = Math.min(count, dims[0]);
-        }
         List rows = new ArrayList();
         Field[] fields = new Field[2];
+        fields[0] = new Field("INDEX", Oid.INT4);
+        fields[0].setFormat(Field.BINARY_FORMAT);
         if (dimensions > 0) {
-            storeValues(rows, fields, elementOid, dims, pos, 0, index);
+            int from = checkRange(index, count, dims[0]);
+            if (count > 0) {
+                dims[0] = count;
+            }
+            pos = skipValues(dims, pos, from);
+            try {
+                storeValues(rows, fields, elementOid, dims, pos, from + 1);
+            }
+            catch (IOException ioe)
+            {
+                throw new PSQLException(GT.tr("Invalid character data was found.  This is most likely caused by stored data containing characters that are invalid for the character set the database was created in.  The most common example of this is storing 8bit data in a SQL_ASCII database."), PSQLState.DATA_ERROR, ioe);
+            }
+        } else {
+            fields[1] = new Field("VALUE", elementOid);
+            fields[1].setFormat(Field.BINARY_FORMAT);
         }
         BaseStatement stat = (BaseStatement) connection.createStatement(ResultSet.TYPE_SCROLL_INSENSITIVE, ResultSet.CONCUR_READ_ONLY);
         return stat.createDriverResultSet(fields, rows);
     }
 
-    private int storeValues(List rows, Field[] fields, int elementOid, final int[] dims, int pos, final int thisDimension, int index) throws SQLException {
-        if (thisDimension == dims.length - 1) {
-            fields[0] = new Field("INDEX", Oid.INT4);
-            fields[0].setFormat(Field.BINARY_FORMAT);
+    private void storeValues(List rows, Field[] fields, int elementOid, final int[] dims, int pos, int index) throws SQLException, IOException {
+        if (dims.length == 1) {
+            // the result set reads some types in the text format only
+            boolean text = isReadAsText(elementOid);
             fields[1] = new Field("VALUE", elementOid);
-            fields[1].setFormat(Field.BINARY_FORMAT);
-            for (int i = 1; i < index; ++i) {
-                int len = ByteConverter.int4(fieldBytes, pos); pos += 4;
-                if (len != -1) {
-                    pos += len;
-                }
-            }
-            for (int i = 0; i < dims[thisDimension]; ++i) {
+            fields[1].setFormat(text ? Field.TEXT_FORMAT : Field.BINARY_FORMAT);
+            for (int i = 0; i < dims[0]; ++i) {
                 byte[][] rowData = new byte[2][];
                 rowData[0] = new byte[4];
                 ByteConverter.int4(rowData[0], 0, i + index);
@@ -292,80 +439,189 @@ public abstract class AbstractJdbc2Array
                 if (len == -1) {
                     continue;
                 }
-                rowData[1] = new byte[len];
-                System.arraycopy(fieldBytes, pos, rowData[1], 0, rowData[1].length);
+                if (text) {
+                    rowData[1] = connection.encodeString(elementToString(elementOid, pos, len));
+                } else {
+                    rowData[1] = new byte[len];
+                    System.arraycopy(fieldBytes, pos, rowData[1], 0, rowData[1].length);
+                }
                 pos += len;
             }
         } else {
-            fields[0] = new Field("INDEX", Oid.INT4);
-            fields[0].setFormat(Field.BINARY_FORMAT);
             fields[1] = new Field("VALUE", oid);
             fields[1].setFormat(Field.BINARY_FORMAT);
-            int nextDimension = thisDimension + 1;
-            int dimensionsLeft = dims.length - nextDimension;
-            for (int i = 1; i < index; ++i) {
-                pos = calcRemainingDataLength(dims, pos, elementOid, nextDimension);
-            }
-            for (int i = 0; i < dims[thisDimension]; ++i) {
+            int dimensionsLeft = dims.length - 1;
+            for (int i = 0; i < dims[0]; ++i) {
                 byte[][] rowData = new byte[2][];
                 rowData[0] = new byte[4];
                 ByteConverter.int4(rowData[0], 0, i + index);
                 rows.add(rowData);
-                int dataEndPos = calcRemainingDataLength(dims, pos, elementOid, nextDimension);
+                int dataEndPos = skipValues(dims, pos, 1);
                 int dataLength = dataEndPos - pos;
                 rowData[1] = new byte[12 + 8 * dimensionsLeft + dataLength];
                 ByteConverter.int4(rowData[1], 0, dimensionsLeft);
                 System.arraycopy(fieldBytes, 4, rowData[1], 4, 8);
-                System.arraycopy(fieldBytes, 12 + nextDimension * 8, rowData[1], 12, dimensionsLeft * 8);
+                System.arraycopy(fieldBytes, 12 + 8, rowData[1], 12, dimensionsLeft * 8);
                 System.arraycopy(fieldBytes, pos, rowData[1], 12 + dimensionsLeft * 8, dataLength);
                 pos = dataEndPos;
             }
         }
-        return pos;
     }
 
-    private int calcRemainingDataLength(int[] dims, int pos, int elementOid, int thisDimension) {
-        if (thisDimension == dims.length - 1) {
-            for (int i = 0; i < dims[thisDimension]; ++i) {
-                int len = ByteConverter.int4(fieldBytes, pos); pos += 4;
-                if (len == -1) {
-                    continue;
-                }
-                pos += len;
-            }
-        } else {
-            pos = calcRemainingDataLength(dims, elementOid, pos, thisDimension + 1);
+    /*
+     * Element types the result set does not read in the binary format.
+     */
+    private static boolean isReadAsText(int elementOid) {
+        switch (elementOid) {
+            case Oid.BOOL:
+            case Oid.NUMERIC:
+            case Oid.OID:
+            case Oid.BPCHAR:
+            case Oid.NAME:
+            case Oid.CHAR:
+            case Oid.JSON:
+            case Oid.JSONB:
+                return true;
+            default:
+                return false;
         }
-        return pos;
     }
 
     private Class elementOidToClass(int oid)
             throws SQLException {
         switch (oid) {
+            case Oid.BOOL:
+                return useObjects ? Boolean.class : boolean.class;
             case Oid.INT2:
-                return Short.class;
+                // int[] or Integer[] as the text format gives
+                return useObjects ? Integer.class : int.class;
             case Oid.INT4:
-                return Integer.class;
+                return useObjects ? Integer.class : int.class;
             case Oid.INT8:
-                return Long.class;
+            case Oid.OID:
+                return useObjects ? Long.class : long.class;
             case Oid.FLOAT4:
-                return Float.class;
+                return useObjects ? Float.class : float.class;
             case Oid.FLOAT8:
-                return Double.class;
+                return useObjects ? Double.class : double.class;
+            case Oid.NUMERIC:
+                return BigDecimal.class;
             case Oid.TEXT:
             case Oid.VARCHAR:
+            case Oid.BPCHAR:
+            case Oid.NAME:
+            case Oid.CHAR:
+            case Oid.JSON:
+            case Oid.JSONB:
                 return String.class;
+            case Oid.BYTEA:
+                return byte[].class;
+            case Oid.DATE:
+                return java.sql.Date.class;
+            case Oid.TIME:
+            case Oid.TIMETZ:
+                return java.sql.Time.class;
+            case Oid.TIMESTAMP:
+            case Oid.TIMESTAMPTZ:
+                return java.sql.Timestamp.class;
             default:
                 ArrayAssistant arrElemBuilder = ArrayAssistantRegistry.getAssistant(oid);
                 if (arrElemBuilder != null) {
                     return arrElemBuilder.baseType();
                 }
+                Class klass = elementObjectClass(oid);
+                if (klass != null) {
+                    return klass;
+                }
 
                 throw org.postgresql.Driver.notImplemented(this.getClass(),
                         "readBinaryArray(data,oid)");
         }
     }
 
+    /*
+     * The class registered for an element type, if it can be read in the
+     * binary format.
+     */
+    private Class elementObjectClass(int elementOid) throws SQLException {
+        Class klass = connection.getTypeInfo().getPGobject(connection.getTypeInfo().getPGType(elementOid));
+        return klass != null && PGBinaryObject.class.isAssignableFrom(klass) ? klass : null;
+    }
+
+    /*
+     * Formats the value in the binary format as the text format of an array.
+     */
+    private String binaryToString() throws SQLException, IOException {
+        int dimensions = ByteConverter.int4(fieldBytes, 0);
+        int elementOid = ByteConverter.int4(fieldBytes, 8);
+        char delim = connection.getTypeInfo().getArrayDelimiter(oid);
+        StringBuilder sb = new StringBuilder();
+        if (dimensions == 0) {
+            return "{}";
+        }
+        int pos = 12;
+        int[] dims = new int[dimensions];
+        boolean standardBounds = true;
+        for (int d = 0; d < dimensions; ++d) {
+            dims[d] = ByteConverter.int4(fieldBytes, pos);
+            standardBounds &= ByteConverter.int4(fieldBytes, pos + 4) == 1;
+            pos += 8;
+        }
+        if (!standardBounds) {
+            for (int d = 0; d < dimensions; ++d) {
+                int lbound = ByteConverter.int4(fieldBytes, 16 + 8 * d);
+                sb.append('[').append(lbound).append(':').append(lbound + dims[d] - 1).append(']');
+            }
+            sb.append('=');
+        }
+        appendValues(sb, elementOid, delim, dims, pos, 0);
+        return sb.toString();
+    }
+
+    private int appendValues(StringBuilder sb, int elementOid, char delim, int[] dims, int pos, int thisDimension) throws SQLException, IOException {
+        sb.append('{');
+        for (int i = 0; i < dims[thisDimension]; ++i) {
+            if (i > 0) {
+                sb.append(delim);
+            }
+            if (thisDimension < dims.length - 1) {
+                pos = appendValues(sb, elementOid, delim, dims, pos, thisDimension + 1);
+                continue;
+            }
+            int len = ByteConverter.int4(fieldBytes, pos); pos += 4;
+            if (len == -1) {
+                sb.append("NULL");
+                continue;
+            }
+            String s = elementToString(elementOid, pos, len);
+            if (needsQuotes(s, delim)) {
+                escapeArrayElement(sb, s);
+            } else {
+                sb.append(s);
+            }
+            pos += len;
+        }
+        sb.append('}');
+        return pos;
+    }
+
+    /*
+     * An element is quoted by the backend when it would not be read back as
+     * the same value otherwise.
+     */
+    private static boolean needsQuotes(String s, char delim) {
+        if (s.length() == 0 || s.equalsIgnoreCase("NULL")) {
+            return true;
+        }
+        for (int i = 0; i < s.length(); ++i) {
+            char c = s.charAt(i);
+            if (c == '{' || c == '}' || c == '"' || c == '\\' || c == delim || Character.isWhitespace(c)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
     /**
      * Build {@link ArrayList} from field's string input. As a result
      * of this method {@link #arrayList} is build. Method can be called
@@ -509,269 +765,513 @@ public abstract class AbstractJdbc2Array
     }
 
     /**
-     * Convert {@link ArrayList} to array.
-     *
-     * @param input list to be converted into array
+     * Decodes the text form of an array in a single pass, storing each
+     * element straight into the Java array returned by {@link #getArray()}.
+     * Integers and booleans in their plain form are converted without
+     * creating a String. Only the slice of the outermost dimension that was
+     * asked for is converted; the rest is just skipped over.
      */
-    private Object buildArray (PgArrayList input, int index, int count) throws SQLException
+    private final class TextArrayDecoder
     {
+        private static final int BOOLEAN = 0;
+        private static final int INT = 1;
+        private static final int LONG = 2;
+        private static final int FLOAT = 3;
+        private static final int DOUBLE = 4;
+        private static final int NUMERIC = 5;
+        private static final int STRING = 6;
+        private static final int DATE = 7;
+        private static final int TIME = 8;
+        private static final int TIMESTAMP = 9;
+        private static final int ASSISTANT = 10;
+        private static final int BYTES = 11;
+        private static final int OBJECT = 12;
+
+        // what readElement() found
+        private static final int NONE = 0;
+        private static final int NULL = 1;
+        private static final int VALUE = 2;
+
+        private final String s = fieldString;
+        private final int len = fieldString.length();
+        private int pos = 0;
+
+        private char delim;
+        private int kind;
+        private ArrayAssistant assistant;
+        private String objectType;
+        private Class objectClass;
+
+        // the element last read: the range of a plain run of characters, or
+        // its value when it was quoted or escaped
+        private int start;
+        private int end;
+        private String element;
+
+        // length of the last innermost array, all of them have the same
+        private int leafLength = 10;
+
+        // class of the arrays of each dimension below the outermost one
+        private Class[] subArrayClasses;
+
+        Object decode(int from, int count) throws SQLException
+        {
+            delim = connection.getTypeInfo().getArrayDelimiter(oid);
+            kind = elementKind();
 
-        if (count < 0)
-            count = input.size();
-
-        // array to be returned
-        Object ret = null;
-
-        // how many dimensions
-        int dims = input.dimensionsCount;
+            // Starting with 8.0 non-standard (beginning index
+            // isn't 1) bounds the dimensions are returned in the
+            // data formatted like so "[0:3]={0,1,2,3,4}".
+            // Older versions simply do not return the bounds.
+            //
+            // Right now we ignore these bounds, but we could
+            // consider allowing these index values to be used
+            // even though the JDBC spec says 1 is the first
+            // index. I'm not sure what a client would like
+            // to see, so we just retain the old behavior.
+            if (len > 0 && s.charAt(0) == '[')
+                pos = s.indexOf('=') + 1;
 
-        // dimensions length array (to be used with java.lang.reflect.Array.newInstance(Class<?>, int[]))
-        int[] dimsLength = dims > 1 ? new int[dims] : null;
-        if (dims > 1) {
-            for (int i = 0; i < dims; i++) {
-                dimsLength[i] = (i == 0 ? count : 0);
+            skipWhitespace();
+            int dims = 0;
+            for (int i = pos; i < len; ++i)
+            {
+                char c = s.charAt(i);
+                if (c == '{')
+                    ++dims;
+                else if (!Character.isWhitespace(c))
+                    break;
             }
-        }
+            if (dims == 0)
+                throw badValue();
 
-        // array elements counter
-        int length = 0;
+            if (dims > 1)
+            {
+                subArrayClasses = new Class[dims];
+                subArrayClasses[dims - 1] = newLeafArray(0).getClass();
+                for (int d = dims - 2; d > 0; --d)
+                    subArrayClasses[d] = java.lang.reflect.Array.newInstance(subArrayClasses[d + 1], 0).getClass();
+            }
 
-        // array elements type
-        final int type = connection.getTypeInfo().getSQLType(connection.getTypeInfo().getPGArrayElement(oid));
+            ++pos; // skip {
+            int[] size = new int[1];
+            Object ret = dims == 1 ? readLeafArray(from, count, size) : readArray(0, from, count, size);
 
-        if (type == Types.BIT)
-        {
-            boolean[] pa = null; // primitive array
-            Object[] oa = null; // objects array
+            if (count == 0)
+                count = size[0];
 
-            if (dims > 1 || useObjects)
-            {
-                ret = oa = (dims > 1 ? (Object[]) java.lang.reflect.Array.newInstance(useObjects ? Boolean.class : boolean.class, dimsLength) : new Boolean[count]);
-            }
-            else
+            // array index out of range
+            if (from + count > size[0])
             {
-                ret = pa = new boolean[count];
+                throw new PSQLException(GT.tr("The array index is out of range: {0}, number of elements: {1}.", new Object[] { new Long(from + count), new Long(size[0]) }), PSQLState.DATA_ERROR);
             }
 
-            // add elements
-            for (; count > 0; count--)
-            {
-                Object o = input.get(index++);
-
-                if (dims > 1 || useObjects)
-                {
-                    oa[length++] = o == null ? null : (dims > 1 ? buildArray((PgArrayList) o, 0, -1) : new Boolean(AbstractJdbc2ResultSet.toBoolean((String) o)));
-                }
-                else
-                {
-                    pa[length++] = o == null ? false : AbstractJdbc2ResultSet.toBoolean((String) o);
-                }
-            }
+            return ret;
         }
 
-        else if (type == Types.SMALLINT || type == Types.INTEGER)
+        private int elementKind() throws SQLException
         {
-            int[] pa = null;
-            Object[] oa = null;
+            final int elementOid = connection.getTypeInfo().getPGArrayElement(oid);
+            if (elementOid == Oid.JSON || elementOid == Oid.JSONB)
+                return STRING;
 
-            if (dims > 1 || useObjects)
+            final int type = connection.getTypeInfo().getSQLType(elementOid);
+            switch (type)
             {
-                ret = oa = (dims > 1 ? (Object[]) java.lang.reflect.Array.newInstance(useObjects ? Integer.class : int.class, dimsLength) : new Integer[count]);
-            }
-            else
-            {
-                ret = pa = new int[count];
+            case Types.BIT:
+                return BOOLEAN;
+            case Types.SMALLINT:
+            case Types.INTEGER:
+                return INT;
+            case Types.BIGINT:
+                return LONG;
+            case Types.REAL:
+                return FLOAT;
+            case Types.DOUBLE:
+                return DOUBLE;
+            case Types.NUMERIC:
+                return NUMERIC;
+            case Types.CHAR:
+            case Types.VARCHAR:
+                return STRING;
+            case Types.DATE:
+                return DATE;
+            case Types.TIME:
+                return TIME;
+            case Types.TIMESTAMP:
+                return TIMESTAMP;
+            case Types.BINARY:
+                return BYTES;
             }
 
-            for (; count > 0; count--)
-            {
-                Object o = input.get(index++);
+            assistant = ArrayAssistantRegistry.getAssistant(oid);
+            if (assistant != null)
+                return ASSISTANT;
 
-                if (dims > 1 || useObjects)
-                {
-                    oa[length++] = o == null ? null : (dims > 1 ? buildArray((PgArrayList) o, 0, -1) : new Integer(AbstractJdbc2ResultSet.toInt((String) o)));
-                }
-                else
-                {
-                    pa[length++] = o == null ? 0 : AbstractJdbc2ResultSet.toInt((String) o);
-                }
-            }
-        }
+            objectType = connection.getTypeInfo().getPGType(elementOid);
+            objectClass = connection.getTypeInfo().getPGobject(objectType);
+            if (objectClass != null)
+                return OBJECT;
 
-        else if (type == Types.BIGINT)
-        {
-            long[] pa = null;
-            Object[] oa = null;
-
-            if (dims > 1 || useObjects)
-            {
-                ret = oa = (dims > 1 ? (Object[]) java.lang.reflect.Array.newInstance(useObjects ? Long.class : long.class, dimsLength) : new Long[count]);
-            }
+            // other datatypes not currently supported
+            if (connection.getLogger().logDebug())
+                connection.getLogger().debug("getArrayImpl(long,int,Map) with " + getBaseTypeName());
 
-            else
-            {
-                ret = pa = new long[count];
-            }
+            throw org.postgresql.Driver.notImplemented(AbstractJdbc2Array.this.getClass(), "getArrayImpl(long,int,Map)");
+        }
 
-            for (; count > 0; count--)
+        /*
+         * Reads the arrays of one dimension above the innermost, up to and
+         * including the closing brace.
+         */
+        private Object readArray(int dimension, int from, int count, int[] size) throws SQLException
+        {
+            Class subArrayClass = subArrayClasses[dimension + 1];
+            boolean leaves = dimension + 2 == subArrayClasses.length;
+            int capacity = count > 0 ? count : 4;
+            Object[] values = (Object[]) java.lang.reflect.Array.newInstance(subArrayClass, capacity);
+            int stored = 0;
+            int seen = 0;
+            while (true)
             {
-                Object o = input.get(index++);
-
-                if (dims > 1 || useObjects)
+                skipWhitespace();
+                if (pos >= len)
+                    break;
+                char c = s.charAt(pos++);
+                if (c == '}')
+                    break;
+                if (c != '{')
+                    throw badValue();
+
+                if (seen >= from && (count == 0 || seen < from + count))
                 {
-                    oa[length++] = o == null ? null : (dims > 1 ? buildArray((PgArrayList) o, 0, -1) : new Long(AbstractJdbc2ResultSet.toLong((String) o)));
+                    if (stored == capacity)
+                    {
+                        capacity *= 2;
+                        values = (Object[]) resize(values, stored, capacity);
+                    }
+                    values[stored++] = leaves ? readLeafArray(0, 0, null) : readArray(dimension + 1, 0, 0, null);
                 }
                 else
                 {
-                    pa[length++] = o == null ? 0l : AbstractJdbc2ResultSet.toLong((String) o);
+                    skipArray();
                 }
+                ++seen;
+
+                skipWhitespace();
+                if (pos >= len || s.charAt(pos++) == '}')
+                    break;
             }
+            if (size != null)
+                size[0] = seen;
+            return stored == capacity ? values : resize(values, stored, stored);
         }
 
-        else if (type == Types.NUMERIC)
+        /*
+         * Reads the elements of an innermost array, up to and including the
+         * closing brace.
+         */
+        private Object readLeafArray(int from, int count, int[] size) throws SQLException
         {
-            Object[] oa = null;
-            ret = oa = (dims > 1 ? (Object[]) java.lang.reflect.Array.newInstance(BigDecimal.class, dimsLength) : new BigDecimal[count]);
-
-            for (; count > 0; count--)
+            int capacity = count > 0 ? count : leafLength;
+            Object values = newLeafArray(capacity);
+            int stored = 0;
+            int seen = 0;
+            while (true)
             {
-                Object v = input.get(index++);
-                oa[length++] = dims > 1 && v != null ? buildArray((PgArrayList) v, 0, -1) : (v == null ? null : AbstractJdbc2ResultSet.toBigDecimal((String) v, -1));
+                int read = readElement();
+                if (read != NONE)
+                {
+                    if (seen >= from && (count == 0 || seen < from + count))
+                    {
+                        if (stored == capacity)
+                        {
+                            capacity = Math.max(capacity * 2, 4);
+                            values = resize(values, stored, capacity);
+                        }
+                        if (read == VALUE)
+                            store(values, stored);
+                        ++stored;
+                    }
+                    ++seen;
+                }
+                if (pos >= len || s.charAt(pos++) == '}')
+                    break;
             }
+            if (size != null)
+                size[0] = seen;
+            else
+                leafLength = stored;
+            return stored == capacity ? values : resize(values, stored, stored);
         }
 
-        else if (type == Types.REAL)
+        /*
+         * Skips an array whose opening brace was read.
+         */
+        private void skipArray()
         {
-            float[] pa = null;
-            Object[] oa = null;
-
-            if (dims > 1 || useObjects)
-            {
-                ret = oa = (dims > 1 ? (Object[]) java.lang.reflect.Array.newInstance(useObjects ? Float.class : float.class, dimsLength) : new Float[count]);
-            }
-            else
+            boolean insideString = false;
+            int depth = 1;
+            for (; pos < len; ++pos)
             {
-                ret = pa = new float[count];
+                char c = s.charAt(pos);
+                if (c == '\\')
+                    ++pos;
+                else if (c == '"')
+                    insideString = !insideString;
+                else if (!insideString && c == '{')
+                    ++depth;
+                else if (!insideString && c == '}' && --depth == 0)
+                {
+                    ++pos;
+                    return;
+                }
             }
+        }
 
-            for (; count > 0; count--)
+        /*
+         * Reads an element up to the delimiter or the closing brace that
+         * ends it. A plain run of characters is left in the string as the
+         * range between start and end; as soon as a quote, an escape or a
+         * white space shows up, the value is collected in a buffer instead.
+         */
+        private int readElement()
+        {
+            skipWhitespace();
+            start = pos;
+            element = null;
+            StringBuilder buffer = null;
+            boolean insideString = false;
+            boolean wasInsideString = false;
+            for (; pos < len; ++pos)
             {
-                Object o = input.get(index++);
-
-                if (dims > 1 || useObjects)
+                char c = s.charAt(pos);
+                if (c == '\\')
                 {
-                    oa[length++] = o == null ? null : (dims > 1 ? buildArray((PgArrayList) o, 0, -1) : new Float(AbstractJdbc2ResultSet.toFloat((String) o)));
+                    if (buffer == null)
+                        buffer = new StringBuilder().append(s, start, pos);
+                    if (++pos < len)
+                        buffer.append(s.charAt(pos));
                 }
-                else
+                else if (c == '"')
+                {
+                    if (buffer == null)
+                        buffer = new StringBuilder().append(s, start, pos);
+                    insideString = !insideString;
+                    wasInsideString = true;
+                }
+                else if (insideString)
+                {
+                    buffer.append(c);
+                }
+                else if (c == delim || c == '}')
+                {
+                    break;
+                }
+                else if (Character.isWhitespace(c))
+                {
+                    if (buffer == null)
+                        buffer = new StringBuilder().append(s, start, pos);
+                }
+                else if (buffer != null)
                 {
-                    pa[length++] = o == null ? 0f : AbstractJdbc2ResultSet.toFloat((String) o);
+                    buffer.append(c);
                 }
             }
-        }
-
-        else if (type == Types.DOUBLE)
-        {
-            double[] pa = null;
-            Object[] oa = null;
 
-            if (dims > 1 || useObjects)
+            if (buffer == null)
             {
-                ret = oa = (dims > 1 ? (Object[]) java.lang.reflect.Array.newInstance(useObjects ? Double.class : double.class, dimsLength) : new Double[count]);
-            }
-            else
-            {
-                ret = pa = new double[count];
+                end = pos;
+                if (start == end)
+                    return NONE;
+                if (haveMinServer82 && end - start == 4 && s.regionMatches(start, "NULL", 0, 4))
+                    return NULL;
+                return VALUE;
             }
 
-            for (; count > 0; count--)
+            element = buffer.toString();
+            if (!wasInsideString)
             {
-                Object o = input.get(index++);
-
-                if (dims > 1 || useObjects)
-                {
-                    oa[length++] = o == null ? null : (dims > 1 ? buildArray((PgArrayList) o, 0, -1) : new Double(AbstractJdbc2ResultSet.toDouble((String) o)));
-                }
-                else
-                {
-                    pa[length++] = o == null ? 0d : AbstractJdbc2ResultSet.toDouble((String) o);
-                }
+                if (element.length() == 0)
+                    return NONE;
+                if (haveMinServer82 && element.equals("NULL"))
+                    return NULL;
             }
+            return VALUE;
         }
 
-        else if (type == Types.CHAR || type == Types.VARCHAR)
+        private String elementString()
         {
-            Object[] oa = null;
-            ret = oa = (dims > 1 ? (Object[]) java.lang.reflect.Array.newInstance(String.class, dimsLength) : new String[count]);
-
-            for (; count > 0; count--)
-            {
-                Object v = input.get(index++);
-                oa[length++] = dims > 1 && v != null ? buildArray((PgArrayList) v, 0, -1) : v;
-            }
+            return element != null ? element : s.substring(start, end);
         }
 
-        else if (type == Types.DATE)
+        private void skipWhitespace()
         {
-            Object[] oa = null;
-            ret = oa = (dims > 1 ? (Object[]) java.lang.reflect.Array.newInstance(java.sql.Date.class, dimsLength) : new java.sql.Date[count]);
+            while (pos < len && Character.isWhitespace(s.charAt(pos)))
+                ++pos;
+        }
 
-            for (; count > 0; count--)
+        private Object newLeafArray(int length)
+        {
+            switch (kind)
             {
-                Object v = input.get(index++);
-                oa[length++] = dims > 1 && v != null ? buildArray((PgArrayList) v, 0, -1) : (v == null ? null : connection.getTimestampUtils().toDate(null, (String) v));
+            case BOOLEAN:
+                return useObjects ? (Object) new Boolean[length] : new boolean[length];
+            case INT:
+                return useObjects ? (Object) new Integer[length] : new int[length];
+            case LONG:
+                return useObjects ? (Object) new Long[length] : new long[length];
+            case FLOAT:
+                return useObjects ? (Object) new Float[length] : new float[length];
+            case DOUBLE:
+                return useObjects ? (Object) new Double[length] : new double[length];
+            case NUMERIC:
+                return new BigDecimal[length];
+            case STRING:
+                return new String[length];
+            case DATE:
+                return new java.sql.Date[length];
+            case TIME:
+                return new java.sql.Time[length];
+            case TIMESTAMP:
+                return new java.sql.Timestamp[length];
+            case BYTES:
+                return new byte[length][];
+            case OBJECT:
+                return java.lang.reflect.Array.newInstance(objectClass, length);
+            default:
+                return java.lang.reflect.Array.newInstance(assistant.baseType(), length);
             }
         }
 
-        else if (type == Types.TIME)
+        /*
+         * Converts the element last read and stores it in an innermost array.
+         */
+        private void store(Object values, int i) throws SQLException
         {
-            Object[] oa = null;
-            ret = oa = (dims > 1 ? (Object[]) java.lang.reflect.Array.newInstance(java.sql.Time.class, dimsLength) : new java.sql.Time[count]);
-
-            for (; count > 0; count--)
+            switch (kind)
             {
-                Object v = input.get(index++);
-                oa[length++] = dims > 1 && v != null ? buildArray((PgArrayList) v, 0, -1) : (v == null ? null : connection.getTimestampUtils().toTime(null, (String) v));
+            case BOOLEAN:
+                boolean b = toBoolean();
+                if (useObjects)
+                    ((Object[]) values)[i] = new Boolean(b);
+                else
+                    ((boolean[]) values)[i] = b;
+                break;
+            case INT:
+                int n = (int) toLong(true);
+                if (useObjects)
+                    ((Object[]) values)[i] = new Integer(n);
+                else
+                    ((int[]) values)[i] = n;
+                break;
+            case LONG:
+                long l = toLong(false);
+                if (useObjects)
+                    ((Object[]) values)[i] = new Long(l);
+                else
+                    ((long[]) values)[i] = l;
+                break;
+            case FLOAT:
+                float f = AbstractJdbc2ResultSet.toFloat(elementString());
+                if (useObjects)
+                    ((Object[]) values)[i] = new Float(f);
+                else
+                    ((float[]) values)[i] = f;
+                break;
+            case DOUBLE:
+                double d = AbstractJdbc2ResultSet.toDouble(elementString());
+                if (useObjects)
+                    ((Object[]) values)[i] = new Double(d);
+                else
+                    ((double[]) values)[i] = d;
+                break;
+            case NUMERIC:
+                ((Object[]) values)[i] = AbstractJdbc2ResultSet.toBigDecimal(elementString(), -1);
+                break;
+            case STRING:
+                ((Object[]) values)[i] = elementString();
+                break;
+            case DATE:
+                ((Object[]) values)[i] = connection.getTimestampUtils().toDate(null, elementString());
+                break;
+            case TIME:
+                ((Object[]) values)[i] = connection.getTimestampUtils().toTime(null, elementString());
+                break;
+            case TIMESTAMP:
+                ((Object[]) values)[i] = connection.getTimestampUtils().toTimestamp(null, elementString());
+                break;
+            case BYTES:
+                ((Object[]) values)[i] = PGbytea.toBytes(connection.encodeString(elementString()));
+                break;
+            case OBJECT:
+                ((Object[]) values)[i] = connection.getObject(objectType, elementString(), null);
+                break;
+            default:
+                ((Object[]) values)[i] = assistant.buildElement(elementString());
+                break;
             }
         }
 
-        else if (type == Types.TIMESTAMP)
+        private boolean toBoolean()
         {
-            Object[] oa = null;
-            ret = oa = (dims > 1 ? (Object[]) java.lang.reflect.Array.newInstance(java.sql.Timestamp.class, dimsLength) : new java.sql.Timestamp[count]);
-
-            for (; count > 0; count--)
+            if (element == null && end - start == 1)
             {
-                Object v = input.get(index++);
-                oa[length++] = dims > 1 && v != null ? buildArray((PgArrayList) v, 0, -1) : (v == null ? null : connection.getTimestampUtils().toTimestamp(null, (String) v));
+                char c = s.charAt(start);
+                if (c == 't')
+                    return true;
+                if (c == 'f')
+                    return false;
             }
+            return AbstractJdbc2ResultSet.toBoolean(elementString());
         }
 
-        else if (ArrayAssistantRegistry.getAssistant(oid) != null)
+        /*
+         * Converts a plain run of at most 18 digits directly, anything else
+         * is left to AbstractJdbc2ResultSet.
+         */
+        private long toLong(boolean isInt) throws SQLException
         {
-            ArrayAssistant arrAssistant = ArrayAssistantRegistry.getAssistant(oid);
-
-            Object[] oa = null;
-            ret = oa = (dims > 1) ? (Object[]) java.lang.reflect.Array.newInstance(arrAssistant.baseType(), dimsLength)
-                    : (Object[]) java.lang.reflect.Array.newInstance(arrAssistant.baseType(), count) ;
-
-            for (; count > 0; count--)
+            if (element == null)
             {
-                Object v = input.get(index++);
-                oa[length++] = (dims > 1 && v != null) ? buildArray((PgArrayList) v, 0, -1)
-                        : (v == null ? null : arrAssistant.buildElement((String) v));
+                int i = start;
+                boolean negative = s.charAt(i) == '-';
+                if (negative)
+                    ++i;
+                if (i < end && end - i <= 18)
+                {
+                    long value = 0;
+                    for (; i < end; ++i)
+                    {
+                        char c = s.charAt(i);
+                        if (c < '0' || c > '9')
+                            break;
+                        value = value * 10 + (c - '0');
+                    }
+                    if (i == end)
+                    {
+                        if (negative)
+                            value = -value;
+                        if (!isInt || (value >= Integer.MIN_VALUE && value <= Integer.MAX_VALUE))
+                            return value;
+                    }
+                }
             }
+            String str = elementString();
+            return isInt ? AbstractJdbc2ResultSet.toInt(str) : AbstractJdbc2ResultSet.toLong(str);
         }
 
-        // other datatypes not currently supported
-        else
+        private PSQLException badValue()
         {
-            if (connection.getLogger().logDebug())
-                connection.getLogger().debug("getArrayImpl(long,int,Map) with " + getBaseTypeName());
-
-            throw org.postgresql.Driver.notImplemented(this.getClass(), "getArrayImpl(long,int,Map)");
+            return new PSQLException(GT.tr("Bad value for type {0} : {1}", new Object[]{"array", s}), PSQLState.DATA_ERROR);
         }
+    }
 
-        return ret;
+    private static Object resize(Object array, int length, int capacity)
+    {
+        Object resized = java.lang.reflect.Array.newInstance(array.getClass().getComponentType(), capacity);
+        System.arraycopy(array, 0, resized, 0, length);
+        return resized;
     }
 
     public int getBaseType() throws SQLException
@@ -781,7 +1281,6 @@ public abstract class AbstractJdbc2Array
 
     public String getBaseTypeName() throws SQLException
     {
-        buildArrayList();
         int elementOID = connection.getTypeInfo().getPGArrayElement(oid);
         return connection.getTypeInfo().getPGType(elementOID);
     }
@@ -879,6 +1378,19 @@ public abstract class AbstractJdbc2Array
 
     public String toString()
     {
+        if (fieldString == null && fieldBytes != null)
+        {
+            try
+            {
+                fieldString = binaryToString();
+            }
+            catch (Exception e)
+            {
+                // no literal for a value that cannot be decoded
+                if (connection.getLogger().logDebug())
+                    connection.getLogger().debug("Cannot format binary array value", e);
+            }
+        }
         return fieldString;
     }
 
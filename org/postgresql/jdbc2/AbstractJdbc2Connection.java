@@ -14,6 +14,7 @@ import java.util.*;
 
 import org.postgresql.core.*;
 import org.postgresql.Driver;
+import org.postgresql.PGAsyncResult;
 import org.postgresql.PGNotification;
 import org.postgresql.PGProperty;
 import org.postgresql.fastpath.Fastpath;
@@ -68,8 +69,14 @@ public abstract class AbstractJdbc2Connection implements BaseConnection
 
     // Connection's autocommit state.
     private boolean autoCommit = true;
-    // Connection's readonly state.
+    // Connection's readonly state, and the session change count it was
+    // set at.
     private boolean readOnly = false;
+    private int readOnlyChangeCount = -1;
+    // Last known transaction isolation level, -1 if unknown, and the
+    // session change count it was known at.
+    private int transactionIsolation = -1;
+    private int transactionIsolationChangeCount;
 
     // Bind String to UNSPECIFIED or VARCHAR?
     private final boolean bindStringAsVarchar;
@@ -78,9 +85,13 @@ public abstract class AbstractJdbc2Connection implements BaseConnection
     private SQLWarning firstWarning = null;
 
     /** Set of oids that use binary transfer when sending to server. */
-    private Set<Integer> useBinarySendForOids;
+    private volatile Set<Integer> useBinarySendForOids;
     /** Set of oids that use binary transfer when receiving from server. */
-    private Set<Integer> useBinaryReceiveForOids;
+    private volatile Set<Integer> useBinaryReceiveForOids;
+    /** Whether types found later may use binary transfer. */
+    private boolean binaryTransferAllowed;
+    /** Set of oids binaryTransferDisable keeps from using binary transfer. */
+    private Set<Integer> binaryTransferDisabledOids;
 
     public abstract DatabaseMetaData getMetaData() throws SQLException;
 
@@ -158,8 +169,41 @@ public abstract class AbstractJdbc2Connection implements BaseConnection
             binaryOids.add(Oid.FLOAT8_ARRAY);
             binaryOids.add(Oid.VARCHAR_ARRAY);
             binaryOids.add(Oid.TEXT_ARRAY);
+            binaryOids.add(Oid.BPCHAR_ARRAY);
+            binaryOids.add(Oid.NAME_ARRAY);
+            binaryOids.add(Oid.CHAR_ARRAY);
+            binaryOids.add(Oid.JSON_ARRAY);
+            binaryOids.add(Oid.JSONB_ARRAY);
+            binaryOids.add(Oid.BOOL_ARRAY);
+            binaryOids.add(Oid.OID_ARRAY);
+            binaryOids.add(Oid.NUMERIC_ARRAY);
+            binaryOids.add(Oid.BYTEA_ARRAY);
+            binaryOids.add(Oid.UUID_ARRAY);
+            binaryOids.add(Oid.DATE_ARRAY);
+            binaryOids.add(Oid.TIME_ARRAY);
+            binaryOids.add(Oid.TIMETZ_ARRAY);
+            binaryOids.add(Oid.TIMESTAMP_ARRAY);
+            binaryOids.add(Oid.TIMESTAMPTZ_ARRAY);
+            binaryOids.add(Oid.INTERVAL_ARRAY);
+            binaryOids.add(Oid.POINT_ARRAY);
+            binaryOids.add(Oid.LSEG_ARRAY);
+            binaryOids.add(Oid.PATH_ARRAY);
+            binaryOids.add(Oid.BOX_ARRAY);
+            binaryOids.add(Oid.POLYGON_ARRAY);
+            binaryOids.add(Oid.LINE_ARRAY);
+            binaryOids.add(Oid.CIRCLE_ARRAY);
+            binaryOids.add(Oid.INET_ARRAY);
+            binaryOids.add(Oid.CIDR_ARRAY);
             binaryOids.add(Oid.POINT);
+            binaryOids.add(Oid.LSEG);
+            binaryOids.add(Oid.PATH);
             binaryOids.add(Oid.BOX);
+            binaryOids.add(Oid.POLYGON);
+            binaryOids.add(Oid.LINE);
+            binaryOids.add(Oid.CIRCLE);
+            binaryOids.add(Oid.INTERVAL);
+            binaryOids.add(Oid.INET);
+            binaryOids.add(Oid.CIDR);
             binaryOids.add(Oid.UUID);
         }        
         // the pre 8.0 servers do not disclose their internal encoding for
@@ -169,21 +213,27 @@ public abstract class AbstractJdbc2Connection implements BaseConnection
             binaryOids.remove(Oid.TIMETZ);
             binaryOids.remove(Oid.TIMESTAMP);
             binaryOids.remove(Oid.TIMESTAMPTZ);
+            binaryOids.remove(Oid.TIME_ARRAY);
+            binaryOids.remove(Oid.TIMETZ_ARRAY);
+            binaryOids.remove(Oid.TIMESTAMP_ARRAY);
+            binaryOids.remove(Oid.TIMESTAMPTZ_ARRAY);
         }
-        // driver supports only null-compatible arrays
-        if (!haveMinimumCompatibleVersion("8.3")) {
-            binaryOids.remove(Oid.INT2_ARRAY);
-            binaryOids.remove(Oid.INT4_ARRAY);
-            binaryOids.remove(Oid.INT8_ARRAY);
-            binaryOids.remove(Oid.FLOAT4_ARRAY);
-            binaryOids.remove(Oid.FLOAT8_ARRAY);
-            binaryOids.remove(Oid.FLOAT8_ARRAY);
-            binaryOids.remove(Oid.VARCHAR_ARRAY);
-            binaryOids.remove(Oid.TEXT_ARRAY);
+        // PGInterval does not know the format of the seconds, so only the
+        // integer one is supported
+        if (!protoConnection.getIntegerDateTimes()) {
+            binaryOids.remove(Oid.INTERVAL);
+            binaryOids.remove(Oid.INTERVAL_ARRAY);
+        }
+        // the binary format of line was added with its text format
+        if (!haveMinimumServerVersion("9.4")) {
+            binaryOids.remove(Oid.LINE);
+            binaryOids.remove(Oid.LINE_ARRAY);
         }
 
         binaryOids.addAll(getOidSet(PGProperty.BINARY_TRANSFER_ENABLE.get(info)));
-        binaryOids.removeAll(getOidSet(PGProperty.BINARY_TRANSFER_DISABLE.get(info)));
+        binaryTransferDisabledOids = getOidSet(PGProperty.BINARY_TRANSFER_DISABLE.get(info));
+        binaryOids.removeAll(binaryTransferDisabledOids);
+        binaryTransferAllowed = binaryTransfer && protoConnection.getProtocolVersion() >= 3;
 
         // split for receive and send for better control
         useBinarySendForOids = new HashSet<Integer>();
@@ -198,6 +248,13 @@ public abstract class AbstractJdbc2Connection implements BaseConnection
          */
         useBinarySendForOids.remove(Oid.DATE);
 
+        /*
+         * Abbreviated networks such as '10/8' are only understood by the
+         * backend, so inet and cidr are sent as text.
+         */
+        useBinarySendForOids.remove(Oid.INET);
+        useBinarySendForOids.remove(Oid.CIDR);
+
         protoConnection.setBinaryReceiveOids(useBinaryReceiveForOids);
 
         if (logger.logDebug())
@@ -275,6 +332,17 @@ public abstract class AbstractJdbc2Connection implements BaseConnection
     private final TimestampUtils timestampUtils;
     public TimestampUtils getTimestampUtils() { return timestampUtils; }
 
+    public String getIntervalStyle()
+    {
+        // 8.4+ reports the setting, older servers only know the default
+        return protoConnection.getParameterStatus("IntervalStyle");
+    }
+
+    public String getServerTimeZone()
+    {
+        return protoConnection.getParameterStatus("TimeZone");
+    }
+
     /*
      * The current type mappings
      */
@@ -368,6 +436,19 @@ public abstract class AbstractJdbc2Connection implements BaseConnection
         stmt.close();
     }
 
+    /**
+     * Changes a session setting. Where the protocol allows it, the command
+     * is only sent with the next query, and an error it raises is reported
+     * by that query.
+     *
+     * @param sql the command
+     */
+    private void execSessionCommand(String sql) throws SQLException
+    {
+        if (!getQueryExecutor().queueSessionCommand(sql))
+            execSQLUpdate(sql); // nb: no BEGIN triggered
+    }
+
     /*
      * In SQL, a result table can be retrieved through a cursor that
      * is named.  The current row of a result can be updated or deleted
@@ -602,6 +683,8 @@ public abstract class AbstractJdbc2Connection implements BaseConnection
         addDataType("polygon", org.postgresql.geometric.PGpolygon.class);
         addDataType("money", org.postgresql.util.PGmoney.class);
         addDataType("interval", org.postgresql.util.PGInterval.class);
+        addDataType("inet", org.postgresql.util.PGinet.class);
+        addDataType("cidr", org.postgresql.util.PGinet.class);
 
         for (Enumeration e = info.propertyNames(); e.hasMoreElements(); )
         {
@@ -714,17 +797,18 @@ public abstract class AbstractJdbc2Connection implements BaseConnection
     public void setReadOnly(boolean readOnly) throws SQLException
     {
         checkClosed();
-        if (protoConnection.getTransactionState() != ProtocolConnection.TRANSACTION_IDLE)
+        if (getSettledTransactionState() != ProtocolConnection.TRANSACTION_IDLE)
             throw new PSQLException(GT.tr("Cannot change transaction read-only property in the middle of a transaction."),
                                     PSQLState.ACTIVE_SQL_TRANSACTION);
 
-        if (haveMinimumServerVersion("7.4") && readOnly != this.readOnly)
+        if (haveMinimumServerVersion("7.4") && readOnly != isReadOnly())
         {
             String readOnlySql = "SET SESSION CHARACTERISTICS AS TRANSACTION " + (readOnly ? "READ ONLY" : "READ WRITE");
-            execSQLUpdate(readOnlySql); // nb: no BEGIN triggered.
+            execSessionCommand(readOnlySql);
         }
 
         this.readOnly = readOnly;
+        readOnlyChangeCount = protoConnection.getSessionChangeCount();
     }
 
     /*
@@ -736,6 +820,11 @@ public abstract class AbstractJdbc2Connection implements BaseConnection
     public boolean isReadOnly() throws SQLException
     {
         checkClosed();
+        // 14+ reports the setting, which catches changes made in SQL, but
+        // not before a queued change has been sent.
+        String reported = protoConnection.getParameterStatus("default_transaction_read_only");
+        if (reported != null && protoConnection.getSessionChangeCount() != readOnlyChangeCount)
+            return reported.equals("on");
         return readOnly;
     }
 
@@ -811,7 +900,7 @@ public abstract class AbstractJdbc2Connection implements BaseConnection
             throw new PSQLException(GT.tr("Cannot commit when autoCommit is enabled."),
                                     PSQLState.NO_ACTIVE_SQL_TRANSACTION);
 
-        if (protoConnection.getTransactionState() != ProtocolConnection.TRANSACTION_IDLE)
+        if (getSettledTransactionState() != ProtocolConnection.TRANSACTION_IDLE)
             executeTransactionCommand(commitQuery);
     }
 
@@ -840,7 +929,7 @@ public abstract class AbstractJdbc2Connection implements BaseConnection
             throw new PSQLException(GT.tr("Cannot rollback when autoCommit is enabled."),
                                     PSQLState.NO_ACTIVE_SQL_TRANSACTION);
 
-        if (protoConnection.getTransactionState() != ProtocolConnection.TRANSACTION_IDLE)
+        if (getSettledTransactionState() != ProtocolConnection.TRANSACTION_IDLE)
             executeTransactionCommand(rollbackQuery);
     }
 
@@ -848,6 +937,15 @@ public abstract class AbstractJdbc2Connection implements BaseConnection
         return protoConnection.getTransactionState();
     }
 
+    /*
+     * The transaction state once the pending asynchronous queries have
+     * completed; the BEGIN sent with one of them is only seen then.
+     */
+    private int getSettledTransactionState() throws SQLException {
+        getQueryExecutor().waitForAsyncQueries();
+        return protoConnection.getTransactionState();
+    }
+
     /*
      * Get this Connection's current transaction isolation mode.
      *
@@ -858,6 +956,19 @@ public abstract class AbstractJdbc2Connection implements BaseConnection
     {
         checkClosed();
 
+        // The server does not report the level, but it only changes by
+        // commands the session change count notices.
+        int changeCount = protoConnection.getSessionChangeCount();
+        if (transactionIsolation == -1 || changeCount != transactionIsolationChangeCount)
+        {
+            transactionIsolation = queryTransactionIsolation();
+            transactionIsolationChangeCount = changeCount;
+        }
+        return transactionIsolation;
+    }
+
+    private int queryTransactionIsolation() throws SQLException
+    {
         String level = null;
 
         if (haveMinimumServerVersion("7.3"))
@@ -923,7 +1034,7 @@ public abstract class AbstractJdbc2Connection implements BaseConnection
     {
         checkClosed();
 
-        if (protoConnection.getTransactionState() != ProtocolConnection.TRANSACTION_IDLE)
+        if (getSettledTransactionState() != ProtocolConnection.TRANSACTION_IDLE)
             throw new PSQLException(GT.tr("Cannot change transaction isolation level in the middle of a transaction."),
                                     PSQLState.ACTIVE_SQL_TRANSACTION);
 
@@ -931,8 +1042,13 @@ public abstract class AbstractJdbc2Connection implements BaseConnection
         if (isolationLevelName == null)
             throw new PSQLException(GT.tr("Transaction isolation level {0} not supported.", new Integer(level)), PSQLState.NOT_IMPLEMENTED);
 
+        if (level == transactionIsolation && protoConnection.getSessionChangeCount() == transactionIsolationChangeCount)
+            return;
+
         String isolationLevelSQL = "SET SESSION CHARACTERISTICS AS TRANSACTION ISOLATION LEVEL " + isolationLevelName;
-        execSQLUpdate(isolationLevelSQL); // nb: no BEGIN triggered
+        execSessionCommand(isolationLevelSQL);
+        transactionIsolation = level;
+        transactionIsolationChangeCount = protoConnection.getSessionChangeCount();
     }
 
     protected String getIsolationLevelName(int level)
@@ -1255,11 +1371,53 @@ public abstract class AbstractJdbc2Connection implements BaseConnection
     public boolean binaryTransferSend(int oid) {
         return useBinarySendForOids.contains(oid);
     }
+
+    public synchronized void enableBinaryTransfer(int oid) {
+        if (!binaryTransferAllowed || binaryTransferDisabledOids.contains(oid) || useBinaryReceiveForOids.contains(oid))
+            return;
+
+        // the sets are replaced, so that they can be read while they change
+        Set<Integer> send = new HashSet<Integer>(useBinarySendForOids);
+        send.add(oid);
+        Set<Integer> receive = new HashSet<Integer>(useBinaryReceiveForOids);
+        receive.add(oid);
+        useBinarySendForOids = send;
+        useBinaryReceiveForOids = receive;
+        protoConnection.setBinaryReceiveOids(receive);
+
+        if (logger.logDebug())
+            logger.debug("    enabled binary transfer for oid " + oid);
+    }
     
     public int getBackendPID()
     {
     	return protoConnection.getBackendPID();
     }
+
+    public PGAsyncResult executeAsync(String sql, Object[] params) throws SQLException
+    {
+        checkClosed();
+        final AbstractJdbc2Statement stmt = (AbstractJdbc2Statement)prepareStatement(sql);
+        if (params != null)
+        {
+            for (int i = 0; i < params.length; i++)
+                stmt.setObject(i + 1, params[i]);
+        }
+        PGAsyncResult result = stmt.executeAsync();
+        // Nobody else sees the statement, so release it with the query.
+        result.addListener(new Runnable() {
+            public void run() {
+                stmt.closeAfterAsync();
+            }
+        });
+        return result;
+    }
+
+    public int processAsyncResults() throws SQLException
+    {
+        checkClosed();
+        return getQueryExecutor().processAsyncResults(null);
+    }
     
     public boolean isColumnSanitiserDisabled() {
     	return this.disableColumnSanitiser;
@@ -1270,6 +1428,18 @@ public abstract class AbstractJdbc2Connection implements BaseConnection
         this.disableColumnSanitiser = disableColumnSanitiser;
     }
 
+    /**
+     * Returns a number that changes whenever a command may have changed a
+     * session setting the server does not report, so that such settings can
+     * be cached.
+     *
+     * @see ProtocolConnection#getSessionChangeCount()
+     */
+    protected int getSessionChangeCount()
+    {
+        return protoConnection.getSessionChangeCount();
+    }
+
     public void setSchema(String schema) throws SQLException
     {
         checkClosed();
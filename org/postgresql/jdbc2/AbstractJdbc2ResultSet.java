@@ -17,6 +17,7 @@ import java.math.BigDecimal;
 import java.math.BigInteger;
 import java.sql.*;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
@@ -30,6 +31,7 @@ import org.postgresql.core.*;
 import org.postgresql.largeobject.*;
 import org.postgresql.util.ByteConverter;
 import org.postgresql.util.HStoreConverter;
+import org.postgresql.util.PGInterval;
 import org.postgresql.util.PGobject;
 import org.postgresql.util.PGbytea;
 import org.postgresql.util.PGtokenizer;
@@ -227,7 +229,10 @@ public abstract class AbstractJdbc2ResultSet implements BaseResultSet, org.postg
                 if (isBinary(columnIndex)) {
                     return HStoreConverter.fromBytes(this_row[columnIndex - 1], connection.getEncoding());
                 }
-                return HStoreConverter.fromString(getString(columnIndex));
+                // the oid is known now, receive hstore in binary from now on
+                connection.enableBinaryTransfer(fields[columnIndex - 1].getOID());
+                // read-only like the maps of the binary format
+                return Collections.unmodifiableMap(HStoreConverter.fromString(getString(columnIndex)));
             }
 
             // Caller determines what to do (JDBC3 overrides in this case)
@@ -1807,11 +1812,7 @@ public abstract class AbstractJdbc2ResultSet implements BaseResultSet, org.postg
                     if (isBinary(columnIndex + 1)) {
                         rowBuffer[columnIndex] = (byte[]) valueObject;
                     } else {
-                        try {
-                            rowBuffer[columnIndex] = PGbytea.toPGString((byte[]) valueObject).getBytes("ISO-8859-1");
-                        } catch (UnsupportedEncodingException e) {
-                            throw new PSQLException(GT.tr("The JVM claims not to support the encoding: {0}", "ISO-8859-1"), PSQLState.UNEXPECTED_ERROR, e);
-                        }
+                        rowBuffer[columnIndex] = PGbytea.toPGBytes((byte[]) valueObject);
                     }
                     break;
  
@@ -1966,9 +1967,19 @@ public abstract class AbstractJdbc2ResultSet implements BaseResultSet, org.postg
 
         // varchar in binary is same as text, other binary fields are converted to their text format
         if (isBinary(columnIndex) && getSQLType(columnIndex) != Types.VARCHAR) {
+            int oid = fields[columnIndex - 1].getOID();
+            if (ServerTextFormat.isGeometric(oid)) {
+                return trimString(columnIndex, ServerTextFormat.geometricToString(connection, oid, this_row[columnIndex - 1], 0));
+            }
             Object obj = internalGetObject(columnIndex, fields[columnIndex - 1]);
             if (obj == null) {
-                return null;
+                // the class of a type in binary formats the value
+                obj = connection.getObject(getPGType(columnIndex), null, this_row[columnIndex - 1]);
+                if (obj instanceof PGInterval) {
+                    return connection.getTimestampUtils().intervalToString((PGInterval) obj, connection.getIntervalStyle());
+                }
+                String value = ((PGobject) obj).getValue();
+                return value == null ? null : trimString(columnIndex, value);
             }
             // hack to be compatible with text protocol
             if (obj instanceof java.util.Date) {
@@ -20,12 +20,15 @@ import java.util.Map;
 import java.util.TimerTask;
 import java.util.TimeZone;
 import java.util.Calendar;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 import org.postgresql.Driver;
+import org.postgresql.PGAsyncResult;
 import org.postgresql.largeobject.*;
 import org.postgresql.core.*;
 import org.postgresql.core.types.*;
-import org.postgresql.util.ByteConverter;
 import org.postgresql.util.HStoreConverter;
 import org.postgresql.util.PGBinaryObject;
 import org.postgresql.util.PSQLException;
@@ -513,9 +516,10 @@ public abstract class AbstractJdbc2Statement implements BaseStatement
         }
     }
 
-    protected void execute(Query queryToExecute, ParameterList queryParameters, int flags) throws SQLException {
-        closeForNextExecution();
-
+    /**
+     * Adds the flags implied by the statement settings and connection state.
+     */
+    private int executionFlags(Query queryToExecute, int flags) throws SQLException {
         // Enable cursor-based resultset if possible.
         if (fetchSize > 0 && !wantsScrollableResultSet() && !connection.getAutoCommit() && !wantsHoldableResultSet())
             flags |= QueryExecutor.QUERY_FORWARD_CURSOR;
@@ -552,6 +556,14 @@ public abstract class AbstractJdbc2Statement implements BaseStatement
             flags |= QueryExecutor.QUERY_SUPPRESS_BEGIN;
         }
 
+        return flags;
+    }
+
+    protected void execute(Query queryToExecute, ParameterList queryParameters, int flags) throws SQLException {
+        closeForNextExecution();
+
+        flags = executionFlags(queryToExecute, flags);
+
         if (!queryToExecute.isStatementDescribed() && forceBinaryTransfers) {
                 int flags2 = flags | QueryExecutor.QUERY_DESCRIBE_ONLY;
                 StatementResultHandler handler2 = new StatementResultHandler();
@@ -591,6 +603,158 @@ public abstract class AbstractJdbc2Statement implements BaseStatement
 
     }
 
+    /**
+     * Sends the prepared query without waiting for its results.
+     *
+     * @see org.postgresql.PGConnection#executeAsync(String, Object[])
+     */
+    PGAsyncResult executeAsync() throws SQLException
+    {
+        checkClosed();
+        closeForNextExecution();
+
+        AsyncResultHandler handler = new AsyncResultHandler();
+        connection.getQueryExecutor().executeAsync(preparedQuery,
+                                                   preparedParameters,
+                                                   handler,
+                                                   maxrows,
+                                                   executionFlags(preparedQuery, 0));
+        return handler;
+    }
+
+    /**
+     * Closes this statement once the query sent by {@link #executeAsync} has
+     * completed, leaving its results open.
+     */
+    void closeAfterAsync()
+    {
+        if (isClosed)
+            return ;
+
+        if (preparedQuery != null)
+            preparedQuery.close();
+
+        isClosed = true;
+    }
+
+    /**
+     * Collects the results of an asynchronous query and makes them the
+     * results of this statement once the query has completed.
+     */
+    private class AsyncResultHandler extends StatementResultHandler implements PGAsyncResult {
+        private boolean done;
+        private SQLException error;
+        private List<Runnable> listeners = new ArrayList<Runnable>();
+
+        public void handleCompletion() {
+            try
+            {
+                super.handleCompletion();
+            }
+            catch (SQLException e)
+            {
+                error = e;
+            }
+
+            List<Runnable> completionListeners;
+            synchronized (this)
+            {
+                result = firstUnclosedResult = getResults();
+                done = true;
+                completionListeners = listeners;
+                listeners = null;
+                notifyAll();
+            }
+            for (Runnable listener : completionListeners)
+                listener.run();
+        }
+
+        public void addListener(Runnable listener) {
+            synchronized (this)
+            {
+                if (!done)
+                {
+                    listeners.add(listener);
+                    return;
+                }
+            }
+            listener.run();
+        }
+
+        public synchronized boolean isDone() {
+            return done;
+        }
+
+        public boolean isCancelled() {
+            return false;
+        }
+
+        public boolean cancel(boolean mayInterruptIfRunning) {
+            return false;
+        }
+
+        public ResultSet getResultSet() throws SQLException {
+            waitForCompletion();
+            ResultWrapper results = getResults();
+            return results == null ? null : results.getResultSet();
+        }
+
+        public int getUpdateCount() throws SQLException {
+            waitForCompletion();
+            ResultWrapper results = getResults();
+            if (results == null || results.getResultSet() != null)
+                return -1;
+            return results.getUpdateCount();
+        }
+
+        public ResultSet get() throws ExecutionException {
+            try
+            {
+                return getResultSet();
+            }
+            catch (SQLException e)
+            {
+                throw new ExecutionException(e);
+            }
+        }
+
+        public ResultSet get(long timeout, TimeUnit unit) throws InterruptedException, ExecutionException, TimeoutException {
+            long deadline = System.currentTimeMillis() + unit.toMillis(timeout);
+            try
+            {
+                // Another thread might be reading the results, or they have
+                // not arrived yet, so poll until the deadline. Polling only
+                // reads results that have arrived in full, so it does not
+                // block on the server.
+                while (!isDone())
+                {
+                    connection.getQueryExecutor().processAsyncResults(null);
+                    synchronized (this)
+                    {
+                        long remaining = deadline - System.currentTimeMillis();
+                        if (done)
+                            break;
+                        if (remaining <= 0)
+                            throw new TimeoutException();
+                        wait(Math.min(remaining, 10));
+                    }
+                }
+                return getResultSet();
+            }
+            catch (SQLException e)
+            {
+                throw new ExecutionException(e);
+            }
+        }
+
+        private void waitForCompletion() throws SQLException {
+            if (!isDone())
+                connection.getQueryExecutor().processAsyncResults(this);
+            if (error != null)
+                throw error;
+        }
+    }
+
     /*
      * setCursorName defines the SQL cursor name that will be used by
      * subsequent execute methods. This name can then be used in SQL
@@ -1262,13 +1426,7 @@ public abstract class AbstractJdbc2Statement implements BaseStatement
     public void setShort(int parameterIndex, short x) throws SQLException
     {
         checkClosed();
-        if (connection.binaryTransferSend(Oid.INT2)) {
-            byte[] val = new byte[2];
-            ByteConverter.int2(val, 0, x);
-            bindBytes(parameterIndex, val, Oid.INT2);
-            return;
-        }
-        bindLiteral(parameterIndex, Integer.toString(x), Oid.INT2);
+        bindLong(parameterIndex, x, Oid.INT2);
     }
 
     /*
@@ -1281,14 +1439,8 @@ public abstract class AbstractJdbc2Statement implements BaseStatement
      */
     public void setInt(int parameterIndex, int x) throws SQLException
     {
-        checkClosed();         
-        if (connection.binaryTransferSend(Oid.INT4)) {
-            byte[] val = new byte[4];
-            ByteConverter.int4(val, 0, x);
-            bindBytes(parameterIndex, val, Oid.INT4);
-            return;
-        }
-        bindLiteral(parameterIndex, Integer.toString(x), Oid.INT4);
+        checkClosed();
+        bindLong(parameterIndex, x, Oid.INT4);
     }
 
     /*
@@ -1302,13 +1454,7 @@ public abstract class AbstractJdbc2Statement implements BaseStatement
     public void setLong(int parameterIndex, long x) throws SQLException
     {
         checkClosed();
-        if (connection.binaryTransferSend(Oid.INT8)) {
-            byte[] val = new byte[8];
-            ByteConverter.int8(val, 0, x);
-            bindBytes(parameterIndex, val, Oid.INT8);
-            return;
-        }
-        bindLiteral(parameterIndex, Long.toString(x), Oid.INT8);
+        bindLong(parameterIndex, x, Oid.INT8);
     }
 
     /*
@@ -1322,13 +1468,11 @@ public abstract class AbstractJdbc2Statement implements BaseStatement
     public void setFloat(int parameterIndex, float x) throws SQLException
     {
         checkClosed();
-        if (connection.binaryTransferSend(Oid.FLOAT4)) {
-            byte[] val = new byte[4];
-            ByteConverter.float4(val, 0, x);
-            bindBytes(parameterIndex, val, Oid.FLOAT4);
-            return;
-        }
-        bindLiteral(parameterIndex, Float.toString(x), Oid.FLOAT8);
+        // in text format the value is typed float8
+        boolean binary = connection.binaryTransferSend(Oid.FLOAT4);
+        if (adjustIndex)
+            parameterIndex--;
+        preparedParameters.setFloatParameter(parameterIndex, x, binary ? Oid.FLOAT4 : Oid.FLOAT8, binary);
     }
 
     /*
@@ -1342,13 +1486,9 @@ public abstract class AbstractJdbc2Statement implements BaseStatement
     public void setDouble(int parameterIndex, double x) throws SQLException
     {
         checkClosed();
-        if (connection.binaryTransferSend(Oid.FLOAT8)) {
-            byte[] val = new byte[8];
-            ByteConverter.float8(val, 0, x);
-            bindBytes(parameterIndex, val, Oid.FLOAT8);
-            return;
-        }
-        bindLiteral(parameterIndex, Double.toString(x), Oid.FLOAT8);
+        if (adjustIndex)
+            parameterIndex--;
+        preparedParameters.setDoubleParameter(parameterIndex, x, Oid.FLOAT8, connection.binaryTransferSend(Oid.FLOAT8));
     }
 
     /*
@@ -1716,9 +1856,11 @@ public abstract class AbstractJdbc2Statement implements BaseStatement
         int oid = connection.getTypeInfo().getPGType("hstore");
         if (oid == Oid.UNSPECIFIED)
             throw new PSQLException(GT.tr("No hstore extension installed."), PSQLState.INVALID_PARAMETER_TYPE);
+        connection.enableBinaryTransfer(oid);
         if (connection.binaryTransferSend(oid)) {
-            byte[] data = HStoreConverter.toBytes(x, connection.getEncoding());
-            bindBytes(parameterIndex, data, oid);
+            if (adjustIndex)
+                parameterIndex--;
+            preparedParameters.setHStoreParameter(parameterIndex, x, oid);
         } else {
             setString(parameterIndex, HStoreConverter.toString(x), oid);
         }
@@ -2312,6 +2454,17 @@ public abstract class AbstractJdbc2Statement implements BaseStatement
         preparedParameters.setBinaryParameter(paramIndex, b, oid);
     }
 
+    /*
+     * Binds an integer without a string or array for it, in binary format
+     * if binary transfer is enabled for the type.
+     */
+    private void bindLong(int paramIndex, long x, int oid) throws SQLException
+    {
+        if (adjustIndex)
+            paramIndex--;
+        preparedParameters.setLongParameter(paramIndex, x, oid, connection.binaryTransferSend(oid));
+    }
+
     /*
      * This version is for values that should turn into strings
      * e.g. setString directly calls bindString with no escaping;
@@ -0,0 +1,228 @@
+/*-------------------------------------------------------------------------
+*
+* Copyright (c) 2015, PostgreSQL Global Development Group
+*
+*
+*-------------------------------------------------------------------------
+*/
+package org.postgresql.jdbc2;
+
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.math.RoundingMode;
+
+import org.postgresql.core.BaseConnection;
+import org.postgresql.core.Oid;
+import org.postgresql.util.ByteConverter;
+
+/**
+ * Formats values received in the binary format as the server formats them
+ * in the text format, for getString of binary columns and array elements.
+ *
+ * <p>Floating point numbers are formatted for the extra_float_digits the
+ * driver sets when connecting: with 18 significant digits for float8 and 9
+ * for float4 before 12.0, or with the fewest digits that read back as the
+ * same value from 12.0 on. Dates and times are formatted by
+ * {@link TimestampUtils#toStringBin}.
+ */
+final class ServerTextFormat {
+
+    private ServerTextFormat() {
+    }
+
+    /**
+     * Appends a float8 value.
+     */
+    static void appendFloat8(StringBuilder sb, BaseConnection connection, double value) {
+        appendFloat(sb, connection, value, false);
+    }
+
+    /**
+     * Formats a float8 value.
+     */
+    static String float8ToString(BaseConnection connection, double value) {
+        StringBuilder sb = new StringBuilder(24);
+        appendFloat(sb, connection, value, false);
+        return sb.toString();
+    }
+
+    /**
+     * Formats a float4 value.
+     */
+    static String float4ToString(BaseConnection connection, float value) {
+        StringBuilder sb = new StringBuilder(16);
+        appendFloat(sb, connection, value, true);
+        return sb.toString();
+    }
+
+    private static void appendFloat(StringBuilder sb, BaseConnection connection, double value, boolean float4) {
+        if (Double.isNaN(value) || Double.isInfinite(value) || value == 0) {
+            appendSpecial(sb, value);
+            return;
+        }
+        BigDecimal exact = new BigDecimal(value);
+        if (connection.haveMinimumServerVersion(120000)) {
+            // the fewest digits that read back as the value
+            int low = 1;
+            int high = float4 ? 9 : 17;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                BigDecimal rounded = exact.round(new MathContext(mid, RoundingMode.HALF_EVEN));
+                if (float4 ? rounded.floatValue() == (float) value : rounded.doubleValue() == value) {
+                    high = mid;
+                } else {
+                    low = mid + 1;
+                }
+            }
+            appendDigits(sb, exact.round(new MathContext(low, RoundingMode.HALF_EVEN)), float4 ? 6 : 15);
+        } else {
+            // printf's %.*g with FLT_DIG or DBL_DIG + extra_float_digits digits
+            int digits = (float4 ? 6 : 15) + (connection.haveMinimumServerVersion(90000) ? 3 : 2);
+            appendDigits(sb, exact.round(new MathContext(digits, RoundingMode.HALF_EVEN)), digits);
+        }
+    }
+
+    private static void appendSpecial(StringBuilder sb, double value) {
+        if (Double.isNaN(value)) {
+            sb.append("NaN");
+        } else if (value == Double.POSITIVE_INFINITY) {
+            sb.append("Infinity");
+        } else if (value == Double.NEGATIVE_INFINITY) {
+            sb.append("-Infinity");
+        } else {
+            sb.append(1 / value < 0 ? "-0" : "0");
+        }
+    }
+
+    /*
+     * Appends a non-zero rounded value as printf's %g does: in fixed notation
+     * if its decimal exponent is at least -4 and below fixedLimit, otherwise
+     * in scientific notation with a two digit exponent at least, and without
+     * trailing zeros either way.
+     */
+    private static void appendDigits(StringBuilder sb, BigDecimal rounded, int fixedLimit) {
+        if (rounded.signum() < 0) {
+            sb.append('-');
+        }
+        String digits = rounded.unscaledValue().abs().toString();
+        int exponent = digits.length() - rounded.scale() - 1;
+        int length = digits.length();
+        while (length > 1 && digits.charAt(length - 1) == '0') {
+            length--;
+        }
+
+        if (exponent < -4 || exponent >= fixedLimit) {
+            sb.append(digits.charAt(0));
+            if (length > 1) {
+                sb.append('.').append(digits, 1, length);
+            }
+            sb.append('e').append(exponent < 0 ? '-' : '+');
+            int abs = Math.abs(exponent);
+            if (abs < 10) {
+                sb.append('0');
+            }
+            sb.append(abs);
+        } else if (exponent < 0) {
+            sb.append("0.");
+            for (int i = -1; i > exponent; --i) {
+                sb.append('0');
+            }
+            sb.append(digits, 0, length);
+        } else if (length <= exponent + 1) {
+            sb.append(digits, 0, length);
+            for (int i = length; i <= exponent; ++i) {
+                sb.append('0');
+            }
+        } else {
+            sb.append(digits, 0, exponent + 1).append('.').append(digits, exponent + 1, length);
+        }
+    }
+
+    /**
+     * Returns whether {@link #geometricToString} formats a type.
+     */
+    static boolean isGeometric(int oid) {
+        switch (oid) {
+            case Oid.POINT:
+            case Oid.LSEG:
+            case Oid.BOX:
+            case Oid.PATH:
+            case Oid.POLYGON:
+            case Oid.LINE:
+            case Oid.CIRCLE:
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * Formats a value of a geometric type, e.g. "[(1,2),(3,4)]" for a lseg.
+     *
+     * @param connection the connection the value was received on
+     * @param oid the type of the value, for which {@link #isGeometric} is true
+     * @param bytes the bytes the binary value is in
+     * @param pos where the value starts
+     * @return the value as the server formats it
+     */
+    static String geometricToString(BaseConnection connection, int oid, byte[] bytes, int pos) {
+        StringBuilder sb = new StringBuilder(32);
+        switch (oid) {
+            case Oid.POINT:
+                appendPoints(sb, connection, bytes, pos, 1);
+                break;
+            case Oid.LSEG:
+                sb.append('[');
+                appendPoints(sb, connection, bytes, pos, 2);
+                sb.append(']');
+                break;
+            case Oid.BOX:
+                appendPoints(sb, connection, bytes, pos, 2);
+                break;
+            case Oid.PATH:
+                boolean closed = bytes[pos] != 0;
+                sb.append(closed ? '(' : '[');
+                appendPoints(sb, connection, bytes, pos + 5, ByteConverter.int4(bytes, pos + 1));
+                sb.append(closed ? ')' : ']');
+                break;
+            case Oid.POLYGON:
+                sb.append('(');
+                appendPoints(sb, connection, bytes, pos + 4, ByteConverter.int4(bytes, pos));
+                sb.append(')');
+                break;
+            case Oid.LINE:
+                sb.append('{');
+                appendFloat8(sb, connection, ByteConverter.float8(bytes, pos));
+                sb.append(',');
+                appendFloat8(sb, connection, ByteConverter.float8(bytes, pos + 8));
+                sb.append(',');
+                appendFloat8(sb, connection, ByteConverter.float8(bytes, pos + 16));
+                sb.append('}');
+                break;
+            case Oid.CIRCLE:
+                sb.append('<');
+                appendPoints(sb, connection, bytes, pos, 1);
+                sb.append(',');
+                appendFloat8(sb, connection, ByteConverter.float8(bytes, pos + 16));
+                sb.append('>');
+                break;
+            default:
+                throw new IllegalArgumentException("not a geometric type: " + oid);
+        }
+        return sb.toString();
+    }
+
+    private static void appendPoints(StringBuilder sb, BaseConnection connection, byte[] bytes, int pos, int count) {
+        for (int i = 0; i < count; ++i) {
+            if (i > 0) {
+                sb.append(',');
+            }
+            sb.append('(');
+            appendFloat8(sb, connection, ByteConverter.float8(bytes, pos));
+            sb.append(',');
+            appendFloat8(sb, connection, ByteConverter.float8(bytes, pos + 8));
+            sb.append(')');
+            pos += 16;
+        }
+    }
+}
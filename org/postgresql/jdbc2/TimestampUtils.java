@@ -18,6 +18,7 @@ import org.postgresql.PGStatement;
 import org.postgresql.core.Oid;
 import org.postgresql.util.ByteConverter;
 import org.postgresql.util.GT;
+import org.postgresql.util.PGInterval;
 import org.postgresql.util.PSQLState;
 import org.postgresql.util.PSQLException;
 
@@ -689,11 +690,26 @@ public class TimestampUtils {
      * @throws PSQLException If binary format could not be parsed.
      */
     public Date toDateBin(TimeZone tz, byte[] bytes) throws PSQLException {
-        if (bytes.length != 4) {
+        return toDateBin(tz, bytes, 0, bytes.length);
+    }
+
+    /**
+     * Returns the SQL Date object matching a value with {@link Oid#DATE}
+     * stored within a larger byte array, such as an element of an array.
+     *
+     * @param tz The timezone used.
+     * @param bytes The bytes the binary encoded date value is in.
+     * @param pos Where the value starts.
+     * @param length The length of the value.
+     * @return The parsed date object.
+     * @throws PSQLException If binary format could not be parsed.
+     */
+    public Date toDateBin(TimeZone tz, byte[] bytes, int pos, int length) throws PSQLException {
+        if (length != 4) {
             throw new PSQLException(GT.tr("Unsupported binary encoding of {0}.",
                     "date"), PSQLState.BAD_DATETIME_FORMAT);
         }
-        int days = ByteConverter.int4(bytes, 0);
+        int days = ByteConverter.int4(bytes, pos);
         if (tz == null) {
             tz = defaultTz;
         }
@@ -721,7 +737,23 @@ public class TimestampUtils {
      * @throws PSQLException If binary format could not be parsed.
      */
     public Time toTimeBin(TimeZone tz, byte[] bytes) throws PSQLException {
-        if ((bytes.length != 8 && bytes.length != 12)) {
+        return toTimeBin(tz, bytes, 0, bytes.length);
+    }
+
+    /**
+     * Returns the SQL Time object matching a value with {@link Oid#TIME} or
+     * {@link Oid#TIMETZ} stored within a larger byte array.
+     *
+     * @param tz The timezone used when received data is {@link Oid#TIME},
+     * ignored if data already contains {@link Oid#TIMETZ}.
+     * @param bytes The bytes the binary encoded time value is in.
+     * @param pos Where the value starts.
+     * @param length The length of the value.
+     * @return The parsed time object.
+     * @throws PSQLException If binary format could not be parsed.
+     */
+    public Time toTimeBin(TimeZone tz, byte[] bytes, int pos, int length) throws PSQLException {
+        if ((length != 8 && length != 12)) {
             throw new PSQLException(GT.tr("Unsupported binary encoding of {0}.",
                     "time"), PSQLState.BAD_DATETIME_FORMAT);
         }
@@ -730,17 +762,17 @@ public class TimestampUtils {
         int timeOffset;
         
         if (usesDouble) {
-            double time = ByteConverter.float8(bytes, 0);
+            double time = ByteConverter.float8(bytes, pos);
             
             millis = (long) (time * 1000);
         } else {
-            long time = ByteConverter.int8(bytes, 0);
+            long time = ByteConverter.int8(bytes, pos);
 
             millis = time / 1000;
         }
         
-        if (bytes.length == 12) {
-            timeOffset = ByteConverter.int4(bytes, 8);
+        if (length == 12) {
+            timeOffset = ByteConverter.int4(bytes, pos + 8);
             timeOffset *= -1000;
         } else {
             if (tz == null) {
@@ -767,8 +799,27 @@ public class TimestampUtils {
      */
     public Timestamp toTimestampBin(TimeZone tz, byte[] bytes, boolean timestamptz)
         throws PSQLException {
+        return toTimestampBin(tz, bytes, 0, bytes.length, timestamptz);
+    }
+
+    /**
+     * Returns the SQL Timestamp object matching a value with
+     * {@link Oid#TIMESTAMP} or {@link Oid#TIMESTAMPTZ} stored within a
+     * larger byte array.
+     *
+     * @param tz The timezone used when received data is {@link Oid#TIMESTAMP},
+     * ignored if data already contains {@link Oid#TIMESTAMPTZ}.
+     * @param bytes The bytes the binary encoded timestamp value is in.
+     * @param pos Where the value starts.
+     * @param length The length of the value.
+     * @param timestamptz True if the binary is in GMT.
+     * @return The parsed timestamp object.
+     * @throws PSQLException If binary format could not be parsed.
+     */
+    public Timestamp toTimestampBin(TimeZone tz, byte[] bytes, int pos, int length, boolean timestamptz)
+        throws PSQLException {
         
-        if (bytes.length != 8) {
+        if (length != 8) {
             throw new PSQLException(GT.tr("Unsupported binary encoding of {0}.",
                     "timestamp"), PSQLState.BAD_DATETIME_FORMAT);
         }
@@ -777,7 +828,7 @@ public class TimestampUtils {
         int nanos;
         
         if (usesDouble) {
-            double time = ByteConverter.float8(bytes, 0);
+            double time = ByteConverter.float8(bytes, pos);
             if (time == Double.POSITIVE_INFINITY) {
                 return new Timestamp(PGStatement.DATE_POSITIVE_INFINITY);
             } else if (time == Double.NEGATIVE_INFINITY) {
@@ -787,7 +838,7 @@ public class TimestampUtils {
             secs = (long) time;
             nanos = (int) ((time - secs) * 1000000);
         } else {
-            long time = ByteConverter.int8(bytes, 0);
+            long time = ByteConverter.int8(bytes, pos);
             
             // compatibility with text based receiving, not strictly necessary
             // and can actually be confusing because there are timestamps
@@ -888,6 +939,376 @@ public class TimestampUtils {
         return time.toString();
     }
 
+    /**
+     * Returns a binary date, time, timetz, timestamp or timestamptz value as
+     * the server formats it in text with the ISO DateStyle, e.g.
+     * "2015-01-02 03:04:05.5+01" for a timestamptz. Years before 1 are
+     * shown with " BC", in the proleptic Gregorian calendar the server uses.
+     * The offset of a timestamptz comes from the JVM's time zone data, which
+     * has no local mean time for instants before a zone's first transition,
+     * so such values may be shown with a different offset than the server's.
+     *
+     * @param oid the type of the value
+     * @param bytes the bytes the binary value is in
+     * @param pos where the value starts
+     * @param length the length of the value
+     * @param timeZone the server's TimeZone setting, which timestamptz values
+     *  are shown in; null for the default time zone of the JVM
+     * @return the value as the server formats it
+     * @throws PSQLException if the binary format could not be parsed
+     */
+    public synchronized String toStringBin(int oid, byte[] bytes, int pos, int length, String timeZone) throws PSQLException {
+        StringBuilder sb = new StringBuilder(32);
+        switch (oid) {
+            case Oid.DATE: {
+                if (length != 4) {
+                    throw new PSQLException(GT.tr("Unsupported binary encoding of {0}.",
+                            "date"), PSQLState.BAD_DATETIME_FORMAT);
+                }
+                int days = ByteConverter.int4(bytes, pos);
+                if (days == Integer.MAX_VALUE) {
+                    return "infinity";
+                } else if (days == Integer.MIN_VALUE) {
+                    return "-infinity";
+                }
+                if (appendPgDate(sb, days + POSTGRES_EPOCH_JDATE) <= 0) {
+                    sb.append(" BC");
+                }
+                return sb.toString();
+            }
+
+            case Oid.TIME:
+            case Oid.TIMETZ: {
+                if (length != (oid == Oid.TIME ? 8 : 12)) {
+                    throw new PSQLException(GT.tr("Unsupported binary encoding of {0}.",
+                            "time"), PSQLState.BAD_DATETIME_FORMAT);
+                }
+                appendPgTime(sb, usesDouble ? Math.round(ByteConverter.float8(bytes, pos) * 1000000) : ByteConverter.int8(bytes, pos));
+                if (oid == Oid.TIMETZ) {
+                    // the zone is in seconds west of UTC
+                    appendPgOffset(sb, -ByteConverter.int4(bytes, pos + 8));
+                }
+                return sb.toString();
+            }
+
+            case Oid.TIMESTAMP:
+            case Oid.TIMESTAMPTZ: {
+                if (length != 8) {
+                    throw new PSQLException(GT.tr("Unsupported binary encoding of {0}.",
+                            "timestamp"), PSQLState.BAD_DATETIME_FORMAT);
+                }
+                long micros;
+                if (usesDouble) {
+                    double time = ByteConverter.float8(bytes, pos);
+                    if (time == Double.POSITIVE_INFINITY) {
+                        return "infinity";
+                    } else if (time == Double.NEGATIVE_INFINITY) {
+                        return "-infinity";
+                    }
+                    micros = Math.round(time * 1000000);
+                } else {
+                    micros = ByteConverter.int8(bytes, pos);
+                    if (micros == Long.MAX_VALUE) {
+                        return "infinity";
+                    } else if (micros == Long.MIN_VALUE) {
+                        return "-infinity";
+                    }
+                }
+
+                int offset = 0;
+                if (oid == Oid.TIMESTAMPTZ) {
+                    long millis = floorDiv(micros, 1000) + 946684800000L;
+                    offset = toJavaTimeZone(timeZone).getOffset(millis) / 1000;
+                    micros += offset * 1000000L;
+                }
+                long days = floorDiv(micros, USECS_PER_DAY);
+                int year = appendPgDate(sb, days + POSTGRES_EPOCH_JDATE);
+                sb.append(' ');
+                appendPgTime(sb, micros - days * USECS_PER_DAY);
+                if (oid == Oid.TIMESTAMPTZ) {
+                    appendPgOffset(sb, offset);
+                }
+                if (year <= 0) {
+                    sb.append(" BC");
+                }
+                return sb.toString();
+            }
+
+            default:
+                throw new IllegalArgumentException("not a date or time type: " + oid);
+        }
+    }
+
+    /*
+     * The Julian day of 2000-01-01, which binary dates and timestamps count
+     * from, and the microseconds of a day.
+     */
+    private static final int POSTGRES_EPOCH_JDATE = 2451545;
+    private static final long USECS_PER_DAY = 86400000000L;
+
+    private static long floorDiv(long x, long y) {
+        long q = x / y;
+        return (x % y != 0 && (x ^ y) < 0) ? q - 1 : q;
+    }
+
+    /*
+     * Appends the date of a Julian day as YYYY-MM-DD, converted as the
+     * server's j2date does, and returns the year, which is 0 for 1 BC.
+     */
+    private static int appendPgDate(StringBuilder sb, long julianDay) {
+        long julian = julianDay + 32044;
+        long quad = julian / 146097;
+        long extra = (julian - quad * 146097) * 4 + 3;
+        julian += 60 + quad * 3 + extra / 146097;
+        quad = julian / 1461;
+        julian -= quad * 1461;
+        long y = julian * 4 / 1461;
+        julian = ((y != 0) ? ((julian + 305) % 365) : ((julian + 306) % 366)) + 123;
+        y += quad * 4;
+        int year = (int) (y - 4800);
+        quad = julian * 2141 / 65536;
+        int day = (int) (julian - 7834 * quad / 256);
+        int month = (int) ((quad + 10) % 12 + 1);
+
+        int shownYear = year > 0 ? year : 1 - year;
+        String yearString = Integer.toString(shownYear);
+        for (int i = yearString.length(); i < 4; ++i) {
+            sb.append('0');
+        }
+        sb.append(yearString).append('-');
+        appendTwoDigits(sb, month).append('-');
+        appendTwoDigits(sb, day);
+        return year;
+    }
+
+    /*
+     * Appends a time of day in microseconds as HH:MM:SS with the fraction of
+     * the seconds, if any, without trailing zeros.
+     */
+    private static void appendPgTime(StringBuilder sb, long micros) {
+        int hour = (int) (micros / 3600000000L);
+        micros -= hour * 3600000000L;
+        int min = (int) (micros / 60000000);
+        micros -= min * 60000000L;
+        appendTwoDigits(sb, hour).append(':');
+        appendTwoDigits(sb, min).append(':');
+        appendSeconds(sb, (int) (micros / 1000000), (int) (micros % 1000000), true);
+    }
+
+    /*
+     * Appends an offset from UTC as +HH, +HH:MM or +HH:MM:SS.
+     */
+    private static void appendPgOffset(StringBuilder sb, int secondsEast) {
+        sb.append(secondsEast < 0 ? '-' : '+');
+        int abs = Math.abs(secondsEast);
+        int sec = abs % 60;
+        int min = abs / 60 % 60;
+        appendTwoDigits(sb, abs / 3600);
+        if (min != 0 || sec != 0) {
+            appendTwoDigits(sb.append(':'), min);
+        }
+        if (sec != 0) {
+            appendTwoDigits(sb.append(':'), sec);
+        }
+    }
+
+    private String serverTimeZoneName;
+    private TimeZone serverTimeZone;
+
+    /*
+     * Returns the Java time zone for the server's TimeZone setting. The
+     * POSIX style "GMT+5", as the driver sets for a JVM in "GMT-05:00", is
+     * west of Greenwich, the opposite of Java's custom time zones.
+     */
+    private TimeZone toJavaTimeZone(String name) {
+        if (name == null) {
+            return defaultTz;
+        }
+        if (!name.equals(serverTimeZoneName)) {
+            String id = name;
+            if (name.length() > 3 && name.startsWith("GMT") && (name.charAt(3) == '+' || name.charAt(3) == '-')) {
+                id = (name.charAt(3) == '+' ? "GMT-" : "GMT+") + name.substring(4);
+            }
+            serverTimeZone = TimeZone.getTimeZone(id);
+            serverTimeZoneName = name;
+        }
+        return serverTimeZone;
+    }
+
+    /**
+     * Returns the given interval as String matching what the server would
+     * send in text mode with the given IntervalStyle, e.g.
+     * "1 year 2 mons -3 days +04:05:06.5" for "postgres".
+     *
+     * @param interval the interval, with its parts signed as the server
+     *  splits them
+     * @param intervalStyle the IntervalStyle setting; null for "postgres"
+     */
+    public String intervalToString(PGInterval interval, String intervalStyle) {
+        int year = interval.getYears();
+        int mon = interval.getMonths();
+        int mday = interval.getDays();
+        int hour = interval.getHours();
+        int min = interval.getMinutes();
+        long micros = Math.round(interval.getSeconds() * 1000000.0);
+        int sec = (int) (micros / 1000000);
+        int fsec = (int) (micros % 1000000);
+        StringBuilder sb = new StringBuilder(32);
+
+        if ("sql_standard".equals(intervalStyle)) {
+            boolean hasNegative = year < 0 || mon < 0 || mday < 0 || hour < 0 || min < 0 || sec < 0 || fsec < 0;
+            boolean hasPositive = year > 0 || mon > 0 || mday > 0 || hour > 0 || min > 0 || sec > 0 || fsec > 0;
+            boolean hasYearMonth = year != 0 || mon != 0;
+            boolean hasDayTime = mday != 0 || hour != 0 || min != 0 || sec != 0 || fsec != 0;
+            boolean standardValue = !(hasNegative && hasPositive) && !(hasYearMonth && hasDayTime);
+
+            if (!hasNegative && !hasPositive) {
+                sb.append('0');
+            } else if (!standardValue) {
+                // a mixed sign or mixed field value, each part signed
+                sb.append(year < 0 || mon < 0 ? '-' : '+').append(Math.abs(year)).append('-').append(Math.abs(mon));
+                sb.append(' ').append(mday < 0 ? '-' : '+').append(Math.abs(mday));
+                sb.append(' ').append(hour < 0 || min < 0 || sec < 0 || fsec < 0 ? '-' : '+').append(Math.abs(hour)).append(':');
+                appendSeconds(appendTwoDigits(sb, Math.abs(min)).append(':'), sec, fsec, true);
+            } else {
+                if (hasNegative)
+                    sb.append('-');
+                if (hasYearMonth) {
+                    sb.append(Math.abs(year)).append('-').append(Math.abs(mon));
+                } else {
+                    if (mday != 0)
+                        sb.append(Math.abs(mday)).append(' ');
+                    sb.append(Math.abs(hour)).append(':');
+                    appendSeconds(appendTwoDigits(sb, Math.abs(min)).append(':'), sec, fsec, true);
+                }
+            }
+        } else if ("iso_8601".equals(intervalStyle)) {
+            if (year == 0 && mon == 0 && mday == 0 && hour == 0 && min == 0 && sec == 0 && fsec == 0)
+                return "PT0S";
+            sb.append('P');
+            appendIso8601Part(sb, year, 'Y');
+            appendIso8601Part(sb, mon, 'M');
+            appendIso8601Part(sb, mday, 'D');
+            if (hour != 0 || min != 0 || sec != 0 || fsec != 0)
+                sb.append('T');
+            appendIso8601Part(sb, hour, 'H');
+            appendIso8601Part(sb, min, 'M');
+            if (sec != 0 || fsec != 0) {
+                if (sec < 0 || fsec < 0)
+                    sb.append('-');
+                appendSeconds(sb, sec, fsec, false).append('S');
+            }
+        } else if ("postgres_verbose".equals(intervalStyle)) {
+            // the parts follow the sign of the first one, which is
+            // written as "ago" when negative
+            sb.append('@');
+            int first = appendVerbosePart(sb, year, "year", 0);
+            first = appendVerbosePart(sb, mon, "mon", first);
+            first = appendVerbosePart(sb, mday, "day", first);
+            first = appendVerbosePart(sb, hour, "hour", first);
+            first = appendVerbosePart(sb, min, "min", first);
+            if (sec != 0 || fsec != 0) {
+                sb.append(' ');
+                if (sec < 0 || (sec == 0 && fsec < 0)) {
+                    if (first == 0)
+                        first = -1;
+                    else if (first > 0)
+                        sb.append('-');
+                } else if (first < 0) {
+                    sb.append('-');
+                }
+                appendSeconds(sb, sec, fsec, false).append(" sec");
+                if (Math.abs(sec) != 1 || fsec != 0)
+                    sb.append('s');
+            } else if (first == 0) {
+                sb.append(" 0");
+            }
+            if (first < 0)
+                sb.append(" ago");
+        } else {
+            boolean before = appendPostgresPart(sb, year, "year", false);
+            before = appendPostgresPart(sb, mon, "mon", before);
+            before = appendPostgresPart(sb, mday, "day", before);
+            if (sb.length() == 0 || hour != 0 || min != 0 || sec != 0 || fsec != 0) {
+                if (sb.length() > 0)
+                    sb.append(' ');
+                if (hour < 0 || min < 0 || sec < 0 || fsec < 0)
+                    sb.append('-');
+                else if (before)
+                    sb.append('+');
+                appendTwoDigits(sb, Math.abs(hour)).append(':');
+                appendSeconds(appendTwoDigits(sb, Math.abs(min)).append(':'), sec, fsec, true);
+            }
+        }
+        return sb.toString();
+    }
+
+    /**
+     * @return whether the part was negative, so that a following positive
+     *  part is signed
+     */
+    private static boolean appendPostgresPart(StringBuilder sb, int value, String unit, boolean before) {
+        if (value == 0)
+            return before;
+        if (sb.length() > 0)
+            sb.append(' ');
+        if (before && value > 0)
+            sb.append('+');
+        sb.append(value).append(' ').append(unit);
+        if (value != 1)
+            sb.append('s');
+        return value < 0;
+    }
+
+    /**
+     * @param first the sign of the first part written, 0 if none was
+     * @return the sign of the first part written, 0 if none was
+     */
+    private static int appendVerbosePart(StringBuilder sb, int value, String unit, int first) {
+        if (value == 0)
+            return first;
+        if (first == 0) {
+            first = value < 0 ? -1 : 1;
+            value = Math.abs(value);
+        } else if (first < 0) {
+            value = -value;
+        }
+        sb.append(' ').append(value).append(' ').append(unit);
+        if (value != 1)
+            sb.append('s');
+        return first;
+    }
+
+    private static void appendIso8601Part(StringBuilder sb, int value, char unit) {
+        if (value != 0)
+            sb.append(value).append(unit);
+    }
+
+    /**
+     * Appends the absolute seconds, with the fraction of microseconds
+     * trimmed of its trailing zeros.
+     */
+    private static StringBuilder appendSeconds(StringBuilder sb, int sec, int fsec, boolean twoDigits) {
+        if (twoDigits)
+            appendTwoDigits(sb, Math.abs(sec));
+        else
+            sb.append(Math.abs(sec));
+        if (fsec != 0) {
+            String digits = Integer.toString(Math.abs(fsec) + 1000000);
+            int end = digits.length();
+            while (digits.charAt(end - 1) == '0')
+                --end;
+            sb.append('.').append(digits, 1, end);
+        }
+        return sb;
+    }
+
+    private static StringBuilder appendTwoDigits(StringBuilder sb, int value) {
+        if (value < 10)
+            sb.append('0');
+        return sb.append(value);
+    }
+
     /**
      * Converts the given postgresql seconds to java seconds.
      * Reverse engineered by inserting varying dates to postgresql
@@ -37,6 +37,11 @@ abstract class AbstractJdbc4Connection extends org.postgresql.jdbc3g.AbstractJdb
 
     private final Properties _clientInfo;
 
+    // Last schema returned by getSchema and the session change count it
+    // was read at; the search_path is only changed by SET and RESET.
+    private String schema;
+    private int schemaChangeCount = -1;
+
     public AbstractJdbc4Connection(HostSpec[] hostSpecs, String user, String database, Properties info, String url) throws SQLException {
         super(hostSpecs, user, database, info, url);
 
@@ -261,6 +266,17 @@ abstract class AbstractJdbc4Connection extends org.postgresql.jdbc3g.AbstractJdb
     public String getSchema() throws SQLException
     {
         checkClosed();
+        int changeCount = getSessionChangeCount();
+        if (changeCount != schemaChangeCount)
+        {
+            schema = querySchema();
+            schemaChangeCount = changeCount;
+        }
+        return schema;
+    }
+
+    private String querySchema() throws SQLException
+    {
         String searchPath;
         Statement stmt = createStatement();
         try
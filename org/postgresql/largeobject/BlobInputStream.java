@@ -10,12 +10,27 @@ package org.postgresql.largeobject;
 import java.io.InputStream;
 import java.io.IOException;
 import java.sql.SQLException;
+import java.util.LinkedList;
 
 /**
  *     This is an implementation of an InputStream from a large object.
+ *
+ * <p>While the object is read sequentially, the size of the blocks fetched
+ * from the server grows up to {@link #MAX_BLOCK_SIZE} and up to
+ * {@link #MAX_READ_AHEAD} blocks are fetched in a single round trip.
  */
 public class BlobInputStream extends InputStream
 {
+    /**
+     * Largest block fetched by a single loread call
+     */
+    static final int MAX_BLOCK_SIZE = 256 * 1024;
+
+    /**
+     * Largest number of loread calls sent in a single round trip
+     */
+    static final int MAX_READ_AHEAD = 4;
+
     /**
      * The parent LargeObject
      */
@@ -41,11 +56,36 @@ public class BlobInputStream extends InputStream
      */
     private int bsize;
 
+    /**
+     * The size of the blocks fetched in the next round trip
+     */
+    private int blockSize;
+
+    /**
+     * Blocks already fetched from the server after the buffer
+     */
+    private final LinkedList<byte[]> readAhead = new LinkedList<byte[]>();
+
+    /**
+     * The number of blocks fetched in the next round trip
+     */
+    private int readAheadCount = 1;
+
+    /**
+     * True once a block shorter than requested has been fetched
+     */
+    private boolean eof;
+
     /**
      * The mark position
      */
     private int mpos = 0;
 
+    /**
+     * The absolute position at the mark
+     */
+    private long mapos = 0;
+
     /**
      * The limit
      */
@@ -66,12 +106,13 @@ public class BlobInputStream extends InputStream
 
     public BlobInputStream(LargeObject lo, int bsize)
     {
-        this(lo, 1024, -1);
+        this(lo, bsize, -1);
     }
 
     /**
      * @param lo LargeObject to read from
-     * @param bsize buffer size
+     * @param bsize initial buffer size
+     * @param limit maximum number of bytes the stream will serve
      */
     public BlobInputStream(LargeObject lo, int bsize, long limit)
     {
@@ -80,6 +121,7 @@ public class BlobInputStream extends InputStream
         bpos = 0;
         apos = 0;
         this.bsize = bsize;
+        this.blockSize = bsize;
         this.limit = limit;
     }
 
@@ -95,23 +137,14 @@ public class BlobInputStream extends InputStream
             {
                 return -1;
             }
-            if (buffer == null || bpos >= buffer.length)
-            {
-                buffer = lo.read(bsize);
-                bpos = 0;
-            }
 
             // Handle EOF
-            if (bpos >= buffer.length)
+            if (!fill())
             {
                 return -1;
             }
 
-            int ret = (buffer[bpos] & 0x7F);
-            if ((buffer[bpos] &0x80) == 0x80)
-            {
-                ret |= 0x80;
-            }
+            int ret = buffer[bpos] & 0xFF;
 
             bpos++;
             apos++;
@@ -124,6 +157,179 @@ public class BlobInputStream extends InputStream
         }
     }
 
+    /**
+     * Reads up to <code>len</code> bytes, copying the buffered data and
+     * fetching more from the server only if nothing was buffered.
+     */
+    public int read(byte[] b, int off, int len) throws IOException
+    {
+        checkClosed();
+        if (off < 0 || len < 0 || len > b.length - off)
+            throw new IndexOutOfBoundsException();
+        if (len == 0)
+            return 0;
+
+        try
+        {
+            if (limit > 0)
+            {
+                if (apos >= limit)
+                    return -1;
+                len = (int) Math.min(len, limit - apos);
+            }
+
+            int count = 0;
+            while (count < len && (count == 0 || buffered() > 0) && fill())
+            {
+                int n = Math.min(len - count, buffer.length - bpos);
+                System.arraycopy(buffer, bpos, b, off + count, n);
+                bpos += n;
+                count += n;
+            }
+
+            if (count == 0)
+                return -1;
+
+            apos += count;
+            return count;
+        }
+        catch (SQLException se)
+        {
+            throw new IOException(se.toString());
+        }
+    }
+
+    /**
+     * Skips the buffered data and moves the position in the large object
+     * for the rest, without reading it.
+     */
+    public long skip(long n) throws IOException
+    {
+        checkClosed();
+        if (limit > 0)
+            n = Math.min(n, limit - apos);
+        if (n <= 0)
+            return 0;
+
+        try
+        {
+            long skipped = 0;
+            while (skipped < n && buffered() > 0)
+            {
+                fill();
+                int s = (int) Math.min(n - skipped, buffer.length - bpos);
+                bpos += s;
+                skipped += s;
+            }
+
+            if (skipped < n && !eof)
+            {
+                int s = (int) Math.min(n - skipped, Integer.MAX_VALUE);
+                lo.seek(s, LargeObject.SEEK_CUR);
+                skipped += s;
+            }
+
+            apos += skipped;
+            return skipped;
+        }
+        catch (SQLException se)
+        {
+            throw new IOException(se.toString());
+        }
+    }
+
+    /**
+     * @return the number of bytes that can be read without a round trip to the server
+     */
+    public int available() throws IOException
+    {
+        checkClosed();
+        long available = buffered();
+        if (limit > 0)
+            available = Math.max(0, Math.min(available, limit - apos));
+        return (int) Math.min(available, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Makes sure the buffer has data, taking the next block read ahead or
+     * fetching more blocks from the server.
+     *
+     * @return false at the end of the large object
+     */
+    private boolean fill() throws SQLException
+    {
+        while (buffer == null || bpos >= buffer.length)
+        {
+            if (readAhead.isEmpty())
+            {
+                if (eof)
+                    return false;
+                fetch();
+            }
+            buffer = readAhead.removeFirst();
+            bpos = 0;
+        }
+        return true;
+    }
+
+    /**
+     * Fetches the next blocks. Every round trip of a sequential read fetches
+     * larger blocks, and more of them once they have the maximum size.
+     */
+    private void fetch() throws SQLException
+    {
+        int blockSize = this.blockSize;
+        int count = readAheadCount;
+
+        if (limit > 0)
+        {
+            long remaining = limit - apos;
+            if (remaining < blockSize)
+                blockSize = (int) Math.max(remaining, 1);
+            count = (int) Math.max(1, Math.min(count, (remaining + blockSize - 1) / blockSize));
+        }
+
+        byte[][] blocks = count == 1 ? new byte[][] { lo.read(blockSize) } : lo.read(blockSize, count);
+        for (int i = 0; i < blocks.length; i++)
+        {
+            readAhead.add(blocks[i]);
+            if (blocks[i].length < blockSize)
+            {
+                eof = true;
+                break;
+            }
+        }
+
+        if (this.blockSize < MAX_BLOCK_SIZE)
+            this.blockSize = Math.min(this.blockSize * 2, MAX_BLOCK_SIZE);
+        else if (readAheadCount < MAX_READ_AHEAD)
+            readAheadCount++;
+    }
+
+    /**
+     * @return the number of bytes fetched from the server but not read yet
+     */
+    private long buffered()
+    {
+        long buffered = buffer == null ? 0 : buffer.length - bpos;
+        for (byte[] block : readAhead)
+            buffered += block.length;
+        return buffered;
+    }
+
+    /**
+     * Drops the buffered data after the position of the large object has been
+     * changed, and starts again with small blocks.
+     */
+    private void discardBuffer()
+    {
+        buffer = null;
+        bpos = 0;
+        readAhead.clear();
+        readAheadCount = 1;
+        eof = false;
+        blockSize = bsize;
+    }
 
     /**
      * Closes this input stream and releases any system resources associated
@@ -176,7 +382,9 @@ public class BlobInputStream extends InputStream
     {
         try
         {
-            mpos = lo.tell();
+            // the large object is positioned after the buffered data
+            mpos = (int) (lo.tell() - buffered());
+            mapos = apos;
         }
         catch (SQLException se)
         {
@@ -199,6 +407,8 @@ public class BlobInputStream extends InputStream
         try
         {
             lo.seek(mpos);
+            discardBuffer();
+            apos = mapos;
         }
         catch (SQLException se)
         {
@@ -10,12 +10,24 @@ package org.postgresql.largeobject;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
 
 /**
  *     This implements a basic output stream that writes to a LargeObject
+ *
+ * <p>Full buffers are written behind: they are kept until
+ * {@link #MAX_WRITE_BEHIND} of them can be sent in a single round trip, and
+ * the buffers grow up to {@link BlobInputStream#MAX_BLOCK_SIZE} while the
+ * stream is written.
  */
 public class BlobOutputStream extends OutputStream
 {
+    /**
+     * Largest number of lowrite calls sent in a single round trip
+     */
+    static final int MAX_WRITE_BEHIND = 4;
+
     /**
      * The parent LargeObject
      */
@@ -36,6 +48,16 @@ public class BlobOutputStream extends OutputStream
      */
     private int bpos;
 
+    /**
+     * Full buffers not written yet
+     */
+    private final List<byte[]> pending = new ArrayList<byte[]>();
+
+    /**
+     * Written buffers of the maximum size, kept for reuse
+     */
+    private final List<byte[]> spare = new ArrayList<byte[]>();
+
     /**
      * Create an OutputStream to a large object
      * @param lo LargeObject
@@ -63,11 +85,8 @@ public class BlobOutputStream extends OutputStream
         checkClosed();
         try
         {
-            if (bpos >= bsize)
-            {
-                lo.write(buf);
-                bpos = 0;
-            }
+            if (bpos >= buf.length)
+                queueBuffer();
             buf[bpos++] = (byte)b;
         }
         catch (SQLException se)
@@ -81,14 +100,24 @@ public class BlobOutputStream extends OutputStream
         checkClosed();
         try
         {
-            // If we have any internally buffered data, send it first
-            if ( bpos > 0 )
-                flush();
+            if (len >= this.buf.length)
+            {
+                // Too large to copy; send it along with the buffered data,
+                // as the caller may reuse the array.
+                writePending(buf, off, len);
+                return;
+            }
 
-            if ( off == 0 && len == buf.length )
-                lo.write(buf); // save a buffer creation and copy since full buffer written
-            else
-                lo.write(buf, off, len);
+            while (len > 0)
+            {
+                if (bpos >= this.buf.length)
+                    queueBuffer();
+                int n = Math.min(len, this.buf.length - bpos);
+                System.arraycopy(buf, off, this.buf, bpos, n);
+                bpos += n;
+                off += n;
+                len -= n;
+            }
         }
         catch (SQLException se)
         {
@@ -112,9 +141,7 @@ public class BlobOutputStream extends OutputStream
         checkClosed();
         try
         {
-            if (bpos > 0)
-                lo.write(buf, 0, bpos);
-            bpos = 0;
+            writePending(null, 0, 0);
         }
         catch (SQLException se)
         {
@@ -148,6 +175,75 @@ public class BlobOutputStream extends OutputStream
         }
     }
 
+    /**
+     * Queues the full buffer and continues in a new one, which is larger
+     * unless the maximum size has been reached.
+     */
+    private void queueBuffer() throws SQLException
+    {
+        pending.add(buf);
+        bpos = 0;
+        if (pending.size() >= MAX_WRITE_BEHIND)
+            writePending(null, 0, 0);
+
+        int size = Math.max(buf.length, Math.min(buf.length * 2, BlobInputStream.MAX_BLOCK_SIZE));
+        if (size == BlobInputStream.MAX_BLOCK_SIZE && !spare.isEmpty())
+            buf = spare.remove(spare.size() - 1);
+        else
+            buf = new byte[size];
+    }
+
+    /**
+     * Writes the queued buffers, the buffered data and the given part of an
+     * array in a single round trip.
+     */
+    private void writePending(byte[] data, int off, int len) throws SQLException
+    {
+        int count = pending.size() + (bpos > 0 ? 1 : 0) + (len > 0 ? 1 : 0);
+        if (count == 0)
+            return;
+
+        byte[][] bufs = new byte[count][];
+        int[] offs = new int[count];
+        int[] lens = new int[count];
+        int i = 0;
+        for (byte[] full : pending)
+        {
+            bufs[i] = full;
+            lens[i++] = full.length;
+        }
+        if (bpos > 0)
+        {
+            bufs[i] = buf;
+            lens[i++] = bpos;
+        }
+        if (len > 0)
+        {
+            bufs[i] = data;
+            offs[i] = off;
+            lens[i] = len;
+        }
+
+        try
+        {
+            if (count == 1)
+                lo.write(bufs[0], offs[0], lens[0]);
+            else
+                lo.write(bufs, offs, lens);
+        }
+        finally
+        {
+            // Never written twice, even if the write failed.
+            for (byte[] full : pending)
+            {
+                if (full.length == BlobInputStream.MAX_BLOCK_SIZE && spare.size() < MAX_WRITE_BEHIND)
+                    spare.add(full);
+            }
+            pending.clear();
+            bpos = 0;
+        }
+    }
+
     private void checkClosed() throws IOException
     {
         if (lo == null)
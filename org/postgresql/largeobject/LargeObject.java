@@ -10,6 +10,9 @@ package org.postgresql.largeobject;
 import java.io.InputStream;
 import java.io.IOException;
 import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
 import java.sql.SQLException;
 import org.postgresql.core.BaseConnection;
 import org.postgresql.util.PSQLException;
@@ -66,6 +69,8 @@ public class LargeObject
 
     private BlobOutputStream os;  // The current output stream
 
+    private ByteBuffer transferBuffer; // Receives the blocks read by transferTo
+
     private boolean closed = false; // true when we are closed
 
     private BaseConnection conn; // Only initialized when open a LOB with CommitOnClose
@@ -234,6 +239,52 @@ public class LargeObject
         return len;
     }
 
+    /**
+     * Reads several consecutive blocks of the object in a single round trip.
+     *
+     * @param len number of bytes to read into each block
+     * @param count number of blocks to read
+     * @return the blocks read, a block is shorter than len at the end of the object
+     * @exception SQLException if a database-access error occurs.
+     */
+    byte[][] read(int len, int count) throws SQLException
+    {
+        FastpathArg args[][] = new FastpathArg[count][];
+        for (int i = 0; i < count; i++)
+        {
+            args[i] = new FastpathArg[2];
+            args[i][0] = new FastpathArg(fd);
+            args[i][1] = new FastpathArg(len);
+        }
+        byte[][] blocks = fp.fastpath("loread", args);
+        for (int i = 0; i < count; i++)
+        {
+            if (blocks[i] == null)
+                blocks[i] = new byte[0];
+        }
+        return blocks;
+    }
+
+    /**
+     * Writes several parts of arrays to the object in a single round trip.
+     *
+     * @param bufs arrays to write from
+     * @param offs offsets within the arrays
+     * @param lens number of bytes to write from each array
+     * @exception SQLException if a database-access error occurs.
+     */
+    void write(byte[][] bufs, int[] offs, int[] lens) throws SQLException
+    {
+        FastpathArg args[][] = new FastpathArg[bufs.length][];
+        for (int i = 0; i < bufs.length; i++)
+        {
+            args[i] = new FastpathArg[2];
+            args[i][0] = new FastpathArg(fd);
+            args[i][1] = new FastpathArg(bufs[i], offs[i], lens[i]);
+        }
+        fp.fastpath("lowrite", args);
+    }
+
     /**
      * Writes an array to the object
      *
@@ -436,4 +487,115 @@ public class LargeObject
         return os;
     }
 
+    /**
+     * Copies the object from the current position to its end into a channel.
+     *
+     * <p>Several blocks are read in each round trip and received straight
+     * into a direct buffer, which is written to the channel without copying
+     * the data into arrays first.
+     *
+     * @param target a blocking channel to write to
+     * @return the number of bytes transferred
+     * @exception SQLException if a database-access error occurs.
+     * @exception IOException if writing to the channel fails.
+     */
+    public long transferTo(WritableByteChannel target) throws SQLException, IOException
+    {
+        if (os != null)
+            os.flush();
+        if (transferBuffer == null)
+            transferBuffer = ByteBuffer.allocateDirect(BlobInputStream.MAX_BLOCK_SIZE * BlobInputStream.MAX_READ_AHEAD);
+
+        FastpathArg args[][] = new FastpathArg[BlobInputStream.MAX_READ_AHEAD][];
+        for (int i = 0; i < args.length; i++)
+        {
+            args[i] = new FastpathArg[2];
+            args[i][0] = new FastpathArg(fd);
+            args[i][1] = new FastpathArg(BlobInputStream.MAX_BLOCK_SIZE);
+        }
+
+        long total = 0;
+        boolean eof = false;
+        while (!eof)
+        {
+            transferBuffer.clear();
+            int[] lens = fp.fastpath("loread", args, transferBuffer);
+            for (int i = 0; i < lens.length; i++)
+            {
+                if (lens[i] < BlobInputStream.MAX_BLOCK_SIZE)
+                    eof = true;
+            }
+
+            transferBuffer.flip();
+            total += transferBuffer.remaining();
+            while (transferBuffer.hasRemaining())
+                target.write(transferBuffer);
+        }
+        return total;
+    }
+
+    /**
+     * Copies data from a channel to the object at the current position until
+     * the end of the channel or until <code>count</code> bytes were copied.
+     *
+     * <p>Several blocks are written in each round trip. The blocks are read
+     * into arrays, which the connection sends without copying them again.
+     *
+     * @param src a blocking channel to read from
+     * @param count maximum number of bytes to transfer
+     * @return the number of bytes transferred
+     * @exception SQLException if a database-access error occurs.
+     * @exception IOException if reading from the channel fails.
+     */
+    public long transferFrom(ReadableByteChannel src, long count) throws SQLException, IOException
+    {
+        if (os != null)
+            os.flush();
+
+        byte[][] bufs = new byte[BlobOutputStream.MAX_WRITE_BEHIND][];
+        int[] offs = new int[bufs.length];
+        int[] lens = new int[bufs.length];
+
+        long total = 0;
+        boolean eof = false;
+        while (!eof && total < count)
+        {
+            int blocks = 0;
+            while (!eof && blocks < bufs.length && total < count)
+            {
+                int size = (int) Math.min(BlobInputStream.MAX_BLOCK_SIZE, count - total);
+                if (bufs[blocks] == null || bufs[blocks].length < size)
+                    bufs[blocks] = new byte[size];
+                ByteBuffer block = ByteBuffer.wrap(bufs[blocks], 0, size);
+                while (block.hasRemaining())
+                {
+                    if (src.read(block) < 0)
+                    {
+                        eof = true;
+                        break;
+                    }
+                }
+                if (block.position() == 0)
+                    break;
+                lens[blocks] = block.position();
+                total += lens[blocks];
+                blocks++;
+            }
+
+            if (blocks == 0)
+                break;
+            if (blocks == 1)
+            {
+                write(bufs[0], 0, lens[0]);
+            }
+            else
+            {
+                byte[][] sendBufs = new byte[blocks][];
+                System.arraycopy(bufs, 0, sendBufs, 0, blocks);
+                write(sendBufs, offs, lens);
+            }
+        }
+        return total;
+    }
+
 }
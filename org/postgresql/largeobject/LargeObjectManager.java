@@ -11,6 +11,11 @@ package org.postgresql.largeobject;
 import java.sql.ResultSet;
 import java.sql.Statement;
 import java.sql.SQLException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import org.postgresql.core.BaseConnection;
 import org.postgresql.fastpath.Fastpath;
 import org.postgresql.fastpath.FastpathArg;
@@ -60,6 +65,9 @@ import org.postgresql.util.PSQLState;
  */
 public class LargeObjectManager
 {
+    // the function oid's of the api, by connection URL and server version
+    private static final ConcurrentMap<String, Map<String, Integer>> functionCache = new ConcurrentHashMap<String, Map<String, Integer>>();
+
     // the fastpath api for this connection
     private Fastpath fp;
     private BaseConnection conn;
@@ -103,10 +111,25 @@ public class LargeObjectManager
         // We need Fastpath to do anything
         this.fp = conn.getFastpathAPI();
 
-        // Now get the function oid's for the api
-        //
-        // This is an example of Fastpath.addFunctions();
-        //
+        // Now get the function oid's for the api. They are looked up once
+        // for each database and server version and shared by all connections.
+        String key = conn.getMetaData().getURL() + '|' + conn.getMetaData().getDatabaseProductVersion();
+        Map<String, Integer> functions = functionCache.get(key);
+        if (functions == null)
+        {
+            functions = lookupFunctions(conn);
+            functionCache.putIfAbsent(key, functions);
+        }
+        fp.addFunctions(functions);
+
+        conn.getLogger().debug("Large Object initialised");
+    }
+
+    /**
+     * Queries the function oid's for the api.
+     */
+    private static Map<String, Integer> lookupFunctions(BaseConnection conn) throws SQLException
+    {
         String sql;
         if (conn.getMetaData().supportsSchemasInTableDefinitions())
         {
@@ -142,11 +165,15 @@ public class LargeObjectManager
         if (res == null)
             throw new PSQLException(GT.tr("Failed to initialize LargeObject API"), PSQLState.SYSTEM_ERROR);
 
-        fp.addFunctions(res);
+        Map<String, Integer> functions = new HashMap<String, Integer>();
+        while (res.next())
+        {
+            functions.put(res.getString(1), new Integer(res.getInt(2)));
+        }
         res.close();
         stmt.close();
 
-        conn.getLogger().debug("Large Object initialised");
+        return Collections.unmodifiableMap(functions);
     }
 
     /**
@@ -93,7 +93,7 @@ public class AbstractJdbc4MakeSSL {
           //If sslmode is set, use the libp compatible factory
           if (sslmode!=null)
           {
-            factory = new LibPQFactory(info);
+            factory = LibPQFactory.getInstance(info);
           }
           else
           {
@@ -120,7 +120,8 @@ public class AbstractJdbc4MakeSSL {
         }
         catch (IOException ex) {
           if (factory instanceof LibPQFactory)
-          { //throw any KeyManager exception
+          { //load the files again for the next connection and throw any KeyManager exception
+            LibPQFactory.discard((LibPQFactory)factory);
             ((LibPQFactory)factory).throwKeyManagerException();
           }
           throw new PSQLException(GT.tr("SSL error: {0}", ex.getMessage()), PSQLState.CONNECTION_FAILURE, ex);
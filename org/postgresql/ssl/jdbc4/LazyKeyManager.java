@@ -39,6 +39,7 @@ import org.postgresql.util.PSQLState;
 
 /**
  * A Key manager that only loads the keys, if necessary.
+ * It may be shared by the connections using a cached {@link LibPQFactory}.
  *
  */
 public class LazyKeyManager implements X509KeyManager {
@@ -71,10 +72,22 @@ public class LazyKeyManager implements X509KeyManager {
    * by this method
    * @throws PSQLException
    */
-  public void throwKeyManagerException() throws PSQLException
+  public synchronized void throwKeyManagerException() throws PSQLException
   {
     if (error!=null) throw error;
   }
+
+  /**
+   * Prepares a shared key manager for another connection: the errors of
+   * earlier connections are forgotten, and the password for a key that
+   * still has to be loaded is asked from the given handler.
+   * @param cbh the callback handler of the connection
+   */
+  public synchronized void reset(CallbackHandler cbh)
+  {
+    this.cbh = cbh;
+    error = null;
+  }
   
   public String chooseClientAlias(String[] keyType, Principal[] issuers,
       Socket socket) {
@@ -110,7 +123,7 @@ public class LazyKeyManager implements X509KeyManager {
     return null; //We are not a server
   }
 
-  public X509Certificate[] getCertificateChain(String alias) {
+  public synchronized X509Certificate[] getCertificateChain(String alias) {
     if (cert==null && certfile!=null) //If certfile is null, we do not load the certificate
     { //The certificate must be loaded
       CertificateFactory cf;
@@ -148,7 +161,7 @@ public class LazyKeyManager implements X509KeyManager {
     return (alias==null ? new String[]{} : new String[]{alias});
   }
 
-  public PrivateKey getPrivateKey(String alias) {
+  public synchronized PrivateKey getPrivateKey(String alias) {
     RandomAccessFile raf = null;
     try
     {
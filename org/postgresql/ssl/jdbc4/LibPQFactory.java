@@ -1,6 +1,7 @@
 package org.postgresql.ssl.jdbc4;
 
 import java.io.Console;
+import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.IOException;
@@ -8,11 +9,16 @@ import java.security.GeneralSecurityException;
 import java.security.KeyManagementException;
 import java.security.KeyStore;
 import java.security.KeyStoreException;
+import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
 import java.security.cert.Certificate;
 import java.security.cert.CertificateFactory;
 import java.security.cert.X509Certificate;
+import java.util.Arrays;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
 import java.util.Properties;
 
 import javax.naming.InvalidNameException;
@@ -41,11 +47,177 @@ import org.postgresql.util.PSQLState;
 /**
  * Provide an SSLSocketFactory that is compatible with the libpq
  * behaviour.
+ *
+ * <p>Building a factory loads the root certificate and creates an SSL
+ * context, so connections share the factories returned by
+ * {@link #getInstance(Properties)}. Sharing the context also lets the
+ * connections to a host resume the TLS session of an earlier connection
+ * instead of doing a full handshake.
  */
 public class LibPQFactory extends WrappedFactory implements HostnameVerifier {
 
+    /**
+     * The most factories kept for later connections.
+     */
+    private static final int MAX_CACHED_FACTORIES = 16;
+
+    /**
+     * The factories in use, by the SSL properties they were built from, the
+     * least recently used first.
+     */
+    private static final Map<String, CachedFactory> factories = new LinkedHashMap<String, CachedFactory>(16, 0.75f, true) {
+      protected boolean removeEldestEntry(Map.Entry<String, CachedFactory> eldest)
+      {
+        return size() > MAX_CACHED_FACTORIES;
+      }
+    };
+
+    /**
+     * Salts the digests of the SSL passwords in the keys of factories.
+     */
+    private static final byte[] passwordSalt = new byte[16];
+
+    static
+    {
+      new SecureRandom().nextBytes(passwordSalt);
+    }
+
     LazyKeyManager km = null;
     String sslmode; 
+
+    /**
+     * Returns a factory for the given connection parameters, reusing the
+     * factory built for earlier connections with the same SSL parameters
+     * unless the certificate or key files have been modified since.
+     *
+     * @param info the connection parameters
+     * @return the factory
+     * @throws PSQLException if a new factory cannot be built
+     */
+    public static LibPQFactory getInstance(Properties info) throws PSQLException
+    {
+      String defaultdir = getDefaultDirectory();
+      String[] files = {
+        fileOrDefault(PGProperty.SSL_CERT.get(info), defaultdir + "postgresql.crt"),
+        fileOrDefault(PGProperty.SSL_KEY.get(info), defaultdir + "postgresql.pk8"),
+        fileOrDefault(PGProperty.SSL_ROOT_CERT.get(info), defaultdir + "root.crt")
+      };
+      // The password is part of the key, so that a key decrypted for one
+      // password is not handed to a connection that gave another one. Only
+      // a digest of it is kept.
+      StringBuilder key = new StringBuilder();
+      key.append(PGProperty.SSL_MODE.get(info));
+      for (int i = 0; i < files.length; i++)
+        key.append('\0').append(files[i]);
+      key.append('\0').append(PGProperty.SSL_PASSWORD_CALLBACK.get(info));
+      key.append('\0').append(digestPassword(PGProperty.SSL_PASSWORD.get(info)));
+      String cacheKey = key.toString();
+
+      long[] modified = getLastModified(files);
+      CachedFactory cached;
+      synchronized (factories)
+      {
+        cached = factories.get(cacheKey);
+      }
+      if (cached != null && Arrays.equals(cached.modified, modified))
+      {
+        // the key may not have been loaded yet, so it uses this connection's
+        // callback handler, and reports only this connection's errors
+        cached.factory.km.reset(getCallbackHandler(info));
+        return cached.factory;
+      }
+
+      LibPQFactory factory = new LibPQFactory(info);
+      synchronized (factories)
+      {
+        factories.put(cacheKey, new CachedFactory(factory, modified));
+      }
+      return factory;
+    }
+
+    /**
+     * Stops handing out a factory, such as after a handshake failed, so that
+     * the next connection loads the files again.
+     *
+     * @param factory a factory returned by {@link #getInstance(Properties)}
+     */
+    public static void discard(LibPQFactory factory)
+    {
+      synchronized (factories)
+      {
+        for (Iterator<CachedFactory> it = factories.values().iterator(); it.hasNext(); )
+        {
+          if (it.next().factory == factory)
+            it.remove();
+        }
+      }
+    }
+
+    private static String digestPassword(String password) throws PSQLException
+    {
+      if (password == null)
+        return "";
+      try
+      {
+        MessageDigest md = MessageDigest.getInstance("SHA-256");
+        md.update(passwordSalt);
+        for (int i = 0; i < password.length(); i++)
+        {
+          char c = password.charAt(i);
+          md.update((byte) (c >> 8));
+          md.update((byte) c);
+        }
+        byte[] digest = md.digest();
+        StringBuilder sb = new StringBuilder(2 * digest.length);
+        for (int i = 0; i < digest.length; i++)
+        {
+          sb.append(Character.forDigit(digest[i] >> 4 & 0xF, 16));
+          sb.append(Character.forDigit(digest[i] & 0xF, 16));
+        }
+        return sb.toString();
+      }
+      catch (NoSuchAlgorithmException ex)
+      {
+        throw new PSQLException(GT.tr("Could not find a java cryptographic algorithm: {0}.", new Object[]{ex.getMessage()}), PSQLState.CONNECTION_FAILURE, ex);
+      }
+    }
+
+    private static String fileOrDefault(String file, String defaultFile)
+    {
+      return file == null ? defaultFile : file;
+    }
+
+    private static long[] getLastModified(String[] files)
+    {
+      long[] modified = new long[files.length];
+      for (int i = 0; i < files.length; i++)
+        modified[i] = new File(files[i]).lastModified(); // 0 if missing
+      return modified;
+    }
+
+    private static String getDefaultDirectory()
+    {
+      String pathsep = System.getProperty("file.separator");
+      if (System.getProperty("os.name").toLowerCase().indexOf("windows") > -1)
+      { //It is Windows
+        return System.getenv("APPDATA")+pathsep+"postgresql"+pathsep;
+      } else {
+        return System.getProperty("user.home")+pathsep+".postgresql"+pathsep;
+      }
+    }
+
+    private static class CachedFactory
+    {
+      final LibPQFactory factory;
+      final long[] modified; // of the certificate, key and root certificate files
+
+      CachedFactory(LibPQFactory factory, long[] modified)
+      {
+        this.factory = factory;
+        this.modified = modified;
+      }
+    }
+
     /**
      * 
      * @param info the connection parameters
@@ -62,15 +234,8 @@ public class LibPQFactory extends WrappedFactory implements HostnameVerifier {
         SSLContext ctx = SSLContext.getInstance("TLS"); // or "SSL" ?
         
         //Determinig the default file location
-        String pathsep = System.getProperty("file.separator");
-        String defaultdir;
+        String defaultdir = getDefaultDirectory();
         boolean defaultfile = false;
-        if (System.getProperty("os.name").toLowerCase().indexOf("windows") > -1)
-        { //It is Windows
-          defaultdir = System.getenv("APPDATA")+pathsep+"postgresql"+pathsep;
-        } else {
-          defaultdir = System.getProperty("user.home")+pathsep+".postgresql"+pathsep;
-        }
         
         //Load the client's certificate and key
         String sslcertfile = PGProperty.SSL_CERT.get(info);
@@ -86,25 +251,8 @@ public class LibPQFactory extends WrappedFactory implements HostnameVerifier {
           sslkeyfile = defaultdir + "postgresql.pk8";
         }
         
-        //Determine the callback handler
-        CallbackHandler cbh;
-        String sslpasswordcallback = PGProperty.SSL_PASSWORD_CALLBACK.get(info);
-        if (sslpasswordcallback != null)
-        {
-          try
-          {
-            cbh = (CallbackHandler)AbstractJdbc4MakeSSL.instantiate(sslpasswordcallback, info, false, null);
-          }
-          catch (Exception e)
-          {
-              throw new PSQLException(GT.tr("The password callback class provided {0} could not be instantiated.", sslpasswordcallback), PSQLState.CONNECTION_FAILURE, e);
-          }
-        } else {
-          cbh = new ConsoleCallbackHandler(PGProperty.SSL_PASSWORD.get(info));
-        }
-         
         //If the properies are empty, give null to prevent client key selection
-        km = new LazyKeyManager(("".equals(sslcertfile) ? null : sslcertfile), ("".equals(sslkeyfile) ? null : sslkeyfile), cbh, defaultfile);
+        km = new LazyKeyManager(("".equals(sslcertfile) ? null : sslcertfile), ("".equals(sslkeyfile) ? null : sslkeyfile), getCallbackHandler(info), defaultfile);
         
         TrustManager[] tm;    
         if("verify-ca".equals(sslmode) || "verify-full".equals(sslmode))
@@ -175,6 +323,26 @@ public class LibPQFactory extends WrappedFactory implements HostnameVerifier {
       }
     }
 
+    /**
+     * Determines the callback handler that asks for the password of the key.
+     */
+    private static CallbackHandler getCallbackHandler(Properties info) throws PSQLException
+    {
+      String sslpasswordcallback = PGProperty.SSL_PASSWORD_CALLBACK.get(info);
+      if (sslpasswordcallback != null)
+      {
+        try
+        {
+          return (CallbackHandler)AbstractJdbc4MakeSSL.instantiate(sslpasswordcallback, info, false, null);
+        }
+        catch (Exception e)
+        {
+            throw new PSQLException(GT.tr("The password callback class provided {0} could not be instantiated.", sslpasswordcallback), PSQLState.CONNECTION_FAILURE, e);
+        }
+      }
+      return new ConsoleCallbackHandler(PGProperty.SSL_PASSWORD.get(info));
+    }
+
     /**
      * Propagates any exception from LazyKeyManager
      * @throws PSQLException
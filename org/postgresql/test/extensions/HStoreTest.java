@@ -13,7 +13,13 @@ import java.util.HashMap;
 import java.util.Map;
 
 import junit.framework.TestCase;
+import org.postgresql.PGResultSetMetaData;
+import org.postgresql.PGStatement;
+import org.postgresql.core.Encoding;
+import org.postgresql.core.Field;
 import org.postgresql.test.TestUtil;
+import org.postgresql.util.HStoreConverter;
+import org.postgresql.util.PSQLState;
 
 // SELECT 'hstore'::regtype::oid
 // SELECT 'hstore[]'::regtype::oid
@@ -80,4 +86,149 @@ public class HStoreTest extends TestCase {
         assertEquals("\"a\"=>\"t'e\ns\\\"t\"", rs.getString(1));
     }
 
+    private int getFormat(ResultSet rs) throws SQLException {
+        return ((PGResultSetMetaData) rs.getMetaData()).getFormat(1);
+    }
+
+    public void testHStoreBinaryAfterFirstUse() throws SQLException {
+        PreparedStatement pstmt = _conn.prepareStatement("SELECT 'a=>1,b=>2'::hstore");
+        ((PGStatement) pstmt).setPrepareThreshold(-1);
+        ResultSet rs = pstmt.executeQuery();
+        assertTrue(rs.next());
+        assertEquals(Field.TEXT_FORMAT, getFormat(rs));
+        rs.getObject(1);
+
+        // the oid of hstore is known now
+        rs = pstmt.executeQuery();
+        assertTrue(rs.next());
+        assertEquals(Field.BINARY_FORMAT, getFormat(rs));
+        Map correct = new HashMap();
+        correct.put("a", "1");
+        correct.put("b", "2");
+        assertEquals(correct, rs.getObject(1));
+        String str = rs.getString(1);
+        if (!("\"a\"=>\"1\", \"b\"=>\"2\"".equals(str) || "\"b\"=>\"2\", \"a\"=>\"1\"".equals(str))) {
+            fail("Expected " + "\"a\"=>\"1\", \"b\"=>\"2\"" + " but got " + str);
+        }
+    }
+
+    public void testHStoreBinaryManyKeys() throws SQLException {
+        PreparedStatement pstmt = _conn.prepareStatement("SELECT hstore(array_agg('k' || i), array_agg(CASE WHEN i % 10 = 0 THEN NULL ELSE 'v\u00e9' || i END)) FROM generate_series(1, 500) AS i");
+        ((PGStatement) pstmt).setPrepareThreshold(-1);
+        ResultSet rs = pstmt.executeQuery();
+        assertTrue(rs.next());
+        rs.getObject(1);
+
+        rs = pstmt.executeQuery();
+        assertTrue(rs.next());
+        assertEquals(Field.BINARY_FORMAT, getFormat(rs));
+        Map m = (Map) rs.getObject(1);
+        assertEquals(500, m.size());
+        assertEquals("v\u00e9251", m.get("k251"));
+        assertEquals("v\u00e91", m.get("k1"));
+        assertEquals("v\u00e9499", m.get("k499"));
+        assertNull(m.get("k10"));
+        assertTrue(m.containsKey("k10"));
+        assertFalse(m.containsKey("k501"));
+        assertFalse(m.containsKey("k"));
+        assertNull(m.get(new Integer(1)));
+
+        Map correct = new HashMap();
+        for (int i = 1; i <= 500; ++i) {
+            correct.put("k" + i, i % 10 == 0 ? null : "v\u00e9" + i);
+        }
+        assertEquals(correct, m);
+        assertEquals(m, correct);
+        assertEquals(correct.hashCode(), m.hashCode());
+    }
+
+    public void testHStoreBinaryReadOnly() throws SQLException {
+        PreparedStatement pstmt = _conn.prepareStatement("SELECT 'a=>1'::hstore");
+        ((PGStatement) pstmt).setPrepareThreshold(-1);
+        ResultSet rs = pstmt.executeQuery();
+        assertTrue(rs.next());
+        assertEquals(Field.TEXT_FORMAT, getFormat(rs));
+        assertReadOnly((Map) rs.getObject(1));
+
+        rs = pstmt.executeQuery();
+        assertTrue(rs.next());
+        assertEquals(Field.BINARY_FORMAT, getFormat(rs));
+        assertReadOnly((Map) rs.getObject(1));
+    }
+
+    private void assertReadOnly(Map m) {
+        try {
+            m.put("b", "2");
+            fail("Expected the map to be read-only");
+        } catch (UnsupportedOperationException e) {
+        }
+        try {
+            m.clear();
+            fail("Expected the map to be read-only");
+        } catch (UnsupportedOperationException e) {
+        }
+        assertEquals(Collections.singletonMap("a", "1"), m);
+    }
+
+    public void testHStoreBinaryMalformed() throws SQLException {
+        Encoding utf8 = Encoding.getJVMEncoding("UTF-8");
+        // one entry "a"=>"b" in the binary format
+        byte[] valid = new byte[] { 0, 0, 0, 1, 0, 0, 0, 1, 'a', 0, 0, 0, 1, 'b' };
+        assertEquals(Collections.singletonMap("a", "b"), HStoreConverter.fromBytes(valid, utf8));
+
+        byte[] truncated = new byte[valid.length - 1];
+        System.arraycopy(valid, 0, truncated, 0, truncated.length);
+        assertMalformed(truncated, utf8);
+
+        byte[] badLength = (byte[]) valid.clone();
+        badLength[7] = 10;
+        assertMalformed(badLength, utf8);
+
+        byte[] badChar = (byte[]) valid.clone();
+        badChar[13] = (byte) 0xC3;
+        assertMalformed(badChar, utf8);
+    }
+
+    private void assertMalformed(byte[] b, Encoding encoding) {
+        try {
+            HStoreConverter.fromBytes(b, encoding);
+            fail("Expected the value to be rejected");
+        } catch (SQLException e) {
+            assertEquals(PSQLState.DATA_ERROR.getState(), e.getSQLState());
+        }
+    }
+
+    public void testHStoreSendBinary() throws SQLException {
+        Map correct = new HashMap();
+        StringBuilder large = new StringBuilder();
+        for (int i = 0; i < 1000; ++i) {
+            large.append('\u00e9');
+        }
+        correct.put("large", large.toString());
+        correct.put("empty", "");
+        correct.put("null", null);
+        for (int i = 0; i < 300; ++i) {
+            correct.put("k" + i, "v" + i);
+        }
+
+        PreparedStatement pstmt = _conn.prepareStatement("SELECT ?::hstore -> 'k7', ?::hstore");
+        pstmt.setObject(1, correct);
+        pstmt.setObject(2, correct);
+        ResultSet rs = pstmt.executeQuery();
+        assertTrue(rs.next());
+        assertEquals("v7", rs.getString(1));
+        assertEquals(correct, rs.getObject(2));
+
+        // larger than a Bind message assembled in a buffer
+        for (int i = 0; i < 100; ++i) {
+            correct.put("large" + i, large.toString());
+        }
+        pstmt.setObject(1, correct);
+        pstmt.setObject(2, correct);
+        rs = pstmt.executeQuery();
+        assertTrue(rs.next());
+        assertEquals("v7", rs.getString(1));
+        assertEquals(correct, rs.getObject(2));
+    }
+
 }
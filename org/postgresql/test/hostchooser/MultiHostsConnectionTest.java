@@ -8,6 +8,7 @@ import static org.postgresql.hostchooser.HostRequirement.master;
 import static org.postgresql.hostchooser.HostRequirement.preferSlave;
 import static org.postgresql.hostchooser.HostRequirement.slave;
 import static org.postgresql.hostchooser.HostStatus.ConnectFail;
+import static org.postgresql.hostchooser.HostStatus.Master;
 import static org.postgresql.hostchooser.HostStatus.Slave;
 import static org.postgresql.test.TestUtil.closeDB;
 
@@ -16,7 +17,10 @@ import java.sql.Connection;
 import java.sql.DriverManager;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.ArrayList;
 import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.Properties;
 import java.util.Set;
@@ -24,7 +28,10 @@ import java.util.Set;
 import junit.framework.TestCase;
 
 import org.postgresql.hostchooser.GlobalHostStatusTracker;
+import org.postgresql.hostchooser.HostChooserFactory;
+import org.postgresql.hostchooser.HostLoad;
 import org.postgresql.hostchooser.HostRequirement;
+import org.postgresql.hostchooser.HostStatusProber;
 import org.postgresql.test.TestUtil;
 import org.postgresql.util.HostSpec;
 import org.postgresql.util.PSQLException;
@@ -77,6 +84,10 @@ public class MultiHostsConnectionTest extends TestCase {
     }
 
     private static Connection getConnection(HostRequirement hostType, boolean reset, boolean lb, String... targets) throws SQLException {
+        return getConnection(hostType, reset, lb, 0, targets);
+    }
+
+    private static Connection getConnection(HostRequirement hostType, boolean reset, boolean lb, int probeSeconds, String... targets) throws SQLException {
         TestUtil.closeDB(con);
 
         if (reset) {
@@ -91,6 +102,9 @@ public class MultiHostsConnectionTest extends TestCase {
         if (lb) {
             props.setProperty("loadBalanceHosts", "true");
         }
+        if (probeSeconds > 0) {
+            props.setProperty("hostProbeSeconds", String.valueOf(probeSeconds));
+        }
 
         StringBuilder sb = new StringBuilder();
         sb.append("jdbc:postgresql://");
@@ -247,4 +261,80 @@ public class MultiHostsConnectionTest extends TestCase {
         getConnection(master, false, slave1, fake1, master1);
         assertRemote(masterIp);
     }
-}
\ No newline at end of file
+
+    public static void testHostProbing() throws SQLException, InterruptedException {
+        try {
+            getConnection(master, true, false, 1, fake1, master1, slave1);
+            assertRemote(masterIp);
+            assertGlobalState(slave1, null);
+
+            // the probes discover the slave without any user connection trying it
+            SECONDS.sleep(2);
+            assertGlobalState(fake1, "ConnectFail");
+            assertGlobalState(master1, "Master");
+            assertGlobalState(slave1, "Slave");
+
+            // with fresh statuses the known master is tried first
+            getConnection(master, false, false, 1, slave1, fake1, master1);
+            assertRemote(masterIp);
+        } finally {
+            HostStatusProber.shutdown();
+            resetGlobalState();
+        }
+    }
+
+    public static void testLoadBalancingKeepsProbedHostsFirst() {
+        resetGlobalState();
+        GlobalHostStatusTracker.reportHostStatus(hostSpec(master1), Master);
+        Properties props = new Properties();
+        props.setProperty("loadBalanceHosts", "true");
+        props.setProperty("hostProbeSeconds", "1");
+        HostSpec[] hosts = new HostSpec[] { hostSpec(fake1), hostSpec(slave1), hostSpec(master1) };
+        try {
+            // the hosts of unknown status are balanced after the probed master
+            for (int i = 0; i < 20; ++i) {
+                Iterator<HostSpec> it = HostChooserFactory.createHostChooser(hosts, master, props).iterator();
+                assertEquals(hostSpec(master1), it.next());
+            }
+        } finally {
+            resetGlobalState();
+        }
+    }
+
+    public static void testLoadBalancingByConnectionCount() throws SQLException {
+        resetGlobalState();
+        Properties props = new Properties();
+        props.setProperty("user", user);
+        props.setProperty("password", password);
+        props.setProperty("loadBalanceHosts", "true");
+        props.setProperty("loadBalanceStrategy", "leastConnections");
+        String url = "jdbc:postgresql://" + master1 + "," + slave1 + "/test";
+
+        TestUtil.closeDB(con);
+        HostLoad masterLoad = GlobalHostStatusTracker.getHostLoad(hostSpec(master1));
+        HostLoad slaveLoad = GlobalHostStatusTracker.getHostLoad(hostSpec(slave1));
+        List<Connection> connections = new ArrayList<Connection>();
+        try {
+            for (int i = 0; i < 4; ++i) {
+                connections.add(DriverManager.getConnection(url, props));
+                assertTrue("Connections not balanced evenly", Math.abs(masterLoad.getOpenConnections() - slaveLoad.getOpenConnections()) <= 1);
+            }
+        } finally {
+            for (Connection connection : connections) {
+                closeDB(connection);
+            }
+        }
+    }
+
+    public static void testInvalidLoadBalanceStrategy() throws SQLException {
+        Properties props = new Properties();
+        props.setProperty("user", user);
+        props.setProperty("password", password);
+        props.setProperty("loadBalanceStrategy", "fastest");
+        try {
+            DriverManager.getConnection("jdbc:postgresql://" + master1 + "," + slave1 + "/test", props);
+            fail();
+        } catch (PSQLException ex) {
+        }
+    }
+}
@@ -10,9 +10,15 @@ package org.postgresql.test.jdbc2;
 import org.postgresql.test.TestUtil;
 import java.sql.*;
 import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.Properties;
 
+import org.postgresql.PGResultSetMetaData;
+import org.postgresql.PGStatement;
+import org.postgresql.core.Field;
 import org.postgresql.geometric.PGbox;
 import org.postgresql.geometric.PGpoint;
+import org.postgresql.util.PGInterval;
 
 import junit.framework.TestCase;
 
@@ -385,6 +391,215 @@ public class ArrayTest extends TestCase
         assertEquals(4, i[1][1].intValue());
     }
 
+    public void testSlices() throws SQLException
+    {
+        Statement stmt = conn.createStatement();
+        ResultSet rs = stmt.executeQuery("SELECT '{1,2,3,4}'::int8[], '{{1,2},{3,4},{\"5\",6}}'::int[]");
+        assertTrue(rs.next());
+
+        Long l[] = (Long[])rs.getArray(1).getArray(2, 2);
+        assertEquals(2, l.length);
+        assertEquals(2, l[0].longValue());
+        assertEquals(3, l[1].longValue());
+
+        Integer i[][] = (Integer[][])rs.getArray(2).getArray(2, 2);
+        assertEquals(2, i.length);
+        assertEquals(3, i[0][0].intValue());
+        assertEquals(5, i[1][0].intValue());
+        assertEquals(6, i[1][1].intValue());
+
+        try
+        {
+            rs.getArray(2).getArray(3, 2);
+            fail("Expected an index out of range.");
+        }
+        catch (SQLException e)
+        {
+        }
+        rs.close();
+        stmt.close();
+    }
+
+    public void testPrimitiveArrays() throws Exception
+    {
+        Properties props = new Properties();
+        props.setProperty("compatible", "8.2");
+        Connection con82 = TestUtil.openDB(props);
+        try
+        {
+            Statement stmt = con82.createStatement();
+            ResultSet rs = stmt.executeQuery("SELECT '{{-2147483648,2147483647},{1.0,NULL}}'::numeric[]::int[], '{9223372036854775807,-12}'::int8[], '{t,f,NULL}'::bool[], '{1.5,-2e3}'::float8[]");
+            assertTrue(rs.next());
+
+            int i[][] = (int[][])rs.getArray(1).getArray();
+            assertEquals(Integer.MIN_VALUE, i[0][0]);
+            assertEquals(Integer.MAX_VALUE, i[0][1]);
+            assertEquals(1, i[1][0]);
+            assertEquals(0, i[1][1]);
+
+            long l[] = (long[])rs.getArray(2).getArray();
+            assertEquals(Long.MAX_VALUE, l[0]);
+            assertEquals(-12, l[1]);
+
+            boolean b[] = (boolean[])rs.getArray(3).getArray();
+            assertEquals(3, b.length);
+            assertTrue(b[0]);
+            assertFalse(b[1]);
+            assertFalse(b[2]);
+
+            double d[] = (double[])rs.getArray(4).getArray();
+            assertEquals(1.5, d[0], 0);
+            assertEquals(-2000, d[1], 0);
+            rs.close();
+            stmt.close();
+        }
+        finally
+        {
+            TestUtil.closeDB(con82);
+        }
+    }
+
+    public void testLargeArray() throws SQLException
+    {
+        if (!TestUtil.haveMinimumServerVersion(conn, "8.4"))
+            return;
+
+        Statement stmt = conn.createStatement();
+        ResultSet rs = stmt.executeQuery("SELECT array_agg(g), array_agg('x ' || g) FROM generate_series(1, 1000) g");
+        assertTrue(rs.next());
+
+        Integer i[] = (Integer[])rs.getArray(1).getArray();
+        String s[] = (String[])rs.getArray(2).getArray();
+        assertEquals(1000, i.length);
+        assertEquals(1000, s.length);
+        for (int j = 0; j < i.length; j++)
+        {
+            assertEquals(j + 1, i[j].intValue());
+            assertEquals("x " + (j + 1), s[j]);
+        }
+        rs.close();
+        stmt.close();
+    }
+
+    public void testBinaryArrays() throws SQLException
+    {
+        String sql = "SELECT ARRAY[true,NULL,false], ARRAY[1.50,-12345678901234567890.123,0.0000001], ARRAY[decode('01ff','hex'),NULL], "
+                     + "ARRAY['2015-01-02'::date], ARRAY[1,4294967295]::oid[], ARRAY['a b',NULL,'','NULL','q\"x{'], '[0:1][1:2]={{1,2},{3,4}}'::int[], ARRAY['1 day'::interval], ARRAY[1,-2]::int2[], "
+                     + "ARRAY['2015-01-02 03:04:05.678+01','infinity','2015-07-01 00:00:00.5+00']::timestamptz[], ARRAY[1.5,-0.1,1e20,1e-5,'NaN','-Infinity']::float8[], "
+                     + "ARRAY['(1,2.5)','(-0.1,1e20)']::point[], ARRAY['2015-01-02 03:04:05.000123','-infinity','0044-03-15 12:00:00 BC']::timestamp[], ARRAY['23:59:59.999999','00:00']::time[], "
+                     + "ARRAY['01:02:03+05:30','01:02:03.5-08']::timetz[], ARRAY[0.1,3.4e38,-1e-7,123456.7]::float4[], ARRAY['((3,4),(1,2))']::box[], "
+                     + "ARRAY['0001-01-01 BC','infinity']::date[]";
+        Statement stmt = conn.createStatement();
+        ResultSet textRs = stmt.executeQuery(sql);
+        assertTrue(textRs.next());
+
+        PreparedStatement pstmt = conn.prepareStatement(sql);
+        ((PGStatement) pstmt).setPrepareThreshold(-1);
+        ResultSet rs = pstmt.executeQuery();
+        assertTrue(rs.next());
+        for (int i = 1; i <= 18; i++)
+            assertEquals(Field.BINARY_FORMAT, ((PGResultSetMetaData) rs.getMetaData()).getFormat(i));
+
+        // the same literals as the text format, except for the interval
+        for (int i = 1; i <= 18; i++)
+        {
+            if (i != 8)
+                assertEquals(textRs.getString(i), rs.getString(i));
+        }
+
+        Boolean b[] = (Boolean[])rs.getArray(1).getArray();
+        assertEquals(Boolean.TRUE, b[0]);
+        assertNull(b[1]);
+        assertEquals(Boolean.FALSE, b[2]);
+
+        BigDecimal d[] = (BigDecimal[])rs.getArray(2).getArray();
+        assertEquals(new BigDecimal("1.50"), d[0]);
+        assertEquals(new BigDecimal("-12345678901234567890.123"), d[1]);
+        assertEquals(new BigDecimal("0.0000001"), d[2]);
+
+        byte bytes[][] = (byte[][])rs.getArray(3).getArray();
+        assertEquals(2, bytes[0].length);
+        assertEquals((byte)0xff, bytes[0][1]);
+        assertNull(bytes[1]);
+
+        java.sql.Date dates[] = (java.sql.Date[])rs.getArray(4).getArray();
+        assertEquals("2015-01-02", dates[0].toString());
+
+        Long oids[] = (Long[])rs.getArray(5).getArray();
+        assertEquals(4294967295L, oids[1].longValue());
+
+        String strings[] = (String[])rs.getArray(6).getArray();
+        assertEquals("a b", strings[0]);
+        assertNull(strings[1]);
+        assertEquals("", strings[2]);
+        assertEquals("NULL", strings[3]);
+        assertEquals("q\"x{", strings[4]);
+
+        Integer ints[][] = (Integer[][])rs.getArray(7).getArray(2, 1);
+        assertEquals(1, ints.length);
+        assertEquals(3, ints[0][0].intValue());
+        assertEquals(4, ints[0][1].intValue());
+
+        PGInterval intervals[] = (PGInterval[])rs.getArray(8).getArray();
+        assertEquals(1, intervals[0].getDays());
+
+        // Integer like the text format
+        Integer shorts[] = (Integer[])rs.getArray(9).getArray();
+        assertEquals(-2, shorts[1].intValue());
+        assertTrue(Arrays.equals((Object[])textRs.getArray(9).getArray(), shorts));
+
+        ResultSet arrRS = rs.getArray(1).getResultSet();
+        assertTrue(arrRS.next());
+        assertTrue(arrRS.getBoolean(2));
+        assertTrue(arrRS.next());
+        assertNull(arrRS.getObject(2));
+        arrRS = rs.getArray(2).getResultSet(2, 1);
+        assertTrue(arrRS.next());
+        assertEquals(2, arrRS.getInt(1));
+        assertEquals(d[1], arrRS.getBigDecimal(2));
+        assertFalse(arrRS.next());
+
+        rs.close();
+        pstmt.close();
+        textRs.close();
+        stmt.close();
+    }
+
+    public void testBinaryPrimitiveArrays() throws Exception
+    {
+        Properties props = new Properties();
+        props.setProperty("compatible", "8.2");
+        Connection con82 = TestUtil.openDB(props);
+        try
+        {
+            PreparedStatement pstmt = con82.prepareStatement("SELECT ARRAY[1,NULL]::int8[], ARRAY[true,false], ARRAY[1,2]::int2[], ARRAY[[1.5],[2.5]]::float8[]");
+            ((PGStatement) pstmt).setPrepareThreshold(-1);
+            ResultSet rs = pstmt.executeQuery();
+            assertTrue(rs.next());
+            assertEquals(Field.BINARY_FORMAT, ((PGResultSetMetaData) rs.getMetaData()).getFormat(1));
+
+            long l[] = (long[])rs.getArray(1).getArray();
+            assertEquals(1, l[0]);
+            assertEquals(0, l[1]);
+
+            boolean b[] = (boolean[])rs.getArray(2).getArray();
+            assertTrue(b[0]);
+            assertFalse(b[1]);
+
+            int i[] = (int[])rs.getArray(3).getArray();
+            assertEquals(2, i[1]);
+
+            double d[][] = (double[][])rs.getArray(4).getArray();
+            assertEquals(2.5, d[1][0], 0);
+            rs.close();
+            pstmt.close();
+        }
+        finally
+        {
+            TestUtil.closeDB(con82);
+        }
+    }
+
     /*
      * The box data type uses a semicolon as the array element
      * delimiter instead of a comma which pretty much everything
@@ -0,0 +1,310 @@
+/*-------------------------------------------------------------------------
+*
+* Copyright (c) 2015, PostgreSQL Global Development Group
+*
+*
+*-------------------------------------------------------------------------
+*/
+package org.postgresql.test.jdbc2;
+
+import org.postgresql.PGAsyncResult;
+import org.postgresql.PGConnection;
+import org.postgresql.test.TestUtil;
+import junit.framework.TestCase;
+import java.sql.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/*
+ * Tests for PGConnection.executeAsync.
+ */
+public class AsyncQueryTest extends TestCase
+{
+    private Connection conn;
+
+    public AsyncQueryTest(String name)
+    {
+        super(name);
+    }
+
+    protected void setUp() throws Exception
+    {
+        conn = TestUtil.openDB();
+        TestUtil.createTempTable(conn, "asynctest", "id int");
+    }
+
+    protected void tearDown() throws SQLException
+    {
+        TestUtil.closeDB(conn);
+    }
+
+    public void testPipelinedQueries() throws Exception
+    {
+        PGConnection pgconn = (PGConnection)conn;
+        PGAsyncResult insert = pgconn.executeAsync("INSERT INTO asynctest SELECT generate_series(1, ?)", new Object[] { new Integer(3) });
+        PGAsyncResult count = pgconn.executeAsync("SELECT count(*) FROM asynctest", null);
+        PGAsyncResult text = pgconn.executeAsync("SELECT ?::text", new Object[] { "value" });
+
+        ResultSet rs = text.get();
+        assertTrue(insert.isDone());
+        assertTrue(count.isDone());
+
+        assertEquals(3, insert.getUpdateCount());
+        assertNull(insert.getResultSet());
+        assertTrue(rs.next());
+        assertEquals("value", rs.getString(1));
+        rs = count.getResultSet();
+        assertEquals(-1, count.getUpdateCount());
+        assertTrue(rs.next());
+        assertEquals(3, rs.getInt(1));
+    }
+
+    public void testErrorFailsOnlyItsQuery() throws Exception
+    {
+        PGConnection pgconn = (PGConnection)conn;
+        PGAsyncResult failing = pgconn.executeAsync("SELECT 1/0", null);
+        PGAsyncResult next = pgconn.executeAsync("SELECT 2", null);
+
+        ResultSet rs = next.getResultSet();
+        assertTrue(rs.next());
+        assertEquals(2, rs.getInt(1));
+
+        try
+        {
+            failing.get();
+            fail("Division by zero should have failed");
+        }
+        catch (ExecutionException e)
+        {
+            assertTrue(e.getCause() instanceof SQLException);
+        }
+    }
+
+    public void testSynchronousCallCompletesPendingQueries() throws Exception
+    {
+        PGAsyncResult insert = ((PGConnection)conn).executeAsync("INSERT INTO asynctest VALUES (1)", null);
+
+        Statement stmt = conn.createStatement();
+        ResultSet rs = stmt.executeQuery("SELECT count(*) FROM asynctest");
+        assertTrue(insert.isDone());
+        assertTrue(rs.next());
+        assertEquals(1, rs.getInt(1));
+        stmt.close();
+    }
+
+    public void testStatementClosedOnCompletion() throws Exception
+    {
+        PGAsyncResult result = ((PGConnection)conn).executeAsync("SELECT 1", null);
+        ResultSet rs = result.getResultSet();
+        try
+        {
+            rs.getStatement().getMaxRows();
+            fail("The statement should have been closed");
+        }
+        catch (SQLException e)
+        {
+            // expected
+        }
+        // the results stay readable
+        assertTrue(rs.next());
+        assertEquals(1, rs.getInt(1));
+    }
+
+    public void testListenerAndPolling() throws Exception
+    {
+        PGConnection pgconn = (PGConnection)conn;
+        final int[] completed = new int[1];
+        PGAsyncResult result = pgconn.executeAsync("SELECT 1", null);
+        result.addListener(new Runnable() {
+            public void run() {
+                completed[0]++;
+            }
+        });
+
+        long deadline = System.currentTimeMillis() + 10000;
+        while (!result.isDone() && System.currentTimeMillis() < deadline)
+        {
+            pgconn.processAsyncResults();
+            Thread.sleep(10);
+        }
+        assertTrue(result.isDone());
+        assertEquals(1, completed[0]);
+
+        // listeners added later run immediately
+        result.addListener(new Runnable() {
+            public void run() {
+                completed[0]++;
+            }
+        });
+        assertEquals(2, completed[0]);
+    }
+
+    public void testListenerExecutesQuery() throws Exception
+    {
+        PGConnection pgconn = (PGConnection)conn;
+        final int[] value = new int[1];
+        PGAsyncResult first = pgconn.executeAsync("SELECT 1", null);
+        PGAsyncResult second = pgconn.executeAsync("SELECT 2", null);
+        PGAsyncResult third = pgconn.executeAsync("SELECT 3", null);
+        first.addListener(new Runnable() {
+            public void run() {
+                try
+                {
+                    // completes the queries still pending first
+                    ResultSet rs = conn.createStatement().executeQuery("SELECT 4");
+                    rs.next();
+                    value[0] = rs.getInt(1);
+                }
+                catch (SQLException sqle)
+                {
+                    value[0] = -1;
+                }
+            }
+        });
+
+        ResultSet rs = third.get();
+        assertEquals(4, value[0]);
+        assertTrue(rs.next());
+        assertEquals(3, rs.getInt(1));
+        rs = second.getResultSet();
+        assertTrue(rs.next());
+        assertEquals(2, rs.getInt(1));
+        assertEquals(0, pgconn.processAsyncResults());
+    }
+
+    public void testPollingLargeResult() throws Exception
+    {
+        PGConnection pgconn = (PGConnection)conn;
+        // larger than what a single poll reads
+        PGAsyncResult result = pgconn.executeAsync("SELECT repeat('x', 1000) FROM generate_series(1, 5000)", null);
+
+        long deadline = System.currentTimeMillis() + 10000;
+        int polls = 0;
+        while (!result.isDone() && System.currentTimeMillis() < deadline)
+        {
+            pgconn.processAsyncResults();
+            polls++;
+        }
+        assertTrue(result.isDone());
+        assertTrue(polls > 1);
+
+        ResultSet rs = result.getResultSet();
+        int rows = 0;
+        while (rs.next())
+            rows++;
+        assertEquals(5000, rows);
+
+        rs = conn.createStatement().executeQuery("SELECT 1");
+        assertTrue(rs.next());
+    }
+
+    public void testPollingAfterSessionCommand() throws Exception
+    {
+        if (TestUtil.isProtocolVersion(conn, 2))
+            return;
+
+        PGConnection pgconn = (PGConnection)conn;
+        // sent with the query, and replied to before it starts sleeping
+        conn.setTransactionIsolation(Connection.TRANSACTION_SERIALIZABLE);
+        PGAsyncResult result = pgconn.executeAsync("SELECT pg_sleep(1)", null);
+        Thread.sleep(200);
+        long start = System.currentTimeMillis();
+        assertEquals(0, pgconn.processAsyncResults());
+        assertTrue(System.currentTimeMillis() - start < 500);
+        assertNotNull(result.get(10, TimeUnit.SECONDS));
+        assertEquals(Connection.TRANSACTION_SERIALIZABLE, conn.getTransactionIsolation());
+    }
+
+    public void testTransaction() throws Exception
+    {
+        PGConnection pgconn = (PGConnection)conn;
+        conn.setAutoCommit(false);
+        pgconn.executeAsync("INSERT INTO asynctest VALUES (1)", null);
+        PGAsyncResult last = pgconn.executeAsync("INSERT INTO asynctest VALUES (2)", null);
+        assertEquals(1, last.getUpdateCount());
+        // the second query must not send another BEGIN
+        assertNull(conn.getWarnings());
+        conn.rollback();
+        conn.setAutoCommit(true);
+
+        Statement stmt = conn.createStatement();
+        ResultSet rs = stmt.executeQuery("SELECT count(*) FROM asynctest");
+        assertTrue(rs.next());
+        assertEquals(0, rs.getInt(1));
+        stmt.close();
+    }
+
+    public void testCommitWithoutReadingResult() throws Exception
+    {
+        conn.setAutoCommit(false);
+        ((PGConnection)conn).executeAsync("INSERT INTO asynctest VALUES (1)", null);
+        // the BEGIN sent with the insert is only seen once its results are read
+        conn.commit();
+        assertEquals(1, countRows());
+        conn.rollback();
+        assertEquals(1, countRows());
+    }
+
+    public void testRollbackWithoutReadingResult() throws Exception
+    {
+        conn.setAutoCommit(false);
+        ((PGConnection)conn).executeAsync("INSERT INTO asynctest VALUES (1)", null);
+        conn.rollback();
+        conn.setAutoCommit(true);
+        assertEquals(0, countRows());
+    }
+
+    private int countRows() throws SQLException
+    {
+        Statement stmt = conn.createStatement();
+        ResultSet rs = stmt.executeQuery("SELECT count(*) FROM asynctest");
+        assertTrue(rs.next());
+        int count = rs.getInt(1);
+        stmt.close();
+        return count;
+    }
+
+    public void testGetWithTimeout() throws Exception
+    {
+        if (TestUtil.isProtocolVersion(conn, 2))
+            return;
+
+        PGAsyncResult result = ((PGConnection)conn).executeAsync("SELECT pg_sleep(1)", null);
+        try
+        {
+            result.get(10, TimeUnit.MILLISECONDS);
+            fail("The query should not have completed yet");
+        }
+        catch (TimeoutException e)
+        {
+            // expected
+        }
+        assertNotNull(result.get(10, TimeUnit.SECONDS));
+    }
+
+    public void testGetWithTimeoutWhileResultsArrive() throws Exception
+    {
+        if (TestUtil.isProtocolVersion(conn, 2))
+            return;
+
+        // the first row is sent before the second one starts sleeping
+        PGAsyncResult result = ((PGConnection)conn).executeAsync("SELECT CASE WHEN x = 2 THEN pg_sleep(2)::text ELSE repeat('x', 100000) END FROM generate_series(1, 2) x", null);
+        Thread.sleep(200);
+        long start = System.currentTimeMillis();
+        try
+        {
+            result.get(10, TimeUnit.MILLISECONDS);
+            fail("The query should not have completed yet");
+        }
+        catch (TimeoutException e)
+        {
+            // expected
+        }
+        assertTrue(System.currentTimeMillis() - start < 1000);
+        assertFalse(result.isDone());
+        ResultSet rs = result.get(10, TimeUnit.SECONDS);
+        assertTrue(rs.next());
+        assertEquals(100000, rs.getString(1).length());
+    }
+}
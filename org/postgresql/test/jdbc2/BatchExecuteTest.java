@@ -344,4 +344,54 @@ public class BatchExecuteTest extends TestCase
             throw ex;
         }
     }
+
+    public void testBatchParameterShapes() throws SQLException {
+        con.setAutoCommit(true);
+        TestUtil.createTempTable(con, "batchshapes", "pk int8, txt text");
+        PreparedStatement pstmt = con.prepareStatement("INSERT INTO batchshapes VALUES (?, ?)");
+        pstmt.setInt(1, 1);
+        pstmt.setString(2, "caf\u00e9 \u20ac \ud83d\ude00");
+        pstmt.addBatch();
+        pstmt.setLong(1, 2);
+        pstmt.setNull(2, Types.VARCHAR);
+        pstmt.addBatch();
+        pstmt.setShort(1, (short) 3);
+        pstmt.setString(2, "three");
+        pstmt.addBatch();
+        pstmt.setInt(1, 4);
+        pstmt.setString(2, "four");
+        pstmt.addBatch();
+        int[] counts = pstmt.executeBatch();
+        assertEquals(4, counts.length);
+
+        Statement stmt = con.createStatement();
+        ResultSet rs = stmt.executeQuery("SELECT pk, txt FROM batchshapes ORDER BY pk");
+        assertTrue(rs.next());
+        assertEquals("caf\u00e9 \u20ac \ud83d\ude00", rs.getString(2));
+        assertTrue(rs.next());
+        assertEquals(2, rs.getLong(1));
+        assertEquals(null, rs.getString(2));
+        assertTrue(rs.next());
+        assertEquals("three", rs.getString(2));
+        assertTrue(rs.next());
+        assertEquals("four", rs.getString(2));
+        assertFalse(rs.next());
+        rs.close();
+
+        // the failed entry is reported with its values
+        TestUtil.createTempTable(con, "batchfail", "txt text check (txt <> 'b\u00e4d')");
+        pstmt = con.prepareStatement("INSERT INTO batchfail VALUES (?)");
+        pstmt.setString(1, "good");
+        pstmt.addBatch();
+        pstmt.setString(1, "b\u00e4d");
+        pstmt.addBatch();
+        try {
+            pstmt.executeBatch();
+            fail("Should have thrown a BatchUpdateException.");
+        } catch (BatchUpdateException e) {
+            assertTrue(e.getMessage(), e.getMessage().indexOf("'b\u00e4d'") > 0);
+        }
+        pstmt.close();
+        stmt.close();
+    }
 }
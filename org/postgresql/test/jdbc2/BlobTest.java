@@ -14,7 +14,9 @@ import junit.framework.TestCase;
 import java.io.*;
 import java.sql.*;
 
+import org.postgresql.fastpath.*;
 import org.postgresql.largeobject.*;
+import org.postgresql.util.ByteConverter;
 
 /**
  * Some simple tests based on problems reported by users. Hopefully these will
@@ -238,6 +240,206 @@ public class BlobTest extends TestCase
         assertEquals(length, lob.length());
     }
 
+    /**
+     * Writes and reads a large object larger than several round trips of
+     * read-ahead and write-behind, mixing single byte and bulk access.
+     */
+    public void testStreamsBulkAccess() throws Exception
+    {
+        byte[] data = new byte[3 * 1024 * 1024 + 17];
+        for (int i = 0; i < data.length; i++)
+            data[i] = (byte)(i * 31 + i / 7);
+
+        LargeObjectManager lom = ((org.postgresql.PGConnection)con).getLargeObjectAPI();
+        long oid = lom.createLO();
+        LargeObject lo = lom.open(oid);
+        OutputStream os = lo.getOutputStream();
+        int pos = 0;
+        os.write(data[pos++]);
+        os.write(data, pos, 100);
+        pos += 100;
+        os.write(data, pos, 2000000);
+        pos += 2000000;
+        while (pos < data.length)
+        {
+            int len = Math.min(3000, data.length - pos);
+            os.write(data, pos, len);
+            pos += len;
+        }
+        os.close();
+
+        lo = lom.open(oid, LargeObjectManager.READ);
+        assertEquals(data.length, lo.size());
+        InputStream is = lo.getInputStream();
+        byte[] read = new byte[data.length];
+        pos = 0;
+        read[pos++] = (byte)is.read();
+        int n;
+        while ((n = is.read(read, pos, Math.min(100000, read.length - pos))) > 0)
+            pos += n;
+        assertEquals(data.length, pos);
+        assertEquals(-1, is.read());
+        assertTrue(java.util.Arrays.equals(data, read));
+        is.close();
+    }
+
+    public void testFastpathBatch() throws Exception
+    {
+        LargeObjectManager lom = ((org.postgresql.PGConnection)con).getLargeObjectAPI();
+        Fastpath fp = ((org.postgresql.PGConnection)con).getFastpathAPI();
+        long oid = lom.createLO();
+        int fd = fp.getInteger("lo_open", new FastpathArg[] { Fastpath.createOIDArg(oid), new FastpathArg(LargeObjectManager.READWRITE) });
+
+        // enough calls to be sent in several parts
+        int count = 2000;
+        FastpathBatch batch = fp.createBatch();
+        for (int i = 0; i < count; i++)
+            batch.add("lowrite", new FastpathArg[] { new FastpathArg(fd), new FastpathArg(new byte[] { (byte) i }) });
+        batch.add("lo_lseek", new FastpathArg[] { new FastpathArg(fd), new FastpathArg(10), new FastpathArg(LargeObject.SEEK_SET) });
+        batch.add("loread", new FastpathArg[] { new FastpathArg(fd), new FastpathArg(3) });
+        batch.add(fp.getID("lo_tell"), new FastpathArg[] { new FastpathArg(fd) });
+        assertEquals(count + 3, batch.size());
+
+        byte[][] results = batch.execute();
+        assertEquals(0, batch.size());
+        assertEquals(count + 3, results.length);
+        assertEquals(1, ByteConverter.int4(results[0], 0));
+        assertEquals(10, ByteConverter.int4(results[count], 0));
+        assertTrue(java.util.Arrays.equals(new byte[] { 10, 11, 12 }, results[count + 1]));
+        assertEquals(13, ByteConverter.int4(results[count + 2], 0));
+
+        // an unknown descriptor fails its call only
+        batch.add("lo_tell", new FastpathArg[] { new FastpathArg(fd) });
+        batch.add("lo_tell", new FastpathArg[] { new FastpathArg(fd + 1000) });
+        try
+        {
+            batch.execute();
+            fail("Should have failed on an invalid descriptor.");
+        }
+        catch (SQLException sqle)
+        {
+            assertNull(sqle.getNextException());
+        }
+        assertEquals(0, batch.size());
+        // also drops the large object
+        con.rollback();
+
+        assertEquals(0, fp.createBatch().execute().length);
+    }
+
+    public void testFunctionIdsShared() throws Exception
+    {
+        ((org.postgresql.PGConnection)con).getLargeObjectAPI();
+        Connection con2 = TestUtil.openDB();
+        try
+        {
+            // In an aborted transaction every query fails, so the API can
+            // only be set up from the function ids looked up by con.
+            con2.setAutoCommit(false);
+            Statement stmt = con2.createStatement();
+            try
+            {
+                stmt.execute("SELECT 1/0");
+                fail("Expected division by zero");
+            }
+            catch (SQLException sqle)
+            {
+            }
+            LargeObjectManager lom2 = ((org.postgresql.PGConnection)con2).getLargeObjectAPI();
+            con2.rollback();
+
+            long oid = lom2.createLO();
+            LargeObject lo = lom2.open(oid);
+            lo.write(new byte[] { 1, 2, 3 });
+            lo.seek(0);
+            assertEquals(3, lo.read(3).length);
+            lo.close();
+            lom2.delete(oid);
+            con2.commit();
+        }
+        finally
+        {
+            TestUtil.closeDB(con2);
+        }
+    }
+
+    public void testTransferChannels() throws Exception
+    {
+        byte[] data = new byte[2 * 1024 * 1024 + 1000];
+        for (int i = 0; i < data.length; i++)
+            data[i] = (byte)(i * 17 + i / 5);
+
+        File source = File.createTempFile("blobtest", ".src");
+        File target = File.createTempFile("blobtest", ".dst");
+        try
+        {
+            FileOutputStream fos = new FileOutputStream(source);
+            fos.write(data);
+            fos.close();
+
+            LargeObjectManager lom = ((org.postgresql.PGConnection)con).getLargeObjectAPI();
+            long oid = lom.createLO();
+            LargeObject lo = lom.open(oid);
+            FileInputStream fis = new FileInputStream(source);
+            assertEquals(data.length - 10, lo.transferFrom(fis.getChannel(), data.length - 10));
+            assertEquals(10, lo.transferFrom(fis.getChannel(), Long.MAX_VALUE));
+            assertEquals(0, lo.transferFrom(fis.getChannel(), Long.MAX_VALUE));
+            fis.close();
+            lo.close();
+
+            lo = lom.open(oid, LargeObjectManager.READ);
+            assertEquals(data.length, lo.size());
+            fos = new FileOutputStream(target);
+            assertEquals(data.length, lo.transferTo(fos.getChannel()));
+            assertEquals(0, lo.transferTo(fos.getChannel()));
+            fos.close();
+            lo.close();
+
+            byte[] read = new byte[data.length];
+            DataInputStream dis = new DataInputStream(new FileInputStream(target));
+            dis.readFully(read);
+            assertEquals(-1, dis.read());
+            dis.close();
+            assertTrue(java.util.Arrays.equals(data, read));
+        }
+        finally
+        {
+            source.delete();
+            target.delete();
+        }
+    }
+
+    public void testInputStreamSkipMarkAndLimit() throws Exception
+    {
+        byte[] data = new byte[100000];
+        for (int i = 0; i < data.length; i++)
+            data[i] = (byte)i;
+
+        LargeObjectManager lom = ((org.postgresql.PGConnection)con).getLargeObjectAPI();
+        long oid = lom.createLO();
+        LargeObject lo = lom.open(oid);
+        lo.write(data);
+        lo.close();
+
+        lo = lom.open(oid, LargeObjectManager.READ);
+        InputStream is = lo.getInputStream(50000);
+        assertEquals(data[0], (byte)is.read());
+        assertEquals(20000, is.skip(20000));
+        assertEquals(data[20001], (byte)is.read());
+        is.mark(1000);
+        byte[] buf = new byte[10];
+        assertEquals(10, is.read(buf));
+        assertEquals(data[20002], buf[0]);
+        is.reset();
+        assertEquals(data[20002], (byte)is.read());
+
+        // the limit ends the stream
+        assertEquals(50000 - 20003, is.skip(100000));
+        assertEquals(-1, is.read());
+        assertEquals(-1, is.read(buf));
+        is.close();
+    }
+
     /*
      * Helper - uploads a file into a blob using old style methods. We use this
      * because it always works, and we can use it as a base to test the new
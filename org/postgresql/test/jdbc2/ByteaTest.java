@@ -0,0 +1,128 @@
+/*-------------------------------------------------------------------------
+*
+* Copyright (c) 2015, PostgreSQL Global Development Group
+*
+*
+*-------------------------------------------------------------------------
+*/
+package org.postgresql.test.jdbc2;
+
+import org.postgresql.test.TestUtil;
+import org.postgresql.util.PGbytea;
+import java.io.ByteArrayOutputStream;
+import java.sql.*;
+import java.util.Arrays;
+import java.util.Properties;
+import junit.framework.TestCase;
+
+/*
+ * Tests for decoding and encoding the text format of bytea.
+ */
+public class ByteaTest extends TestCase
+{
+    private Connection con;
+
+    public ByteaTest(String name)
+    {
+        super(name);
+    }
+
+    protected void setUp() throws Exception
+    {
+        // receive bytea in the text format
+        Properties props = new Properties();
+        props.setProperty("binaryTransfer", "false");
+        con = TestUtil.openDB(props);
+    }
+
+    protected void tearDown() throws Exception
+    {
+        TestUtil.closeDB(con);
+    }
+
+    private static byte[] allBytes(int length)
+    {
+        byte[] data = new byte[length];
+        for (int i = 0; i < length; ++i)
+            data[i] = (byte)(i * 7);
+        return data;
+    }
+
+    private static byte[] ascii(String s) throws Exception
+    {
+        return s.getBytes("US-ASCII");
+    }
+
+    public void testHexFormat() throws Exception
+    {
+        byte[] hex = ascii("\\x00017f80fFAb");
+        byte[] expected = new byte[] { 0, 1, 0x7f, (byte)0x80, (byte)0xff, (byte)0xab };
+        assertEquals(6, PGbytea.decodedLength(hex));
+        assertTrue(Arrays.equals(expected, PGbytea.toBytes(hex)));
+
+        byte[] dest = new byte[10];
+        assertEquals(6, PGbytea.toBytes(hex, dest, 3));
+        assertEquals((byte)0xab, dest[8]);
+
+        assertEquals(0, PGbytea.toBytes(ascii("\\x")).length);
+    }
+
+    public void testEscapeFormat() throws Exception
+    {
+        byte[] escaped = ascii("a\\\\b\\000\\377c");
+        byte[] expected = new byte[] { 'a', '\\', 'b', 0, (byte)0xff, 'c' };
+        assertEquals(6, PGbytea.decodedLength(escaped));
+        assertTrue(Arrays.equals(expected, PGbytea.toBytes(escaped)));
+        assertEquals(0, PGbytea.toBytes(new byte[0]).length);
+    }
+
+    public void testRoundTrip() throws Exception
+    {
+        byte[] data = allBytes(1000);
+        byte[] escaped = PGbytea.toPGBytes(data);
+        assertEquals(new String(escaped, "US-ASCII"), PGbytea.toPGString(data));
+        assertTrue(Arrays.equals(data, PGbytea.toBytes(escaped)));
+    }
+
+    public void testToStream() throws Exception
+    {
+        // larger than a chunk, so escapes straddle chunk boundaries
+        byte[] data = allBytes(50000);
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        PGbytea.toBytes(PGbytea.toPGBytes(data), out);
+        assertTrue(Arrays.equals(data, out.toByteArray()));
+
+        StringBuilder hex = new StringBuilder("\\x");
+        for (int i = 0; i < data.length; ++i)
+            hex.append(Character.forDigit(data[i] >> 4 & 0xf, 16)).append(Character.forDigit(data[i] & 0xf, 16));
+        out.reset();
+        PGbytea.toBytes(ascii(hex.toString()), out);
+        assertTrue(Arrays.equals(data, out.toByteArray()));
+
+        byte[] small = ascii("\\001");
+        out.reset();
+        PGbytea.toBytes(small, out);
+        assertTrue(Arrays.equals(new byte[] { 1 }, out.toByteArray()));
+    }
+
+    public void testReceiveText() throws Exception
+    {
+        byte[] data = allBytes(5000);
+        PreparedStatement ps = con.prepareStatement("SELECT ?::bytea");
+        ps.setBytes(1, data);
+        Statement stmt = con.createStatement();
+        String[] formats = TestUtil.haveMinimumServerVersion(con, "9.0") ? new String[] { "hex", "escape" } : new String[] { null };
+        for (int i = 0; i < formats.length; ++i)
+        {
+            if (formats[i] != null)
+                stmt.execute("SET bytea_output = " + formats[i]);
+            ResultSet rs = ps.executeQuery();
+            assertTrue(rs.next());
+            assertTrue(Arrays.equals(data, rs.getBytes(1)));
+            rs.close();
+        }
+        stmt.close();
+        ps.close();
+    }
+}
@@ -7,9 +7,13 @@
 */
 package org.postgresql.test.jdbc2;
 
+import org.postgresql.core.BaseConnection;
+import org.postgresql.core.QueryExecutor;
 import org.postgresql.test.TestUtil;
 import junit.framework.TestCase;
 import java.sql.*;
+import java.util.Arrays;
+import java.util.Properties;
 
 /*
  * TestCase to test the internal functionality of org.postgresql.jdbc2.Connection
@@ -267,6 +271,133 @@ public class ConnectionTest extends TestCase
         TestUtil.closeDB(con);
     }
 
+    /*
+     * The isolation level is cached, but changes made in SQL or undone by a
+     * rollback must still be seen.
+     */
+    public void testTransactionIsolationChangedInSQL() throws Exception
+    {
+        con = TestUtil.openDB();
+        Statement stmt = con.createStatement();
+
+        con.setTransactionIsolation(Connection.TRANSACTION_READ_COMMITTED);
+        assertEquals(Connection.TRANSACTION_READ_COMMITTED, con.getTransactionIsolation());
+        stmt.execute("SET SESSION CHARACTERISTICS AS TRANSACTION ISOLATION LEVEL SERIALIZABLE");
+        assertEquals(Connection.TRANSACTION_SERIALIZABLE, con.getTransactionIsolation());
+
+        // a redundant set must not be skipped on the strength of a stale level
+        con.setTransactionIsolation(Connection.TRANSACTION_READ_COMMITTED);
+        assertEquals(Connection.TRANSACTION_READ_COMMITTED, con.getTransactionIsolation());
+
+        // a setting made in a transaction that is rolled back is undone
+        con.setAutoCommit(false);
+        stmt.execute("SET SESSION CHARACTERISTICS AS TRANSACTION ISOLATION LEVEL SERIALIZABLE");
+        assertEquals(Connection.TRANSACTION_READ_COMMITTED, con.getTransactionIsolation());
+        con.rollback();
+        assertEquals(Connection.TRANSACTION_READ_COMMITTED, con.getTransactionIsolation());
+
+        // a level chosen for one transaction only lasts until it ends
+        stmt.execute("SET TRANSACTION ISOLATION LEVEL SERIALIZABLE");
+        assertEquals(Connection.TRANSACTION_SERIALIZABLE, con.getTransactionIsolation());
+        con.commit();
+        assertEquals(Connection.TRANSACTION_READ_COMMITTED, con.getTransactionIsolation());
+
+        con.setAutoCommit(true);
+        stmt.execute("RESET ALL");
+        con.setReadOnly(true);
+        assertTrue(con.isReadOnly());
+        con.setReadOnly(false);
+        assertFalse(con.isReadOnly());
+
+        stmt.close();
+        TestUtil.closeDB(con);
+    }
+
+    /*
+     * Session settings may be sent with the next query, but they must be in
+     * effect for it and must not be undone if it fails.
+     */
+    public void testSessionSettingsSentWithQuery() throws Exception
+    {
+        con = TestUtil.openDB();
+        Statement stmt = con.createStatement();
+
+        con.setTransactionIsolation(Connection.TRANSACTION_SERIALIZABLE);
+        con.setReadOnly(true);
+        assertEquals(Connection.TRANSACTION_SERIALIZABLE, con.getTransactionIsolation());
+        assertTrue(con.isReadOnly());
+        ResultSet rs = stmt.executeQuery("SELECT current_setting('transaction_isolation'), current_setting('transaction_read_only')");
+        assertTrue(rs.next());
+        assertEquals("serializable", rs.getString(1));
+        assertEquals("on", rs.getString(2));
+        rs.close();
+
+        con.setReadOnly(false);
+        con.setTransactionIsolation(Connection.TRANSACTION_READ_COMMITTED);
+        try
+        {
+            stmt.executeQuery("SELECT 1/0");
+            fail("Expected division by zero");
+        }
+        catch (SQLException e)
+        {
+            // Ok.
+        }
+        rs = stmt.executeQuery("SHOW TRANSACTION ISOLATION LEVEL");
+        assertTrue(rs.next());
+        assertEquals("read committed", rs.getString(1));
+        rs.close();
+        assertFalse(con.isReadOnly());
+
+        // a transaction begun after the settings changed sees them
+        con.setAutoCommit(false);
+        con.setTransactionIsolation(Connection.TRANSACTION_REPEATABLE_READ);
+        rs = stmt.executeQuery("SHOW TRANSACTION ISOLATION LEVEL");
+        assertTrue(rs.next());
+        assertEquals("repeatable read", rs.getString(1));
+        rs.close();
+        con.rollback();
+        assertEquals(Connection.TRANSACTION_REPEATABLE_READ, con.getTransactionIsolation());
+        con.setAutoCommit(true);
+
+        stmt.close();
+        TestUtil.closeDB(con);
+    }
+
+    /*
+     * An error raised by a queued session command is reported by the query
+     * it is sent with.
+     */
+    public void testFailedSessionCommand() throws Exception
+    {
+        con = TestUtil.openDB();
+        QueryExecutor executor = ((BaseConnection)con).getQueryExecutor();
+        if (!executor.queueSessionCommand("SET no_such_setting TO 1"))
+        {
+            TestUtil.closeDB(con);
+            return;
+        }
+
+        Statement stmt = con.createStatement();
+        try
+        {
+            stmt.executeQuery("SELECT 1");
+            fail("Expected the queued command to fail");
+        }
+        catch (SQLException e)
+        {
+            // Ok.
+        }
+
+        // the connection is still usable
+        ResultSet rs = stmt.executeQuery("SELECT 2");
+        assertTrue(rs.next());
+        assertEquals(2, rs.getInt(1));
+        rs.close();
+        stmt.close();
+        TestUtil.closeDB(con);
+    }
+
     /*
      * JDBC2 Type mappings
      */
@@ -298,4 +429,86 @@ public class ConnectionTest extends TestCase
         con.close();
         con.close();
     }
+
+    /**
+     * Large results and parameters have to wait for the non-blocking socket.
+     */
+    public void testNioTransport() throws Exception
+    {
+        Properties props = new Properties();
+        props.setProperty("nioTransport", "true");
+        con = TestUtil.openDB(props);
+
+        StringBuffer sb = new StringBuffer();
+        for (int i = 0; i < 100000; i++)
+            sb.append((char)('a' + i % 26));
+        String large = sb.toString();
+
+        PreparedStatement pstmt = con.prepareStatement("SELECT ?::text, i FROM generate_series(1, 50) i");
+        pstmt.setString(1, large);
+        ResultSet rs = pstmt.executeQuery();
+        int rows = 0;
+        while (rs.next())
+        {
+            assertEquals(large, rs.getString(1));
+            assertEquals(++rows, rs.getInt(2));
+        }
+        assertEquals(50, rows);
+        rs.close();
+        pstmt.close();
+
+        TestUtil.closeDB(con);
+    }
+
+    /**
+     * The socket timeout limits each wait for the server on the non-blocking socket.
+     */
+    public void testNioTransportSocketTimeout() throws Exception
+    {
+        Properties props = new Properties();
+        props.setProperty("nioTransport", "true");
+        props.setProperty("socketTimeout", "1");
+        con = TestUtil.openDB(props);
+
+        Statement stmt = con.createStatement();
+        try
+        {
+            stmt.execute("SELECT pg_sleep(3)");
+            fail("Query should have timed out");
+        }
+        catch (SQLException sqle)
+        {
+            assertTrue(con.isClosed());
+        }
+    }
+
+    /**
+     * The socket timeout also limits each wait for the server to accept more
+     * data on the non-blocking socket.
+     */
+    public void testNioTransportWriteTimeout() throws Exception
+    {
+        Properties props = new Properties();
+        props.setProperty("nioTransport", "true");
+        props.setProperty("socketTimeout", "1");
+        con = TestUtil.openDB(props);
+
+        // the server does not read the large query while it sleeps
+        char[] large = new char[32 * 1024 * 1024];
+        Arrays.fill(large, 'a');
+        Statement stmt = con.createStatement();
+        stmt.addBatch("SELECT pg_sleep(5)");
+        stmt.addBatch("SELECT '" + new String(large) + "'");
+        long start = System.currentTimeMillis();
+        try
+        {
+            stmt.executeBatch();
+            fail("Batch should have timed out");
+        }
+        catch (SQLException sqle)
+        {
+            assertTrue(con.isClosed());
+            assertTrue(System.currentTimeMillis() - start < 4000);
+        }
+    }
 }
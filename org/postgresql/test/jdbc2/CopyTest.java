@@ -20,6 +20,7 @@ import java.io.PrintStream;
 import java.io.IOException;
 import java.io.PrintWriter;
 import java.io.StringReader;
+import java.nio.channels.Channels;
 
 import junit.framework.TestCase;
 
@@ -146,6 +147,124 @@ public class CopyTest extends TestCase {
         assertEquals(dataRows, rowCount);
     }
 
+    public void testLoaderFromInputStream() throws Exception {
+        StringBuilder data = new StringBuilder();
+        int rows = 5000;
+        for (int i = 0; i < rows; i++)
+            data.append("row\\\n").append(i).append("\\\\\t").append(i).append('\t').append(i % 100).append(".5\n");
+
+        PGConnection[] cons = openLoaderConnections();
+        try {
+            CopyLoader loader = new CopyLoader(cons);
+            loader.setChunkSize(1000);
+            long count = loader.copyIn("COPY copytest FROM STDIN", new ByteArrayInputStream(data.toString().getBytes("UTF-8")));
+            if (TestUtil.haveMinimumServerVersion(con, "8.2"))
+                assertEquals(rows, count);
+        } finally {
+            closeLoaderConnections(cons);
+        }
+
+        assertEquals(rows, getCount());
+        Statement stmt = con.createStatement();
+        ResultSet rs = stmt.executeQuery("SELECT sum(intvalue), count(DISTINCT stringvalue) FROM copytest WHERE stringvalue LIKE E'row\\n%' AND substr(stringvalue, length(stringvalue)) = chr(92)");
+        assertTrue(rs.next());
+        assertEquals((long) rows * (rows - 1) / 2, rs.getLong(1));
+        assertEquals(rows, rs.getInt(2));
+        rs.close();
+        stmt.close();
+    }
+
+    public void testLoaderCsvFromReader() throws Exception {
+        StringBuilder data = new StringBuilder();
+        int rows = 2000;
+        for (int i = 0; i < rows; i++) {
+            data.append("\"\u00e4\n\"\"").append(i).append("\"\"\",").append(i).append(",1.5\n");
+            if (i % 500 == 0) {
+                // a row larger than a chunk
+                data.append('"');
+                for (int j = 0; j < 300; j++)
+                    data.append("\u20ac\uD834\uDD1E");
+                data.append("\",-1,\n");
+            }
+        }
+
+        PGConnection[] cons = openLoaderConnections();
+        try {
+            CopyLoader loader = new CopyLoader(cons);
+            loader.setChunkSize(256);
+            loader.copyIn("COPY copytest FROM STDIN WITH CSV QUOTE AS '\"'", new StringReader(data.toString()));
+        } finally {
+            closeLoaderConnections(cons);
+        }
+
+        assertEquals(rows + 4, getCount());
+        Statement stmt = con.createStatement();
+        ResultSet rs = stmt.executeQuery("SELECT stringvalue FROM copytest WHERE intvalue = 7");
+        assertTrue(rs.next());
+        assertEquals("\u00e4\n\"7\"", rs.getString(1));
+        rs.close();
+        rs = stmt.executeQuery("SELECT length(stringvalue) FROM copytest WHERE intvalue = -1");
+        assertTrue(rs.next());
+        assertEquals(600, rs.getInt(1));
+        rs.close();
+        stmt.close();
+    }
+
+    public void testLoaderFailure() throws Exception {
+        StringBuilder data = new StringBuilder();
+        for (int i = 0; i < 3000; i++)
+            data.append("row\t").append(i == 2500 ? "bad" : String.valueOf(i)).append("\t1\n");
+
+        PGConnection[] cons = openLoaderConnections();
+        try {
+            for (int i = 0; i < cons.length; i++)
+                ((Connection) cons[i]).setAutoCommit(false);
+            CopyLoader loader = new CopyLoader(cons);
+            loader.setChunkSize(500);
+            try {
+                loader.copyIn("COPY copytest FROM STDIN", new StringReader(data.toString()));
+                fail("Should have failed on the invalid row.");
+            } catch (SQLException se) {
+                assertEquals("22P02", se.getSQLState());
+            }
+            for (int i = 0; i < cons.length; i++) {
+                ((Connection) cons[i]).rollback();
+                Statement stmt = ((Connection) cons[i]).createStatement();
+                stmt.executeQuery("SELECT 1").close();
+                stmt.close();
+            }
+        } finally {
+            closeLoaderConnections(cons);
+        }
+        assertEquals(0, getCount());
+    }
+
+    public void testLoaderRejectsUnsplittableData() throws Exception {
+        CopyLoader loader = new CopyLoader(new PGConnection[] { (PGConnection) con });
+        try {
+            loader.copyIn("COPY copytest FROM STDIN WITH BINARY", new ByteArrayInputStream(new byte[0]));
+            fail("Should not load binary data.");
+        } catch (SQLException se) {
+            assertEquals(PSQLState.NOT_IMPLEMENTED.getState(), se.getSQLState());
+        }
+        try {
+            loader.copyIn("COPY copytest FROM STDIN (FORMAT csv, HEADER true)", new ByteArrayInputStream(new byte[0]));
+            fail("Should not load data with a header.");
+        } catch (SQLException se) {
+            assertEquals(PSQLState.NOT_IMPLEMENTED.getState(), se.getSQLState());
+        }
+        assertEquals(0, loader.copyIn("COPY copytest FROM STDIN (FORMAT csv, HEADER false)", new ByteArrayInputStream(new byte[0])));
+    }
+
+    private PGConnection[] openLoaderConnections() throws Exception {
+        return new PGConnection[] { (PGConnection) TestUtil.openDB(), (PGConnection) TestUtil.openDB(), (PGConnection) TestUtil.openDB() };
+    }
+
+    private void closeLoaderConnections(PGConnection[] cons) throws SQLException {
+        for (int i = 0; i < cons.length; i++)
+            TestUtil.closeDB((Connection) cons[i]);
+    }
+
     public void testSkipping() {
         String sql = "COPY copytest FROM STDIN";
         String at = "init";
@@ -211,6 +330,131 @@ public class CopyTest extends TestCase {
         }
     }
 
+    public void testCopyOutToChannel() throws SQLException, IOException {
+        testCopyInByRow(); // ensure we have some data.
+        ByteArrayOutputStream copydata = new ByteArrayOutputStream();
+        long rowCount = copyAPI.copyOut("COPY copytest TO STDOUT", Channels.newChannel(copydata));
+        if (TestUtil.haveMinimumServerVersion(con, "8.2"))
+            assertEquals(dataRows, rowCount);
+        assertEquals(new String(getData(origData)), new String(copydata.toByteArray()));
+    }
+
+    public void testCopyOutIntoArray() throws SQLException, IOException {
+        testCopyInByRow(); // ensure we have some data.
+        CopyOut cp = copyAPI.copyOut("COPY copytest TO STDOUT");
+        ByteArrayOutputStream copydata = new ByteArrayOutputStream();
+        byte[] buf = new byte[5];
+        int n = cp.readFromCopy(buf, 0, 5);
+        assertEquals(5, n);
+        copydata.write(buf, 0, n);
+        // the rest of the first row
+        byte[] rest = cp.readFromCopy();
+        copydata.write(rest);
+        assertEquals(origData[0], new String(copydata.toByteArray()));
+        while ((n = cp.readFromCopy(buf, 1, 4)) > 0)
+            copydata.write(buf, 1, n);
+        assertEquals(-1, n);
+        assertFalse(cp.isActive());
+        assertEquals(new String(getData(origData)), new String(copydata.toByteArray()));
+    }
+
+    public void testCopyOutStreamTransfer() throws SQLException, IOException {
+        testCopyInByRow(); // ensure we have some data.
+        PGCopyInputStream is = new PGCopyInputStream((PGConnection)con, "COPY copytest TO STDOUT");
+        ByteArrayOutputStream copydata = new ByteArrayOutputStream();
+        copydata.write(is.read());
+        copydata.write(is.readFromCopy());
+        is.transferTo(copydata);
+        assertEquals(-1, is.read());
+        is.close();
+        assertEquals(new String(getData(origData)), new String(copydata.toByteArray()));
+    }
+
+    public void testCopyOutCancelPartlyRead() throws SQLException, IOException {
+        testCopyInByRow(); // ensure we have some data.
+        PGCopyInputStream is = new PGCopyInputStream((PGConnection)con, "COPY copytest TO STDOUT");
+        byte[] buf = new byte[3];
+        assertEquals(3, is.read(buf));
+        is.close();
+        assertEquals(dataRows, getCount());
+    }
+
+    public void testRowReaderText() throws SQLException, IOException {
+        testCopyInByRow(); // ensure we have some data.
+        Statement stmt = con.createStatement();
+        stmt.execute("INSERT INTO copytest VALUES (E'tab\\there\\nnew line\\\\', 123456789, -5.5)");
+        stmt.close();
+
+        CopyRowReader reader = new CopyRowReader((PGConnection)con, "COPY copytest TO STDOUT");
+        int rows = 0;
+        boolean sawNull = false, sawEscaped = false;
+        while (reader.next()) {
+            rows++;
+            assertEquals(3, reader.getFieldCount());
+            if (reader.isNull(1)) {
+                sawNull = true;
+                assertNull(reader.getString(1));
+                assertTrue(reader.isNull(2));
+                assertEquals(0, reader.getLong(2));
+            } else if (reader.getString(1).startsWith("tab")) {
+                sawEscaped = true;
+                assertEquals("tab\there\nnew line\\", reader.getString(1));
+                assertEquals(123456789, reader.getInt(2));
+                assertEquals(-5.5, reader.getDouble(3), 0.0);
+            } else if (reader.getString(1).equals("Second Row")) {
+                assertEquals(2L, reader.getLong(2));
+                assertEquals("-22.20", reader.getString(3));
+            }
+        }
+        assertTrue(sawNull);
+        assertTrue(sawEscaped);
+        assertEquals(dataRows + 1, rows);
+        assertEquals(dataRows + 1, reader.getHandledRowCount());
+        assertFalse(reader.next());
+    }
+
+    public void testRowReaderCsv() throws SQLException, IOException {
+        Statement stmt = con.createStatement();
+        stmt.execute("INSERT INTO copytest VALUES ('quoted \"value\", with\nnew line', 1, 1.5)");
+        stmt.execute("INSERT INTO copytest VALUES ('', NULL, 2.5)");
+        stmt.close();
+
+        CopyRowReader reader = new CopyRowReader((PGConnection)con, "COPY copytest TO STDOUT WITH CSV HEADER");
+        assertTrue(reader.next());
+        assertEquals("quoted \"value\", with\nnew line", reader.getString(1));
+        assertEquals(1, reader.getInt(2));
+        assertTrue(reader.next());
+        assertFalse(reader.isNull(1));
+        assertEquals("", reader.getString(1));
+        assertTrue(reader.isNull(2));
+        assertEquals("2.50", reader.getString(3));
+        assertFalse(reader.next());
+    }
+
+    public void testRowReaderBadNumber() throws SQLException {
+        testCopyInByRow(); // ensure we have some data.
+        CopyRowReader reader = new CopyRowReader((PGConnection)con, "COPY copytest TO STDOUT");
+        assertTrue(reader.next());
+        try {
+            reader.getLong(1);
+            fail("Should have failed to parse a string as a number.");
+        } catch (SQLException sqle) {
+            assertEquals(PSQLState.NUMERIC_VALUE_OUT_OF_RANGE.getState(), sqle.getSQLState());
+        }
+        reader.close();
+        assertEquals(dataRows, getCount());
+    }
+
+    public void testRowReaderRejectsBinary() throws SQLException {
+        try {
+            new CopyRowReader((PGConnection)con, "COPY copytest TO STDOUT (FORMAT binary)");
+            fail("Should have rejected binary format.");
+        } catch (SQLException sqle) {
+            assertEquals(PSQLState.NOT_IMPLEMENTED.getState(), sqle.getSQLState());
+        }
+        assertEquals(0, getCount());
+    }
+
     public void testNonCopyOut() throws SQLException, IOException {
         String sql = "SELECT 1";
         try {
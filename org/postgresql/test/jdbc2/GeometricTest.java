@@ -7,6 +7,7 @@
 */
 package org.postgresql.test.jdbc2;
 
+import org.postgresql.PGStatement;
 import org.postgresql.test.TestUtil;
 import org.postgresql.util.PGobject;
 import org.postgresql.geometric.*;
@@ -43,6 +44,10 @@ public class GeometricTest extends TestCase
     }
 
     private void checkReadWrite(PGobject obj, String column) throws Exception {
+        checkReadWrite(obj, obj, column);
+    }
+
+    private void checkReadWrite(PGobject obj, PGobject expected, String column) throws Exception {
         PreparedStatement insert = con.prepareStatement("INSERT INTO testgeometric(" + column + ") VALUES (?)");
         insert.setObject(1, obj);
         insert.executeUpdate();
@@ -51,8 +56,20 @@ public class GeometricTest extends TestCase
         Statement stmt = con.createStatement();
         ResultSet rs = stmt.executeQuery("SELECT " + column + " FROM testgeometric");
         assertTrue(rs.next());
-        assertEquals(obj, rs.getObject(1));
+        assertEquals(expected, rs.getObject(1));
+        String text = rs.getString(1);
+        rs.close();
+
+        // and in binary
+        PreparedStatement select = con.prepareStatement("SELECT " + column + " FROM testgeometric");
+        ((PGStatement) select).setPrepareThreshold(-1);
+        rs = select.executeQuery();
+        assertTrue(rs.next());
+        assertEquals(expected, rs.getObject(1));
+        // formatted as the server does in text
+        assertEquals(text, rs.getString(1));
         rs.close();
+        select.close();
 
         stmt.executeUpdate("DELETE FROM testgeometric");
         stmt.close();
@@ -70,6 +87,7 @@ public class GeometricTest extends TestCase
         checkReadWrite(new PGcircle(1.0, 2.0, 3.0), "circleval");
         checkReadWrite(new PGcircle( -1.0, 2.0, 3.0), "circleval");
         checkReadWrite(new PGcircle(1.0, -2.0, 3.0), "circleval");
+        checkReadWrite(new PGcircle(0.3, 2e-5, 1e15), "circleval");
     }
 
     public void testPGlseg() throws Exception {
@@ -109,5 +127,24 @@ public class GeometricTest extends TestCase
 
     public void testPGpoint() throws Exception {
         checkReadWrite(new PGpoint(1.0, 2.0), "pointval");
+        checkReadWrite(new PGpoint(0.1, -1.5e-7), "pointval");
+        checkReadWrite(new PGpoint(1e20, 123456.789), "pointval");
+        checkReadWrite(new PGpoint(-0.0, 1.0 / 3), "pointval");
+        checkReadWrite(new PGpoint(Double.NEGATIVE_INFINITY, Double.POSITIVE_INFINITY), "pointval");
+    }
+
+    public void testPGline() throws Exception {
+        if (!TestUtil.haveMinimumServerVersion(con, "9.4"))
+            return;
+
+        Statement stmt = con.createStatement();
+        stmt.execute("ALTER TABLE testgeometric ADD COLUMN lineval line");
+        stmt.close();
+
+        // the backend keeps the coefficients, not the points
+        checkReadWrite(new PGline(1.0, 2.0, 3.0, 4.0), new PGline(0.0, 1.0, 1.0, 2.0), "lineval");
+        checkReadWrite(new PGline(1.0, 2.0, 1.0, 4.0), new PGline(1.0, 0.0, 1.0, 1.0), "lineval");
+        checkReadWrite(new PGline(1.0, 2.0, 3.0, 2.0), new PGline(0.0, 2.0, 1.0, 2.0), "lineval");
+        checkReadWrite(new PGline(0.0, 1.0, 1.0, 2.0), "lineval");
     }
 }
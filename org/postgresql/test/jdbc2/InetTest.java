@@ -0,0 +1,117 @@
+/*-------------------------------------------------------------------------
+*
+* Copyright (c) 2015, PostgreSQL Global Development Group
+*
+*
+*-------------------------------------------------------------------------
+*/
+package org.postgresql.test.jdbc2;
+
+import org.postgresql.PGStatement;
+import org.postgresql.test.TestUtil;
+import org.postgresql.util.PGinet;
+import java.sql.*;
+import java.util.Properties;
+import junit.framework.TestCase;
+
+/*
+ * Tests for the inet and cidr types in the text and the binary format.
+ */
+public class InetTest extends TestCase
+{
+    private static final String[] INET_VALUES = new String[] {
+        "192.168.1.5", "192.168.1.5/24", "0.0.0.0/0", "255.255.255.255",
+        "::1", "::", "::/0", "1::", "1::1", "2001:db8::ff00:42:8329/64",
+        "2001:db8:0:0:1:0:0:1", "1:0:0:2:0:0:0:3", "1:2:3:4:5:6:7:8",
+        "::ffff:10.1.2.3", "::10.1.2.3", "::ffff:0:10.1.2.3", "fe80::1:0:0:0"
+    };
+
+    private static final String[] CIDR_VALUES = new String[] {
+        "192.168.1.0/24", "10/8", "10.1", "192.168", "224", "0.0.0.0/0",
+        "2001:db8::/32", "::/0", "::ffff:10.1.2.0/120"
+    };
+
+    private Connection con;
+
+    public InetTest(String name)
+    {
+        super(name);
+    }
+
+    protected void setUp() throws Exception
+    {
+        con = TestUtil.openDB();
+    }
+
+    protected void tearDown() throws Exception
+    {
+        TestUtil.closeDB(con);
+    }
+
+    private void checkReceive(String type, String[] values) throws Exception
+    {
+        Statement stmt = con.createStatement();
+        PreparedStatement ps = con.prepareStatement("SELECT ?::" + type);
+        ((PGStatement) ps).setPrepareThreshold(-1);
+        for (int i = 0; i < values.length; ++i)
+        {
+            ResultSet text = stmt.executeQuery("SELECT '" + values[i] + "'::" + type);
+            assertTrue(text.next());
+            ps.setString(1, values[i]);
+            ResultSet binary = ps.executeQuery();
+            assertTrue(binary.next());
+            assertEquals(text.getString(1), binary.getString(1));
+            assertEquals(text.getObject(1), binary.getObject(1));
+            assertTrue(binary.getObject(1) instanceof PGinet);
+            assertEquals(type, ((PGinet) binary.getObject(1)).getType());
+        }
+        stmt.close();
+        ps.close();
+    }
+
+    public void testReceiveInet() throws Exception
+    {
+        checkReceive("inet", INET_VALUES);
+    }
+
+    public void testReceiveCidr() throws Exception
+    {
+        checkReceive("cidr", CIDR_VALUES);
+    }
+
+    private void checkSend(Connection binaryCon, String type, String[] values) throws Exception
+    {
+        Statement stmt = binaryCon.createStatement();
+        PreparedStatement ps = binaryCon.prepareStatement("SELECT ?::text");
+        for (int i = 0; i < values.length; ++i)
+        {
+            ResultSet text = stmt.executeQuery("SELECT '" + values[i] + "'::" + type + "::text");
+            assertTrue(text.next());
+            PGinet inet = new PGinet(values[i]);
+            inet.setType(type);
+            ps.setObject(1, inet);
+            ResultSet rs = ps.executeQuery();
+            assertTrue(rs.next());
+            assertEquals(text.getString(1), rs.getString(1));
+        }
+        stmt.close();
+        ps.close();
+    }
+
+    public void testSendBinary() throws Exception
+    {
+        // sent as text unless enabled
+        Properties props = new Properties();
+        props.setProperty("binaryTransferEnable", "INET,CIDR");
+        Connection binaryCon = TestUtil.openDB(props);
+        try
+        {
+            checkSend(binaryCon, "inet", INET_VALUES);
+            checkSend(binaryCon, "cidr", CIDR_VALUES);
+        }
+        finally
+        {
+            TestUtil.closeDB(binaryCon);
+        }
+    }
+}
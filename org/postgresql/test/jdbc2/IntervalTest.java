@@ -14,6 +14,7 @@ import java.sql.*;
 
 import junit.framework.TestCase;
 
+import org.postgresql.PGStatement;
 import org.postgresql.util.PGInterval;
 import org.postgresql.test.TestUtil;
 
@@ -64,6 +65,86 @@ public class IntervalTest extends TestCase
         stmt.close();
     }
     
+    public void testBinary() throws SQLException
+    {
+        String[] values = new String[] {
+            "0", "1 day", "-1 day", "1 year 2 mons 3 days 04:05:06.789",
+            "-1 year -2 mons +3 days -04:05:06", "1 mon -1 day 00:00:01",
+            "100 hours", "-0.5 seconds", "1 year 1 second", "-1 day +00:00:00.000001",
+            "178000000 years"
+        };
+        Statement stmt = _conn.createStatement();
+        PreparedStatement pstmt = _conn.prepareStatement("SELECT ?::interval");
+        ((PGStatement) pstmt).setPrepareThreshold(-1);
+        PreparedStatement roundTrip = _conn.prepareStatement("SELECT ?::text");
+        for (int i = 0; i < values.length; ++i)
+        {
+            ResultSet text = stmt.executeQuery("SELECT '" + values[i] + "'::interval");
+            assertTrue(text.next());
+            pstmt.setString(1, values[i]);
+            ResultSet binary = pstmt.executeQuery();
+            assertTrue(binary.next());
+            assertEquals(text.getString(1), binary.getString(1));
+            assertEquals(text.getObject(1), binary.getObject(1));
+
+            roundTrip.setObject(1, binary.getObject(1));
+            ResultSet rs = roundTrip.executeQuery();
+            assertTrue(rs.next());
+            assertEquals(text.getString(1), rs.getString(1));
+        }
+        stmt.close();
+        pstmt.close();
+        roundTrip.close();
+    }
+
+    /*
+     * Intervals received in binary are formatted in the session's
+     * IntervalStyle, alone and in arrays.
+     */
+    public void testBinaryIntervalStyles() throws SQLException
+    {
+        if (!TestUtil.haveMinimumServerVersion(_conn, "8.4"))
+            return;
+
+        String[] styles = new String[] { "postgres", "postgres_verbose", "sql_standard", "iso_8601" };
+        String[] values = new String[] {
+            "0", "1 day", "-1 day", "1 year 2 mons 3 days 04:05:06.789",
+            "-1 year -2 mons +3 days -04:05:06", "1 mon -1 day 00:00:01",
+            "100 hours", "-0.5 seconds", "1 year 1 second", "-1 day +00:00:00.000001",
+            "1 year 2 mons", "-1 year -2 mons", "3 days 04:05:06", "-3 days -04:05:06",
+            "-04:05:06.5", "1 second", "-1 second", "2 mons -1 second", "-1 min 2 seconds",
+            "178000000 years"
+        };
+        Statement stmt = _conn.createStatement();
+        PreparedStatement pstmt = _conn.prepareStatement("SELECT ?::interval, ARRAY[?::interval, NULL]");
+        ((PGStatement) pstmt).setPrepareThreshold(-1);
+        try
+        {
+            for (int i = 0; i < styles.length; ++i)
+            {
+                stmt.execute("SET IntervalStyle TO " + styles[i]);
+                for (int j = 0; j < values.length; ++j)
+                {
+                    String value = "'" + values[j] + "'::interval";
+                    ResultSet text = stmt.executeQuery("SELECT " + value + ", ARRAY[" + value + ", NULL]");
+                    assertTrue(text.next());
+                    pstmt.setString(1, values[j]);
+                    pstmt.setString(2, values[j]);
+                    ResultSet binary = pstmt.executeQuery();
+                    assertTrue(binary.next());
+                    assertEquals(styles[i], text.getString(1), binary.getString(1));
+                    assertEquals(styles[i], text.getString(2), binary.getString(2));
+                }
+            }
+        }
+        finally
+        {
+            stmt.execute("RESET IntervalStyle");
+            stmt.close();
+            pstmt.close();
+        }
+    }
+
     public void testStringToIntervalCoercion() throws SQLException {
         Statement stmt = _conn.createStatement();
         stmt.executeUpdate(TestUtil.insertSQL("testdate", "'2010-01-01'"));
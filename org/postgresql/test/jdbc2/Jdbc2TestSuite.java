@@ -51,6 +51,7 @@ public class Jdbc2TestSuite extends TestSuite
         // ResultSet
         suite.addTestSuite(ResultSetTest.class);
         suite.addTestSuite(ResultSetMetaDataTest.class);
+        suite.addTestSuite(ByteaTest.class);
         suite.addTestSuite(ArrayTest.class);
         suite.addTestSuite(RefCursorTest.class);
 
@@ -70,6 +71,9 @@ public class Jdbc2TestSuite extends TestSuite
         // BatchExecute
         suite.addTestSuite(BatchExecuteTest.class);
 
+        // Asynchronous execution
+        suite.addTestSuite(AsyncQueryTest.class);
+
 
         // Other misc tests, based on previous problems users have had or specific
         // features some applications require.
@@ -91,6 +95,7 @@ public class Jdbc2TestSuite extends TestSuite
 
         suite.addTestSuite(IntervalTest.class);
         suite.addTestSuite(GeometricTest.class);
+        suite.addTestSuite(InetTest.class);
 
         suite.addTestSuite(LoginTimeoutTest.class);
         suite.addTestSuite(TestACL.class);
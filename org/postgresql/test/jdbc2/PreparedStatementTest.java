@@ -13,6 +13,7 @@ import junit.framework.TestCase;
 import java.io.*;
 import java.sql.*;
 import java.math.BigDecimal;
+import java.util.Properties;
 
 
 public class PreparedStatementTest extends TestCase
@@ -848,4 +849,108 @@ public class PreparedStatementTest extends TestCase
         pstmt.close();
     }
 
+    /**
+     * Small parameters are encoded into a buffer reused for every Bind
+     * message, larger ones are sent on their own.
+     */
+    public void testBindEncoding() throws Exception
+    {
+        StringBuilder large = new StringBuilder();
+        while (large.length() < 100000)
+            large.append("a\u00e4\u20ac\uD834\uDD1E");
+        String[] values = { "", "plain", "\u00e4\u00f6\u00fc", "\u20ac \uD834\uDD1E", "broken \uD834 pair", large.toString() };
+
+        PreparedStatement pstmt = conn.prepareStatement("SELECT ?::text, ?::int4, ?::bytea, ?::text");
+        byte[] bytes = { 1, 2, 3, (byte) 0xFF };
+        for (int run = 0; run < 2; run++)
+        {
+            for (int i = 0; i < values.length; i++)
+            {
+                pstmt.setString(1, values[i]);
+                pstmt.setInt(2, i);
+                pstmt.setBytes(3, bytes);
+                pstmt.setNull(4, Types.VARCHAR);
+                ResultSet rs = pstmt.executeQuery();
+                assertTrue(rs.next());
+                assertEquals(new String(values[i].getBytes("UTF-8"), "UTF-8"), rs.getString(1));
+                assertEquals(i, rs.getInt(2));
+                assertTrue(java.util.Arrays.equals(bytes, rs.getBytes(3)));
+                assertNull(rs.getString(4));
+                rs.close();
+            }
+        }
+        pstmt.close();
+    }
+
+    /**
+     * Numbers are kept unboxed and sent in binary or text format, also after
+     * being copied by addBatch.
+     */
+    public void testPrimitiveParameters() throws Exception
+    {
+        Properties props = new Properties();
+        props.setProperty("binaryTransfer", "false");
+        Connection textConn = TestUtil.openDB(props);
+        try
+        {
+            Connection[] conns = { conn, textConn };
+            for (int c = 0; c < conns.length; c++)
+            {
+                PreparedStatement pstmt = conns[c].prepareStatement("SELECT ?::int2, ?::int4, ?::int8, ?::float4, ?::float8");
+                long[] longs = { 0, 1, -1, Long.MIN_VALUE, Long.MAX_VALUE, 1234567890123L };
+                for (int run = 0; run < 2; run++)
+                {
+                    for (int i = 0; i < longs.length; i++)
+                    {
+                        short s = (short) (longs[i] >> 48);
+                        int n = (int) (longs[i] >> 32);
+                        float f = longs[i] / 7f;
+                        double d = longs[i] / 7d;
+                        pstmt.setShort(1, s);
+                        pstmt.setInt(2, n);
+                        pstmt.setLong(3, longs[i]);
+                        pstmt.setFloat(4, f);
+                        pstmt.setDouble(5, d);
+                        ResultSet rs = pstmt.executeQuery();
+                        assertTrue(rs.next());
+                        assertEquals(s, rs.getShort(1));
+                        assertEquals(n, rs.getInt(2));
+                        assertEquals(longs[i], rs.getLong(3));
+                        assertEquals(f, rs.getFloat(4), 0f);
+                        assertEquals(d, rs.getDouble(5), 0d);
+                        rs.close();
+                    }
+                }
+                pstmt.close();
+            }
+
+            Statement stmt = textConn.createStatement();
+            stmt.execute("CREATE TEMP TABLE primitives (i int4, l int8, d float8)");
+            stmt.close();
+            PreparedStatement pstmt = textConn.prepareStatement("INSERT INTO primitives VALUES (?, ?, ?)");
+            for (int i = 0; i < 10; i++)
+            {
+                pstmt.setInt(1, i);
+                pstmt.setLong(2, -i * 10000000000L);
+                pstmt.setDouble(3, i + 0.5);
+                pstmt.addBatch();
+            }
+            pstmt.executeBatch();
+            pstmt.close();
+
+            stmt = textConn.createStatement();
+            ResultSet rs = stmt.executeQuery("SELECT sum(i), sum(l), sum(d) FROM primitives");
+            assertTrue(rs.next());
+            assertEquals(45, rs.getInt(1));
+            assertEquals(-450000000000L, rs.getLong(2));
+            assertEquals(50.0, rs.getDouble(3), 0d);
+            rs.close();
+            stmt.close();
+        }
+        finally
+        {
+            TestUtil.closeDB(textConn);
+        }
+    }
+
 }
@@ -520,6 +520,75 @@ public class ConnectionPoolTest extends BaseDataSourceTest
         }
     }
 
+    /**
+     * Ensures that the handles delegate to the physical statement and report
+     * only fatal errors to the listeners.
+     */
+    public void testStatementHandleErrors() throws Exception
+    {
+        PooledConnection pc = getPooledConnection();
+        CountClose cc = new CountClose();
+        pc.addConnectionEventListener(cc);
+        con = pc.getConnection();
+        assertFalse(java.lang.reflect.Proxy.isProxyClass(con.getClass()));
+
+        PreparedStatement ps = con.prepareStatement("SELECT ?::int4 + 1");
+        assertFalse(ps instanceof CallableStatement);
+        ps.setInt(1, 41);
+        ResultSet rs = ps.executeQuery();
+        assertTrue(rs.next());
+        assertEquals(42, rs.getInt(1));
+        rs.close();
+
+        try
+        {
+            ps.setString(1, "x");
+            ps.executeQuery();
+            fail("An SQL exception was not thrown that should have been");
+        }
+        catch (SQLException e)
+        {
+            // not fatal
+        }
+        assertEquals(0, cc.getErrorCount());
+
+        ps.close();
+        assertTrue(ps.isClosed());
+        try
+        {
+            ps.setInt(1, 1);
+            fail("A closed statement should not be usable");
+        }
+        catch (SQLException e)
+        {
+            assertEquals("55000", e.getSQLState());
+        }
+
+        ps = con.prepareStatement("SELECT 1");
+        int pid = ((PGConnection) con).getBackendPID();
+        Connection adminCon = TestUtil.openPrivilegedDB();
+        try
+        {
+            Statement statement = adminCon.createStatement();
+            statement.executeQuery("SELECT pg_terminate_backend(" + pid + ")");
+        }
+        finally
+        {
+            TestUtil.closeDB(adminCon);
+        }
+        try
+        {
+            ps.executeQuery();
+            fail("The connection should not be opened anymore. An exception was expected");
+        }
+        catch (SQLException e)
+        {
+            // expected, the backend is gone
+        }
+        assertEquals(1, cc.getErrorCount());
+        assertEquals(0, cc.getCount());
+    }
+
     /**
     * Helper class to remove a listener during event dispatching.
     */
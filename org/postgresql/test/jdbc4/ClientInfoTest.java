@@ -67,6 +67,32 @@ public class ClientInfoTest  extends TestCase
         assertEquals("my app", _conn.getClientInfo().getProperty("ApplicationName"));
     }
 
+    /**
+     * The first connection to a server runs setup queries, later ones send the
+     * settings in the startup packet. Both must end up with the same settings.
+     */
+    public void testAppNameConnectionProperty() throws Exception
+    {
+        if (!TestUtil.haveMinimumServerVersion(_conn, "9.0"))
+            return;
+
+        Properties props = new Properties();
+        props.setProperty("ApplicationName", "my app");
+        for (int i = 0; i < 2; i++)
+        {
+            TestUtil.closeDB(_conn);
+            _conn = TestUtil.openDB(props);
+            assertEquals("my app", getAppName());
+
+            Statement stmt = _conn.createStatement();
+            ResultSet rs = stmt.executeQuery("SHOW extra_float_digits");
+            rs.next();
+            assertEquals("3", rs.getString(1));
+            rs.close();
+            stmt.close();
+        }
+    }
+
     /**
      * Test that no exception is thrown when an unknown property is set
      */
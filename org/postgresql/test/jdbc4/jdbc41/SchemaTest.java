@@ -183,6 +183,31 @@ public class SchemaTest extends TestCase
         assertEquals("schema ,6", _conn.getSchema());
     }
 
+    /**
+     * Test that a schema set and then rolled back to a savepoint is not
+     * reported once the rollback undid it
+     */
+    public void testSchemaRolledBackToSavepoint() throws SQLException
+    {
+        _conn.setSchema("schema1");
+        _conn.setAutoCommit(false);
+        Statement stmt = _conn.createStatement();
+        try
+        {
+            stmt.execute("SAVEPOINT sp");
+            stmt.execute("SET search_path TO schema2");
+            assertEquals("schema2", _conn.getSchema());
+            stmt.execute("ROLLBACK TO SAVEPOINT sp");
+            assertEquals("schema1", _conn.getSchema());
+        }
+        finally
+        {
+            stmt.close();
+            _conn.rollback();
+            _conn.setAutoCommit(true);
+        }
+    }
+
     public void testSchemaInProperties() throws Exception
     {
         Properties properties = new Properties();
@@ -0,0 +1,74 @@
+package org.postgresql.test.ssl;
+
+import java.io.File;
+import java.util.Properties;
+
+import junit.framework.TestCase;
+
+import org.postgresql.ssl.jdbc4.LibPQFactory;
+
+/**
+ * Tests the reuse of LibPQFactory instances, which needs no server.
+ */
+public class LibPQFactoryTest extends TestCase {
+
+  private File cert;
+  private File key;
+
+  public LibPQFactoryTest(String name)
+  {
+    super(name);
+  }
+
+  protected void setUp() throws Exception
+  {
+    cert = File.createTempFile("libpqfactory", ".crt");
+    key = File.createTempFile("libpqfactory", ".pk8");
+  }
+
+  protected void tearDown()
+  {
+    cert.delete();
+    key.delete();
+  }
+
+  private Properties props(String password)
+  {
+    Properties info = new Properties();
+    info.setProperty("sslmode", "require");
+    info.setProperty("sslcert", cert.getPath());
+    info.setProperty("sslkey", key.getPath());
+    if (password != null)
+      info.setProperty("sslpassword", password);
+    return info;
+  }
+
+  public void testReuse() throws Exception
+  {
+    LibPQFactory factory = LibPQFactory.getInstance(props("a"));
+    assertSame(factory, LibPQFactory.getInstance(props("a")));
+    assertNotSame(factory, LibPQFactory.getInstance(props("b")));
+    assertNotSame(factory, LibPQFactory.getInstance(props(null)));
+
+    // a modified key file is loaded again
+    assertTrue(key.setLastModified(key.lastModified() - 10000));
+    LibPQFactory reloaded = LibPQFactory.getInstance(props("a"));
+    assertNotSame(factory, reloaded);
+    assertSame(reloaded, LibPQFactory.getInstance(props("a")));
+
+    LibPQFactory.discard(reloaded);
+    assertNotSame(reloaded, LibPQFactory.getInstance(props("a")));
+  }
+
+  public void testEviction() throws Exception
+  {
+    LibPQFactory factory = LibPQFactory.getInstance(props("first"));
+    for (int i = 0; i < 100; i++)
+      LibPQFactory.getInstance(props("password" + i));
+    assertNotSame(factory, LibPQFactory.getInstance(props("first")));
+
+    // the recently used factories are kept
+    LibPQFactory recent = LibPQFactory.getInstance(props("password99"));
+    assertSame(recent, LibPQFactory.getInstance(props("password99")));
+  }
+}
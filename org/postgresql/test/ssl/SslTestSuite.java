@@ -29,6 +29,7 @@ public class SslTestSuite  extends TestSuite {
   public static TestSuite suite() throws Exception
   {
       TestSuite suite = new TestSuite();
+      suite.addTestSuite(LibPQFactoryTest.class);
       prop = new Properties();
       prop.load(new FileInputStream(System.getProperty("ssltest.properties")));
       add(suite,"ssloff8");
@@ -21,6 +21,7 @@ import javax.transaction.xa.Xid;
 
 import org.postgresql.test.TestUtil;
 import org.postgresql.test.jdbc2.optional.BaseDataSourceTest;
+import org.postgresql.xa.PGXAConnection;
 import org.postgresql.xa.PGXADataSource;
 
 import junit.framework.TestCase;
@@ -225,6 +226,40 @@ public class XADataSourceTest extends TestCase {
         }
     }
 
+    /*
+     * Only transactions prepared by the driver are recovered, and they can
+     * be filtered by format id.
+     */
+    public void testRecoverFormatId() throws Exception {
+        Xid xid = new CustomXid(7);
+        xaRes.start(xid, XAResource.TMNOFLAGS);
+        conn.createStatement().executeQuery("SELECT * FROM testxa1");
+        xaRes.end(xid, XAResource.TMSUCCESS);
+        xaRes.prepare(xid);
+
+        // a transaction prepared by some other means
+        Statement st = _conn.createStatement();
+        _conn.setAutoCommit(false);
+        st.executeUpdate("INSERT INTO testxa1 VALUES (1)");
+        st.executeUpdate("PREPARE TRANSACTION 'not_an_xid'");
+        _conn.setAutoCommit(true);
+        st.close();
+
+        PGXAConnection pgXaRes = (PGXAConnection)xaRes;
+        Xid[] all = xaRes.recover(XAResource.TMSTARTRSCAN | XAResource.TMENDRSCAN);
+        assertEquals(1, all.length);
+        assertTrue(xid.equals(all[0]));
+
+        Xid[] sameFormat = pgXaRes.recover(XAResource.TMSTARTRSCAN, xid.getFormatId());
+        assertEquals(1, sameFormat.length);
+        assertTrue(xid.equals(sameFormat[0]));
+        assertEquals(0, pgXaRes.recover(XAResource.TMNOFLAGS, xid.getFormatId()).length);
+        assertEquals(0, pgXaRes.recover(XAResource.TMSTARTRSCAN, xid.getFormatId() + 1).length);
+
+        xaRes.rollback(xid);
+        assertEquals(0, xaRes.recover(XAResource.TMSTARTRSCAN).length);
+    }
+
     public void testRollback() throws XAException {
         Xid xid = new CustomXid(3);
 
@@ -7,6 +7,9 @@
  */
 package org.postgresql.util;
 
+import java.math.BigDecimal;
+import java.math.BigInteger;
+
 /**
  * Helper methods to parse java base types from byte arrays.
  *
@@ -14,6 +17,10 @@ package org.postgresql.util;
  */
 public class ByteConverter {
 
+    private static final int NBASE = 10000;
+    private static final int NUMERIC_NEG = 0x4000;
+    private static final int NUMERIC_NAN = 0xC000;
+
     private ByteConverter() {
         // prevent instantiation of static helper class
     }
@@ -87,6 +94,56 @@ public class ByteConverter {
         return Double.longBitsToDouble(int8(bytes, idx));
     }
 
+    /**
+     * Parses a numeric value from the byte array. The value is made of
+     * base 10000 digits and keeps the scale the backend displays.
+     *
+     * @param bytes The byte array to parse.
+     * @param idx The starting index of the parse in the byte array.
+     * @return parsed numeric value.
+     * @throws NumberFormatException if the value is NaN.
+     */
+    public static BigDecimal numeric(byte[] bytes, int idx) {
+        int ndigits = int2(bytes, idx);
+        int weight = int2(bytes, idx + 2);
+        int sign = int2(bytes, idx + 4) & 0xFFFF;
+        int dscale = int2(bytes, idx + 6);
+        if (sign == NUMERIC_NAN) {
+            throw new NumberFormatException("NaN");
+        }
+        if (ndigits == 0) {
+            return BigDecimal.valueOf(0, dscale);
+        }
+
+        int pos = idx + 8;
+        BigInteger unscaled;
+        if (ndigits <= 4) {
+            // up to 16 decimal digits fit in a long
+            long value = 0;
+            for (int i = 0; i < ndigits; ++i) {
+                value = value * NBASE + int2(bytes, pos + 2 * i);
+            }
+            unscaled = BigInteger.valueOf(value);
+        } else {
+            char[] digits = new char[ndigits * 4];
+            for (int i = 0; i < ndigits; ++i) {
+                int digit = int2(bytes, pos + 2 * i);
+                for (int j = 3; j >= 0; --j) {
+                    digits[i * 4 + j] = (char) ('0' + digit % 10);
+                    digit /= 10;
+                }
+            }
+            unscaled = new BigInteger(new String(digits));
+        }
+        if (sign == NUMERIC_NEG) {
+            unscaled = unscaled.negate();
+        }
+
+        // the last digit is worth NBASE^(weight - ndigits + 1)
+        BigDecimal value = new BigDecimal(unscaled, (ndigits - 1 - weight) * 4);
+        return value.setScale(dscale, BigDecimal.ROUND_DOWN);
+    }
+
     /**
      * Encodes a long value to the byte array.
      *
@@ -1,6 +1,5 @@
 package org.postgresql.util;
 
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.sql.SQLException;
 import java.util.HashMap;
@@ -11,56 +10,49 @@ import java.util.Map.Entry;
 import org.postgresql.core.Encoding;
 
 public class HStoreConverter {
+   /**
+    * Returns a read-only view of an hstore value in the binary format, which
+    * decodes only the keys and values that are accessed.
+    */
    public static Map fromBytes(byte[] b, Encoding encoding) throws SQLException {
-       Map m = new HashMap();
-       int pos = 0;
-       int numElements = ByteConverter.int4(b, pos); pos+=4;
-       try {
-           for (int i = 0; i < numElements; ++i) {
-               int keyLen = ByteConverter.int4(b, pos); pos += 4;
-               String key = encoding.decode(b, pos, keyLen); pos += keyLen;
-               int valLen = ByteConverter.int4(b, pos); pos += 4;
-               String val;
-               if (valLen == -1) {
-                   val = null;
-               } else {
-                   val = encoding.decode(b, pos, valLen); pos += valLen;
-               }
-               m.put(key, val);
-           }
-       }
-       catch (IOException ioe)
-       {
-           throw new PSQLException(GT.tr("Invalid character data was found.  This is most likely caused by stored data containing characters that are invalid for the character set the database was created in.  The most common example of this is storing 8bit data in a SQL_ASCII database."), PSQLState.DATA_ERROR, ioe);
-       }
-       return m;
+       return new HStoreMap(b, encoding);
    }
-   
+
    public static byte[] toBytes(Map m, Encoding encoding) throws SQLException {
-       ByteArrayOutputStream baos = new ByteArrayOutputStream(4 + 10 * m.size());
-       byte[] lenBuf = new byte[4];
+       // encode all keys and values first to size the result exactly
+       byte[][] encoded = new byte[m.size() * 2][];
+       int length = 4;
        try {
-           ByteConverter.int4(lenBuf, 0, m.size()); baos.write(lenBuf);
+           int n = 0;
            for (Iterator i = m.entrySet().iterator(); i.hasNext(); ) {
                Entry e = (Entry) i.next();
-               byte[] key = encoding.encode(e.getKey().toString());
-               ByteConverter.int4(lenBuf, 0, key.length); baos.write(lenBuf);
-               baos.write(key);
-               
-               if (e.getValue() == null) {
-                   ByteConverter.int4(lenBuf, 0, -1); baos.write(lenBuf);
-               } else {
-                   byte[] val = encoding.encode(e.getValue().toString());
-                   ByteConverter.int4(lenBuf, 0, val.length); baos.write(lenBuf);
-                   baos.write(val);
+               encoded[n] = encoding.encode(e.getKey().toString());
+               length += 4 + encoded[n++].length;
+               if (e.getValue() != null) {
+                   encoded[n] = encoding.encode(e.getValue().toString());
+                   length += encoded[n].length;
                }
+               length += 4;
+               n++;
            }
        }
        catch (IOException ioe)
        {
            throw new PSQLException(GT.tr("Invalid character data was found.  This is most likely caused by stored data containing characters that are invalid for the character set the database was created in.  The most common example of this is storing 8bit data in a SQL_ASCII database."), PSQLState.DATA_ERROR, ioe);
        }
-       return baos.toByteArray();
+
+       byte[] b = new byte[length];
+       ByteConverter.int4(b, 0, m.size());
+       int pos = 4;
+       for (int n = 0; n < encoded.length; ++n) {
+           if (encoded[n] == null) {
+               ByteConverter.int4(b, pos, -1); pos += 4;
+           } else {
+               ByteConverter.int4(b, pos, encoded[n].length); pos += 4;
+               System.arraycopy(encoded[n], 0, b, pos, encoded[n].length); pos += encoded[n].length;
+           }
+       }
+       return b;
    }
 
    public static String toString(Map map) {
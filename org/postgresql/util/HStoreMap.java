@@ -0,0 +1,267 @@
+/*-------------------------------------------------------------------------
+*
+* Copyright (c) 2015, PostgreSQL Global Development Group
+*
+*
+*-------------------------------------------------------------------------
+*/
+package org.postgresql.util;
+
+import java.io.IOException;
+import java.sql.SQLException;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+import org.postgresql.core.Encoding;
+
+/**
+ * A read-only view of an hstore value in the binary format. The entries are
+ * indexed and checked when the view is created, but a key or value is only
+ * decoded when it is accessed.
+ *
+ * <p>The backend sends the keys sorted by their length and then by their
+ * bytes, so a key is looked up by a binary search over its encoded form.
+ */
+class HStoreMap extends AbstractMap {
+    private final byte[] data;
+    private final Encoding encoding;
+    private final int size;
+
+    // offset of each key; its length precedes it and the value follows it
+    private final int[] keyOffsets;
+    private final boolean sorted;
+
+    // decoded keys and values, allocated on first use
+    private String[] keys;
+    private String[] values;
+
+    private Set entrySet;
+
+    HStoreMap(byte[] data, Encoding encoding) throws SQLException {
+        this.data = data;
+        this.encoding = encoding;
+
+        // check the framing and the character data up front, so a bad value
+        // fails here rather than when an entry is decoded
+        try {
+            int size = ByteConverter.int4(data, 0);
+            if (size < 0) {
+                throw malformed(null);
+            }
+            this.size = size;
+            this.keyOffsets = new int[size];
+
+            boolean sorted = true;
+            int pos = 4;
+            for (int i = 0; i < size; ++i) {
+                int keyLen = ByteConverter.int4(data, pos);
+                if (keyLen < 0 || keyLen > data.length - pos - 8) {
+                    throw malformed(null);
+                }
+                encoding.validate(data, pos + 4, keyLen);
+                keyOffsets[i] = pos + 4;
+                if (i > 0 && compareKeys(keyOffsets[i - 1], data, pos + 4, keyLen) >= 0) {
+                    sorted = false;
+                }
+                pos += 4 + keyLen;
+                int valLen = ByteConverter.int4(data, pos);
+                pos += 4;
+                if (valLen != -1) {
+                    if (valLen < 0 || valLen > data.length - pos) {
+                        throw malformed(null);
+                    }
+                    encoding.validate(data, pos, valLen);
+                    pos += valLen;
+                }
+            }
+            this.sorted = sorted;
+        } catch (ArrayIndexOutOfBoundsException e) {
+            throw malformed(e);
+        } catch (IOException ioe) {
+            throw new PSQLException(GT.tr("Invalid character data was found.  This is most likely caused by stored data containing characters that are invalid for the character set the database was created in.  The most common example of this is storing 8bit data in a SQL_ASCII database."), PSQLState.DATA_ERROR, ioe);
+        }
+    }
+
+    private static PSQLException malformed(Throwable cause) {
+        return new PSQLException(GT.tr("Malformed hstore value."), PSQLState.DATA_ERROR, cause);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean containsKey(Object key) {
+        return indexOf(key) >= 0;
+    }
+
+    public Object get(Object key) {
+        int i = indexOf(key);
+        return i < 0 ? null : value(i);
+    }
+
+    public Set entrySet() {
+        if (entrySet == null) {
+            entrySet = new AbstractSet() {
+                public int size() {
+                    return size;
+                }
+
+                public Iterator iterator() {
+                    return new EntryIterator();
+                }
+            };
+        }
+        return entrySet;
+    }
+
+    private int indexOf(Object key) {
+        if (!(key instanceof String) || size == 0) {
+            return -1;
+        }
+
+        byte[] encoded;
+        try {
+            encoded = encoding.encode((String) key);
+        } catch (IOException ioe) {
+            return -1; // cannot be stored in this database
+        }
+
+        if (!sorted) {
+            for (int i = 0; i < size; ++i) {
+                if (compareKeys(keyOffsets[i], encoded, 0, encoded.length) == 0) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        int low = 0;
+        int high = size - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int cmp = compareKeys(keyOffsets[mid], encoded, 0, encoded.length);
+            if (cmp < 0) {
+                low = mid + 1;
+            } else if (cmp > 0) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -1;
+    }
+
+    /*
+     * Compares a key of the payload to an encoded key as the backend orders
+     * them: by length, then by unsigned bytes.
+     */
+    private int compareKeys(int keyOffset, byte[] other, int otherOffset, int otherLength) {
+        int keyLen = ByteConverter.int4(data, keyOffset - 4);
+        if (keyLen != otherLength) {
+            return keyLen < otherLength ? -1 : 1;
+        }
+        for (int i = 0; i < keyLen; ++i) {
+            int a = data[keyOffset + i] & 0xFF;
+            int b = other[otherOffset + i] & 0xFF;
+            if (a != b) {
+                return a - b;
+            }
+        }
+        return 0;
+    }
+
+    private String key(int i) {
+        if (keys == null) {
+            keys = new String[size];
+        }
+        if (keys[i] == null) {
+            keys[i] = decode(keyOffsets[i], ByteConverter.int4(data, keyOffsets[i] - 4));
+        }
+        return keys[i];
+    }
+
+    private String value(int i) {
+        int pos = keyOffsets[i] + ByteConverter.int4(data, keyOffsets[i] - 4);
+        int valLen = ByteConverter.int4(data, pos);
+        if (valLen == -1) {
+            return null;
+        }
+        if (values == null) {
+            values = new String[size];
+        }
+        if (values[i] == null) {
+            values[i] = decode(pos + 4, valLen);
+        }
+        return values[i];
+    }
+
+    private String decode(int offset, int length) {
+        try {
+            return encoding.decode(data, offset, length);
+        } catch (IOException ioe) {
+            // the constructor has checked the character data
+            throw new IllegalStateException(GT.tr("Invalid character data was found.  This is most likely caused by stored data containing characters that are invalid for the character set the database was created in.  The most common example of this is storing 8bit data in a SQL_ASCII database."), ioe);
+        }
+    }
+
+    private class EntryIterator implements Iterator {
+        private int next = 0;
+
+        public boolean hasNext() {
+            return next < size;
+        }
+
+        public Object next() {
+            if (next >= size) {
+                throw new NoSuchElementException();
+            }
+            return new HStoreEntry(next++);
+        }
+
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+    }
+
+    private class HStoreEntry implements Map.Entry {
+        private final int index;
+
+        HStoreEntry(int index) {
+            this.index = index;
+        }
+
+        public Object getKey() {
+            return key(index);
+        }
+
+        public Object getValue() {
+            return value(index);
+        }
+
+        public Object setValue(Object value) {
+            throw new UnsupportedOperationException();
+        }
+
+        public boolean equals(Object o) {
+            if (!(o instanceof Map.Entry)) {
+                return false;
+            }
+            Map.Entry e = (Map.Entry) o;
+            Object value = getValue();
+            return getKey().equals(e.getKey()) && (value == null ? e.getValue() == null : value.equals(e.getValue()));
+        }
+
+        public int hashCode() {
+            Object value = getValue();
+            return getKey().hashCode() ^ (value == null ? 0 : value.hashCode());
+        }
+
+        public String toString() {
+            return getKey() + "=" + getValue();
+        }
+    }
+}
@@ -18,7 +18,7 @@ import java.util.StringTokenizer;
 /**
  * This implements a class that handles the PostgreSQL interval type
  */
-public class PGInterval extends PGobject implements Serializable, Cloneable
+public class PGInterval extends PGobject implements PGBinaryObject, Serializable, Cloneable
 {
 
     private int years;
@@ -175,6 +175,45 @@ public class PGInterval extends PGobject implements Serializable, Cloneable
         }
     }
 
+    /**
+     * Sets the value of this interval from its binary representation: the
+     * microseconds, days and months. Only the representation of backends
+     * with integer date/times is supported.
+     *
+     * @param b the binary representation
+     * @param offset the offset where the representation starts
+     */
+    public void setByteValue(byte[] b, int offset)
+    {
+        long time = ByteConverter.int8(b, offset);
+        int days = ByteConverter.int4(b, offset + 8);
+        int months = ByteConverter.int4(b, offset + 12);
+
+        // split as the backend does when printing, keeping the signs
+        int hours = (int)(time / 3600000000L);
+        time -= hours * 3600000000L;
+        int minutes = (int)(time / 60000000L);
+        time -= minutes * 60000000L;
+        setValue(months / 12, months % 12, days, hours, minutes, time / 1000000.0);
+    }
+
+    public int lengthInBytes()
+    {
+        return 16;
+    }
+
+    /**
+     * Stores this interval in its binary representation, rounding the
+     * seconds to microseconds.
+     */
+    public void toBytes(byte[] b, int offset)
+    {
+        long time = (hours * 3600L + minutes * 60L) * 1000000L + Math.round(seconds * 1000000.0);
+        ByteConverter.int8(b, offset, time);
+        ByteConverter.int4(b, offset + 8, days);
+        ByteConverter.int4(b, offset + 12, years * 12 + months);
+    }
+
     /**
      * Set all values of this interval to the specified values
      */
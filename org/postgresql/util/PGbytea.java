@@ -7,6 +7,8 @@
 */
 package org.postgresql.util;
 
+import java.io.IOException;
+import java.io.OutputStream;
 import java.sql.*;
 
 /**
@@ -14,7 +16,47 @@ import java.sql.*;
  */
 public class PGbytea
 {
-    private static final int MAX_3_BUFF_SIZE = 2 * 1024 * 1024;
+    /*
+     * Value of each hex digit, by its ASCII code. Other characters are
+     * not checked for, the backend does not send them.
+     */
+    private static final byte[] HEX_VALUES = new byte[256];
+
+    /*
+     * Number of characters the escape format needs for each byte value:
+     * 4 for an octal escape, 2 for the backslash and 1 for the rest.
+     */
+    private static final byte[] ESCAPED_LENGTHS = new byte[256];
+
+    /*
+     * Size of the chunks decoded at a time into a stream.
+     */
+    private static final int STREAM_BUFFER_SIZE = 8192;
+
+    static
+    {
+        for (int i = 0; i < 10; ++i)
+            HEX_VALUES['0' + i] = (byte)i;
+        for (int i = 0; i < 6; ++i)
+        {
+            HEX_VALUES['a' + i] = (byte)(10 + i);
+            HEX_VALUES['A' + i] = (byte)(10 + i);
+        }
+
+        for (int i = 0; i < 256; ++i)
+        {
+            //we escape the same non-printable characters as the backend
+            //we must escape all 8bit characters otherwise when convering
+            //from java unicode to the db character set we may end up with
+            //question marks if the character set is SQL_ASCII
+            if (i < 040 || i > 0176)
+                ESCAPED_LENGTHS[i] = 4;
+            else if (i == '\\')
+                ESCAPED_LENGTHS[i] = 2;
+            else
+                ESCAPED_LENGTHS[i] = 1;
+        }
+    }
 
     /*
      * Converts a PG bytea raw value (i.e. the raw binary representation
@@ -25,107 +67,152 @@ public class PGbytea
         if (s == null)
             return null;
 
-        // Starting with PG 9.0, a new hex format is supported
-        // that starts with "\x".  Figure out which format we're
-        // dealing with here.
-        //
-        if (s.length < 2 || s[0] != '\\' || s[1] != 'x') {
-            return toBytesOctalEscaped(s);
-        }
-        return toBytesHexEscaped(s);
+        byte[] output = new byte[decodedLength(s)];
+        toBytes(s, output, 0);
+        return output;
     }
 
-    private static byte[] toBytesHexEscaped(byte[] s)
+    /**
+     * Returns the number of bytes a PG bytea raw value decodes to.
+     *
+     * @param s the raw value, in the hex or the escape format
+     * @return the length of the decoded value
+     */
+    public static int decodedLength(byte[] s)
     {
-        byte[] output = new byte[(s.length - 2) / 2];
-        for (int i=0; i<output.length; i++) {
-            byte b1 = gethex(s[2 + i*2]);
-            byte b2 = gethex(s[2 + i*2 + 1]);
-            output[i] = (byte)((b1 << 4) | b2);
+        if (isHexFormat(s))
+            return (s.length - 2) / 2;
+
+        // each escape is either \\ or an octal escape like \003
+        int length = s.length;
+        for (int i = 0; i < s.length; ++i)
+        {
+            if (s[i] == '\\')
+            {
+                if (s[++i] == '\\')
+                    length -= 1;
+                else
+                {
+                    length -= 3;
+                    i += 2;
+                }
+            }
         }
-        return output;
+        return length;
     }
 
-    private static byte gethex(byte b) {
-        // 0-9 == 48-57
-        if (b <= 57)
-            return (byte)(b - 48);
-
-        // a-f == 97-102
-        if (b >= 97)
-            return (byte)(b - 97 + 10);
-
-        // A-F == 65-70
-        return (byte)(b - 65 + 10);
+    /**
+     * Decodes a PG bytea raw value into a buffer the caller supplies.
+     *
+     * @param s the raw value, in the hex or the escape format
+     * @param dest the buffer, which must have room for
+     *  {@link #decodedLength(byte[])} bytes from destOffset on
+     * @param destOffset where to start writing in dest
+     * @return the number of bytes written
+     */
+    public static int toBytes(byte[] s, byte[] dest, int destOffset)
+    {
+        if (isHexFormat(s))
+            return hexToBytes(s, 2, s.length, dest, destOffset);
+        return escapedToBytes(s, 0, s.length, dest, destOffset);
     }
 
-    private static byte[] toBytesOctalEscaped(byte[] s)
+    /**
+     * Decodes a PG bytea raw value into a stream, a chunk at a time, without
+     * allocating a buffer for the whole value.
+     *
+     * @param s the raw value, in the hex or the escape format
+     * @param out the stream to write the decoded bytes to
+     * @throws IOException if the stream cannot be written to
+     */
+    public static void toBytes(byte[] s, OutputStream out) throws IOException
     {
-        final int slength = s.length;
-        byte[] buf = null;
-        int correctSize = slength;
-        if (slength > MAX_3_BUFF_SIZE)
+        byte[] buf = new byte[Math.min(STREAM_BUFFER_SIZE, s.length)];
+        if (isHexFormat(s))
         {
-            // count backslash escapes, they will be either
-            // backslashes or an octal escape \\ or \003
-            //
-            for (int i = 0; i < slength; ++i)
+            for (int from = 2; from < s.length; from += buf.length * 2)
             {
-                byte current = s[i];
-                if (current == '\\')
+                int to = Math.min(from + buf.length * 2, s.length);
+                out.write(buf, 0, hexToBytes(s, from, to, buf, 0));
+            }
+        }
+        else
+        {
+            // stop each chunk before an escape that may not fit
+            int from = 0;
+            while (from < s.length)
+            {
+                int to = Math.min(from + buf.length, s.length);
+                int limit = Math.max(from, to - 3);
+                int end = from;
+                while (end < to)
                 {
-                    byte next = s[ ++i ];
-                    if (next == '\\')
+                    if (s[end] == '\\')
                     {
-                        --correctSize;
+                        if (end >= limit)
+                            break;
+                        end += s[end + 1] == '\\' ? 2 : 4;
                     }
                     else
-                    {
-                        correctSize -= 3;
-                    }
+                        ++end;
                 }
+                if (end == from) // a chunk too small for a single escape
+                    end = from + (s[from + 1] == '\\' ? 2 : 4);
+                out.write(buf, 0, escapedToBytes(s, from, end, buf, 0));
+                from = end;
             }
-            buf = new byte[correctSize];
-        }
-        else
-        {
-            buf = new byte[slength];
         }
-        int bufpos = 0;
-        int thebyte;
-        byte nextbyte;
-        byte secondbyte;
-        for (int i = 0; i < slength; i++)
+    }
+
+    private static boolean isHexFormat(byte[] s)
+    {
+        // Starting with PG 9.0, a new hex format is supported
+        // that starts with "\x".
+        return s.length >= 2 && s[0] == '\\' && s[1] == 'x';
+    }
+
+    private static int hexToBytes(byte[] s, int from, int to, byte[] dest, int destOffset)
+    {
+        final byte[] hex = HEX_VALUES;
+        int pos = destOffset;
+        for (int i = from; i + 1 < to; i += 2)
+            dest[pos++] = (byte)(hex[s[i] & 0xFF] << 4 | hex[s[i + 1] & 0xFF]);
+        return pos - destOffset;
+    }
+
+    private static int escapedToBytes(byte[] s, int from, int to, byte[] dest, int destOffset)
+    {
+        int pos = destOffset;
+        int i = from;
+        while (i < to)
         {
-            nextbyte = s[i];
-            if (nextbyte == (byte)'\\')
+            // copy the run of unescaped bytes at once
+            int run = i;
+            while (run < to && s[run] != '\\')
+                ++run;
+            if (run > i)
             {
-                secondbyte = s[++i];
-                if (secondbyte == (byte)'\\')
-                {
-                    //escaped \
-                    buf[bufpos++] = (byte)'\\';
-                }
-                else
-                {
-                    thebyte = (secondbyte - 48) * 64 + (s[++i] - 48) * 8 + (s[++i] - 48);
-                    if (thebyte > 127)
-                        thebyte -= 256;
-                    buf[bufpos++] = (byte)thebyte;
-                }
+                System.arraycopy(s, i, dest, pos, run - i);
+                pos += run - i;
+                i = run;
+                if (i == to)
+                    break;
+            }
+
+            byte second = s[i + 1];
+            if (second == '\\')
+            {
+                //escaped \
+                dest[pos++] = (byte)'\\';
+                i += 2;
             }
             else
             {
-                buf[bufpos++] = nextbyte;
+                dest[pos++] = (byte)((second - '0') << 6 | (s[i + 2] - '0') << 3 | (s[i + 3] - '0'));
+                i += 4;
             }
         }
-        if (bufpos == correctSize)
-        {
-            return buf;
-        }
-        byte[] l_return = new byte[bufpos];
-        System.arraycopy(buf, 0, l_return, 0, bufpos);
-        return l_return;
+        return pos - destOffset;
     }
 
     /*
@@ -136,39 +223,55 @@ public class PGbytea
     {
         if (p_buf == null)
             return null;
-        StringBuilder l_strbuf = new StringBuilder(2 * p_buf.length);
-        for (int i = 0; i < p_buf.length; i++)
+        byte[] escaped = toPGBytes(p_buf);
+        char[] chars = new char[escaped.length];
+        for (int i = 0; i < escaped.length; ++i)
+            chars[i] = (char)escaped[i];
+        return new String(chars);
+    }
+
+    /**
+     * Converts a java byte[] into the ASCII bytes of a PG bytea string in
+     * the escape format, which all server versions accept.
+     *
+     * @param p_buf the value
+     * @return the escaped value, or null if p_buf is null
+     */
+    public static byte[] toPGBytes(byte[] p_buf)
+    {
+        if (p_buf == null)
+            return null;
+
+        final byte[] lengths = ESCAPED_LENGTHS;
+        int length = 0;
+        for (int i = 0; i < p_buf.length; ++i)
+            length += lengths[p_buf[i] & 0xFF];
+
+        byte[] out = new byte[length];
+        int pos = 0;
+        for (int i = 0; i < p_buf.length; ++i)
         {
-            int l_int = (int)p_buf[i];
-            if (l_int < 0)
-            {
-                l_int = 256 + l_int;
-            }
-            //we escape the same non-printable characters as the backend
-            //we must escape all 8bit characters otherwise when convering
-            //from java unicode to the db character set we may end up with
-            //question marks if the character set is SQL_ASCII
-            if (l_int < 040 || l_int > 0176)
-            {
-                //escape charcter with the form \000, but need two \\ because of
-                //the Java parser
-                l_strbuf.append("\\");
-                l_strbuf.append((char)(((l_int >> 6) & 0x3) + 48));
-                l_strbuf.append((char)(((l_int >> 3) & 0x7) + 48));
-                l_strbuf.append((char)((l_int & 0x07) + 48));
-            }
-            else if (p_buf[i] == (byte)'\\')
-            {
-                //escape the backslash character as \\, but need four \\\\ because
-                //of the Java parser
-                l_strbuf.append("\\\\");
-            }
-            else
+            int b = p_buf[i] & 0xFF;
+            switch (lengths[b])
             {
+            case 1:
                 //other characters are left alone
-                l_strbuf.append((char)p_buf[i]);
+                out[pos++] = (byte)b;
+                break;
+            case 2:
+                //escape the backslash character as \\
+                out[pos++] = (byte)'\\';
+                out[pos++] = (byte)'\\';
+                break;
+            default:
+                //escape charcter with the form \000
+                out[pos++] = (byte)'\\';
+                out[pos++] = (byte)('0' + (b >> 6));
+                out[pos++] = (byte)('0' + (b >> 3 & 7));
+                out[pos++] = (byte)('0' + (b & 7));
+                break;
             }
         }
-        return l_strbuf.toString();
+        return out;
     }
 }
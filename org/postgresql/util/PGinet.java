@@ -0,0 +1,245 @@
+/*-------------------------------------------------------------------------
+*
+* Copyright (c) 2015, PostgreSQL Global Development Group
+*
+*
+*-------------------------------------------------------------------------
+*/
+package org.postgresql.util;
+
+import java.io.Serializable;
+import java.sql.SQLException;
+
+/**
+ * This implements a class that handles the PostgreSQL inet and cidr types.
+ * The value is kept as text; a value received in the binary format is
+ * formatted as the backend does.
+ */
+public class PGinet extends PGobject implements PGBinaryObject, Serializable, Cloneable
+{
+    private static final int PGSQL_AF_INET = 2;
+    private static final int PGSQL_AF_INET6 = 3;
+
+    public PGinet(String value) throws SQLException
+    {
+        this();
+        setValue(value);
+    }
+
+    /*
+     * Required by the driver
+     */
+    public PGinet()
+    {
+        setType("inet");
+    }
+
+    /**
+     * @param b the family, the mask length, the cidr flag, the address
+     *  length and the address, as the backend sends them
+     */
+    public void setByteValue(byte[] b, int offset)
+    {
+        int family = b[offset];
+        int bits = b[offset + 1] & 0xFF;
+        boolean cidr = b[offset + 2] != 0;
+        int pos = offset + 4;
+
+        StringBuilder sb = new StringBuilder(family == PGSQL_AF_INET ? 18 : 49);
+        int maxBits;
+        if (family == PGSQL_AF_INET)
+        {
+            appendIPv4(sb, b, pos);
+            maxBits = 32;
+        }
+        else
+        {
+            appendIPv6(sb, b, pos);
+            maxBits = 128;
+        }
+        if (cidr || bits != maxBits)
+            sb.append('/').append(bits);
+        value = sb.toString();
+    }
+
+    private static void appendIPv4(StringBuilder sb, byte[] b, int pos)
+    {
+        for (int i = 0; i < 4; ++i)
+        {
+            if (i > 0)
+                sb.append('.');
+            sb.append(b[pos + i] & 0xFF);
+        }
+    }
+
+    /*
+     * Formats an IPv6 address as the backend does: the longest run of at
+     * least two zero words is shortened to ::, and an IPv4 address mapped
+     * or compatible to IPv6 ends in dotted form.
+     */
+    private static void appendIPv6(StringBuilder sb, byte[] b, int pos)
+    {
+        int[] words = new int[8];
+        for (int i = 0; i < 8; ++i)
+            words[i] = (b[pos + 2 * i] & 0xFF) << 8 | (b[pos + 2 * i + 1] & 0xFF);
+
+        int bestBase = -1;
+        int bestLen = 0;
+        for (int i = 0; i < 8; )
+        {
+            if (words[i] != 0)
+            {
+                ++i;
+                continue;
+            }
+            int len = 1;
+            while (i + len < 8 && words[i + len] == 0)
+                ++len;
+            if (len > bestLen)
+            {
+                bestBase = i;
+                bestLen = len;
+            }
+            i += len;
+        }
+        if (bestLen < 2)
+            bestBase = -1;
+
+        for (int i = 0; i < 8; ++i)
+        {
+            if (bestBase != -1 && i >= bestBase && i < bestBase + bestLen)
+            {
+                if (i == bestBase)
+                    sb.append(':');
+                continue;
+            }
+            if (i != 0)
+                sb.append(':');
+            if (i == 6 && bestBase == 0 && (bestLen == 6 || (bestLen == 5 && words[5] == 0xffff)))
+            {
+                appendIPv4(sb, b, pos + 12);
+                return;
+            }
+            sb.append(Integer.toHexString(words[i]));
+        }
+        if (bestBase != -1 && bestBase + bestLen == 8)
+            sb.append(':');
+    }
+
+    public int lengthInBytes()
+    {
+        return value.indexOf(':') == -1 ? 8 : 20;
+    }
+
+    /**
+     * Stores the value in the binary format. Besides full addresses,
+     * abbreviated IPv4 networks are understood, but not the other forms the
+     * backend accepts.
+     *
+     * @throws IllegalArgumentException if the value cannot be parsed
+     */
+    public void toBytes(byte[] b, int offset)
+    {
+        boolean cidr = "cidr".equals(type);
+        int slash = value.indexOf('/');
+        String address = (slash == -1 ? value : value.substring(0, slash)).trim();
+        int bits = slash == -1 ? -1 : Integer.parseInt(value.substring(slash + 1).trim());
+
+        int pos = offset + 4;
+        if (address.indexOf(':') == -1)
+        {
+            int octets = parseIPv4(address, b, pos);
+            if (bits == -1 && cidr)
+            {
+                // the class of the network implies the mask, as in the backend
+                int first = b[pos] & 0xFF;
+                bits = first >= 240 ? 32 : first >= 224 ? 8 : first >= 192 ? 24 : first >= 128 ? 16 : 8;
+                if (bits < octets * 8)
+                    bits = octets * 8;
+                if (bits == 8 && first == 224)
+                    bits = 4;
+            }
+            b[offset] = PGSQL_AF_INET;
+            b[offset + 1] = (byte)(bits == -1 ? 32 : bits);
+            b[offset + 3] = 4;
+        }
+        else
+        {
+            parseIPv6(address, b, pos);
+            b[offset] = PGSQL_AF_INET6;
+            b[offset + 1] = (byte)(bits == -1 ? 128 : bits);
+            b[offset + 3] = 16;
+        }
+        b[offset + 2] = (byte)(cidr ? 1 : 0);
+    }
+
+    /*
+     * @return the number of octets given, the missing ones are zero
+     */
+    private static int parseIPv4(String s, byte[] b, int pos)
+    {
+        int octets = 0;
+        int start = 0;
+        while (start <= s.length())
+        {
+            int end = s.indexOf('.', start);
+            if (end == -1)
+                end = s.length();
+            int octet = Integer.parseInt(s.substring(start, end));
+            if (octet < 0 || octet > 255 || octets == 4)
+                throw new IllegalArgumentException(s);
+            b[pos + octets++] = (byte)octet;
+            start = end + 1;
+        }
+        for (int i = octets; i < 4; ++i)
+            b[pos + i] = 0;
+        return octets;
+    }
+
+    private static void parseIPv6(String s, byte[] b, int pos)
+    {
+        int gap = s.indexOf("::");
+        String head = gap == -1 ? s : s.substring(0, gap);
+        String tail = gap == -1 ? "" : s.substring(gap + 2);
+
+        byte[] words = new byte[16];
+        int headLen = parseWords(head, words, 0);
+        byte[] tailWords = new byte[16];
+        int tailLen = parseWords(tail, tailWords, 0);
+        if (headLen + tailLen > 16 || (gap == -1 && headLen != 16))
+            throw new IllegalArgumentException(s);
+        System.arraycopy(tailWords, 0, words, 16 - tailLen, tailLen);
+        System.arraycopy(words, 0, b, pos, 16);
+    }
+
+    /*
+     * Parses colon separated hex words, the last of which may be an IPv4
+     * address, and returns the number of bytes parsed.
+     */
+    private static int parseWords(String s, byte[] dest, int pos)
+    {
+        if (s.length() == 0)
+            return 0;
+        int start = 0;
+        int len = 0;
+        while (true)
+        {
+            int end = s.indexOf(':', start);
+            String word = end == -1 ? s.substring(start) : s.substring(start, end);
+            if (end == -1 && word.indexOf('.') != -1)
+            {
+                if (len > 12 || parseIPv4(word, dest, pos + len) != 4)
+                    throw new IllegalArgumentException(s);
+                return len + 4;
+            }
+            int hex = Integer.parseInt(word, 16);
+            if (hex < 0 || hex > 0xffff || len > 14)
+                throw new IllegalArgumentException(s);
+            dest[pos + len++] = (byte)(hex >> 8);
+            dest[pos + len++] = (byte)hex;
+            if (end == -1)
+                return len;
+            start = end + 1;
+        }
+    }
+}
@@ -9,7 +9,9 @@ package org.postgresql.xa;
 import org.postgresql.PGConnection;
 import org.postgresql.ds.PGPooledConnection;
 import org.postgresql.core.BaseConnection;
+import org.postgresql.core.BaseStatement;
 import org.postgresql.core.ProtocolConnection;
+import org.postgresql.core.QueryExecutor;
 import org.postgresql.core.Logger;
 import org.postgresql.util.GT;
 import org.postgresql.util.PSQLException;
@@ -80,6 +82,26 @@ public class PGXAConnection extends PGPooledConnection implements XAConnection,
      */
     private boolean localAutoCommitMode = true;
 
+    /*
+     * Statements on the underlying connection, kept for the next call.
+     * The two-phase commit commands take no parameters, so they are run as
+     * plain statements; recover runs the same query every time.
+     */
+    private BaseStatement commandStatement;
+    private PreparedStatement recoverStatement;
+
+    /*
+     * Matches the gids of transactions prepared by the driver, see
+     * RecoveredXid.xidToString, given the pattern of their format id.
+     */
+    private static final String GID_PATTERN_REST = "_[A-Za-z0-9+/=]*_[A-Za-z0-9+/=]*$";
+    private static final String ANY_GID_PATTERN = "^-?[0-9]+" + GID_PATTERN_REST;
+
+    /*
+     * Rows fetched at a time by recover, if it is run in a transaction.
+     */
+    private static final int RECOVER_FETCH_SIZE = 1000;
+
     private void debug(String s) {
         logger.debug("XAResource " + Integer.toHexString(this.hashCode()) + ": " + s);
     }
@@ -310,17 +332,8 @@ public class PGXAConnection extends PGPooledConnection implements XAConnection,
 
         try
         {
-            String s = RecoveredXid.xidToString(xid);
-
-            Statement stmt = conn.createStatement();
-            try
-            {
-                stmt.executeUpdate("PREPARE TRANSACTION '" + s + "'");
-            }
-            finally
-            {
-                stmt.close();
-            }
+            // The BEGIN of a transaction that did no work yet is sent along.
+            execCommand("PREPARE TRANSACTION", xid, 0);
             conn.setAutoCommit(localAutoCommitMode);
 
             return XA_OK;
@@ -352,39 +365,66 @@ public class PGXAConnection extends PGPooledConnection implements XAConnection,
         if ((flag & TMSTARTRSCAN) == 0)
             return new Xid[0];
         else
+            return recoverMatching(ANY_GID_PATTERN);
+    }
+
+    /**
+     * Like {@link #recover(int)}, but only returns the xids of the given
+     * format. The transactions of other formats are skipped by the server,
+     * so they cost nothing when a transaction manager only needs its own.
+     *
+     * @param flag as for recover(int)
+     * @param formatId the format id of the xids to return
+     * @return the prepared xids of that format
+     * @throws XAException if an error occurs
+     */
+    public Xid[] recover(int flag, int formatId) throws XAException {
+        if (flag != TMSTARTRSCAN && flag != TMENDRSCAN && flag != TMNOFLAGS && flag != (TMSTARTRSCAN | TMENDRSCAN))
+            throw new PGXAException(GT.tr("Invalid flag"), XAException.XAER_INVAL);
+
+        if ((flag & TMSTARTRSCAN) == 0)
+            return new Xid[0];
+        else
+            return recoverMatching("^" + formatId + GID_PATTERN_REST);
+    }
+
+    private Xid[] recoverMatching(String gidPattern) throws XAException {
+        try
         {
+            if (recoverStatement == null)
+            {
+                recoverStatement = conn.prepareStatement("SELECT gid FROM pg_prepared_xacts WHERE database = current_database() AND gid ~ ?");
+                recoverStatement.setFetchSize(RECOVER_FETCH_SIZE);
+            }
+            recoverStatement.setString(1, gidPattern);
+
+            // If this connection is simultaneously used for a transaction,
+            // this query gets executed inside that transaction. It's OK,
+            // except if the transaction is in abort-only state and the
+            // backed refuses to process new queries. Hopefully not a problem
+            // in practise. Inside a transaction the rows are fetched in
+            // batches, and each is decoded as it arrives.
+            ResultSet rs = recoverStatement.executeQuery();
             try
             {
-                Statement stmt = conn.createStatement();
-                try
-                {
-                    // If this connection is simultaneously used for a transaction,
-                    // this query gets executed inside that transaction. It's OK,
-                    // except if the transaction is in abort-only state and the
-                    // backed refuses to process new queries. Hopefully not a problem
-                    // in practise.
-                    ResultSet rs = stmt.executeQuery("SELECT gid FROM pg_prepared_xacts where database = current_database()");
-                    LinkedList l = new LinkedList();
-                    while (rs.next())
-                    {
-                        Xid recoveredXid = RecoveredXid.stringToXid(rs.getString(1));
-                        if (recoveredXid != null)
-                            l.add(recoveredXid);
-                    }
-                    rs.close();
-
-                    return (Xid[]) l.toArray(new Xid[l.size()]);
-                }
-                finally
+                ArrayList<Xid> l = new ArrayList<Xid>();
+                while (rs.next())
                 {
-                    stmt.close();
+                    Xid recoveredXid = RecoveredXid.bytesToXid(rs.getBytes(1));
+                    if (recoveredXid != null)
+                        l.add(recoveredXid);
                 }
+                return l.toArray(new Xid[l.size()]);
             }
-            catch (SQLException ex)
+            finally
             {
-                throw new PGXAException(GT.tr("Error during recover"), ex, XAException.XAER_RMERR);
+                rs.close();
             }
         }
+        catch (SQLException ex)
+        {
+            throw new PGXAException(GT.tr("Error during recover"), ex, XAException.XAER_RMERR);
+        }
     }
 
     /**
@@ -414,18 +454,8 @@ public class PGXAConnection extends PGPooledConnection implements XAConnection,
             }
             else
             {
-                String s = RecoveredXid.xidToString(xid);
-
                 conn.setAutoCommit(true);
-                Statement stmt = conn.createStatement();
-                try
-                {
-                    stmt.executeUpdate("ROLLBACK PREPARED '" + s + "'");
-                }
-                finally
-                {
-                    stmt.close();
-                }
+                execCommand("ROLLBACK PREPARED", xid, QueryExecutor.QUERY_SUPPRESS_BEGIN);
             }
         }
         catch (SQLException ex)
@@ -508,20 +538,9 @@ public class PGXAConnection extends PGPooledConnection implements XAConnection,
                 throw new PGXAException(GT.tr("Not implemented: 2nd phase commit must be issued using an idle connection"),
                                         XAException.XAER_RMERR);
 
-            String s = RecoveredXid.xidToString(xid);
-
-            localAutoCommitMode = conn.getAutoCommit();
-            conn.setAutoCommit(true);
-            Statement stmt = conn.createStatement();
-            try
-            {
-                stmt.executeUpdate("COMMIT PREPARED '" + s + "'");
-            }
-            finally
-            {
-                stmt.close();
-                conn.setAutoCommit(localAutoCommitMode);
-            }
+            // It must not be run in a transaction block, whatever the
+            // autocommit mode.
+            execCommand("COMMIT PREPARED", xid, QueryExecutor.QUERY_SUPPRESS_BEGIN);
         }
         catch (SQLException ex)
         {
@@ -529,6 +548,23 @@ public class PGXAConnection extends PGPooledConnection implements XAConnection,
         }
     }
 
+    /**
+     * Runs a two-phase commit command for an xid on the underlying
+     * connection, without asking for result metadata.
+     *
+     * @param command the command, followed by the gid of xid
+     * @param xid the xid
+     * @param flags additional QueryExecutor flags
+     */
+    private void execCommand(String command, Xid xid, int flags) throws SQLException {
+        // the gid only contains digits, '_', '-' and Base64 characters, so
+        // it needs no escaping
+        String sql = command + " '" + RecoveredXid.xidToString(xid) + "'";
+        if (commandStatement == null)
+            commandStatement = (BaseStatement)conn.createStatement();
+        commandStatement.executeWithFlags(sql, QueryExecutor.QUERY_ONESHOT | QueryExecutor.QUERY_NO_METADATA | QueryExecutor.QUERY_NO_RESULTS | flags);
+    }
+
     public boolean isSameRM(XAResource xares) throws XAException {
         // This trivial implementation makes sure that the
         // application server doesn't try to use another connection
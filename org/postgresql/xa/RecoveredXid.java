@@ -92,4 +92,58 @@ class RecoveredXid implements Xid {
 
         return xid;
     }
+
+    /**
+     * Decodes a gid straight from the bytes of its text, which only
+     * contains ASCII characters if it was encoded by the driver.
+     *
+     * @param gid the bytes of the gid
+     * @return recovered xid, or null if gid does not represent a
+     *   valid xid encoded by the driver.
+     */
+    static Xid bytesToXid(byte[] gid) {
+        int a = -1;
+        int b = -1;
+        for (int i = 0; i < gid.length; ++i)
+        {
+            if (gid[i] == '_')
+            {
+                if (a == -1)
+                    a = i;
+                b = i;
+            }
+        }
+
+        if (a == b) // this also catches the case a == b == -1.
+            return null;
+
+        // the format id, as Integer.parseInt would parse it
+        boolean negative = gid[0] == '-';
+        int i = negative ? 1 : 0;
+        if (i == a)
+            return null;
+        long formatId = 0;
+        for (; i < a; ++i)
+        {
+            int digit = gid[i] - '0';
+            if (digit < 0 || digit > 9)
+                return null;
+            formatId = formatId * 10 + digit;
+            if (formatId > (long)Integer.MAX_VALUE + 1)
+                return null;
+        }
+        if (negative)
+            formatId = -formatId;
+        if (formatId > Integer.MAX_VALUE)
+            return null;
+
+        RecoveredXid xid = new RecoveredXid();
+        xid.formatId = (int)formatId;
+        xid.globalTransactionId = Base64.decode(gid, a + 1, b - a - 1);
+        xid.branchQualifier = Base64.decode(gid, b + 1, gid.length - b - 1);
+        if (xid.globalTransactionId == null || xid.branchQualifier == null)
+            return null;
+
+        return xid;
+    }
 }